@@ -0,0 +1,159 @@
+package analizador;
+
+import modelo.Diagnosticos;
+import modelo.ResultadoAnalisis;
+import util.VistaBytes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Analiza archivos con muchas partidas en notación SAN sin cargarlos en memoria.
+ *
+ * El archivo se mapea en memoria por ventanas con FileChannel y cada partida se
+ * analiza directamente sobre los bytes mapeados, así que el uso del heap no
+ * depende del tamaño del archivo. Una partida termina en una línea en blanco o
+ * cuando empieza una línea con "1." después de otra partida.
+ */
+public class AnalizadorArchivo {
+
+    // Tamaño de cada ventana mapeada; crece si una sola partida no cabe en ella
+    private static final int VENTANA_POR_DEFECTO = 1 << 28;
+
+    private final AnalizadorSintactico analizador;
+    private final int ventana;
+
+    /**
+     * Constructor con el analizador y la ventana por defecto
+     */
+    public AnalizadorArchivo() {
+        this(new AnalizadorSintactico(), VENTANA_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor
+     * @param analizador Analizador que se aplica a cada partida
+     * @param ventana Número de bytes que se mapean cada vez
+     */
+    public AnalizadorArchivo(AnalizadorSintactico analizador, int ventana) {
+        if (ventana <= 0) {
+            throw new IllegalArgumentException("Tamaño de ventana inválido: " + ventana);
+        }
+        this.analizador = analizador;
+        this.ventana = ventana;
+    }
+
+    /**
+     * Analiza todas las partidas de un archivo
+     * @param archivo Ruta del archivo
+     * @param receptor Destino de los resultados, en el orden del archivo
+     * @return Número de partidas analizadas
+     * @throws IOException Si no se puede leer el archivo
+     */
+    public long analizar(Path archivo, ReceptorResultados receptor) throws IOException {
+        return analizar(archivo, receptor, false);
+    }
+
+    /**
+     * Analiza todas las partidas de un archivo
+     * @param archivo Ruta del archivo
+     * @param receptor Destino de los resultados, en el orden del archivo
+     * @param construirPartidas true para que los resultados válidos incluyan la partida
+     * @return Número de partidas analizadas
+     * @throws IOException Si no se puede leer el archivo
+     */
+    public long analizar(Path archivo, ReceptorResultados receptor, boolean construirPartidas) throws IOException {
+        return analizar(archivo, receptor, construirPartidas, null);
+    }
+
+    /**
+     * Analiza todas las partidas de un archivo calculando la huella de cada una.
+     * Cuando el receptor recibe una partida válida, la huella ya tiene su valor
+     * @param archivo Ruta del archivo
+     * @param receptor Destino de los resultados, en el orden del archivo
+     * @param construirPartidas true para que los resultados válidos incluyan la partida
+     * @param huella Huella que se recalcula con cada partida, o null
+     * @return Número de partidas analizadas
+     * @throws IOException Si no se puede leer el archivo
+     */
+    long analizar(Path archivo, ReceptorResultados receptor, boolean construirPartidas, HuellaPartida huella) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            Recorrido recorrido = new Recorrido(receptor, construirPartidas, huella);
+            long tamano = canal.size();
+            long posicion = 0;
+            int ventanaActual = ventana;
+            while (posicion < tamano) {
+                int longitud = (int) Math.min(ventanaActual, tamano - posicion);
+                boolean ultima = posicion + longitud == tamano;
+                MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, posicion, longitud);
+                int consumidos = recorrido.procesar(buffer, ultima);
+                if (consumidos == 0) {
+                    // Una partida ocupa toda la ventana: se vuelve a mapear con el doble
+                    if (ventanaActual > Integer.MAX_VALUE / 2) {
+                        throw new IOException("Partida demasiado grande en la posición " + posicion);
+                    }
+                    ventanaActual *= 2;
+                    continue;
+                }
+                posicion += consumidos;
+            }
+            return recorrido.partidas;
+        }
+    }
+
+    /**
+     * Analiza todas las partidas de un buffer ya cargado, por ejemplo la entrada
+     * estándar leída entera
+     * @param buffer Buffer con las partidas, entre su posición y su límite
+     * @param receptor Destino de los resultados, en el orden del buffer
+     * @return Número de partidas analizadas
+     */
+    public long analizar(ByteBuffer buffer, ReceptorResultados receptor) {
+        Recorrido recorrido = new Recorrido(receptor, false, null);
+        recorrido.procesar(buffer.duplicate(), true);
+        return recorrido.partidas;
+    }
+
+    /**
+     * Estado de un recorrido por el archivo. La vista y el escáner se reutilizan
+     * para todas las partidas. Recibe los tramos él mismo en lugar de con una
+     * lambda, que al arrancar cuesta generar su clase
+     */
+    private final class Recorrido implements DivisorPartidas.ReceptorTramos {
+        private final ReceptorResultados receptor;
+        private final VistaBytes vista = new VistaBytes();
+        private final EscanerTurnos escaner = new EscanerTurnos();
+        private final Diagnosticos diagnosticos = new Diagnosticos();
+        private final boolean construirPartidas;
+        private final HuellaPartida huella;
+        private ByteBuffer buffer;
+        private long partidas;
+
+        Recorrido(ReceptorResultados receptor, boolean construirPartidas, HuellaPartida huella) {
+            this.receptor = receptor;
+            this.construirPartidas = construirPartidas;
+            this.huella = huella;
+        }
+
+        /**
+         * Analiza las partidas completas de una ventana o de un buffer
+         * @return Número de bytes consumidos; lo que queda se vuelve a mapear en la siguiente
+         */
+        int procesar(ByteBuffer buffer, boolean ultima) {
+            this.buffer = buffer;
+            return DivisorPartidas.recorrer(buffer, buffer.position(), buffer.limit(), ultima, this) - buffer.position();
+        }
+
+        @Override
+        public void partida(int inicio, int fin) {
+            vista.reiniciar(buffer, inicio, fin);
+            escaner.reiniciar(vista);
+            ResultadoAnalisis resultado = analizador.analizar(escaner, construirPartidas, diagnosticos, huella);
+            receptor.recibir(++partidas, resultado);
+        }
+    }
+}
@@ -1,78 +1,65 @@
 package analizador;
 
-import modelo.Jugada;
+import modelo.Diagnosticos;
 import modelo.Partida;
 import modelo.ResultadoAnalisis;
-import modelo.Turno;
+import util.Metricas;
  //Librerías necesarias para la interfaz gráfica
 import javax.swing.*;
 import java.awt.*;
-import java.util.*;
-import java.util.List;
-//Librerías necesarias para expresiones regulares
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class AnalizadorGramatica {
-    // Patrón para extraer los turnos de la partida
-    private static final Pattern PATRON_TURNO = Pattern.compile("(\\d+)\\.\\s*([A-Za-z0-9\\-O\\+#x=]+)(?:\\s+([A-Za-z0-9\\-O\\+#x=]+))?");
-    
+
+    /**
+     * Analiza una partida con la gramática BNF y, si es válida, muestra su árbol sintáctico
+     * @param textoPartida Texto de la partida en notación SAN
+     * @return Resultado del análisis
+     */
     public ResultadoAnalisis analizar(String textoPartida) {
-        try {
-            //Se almacena en el objeto partida de la función extraer Partida
-            Partida partida = extraerPartida(textoPartida); 
-            // Comprueba si la lista de turnos de la partida (obtenida con getTurnos()) está vacía.
-            if (partida.getTurnos().isEmpty()) {
-                return new ResultadoAnalisis(false, "No se encontraron turnos válidos en la partida.");
-            } // Muestra el árbol de la partida en una interfaz gráfica
-            mostrarArbolEnInterfaz(partida); //Se le pasa de parametro la partida
-            return new ResultadoAnalisis(true, partida.getTurnos().size());
-        } catch (Exception e) {
-            return new ResultadoAnalisis(false, "Error: " + e.getMessage());
+        // El árbol que construye el análisis predictivo da la partida y el dibujo; no se vuelve a leer el texto
+        AnalizadorPredictivo analizador = new AnalizadorPredictivo();
+        Diagnosticos diagnosticos = new Diagnosticos();
+        NodoSintactico arbol = analizador.analizar(textoPartida, diagnosticos);
+        ResultadoAnalisis resultado = analizador.construir(textoPartida, arbol, diagnosticos);
+        if (resultado.esValido()) {
+            // Muestra el árbol sintáctico en una interfaz gráfica
+            mostrarArbolEnInterfaz(arbol);
         }
+        return resultado;
     }
-    //Función que extrae los turnos de la partida
-    private Partida extraerPartida(String textoPartida) {
-    //Instancia un nuevo objeto Partida vacío que se usará para almacenar los datos extraídos.        
-        Partida partida = new Partida();
-        // Utiliza el patrón definido para encontrar coincidencias con los turnos en el texto de la partida
-        Matcher matcher = PATRON_TURNO.matcher(textoPartida);
-        
-        while (matcher.find()) { //Funciona mientras encuentre coincidencias
-            //Obtiene el numero de turno y lo convierte a entero
-            int numeroTurno = Integer.parseInt(matcher.group(1));
-            //Se extraen las jugadas blanca y negra, eliminando espacios con el trim
-            String jugadaBlanca = matcher.group(2).trim();
-            String jugadaNegra = matcher.group(3) != null ? matcher.group(3).trim() : null;
-            
-            // Crea una insancia de Turno con el número de turno
-            Turno turno = new Turno(numeroTurno);
-            turno.setJugadaBlanca(new Jugada(jugadaBlanca)); //Crea un objeto Jugada con la jugada blanca y lo asigna al turno
-            if (jugadaNegra != null && !jugadaNegra.isEmpty()) {
-                turno.setJugadaNegra(new Jugada(jugadaNegra));
-            }
-            // Agrega el turno a la partida
-            partida.agregarTurno(turno);
+
+    /**
+     * Muestra el árbol sintáctico concreto de una partida, con un nodo por regla y una hoja por token
+     * @param arbol Raíz del árbol que construye AnalizadorPredictivo
+     */
+    public void mostrarArbolEnInterfaz(NodoSintactico arbol) {
+        Metricas.Medicion medicion = Metricas.iniciar(Metricas.Fase.DISPOSICION);
+        DisposicionArbol disposicion = DisposicionArbol.de(arbol);
+        if (medicion != null) {
+            medicion.terminar(disposicion.getNumeroNodos());
         }
-        return partida;
+        mostrar(disposicion, "Árbol sintáctico de la Partida");
     }
-    
-    private void mostrarArbolEnInterfaz(Partida partida) {
-        // Crea una lista para almacenar las jugadas como String 
-        List<String> jugadas = new ArrayList<>();
-        //la lista tiene el nodo raíz "Inicio"
-        jugadas.add("Inicio"); 
-        //Recorre los turnos de la partida y agrega las jugadas a la lista
-        for (Turno turno : partida.getTurnos()) {
-            jugadas.add(turno.getJugadaBlanca().getNotacion());
-            if (turno.getJugadaNegra() != null) {
-                jugadas.add(turno.getJugadaNegra().getNotacion());
-            }
+
+    /**
+     * Muestra el árbol de derivación de una partida ya analizada
+     * @param partida Partida validada por el analizador sintáctico
+     */
+    public void mostrarArbolEnInterfaz(Partida partida) {
+        // La posición de cada nodo se calcula aquí, fuera del hilo de eventos, y una sola vez
+        Metricas.Medicion medicion = Metricas.iniciar(Metricas.Fase.DISPOSICION);
+        DisposicionArbol disposicion = DisposicionArbol.de(partida);
+        if (medicion != null) {
+            medicion.terminar(disposicion.getNumeroNodos());
         }
+        mostrar(disposicion, "Árbol de la Partida");
+    }
+
+    private void mostrar(DisposicionArbol disposicion, String titulo) {
         //Usa invokeLater para asegurar que la creación de la interfaz gráfica se ejecute en el hilo de eventos de Swing (EDT).
         SwingUtilities.invokeLater(() -> {
             // Crea un JFrame para mostrar el árbol de la partida
-            JFrame frame = new JFrame("Árbol de la Partida");
+            JFrame frame = new JFrame(titulo);
             // Configura la ventana para que solo se cierre ella misma (no toda la aplicación) cuando el usuario hace clic en la X.
             frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
            //Establece tamaño de la ventana 
@@ -80,82 +67,169 @@ public class AnalizadorGramatica {
             //Coloca la ventana en el centro de la pantalla
             frame.setLocationRelativeTo(null);
             
-            ArbolPanel panel = new ArbolPanel(jugadas);
+            ArbolPanel panel = new ArbolPanel(disposicion);
+            // Al principio el árbol completo cabe en la ventana, sin pasar del tamaño real
+            panel.setEscala(Math.min(1.0, Math.min(780.0 / Math.max(1, disposicion.getAncho()),
+                    560.0 / disposicion.getAlto())));
             //Añade un scroll a la pantalla
             frame.add(new JScrollPane(panel));
            //Hace la ventana viisible con todos sus componentes 
             frame.setVisible(true);
         });
     }
-    // Utilizamos herencia con la clase JPanel para crear un panel 
+
+    // Utilizamos herencia con la clase JPanel para crear un panel.
+    // Solo dibuja los nodos y aristas que caen en la zona visible; con Ctrl y la rueda se hace zoom
     private static class ArbolPanel extends JPanel {
-        private List<String> jugadas; //Almacena jugadas
-        private int nodoDiametro = 30; // Deine el tamaño de los circulos
-        private double escala = 1.0; // Controla el zoom del árbol para ajustarlo a la ventana 
-        //Constructor que recibe la lista de jugadas y pone el fondo blanco
-        public ArbolPanel(List<String> jugadas) {
-            this.jugadas = jugadas;
+        private static final long serialVersionUID = 1L;
+        private static final Color COLOR_INICIO = new Color(223, 230, 230);   // Azul acero para "Inicio"
+        private static final Color COLOR_BLANCAS = new Color(255, 215, 0);   // Amarillo oro
+        private static final Color COLOR_NEGRAS = new Color(100, 149, 237);  // Azul claro
+        private static final Color COLOR_DENSO = new Color(150, 150, 150);   // Niveles demasiado juntos para verse por separado
+        private static final double ESCALA_MAXIMA = 4.0;
+        // Por debajo de este diámetro en pantalla los nodos se dibujan sin borde ni texto
+        private static final double DIAMETRO_MINIMO_DETALLE = 12.0;
+        // Por debajo de esta separación en pantalla un nivel se dibuja como una franja
+        private static final double SEPARACION_MINIMA = 2.0;
+
+        private final DisposicionArbol disposicion; //Posiciones ya calculadas
+        private final int nodoDiametro = DisposicionArbol.DIAMETRO_NODO; // Define el tamaño de los circulos
+        private double escala = 1.0; // Controla el zoom del árbol
+        //Constructor que recibe la disposición del árbol y pone el fondo blanco
+        public ArbolPanel(DisposicionArbol disposicion) {
+            this.disposicion = disposicion;
             setBackground(Color.WHITE);
+            addMouseWheelListener(this::ruedaRaton);
+        }
+
+        void setEscala(double escala) {
+            this.escala = Math.max(1e-4, Math.min(escala, ESCALA_MAXIMA));
+            revalidate();
+            repaint();
+        }
+
+        // Ctrl + rueda hace zoom manteniendo fijo el punto bajo el ratón; sin Ctrl, la rueda desplaza
+        private void ruedaRaton(java.awt.event.MouseWheelEvent e) {
+            JViewport vista = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+            if (!e.isControlDown() || vista == null) {
+                getParent().dispatchEvent(SwingUtilities.convertMouseEvent(this, e, getParent()));
+                return;
+            }
+            double anterior = escala;
+            setEscala(escala * Math.pow(1.1, -e.getPreciseWheelRotation()));
+            double factor = escala / anterior;
+            Point posicion = vista.getViewPosition();
+            Point raton = e.getPoint();
+            vista.setViewSize(getPreferredSize());
+            vista.setViewPosition(new Point(
+                    Math.max(0, (int) Math.round(raton.x * factor - (raton.x - posicion.x))),
+                    Math.max(0, (int) Math.round(raton.y * factor - (raton.y - posicion.y)))));
         }
         
         @Override
         public Dimension getPreferredSize() {
-            //Usa logaritmo base 2 para determinar los niveles del árbol binario.
-            int profundidad = (int) Math.ceil(Math.log(jugadas.size() + 1) / Math.log(2));
-            //Calculo ancho necesario segun la cantidad de ndos 
-            int ancho = (int) Math.pow(2, profundidad) * nodoDiametro * 2;
-          //Calcula ael alto necesario segun la cantidad de nodos  
-            int alto = profundidad * 100 + 50;
-            return new Dimension(ancho, alto);
+            // El tamaño ya viene calculado en la disposición
+            return new Dimension((int) Math.ceil(disposicion.getAncho() * escala),
+                    (int) Math.ceil(disposicion.getAlto() * escala));
         }
         
         @Override
         protected void paintComponent(Graphics g) {
             super.paintComponent(g); //Llama al metodo de la super clase 
+            if (disposicion.getNumeroNodos() == 0) return;
+            Metricas.Medicion medicion = Metricas.iniciar(Metricas.Fase.RENDERIZADO);
+            int dibujados = 0;
             Graphics2D g2d = (Graphics2D) g;
-            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            
-            if (jugadas.isEmpty()) return;
-            
-            // Calcular los niveles que tendrá el árbol
-
-            int profundidad = (int) Math.ceil(Math.log(jugadas.size() + 1) / Math.log(2));
-            
-            // Calcular dimensiones estimadas del árbol
-            int alturaEstimada = profundidad * 100;
-            int anchoEstimado = (int) Math.pow(2, profundidad - 1) * nodoDiametro * 3;
-            
-            // Calcular escala para ajustar el árbol a la ventana visible
-            escala = Math.min(
-                //Calcula cuanto reducir el arbol para que quepa
-                getWidth() / (double) anchoEstimado,
-                getHeight() / (double) alturaEstimada
-            );
-            
-            // Limitar la escala máxima
-            escala = Math.min(escala, 1.0);
-            
-            // Aplicar la escala
+            boolean detalle = nodoDiametro * escala >= DIAMETRO_MINIMO_DETALLE;
+            if (detalle) {
+                g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            }
+            // Aplicar la escala; a partir de aquí la zona visible está en coordenadas del árbol
             g2d.scale(escala, escala);
-            
-            // Dibujar el árbol
-            dibujarArbol(g2d, 0, (int)(getWidth() / escala / 2), 50);
+            Rectangle visible = g2d.getClipBounds();
+            if (visible == null) {
+                visible = new Rectangle(0, 0, disposicion.getAncho(), disposicion.getAlto());
+            }
+            int radio = nodoDiametro / 2;
+            double izquierda = visible.x - radio;
+            double derecha = visible.x + visible.width + radio;
+            FontMetrics fm = g2d.getFontMetrics(); // Calcula la posicion para centrar
+
+            for (int nivel = 0; nivel < disposicion.getProfundidad(); nivel++) {
+                double y = DisposicionArbol.yNivel(nivel);
+                // Las aristas que llegan a este nivel salen del nivel anterior
+                if (nivel > 0 && y - DisposicionArbol.ALTURA_NIVEL - radio <= visible.y + visible.height
+                        && y + radio >= visible.y) {
+                    dibujarAristas(g2d, nivel, izquierda, derecha);
+                }
+                if (y + radio < visible.y || y - radio > visible.y + visible.height) {
+                    continue;
+                }
+                if (disposicion.separacion(nivel) * escala < SEPARACION_MINIMA) {
+                    // Nivel de detalle: los nodos están a menos de dos píxeles, se dibuja una franja
+                    int primero = disposicion.primerNodo(nivel);
+                    int desde = (int) Math.max(izquierda, disposicion.x(primero) - radio);
+                    int hasta = (int) Math.min(derecha, disposicion.x(disposicion.ultimoNodo(nivel)) + radio);
+                    g2d.setColor(COLOR_DENSO);
+                    g2d.fillRect(desde, (int) y - radio, Math.max(0, hasta - desde), nodoDiametro);
+                    continue;
+                }
+                int hasta = disposicion.nodoHasta(nivel, derecha);
+                for (int nodo = disposicion.nodoDesde(nivel, izquierda); nodo <= hasta; nodo++) {
+                    dibujarNodo(g2d, nodo, (int) Math.round(disposicion.x(nodo)), (int) y, detalle, fm);
+                    dibujados++;
+                }
+            }
+            if (medicion != null) {
+                medicion.terminar(dibujados);
+            }
         }
-        
-        private int dibujarArbol(Graphics2D g2d, int indice, int x, int y) {
-            //Termina si el índice es mayor o igual al tamaño de jugadas
-            if (indice >= jugadas.size()) return indice;
-            
+
+        private void dibujarAristas(Graphics2D g2d, int nivel, double izquierda, double derecha) {
+            // Un hijo visible puede colgar de un padre fuera de la zona visible, y al revés
+            double alcance = disposicion.separacion(nivel) / 2;
+            int radio = nodoDiametro / 2;
+            if (disposicion.separacion(nivel) * escala < SEPARACION_MINIMA) {
+                // Demasiadas aristas juntas: se sombrea la zona que ocupan
+                double yPadre = DisposicionArbol.yNivel(nivel - 1) + radio;
+                double yHijo = DisposicionArbol.yNivel(nivel) - radio;
+                int primero = disposicion.primerNodo(nivel);
+                int padreFinal = disposicion.padre(disposicion.ultimoNodo(nivel));
+                int[] xs = {
+                    (int) disposicion.x(disposicion.padre(primero)), (int) disposicion.x(padreFinal),
+                    (int) disposicion.x(disposicion.ultimoNodo(nivel)), (int) disposicion.x(primero)
+                };
+                int[] ys = {(int) yPadre, (int) yPadre, (int) yHijo, (int) yHijo};
+                g2d.setColor(COLOR_DENSO);
+                g2d.fillPolygon(xs, ys, 4);
+                return;
+            }
+            g2d.setColor(Color.BLACK);
+            int hasta = disposicion.nodoHasta(nivel, derecha + alcance);
+            for (int nodo = disposicion.nodoDesde(nivel, izquierda - alcance); nodo <= hasta; nodo++) {
+                int padre = disposicion.padre(nodo);
+                //Linea que conecta el nodo padre con el hijo
+                g2d.drawLine((int) Math.round(disposicion.x(padre)), (int) disposicion.y(padre) + radio,
+                        (int) Math.round(disposicion.x(nodo)), (int) disposicion.y(nodo) - radio);
+            }
+        }
+
+        private void dibujarNodo(Graphics2D g2d, int indice, int x, int y, boolean detalle, FontMetrics fm) {
             // Dibujar el nodo
-                Color colorNodo;
-                if (indice == 0) {
-                    colorNodo = new Color(223, 230, 230);    // Azul acero para "Inicio"
-                } else if (indice % 2 == 1) {               // Nodos impares (blancas)
-                    colorNodo = new Color(255, 215, 0);     // Amarillo oro
-                } else {                                    // Nodos pares (negras)
-                    colorNodo = new Color(100, 149, 237);   // Azul claro
-                }
+            Color colorNodo;
+            if (disposicion.getTipo(indice) == DisposicionArbol.TIPO_BLANCAS) {
+                colorNodo = COLOR_BLANCAS;
+            } else if (disposicion.getTipo(indice) == DisposicionArbol.TIPO_NEGRAS) {
+                colorNodo = COLOR_NEGRAS;
+            } else {                                    // Raíz y reglas de la gramática
+                colorNodo = COLOR_INICIO;
+            }
             g2d.setColor(colorNodo);
+            if (!detalle) {
+                // Con poco zoom basta un cuadrado del color del nodo
+                g2d.fillRect(x - nodoDiametro/2, y - nodoDiametro/2, nodoDiametro, nodoDiametro);
+                return;
+            }
             // Dibuja un círculo para el nodo
             // El nodo se dibuja en la posición (x, y) con un diámetro definido por nodoDiametro
             g2d.fillOval(x - nodoDiametro/2, y - nodoDiametro/2, nodoDiametro, nodoDiametro);
@@ -164,39 +238,8 @@ public class AnalizadorGramatica {
             g2d.drawOval(x - nodoDiametro/2, y - nodoDiametro/2, nodoDiametro, nodoDiametro);
             
             // Dibujar texto
-            String jugada = jugadas.get(indice);
-            FontMetrics fm = g2d.getFontMetrics(); // Calcula la posicion para centrar 
-            g2d.drawString(jugada, x - fm.stringWidth(jugada)/2, y + 5); //Dibuja el otro 5cm abajo
-            
-            // Calcular hijos
-            int hijoIzqIdx = indice * 2 + 1;
-            int hijoDerIdx = indice * 2 + 2;
-            
-            // Calcular desplazamiento y organizacion de los nodos 
-            int nivel = (int) (Math.log(indice + 1) / Math.log(2));
-            int nivelAltura = 100;
-            int desp = (int) (getWidth() / escala / Math.pow(2, nivel + 2));
-            desp = Math.max(desp, nodoDiametro * 2);
-            
-            // Dibujar hijo izquierdo
-            if (hijoIzqIdx < jugadas.size()) {
-                int hijoX = x - desp;
-                int hijoY = y + nivelAltura;
-                //Linea que conecta el nodo padre con el hijo izquierdo
-                g2d.drawLine(x, y + nodoDiametro/2, hijoX, hijoY - nodoDiametro/2);
-               //Dibuja el subarbo que sale del hijo
-                hijoIzqIdx = dibujarArbol(g2d, hijoIzqIdx, hijoX, hijoY);
-            }
-            
-            // Dibujar hijo derecho
-            if (hijoDerIdx < jugadas.size()) {
-                int hijoX = x + desp;
-                int hijoY = y + nivelAltura;
-                g2d.drawLine(x, y + nodoDiametro/2, hijoX, hijoY - nodoDiametro/2);
-                hijoDerIdx = dibujarArbol(g2d, hijoDerIdx, hijoX, hijoY);
-            }
-            
-            return Math.max(hijoIzqIdx, hijoDerIdx);
+            String jugada = disposicion.getEtiqueta(indice);
+            g2d.drawString(jugada, x - fm.stringWidth(jugada)/2, y + 5); //Dibuja el texto 5 puntos abajo
         }
     }
 }
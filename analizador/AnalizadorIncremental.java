@@ -0,0 +1,331 @@
+package analizador;
+
+import modelo.CodigoError;
+import modelo.Diagnostico;
+import modelo.Diagnosticos;
+import modelo.Jugada;
+import modelo.Partida;
+import modelo.ResultadoAnalisis;
+import modelo.TablaJugadas;
+import modelo.Turno;
+
+import java.util.Arrays;
+
+/**
+ * Analizador que recibe la partida por trozos, por ejemplo de una transmisión
+ * en vivo, en lugar de analizar de nuevo todo el texto cada vez que llega una
+ * jugada.
+ *
+ * Los trozos pueden cortar una jugada por la mitad: el estado del patrón de
+ * turnos (número, jugada blanca, jugada negra) se conserva entre llamadas y
+ * cada jugada se valida en cuanto se sabe que está completa. Acepta las mismas
+ * partidas que AnalizadorSintactico y se detiene en la primera jugada inválida
+ * sin volver a leer el texto anterior. No es seguro usar una misma instancia
+ * desde varios hilos.
+ */
+public class AnalizadorIncremental {
+
+    // Estados del patrón (\d+)\.\s*(jugada)(?:\s+(jugada))?
+    private static final int BUSCANDO = 0;
+    private static final int NUMERO = 1;
+    private static final int TRAS_PUNTO = 2;
+    private static final int BLANCA = 3;
+    private static final int ESPACIO_TRAS_BLANCA = 4;
+    private static final int NEGRA = 5;
+    private static final int FALLIDO = 6;
+    // Tras "1/" en lugar de la jugada negra: puede ser la marca "1/2-1/2"
+    private static final int TABLAS = 7;
+
+    private final OyenteJugadas oyente;
+    private final TablaJugadas tabla = TablaJugadas.compartida();
+
+    private int estado;
+    // Dígitos del número de turno y caracteres de la jugada en curso
+    private char[] numero = new char[8];
+    private int longitudNumero;
+    private char[] jugada = new char[16];
+    private int longitudJugada;
+
+    private int turnoActual;
+    private Partida partida;
+    private Turno ultimoTurno;
+    private int numeroTurnos;
+    private int numeroJugadas;
+    // Caracteres recibidos desde reiniciar() y dónde empiezan el número y la jugada en curso
+    private int posicion;
+    private int inicioNumero;
+    private int inicioJugada;
+    private final Diagnosticos diagnosticos = new Diagnosticos();
+
+    /**
+     * Constructor
+     * @param oyente Receptor de los eventos de cada jugada
+     */
+    public AnalizadorIncremental(OyenteJugadas oyente) {
+        this.oyente = oyente;
+        reiniciar();
+    }
+
+    /**
+     * Descarta lo analizado para empezar otra partida
+     */
+    public void reiniciar() {
+        estado = BUSCANDO;
+        longitudNumero = 0;
+        longitudJugada = 0;
+        turnoActual = 0;
+        partida = new Partida();
+        ultimoTurno = null;
+        numeroTurnos = 0;
+        numeroJugadas = 0;
+        posicion = 0;
+        diagnosticos.reiniciar("", 0);
+    }
+
+    /**
+     * Procesa un trozo de texto
+     * @param trozo Caracteres recibidos, por ejemplo un CharBuffer
+     * @return false si la partida ya tiene un error y no se procesará nada más
+     */
+    public boolean alimentar(CharSequence trozo) {
+        for (int i = 0, n = trozo.length(); i < n && estado != FALLIDO; i++) {
+            procesar(trozo.charAt(i));
+        }
+        return estado != FALLIDO;
+    }
+
+    /**
+     * Procesa un trozo de bytes en ASCII
+     * @param bytes Arreglo con los bytes recibidos
+     * @param inicio Posición del primer byte
+     * @param longitud Número de bytes
+     * @return false si la partida ya tiene un error y no se procesará nada más
+     */
+    public boolean alimentar(byte[] bytes, int inicio, int longitud) {
+        for (int i = inicio, fin = inicio + longitud; i < fin && estado != FALLIDO; i++) {
+            procesar((char) (bytes[i] & 0xFF));
+        }
+        return estado != FALLIDO;
+    }
+
+    /**
+     * Indica que no llegará más texto: completa la última jugada y da el resultado
+     * @return Resultado del análisis, igual al de AnalizadorSintactico sobre todo el texto
+     */
+    public ResultadoAnalisis finalizar() {
+        if (estado == BLANCA) {
+            completarBlanca();
+        } else if (estado == NEGRA) {
+            if (!esResultado()) {
+                completarNegra();
+            }
+        } else if (estado == TABLAS) {
+            terminarTablas();
+        }
+        if (estado != FALLIDO) {
+            estado = BUSCANDO;
+        }
+        if (estado == FALLIDO) {
+            return new ResultadoAnalisis(diagnosticos.aLista());
+        }
+        if (numeroTurnos == 0) {
+            diagnosticos.reiniciar("", 0);
+            diagnosticos.agregar(CodigoError.SIN_TURNOS, -1, Diagnostico.SIN_COLOR, -1, 0);
+            return new ResultadoAnalisis(diagnosticos.aLista());
+        }
+        return new ResultadoAnalisis(true, numeroTurnos, numeroJugadas, partida);
+    }
+
+    /**
+     * Obtiene la partida construida con las jugadas aceptadas hasta ahora
+     * @return Partida en curso
+     */
+    public Partida getPartida() {
+        return partida;
+    }
+
+    private void procesar(char c) {
+        switch (estado) {
+            case BUSCANDO:
+                if (EscanerTurnos.esDigito(c)) {
+                    inicioNumero = posicion;
+                    longitudNumero = 0;
+                    agregarDigito(c);
+                    estado = NUMERO;
+                }
+                break;
+            case NUMERO:
+                if (EscanerTurnos.esDigito(c)) {
+                    agregarDigito(c);
+                } else {
+                    estado = c == '.' ? TRAS_PUNTO : BUSCANDO;
+                }
+                break;
+            case TRAS_PUNTO:
+                if (EscanerTurnos.esCaracterJugada(c)) {
+                    empezarJugada(c);
+                    estado = BLANCA;
+                } else if (!EscanerTurnos.esEspacio(c)) {
+                    // Sin jugada tras el punto no hay turno
+                    estado = BUSCANDO;
+                }
+                break;
+            case BLANCA:
+                if (EscanerTurnos.esCaracterJugada(c)) {
+                    agregarCaracter(c);
+                } else {
+                    completarBlanca();
+                    if (estado != FALLIDO) {
+                        estado = EscanerTurnos.esEspacio(c) ? ESPACIO_TRAS_BLANCA : BUSCANDO;
+                    }
+                }
+                break;
+            case ESPACIO_TRAS_BLANCA:
+                if (EscanerTurnos.esCaracterJugada(c)) {
+                    empezarJugada(c);
+                    estado = NEGRA;
+                } else if (!EscanerTurnos.esEspacio(c)) {
+                    estado = BUSCANDO;
+                }
+                break;
+            case NEGRA:
+                if (EscanerTurnos.esCaracterJugada(c)) {
+                    agregarCaracter(c);
+                } else if (c == '/' && longitudJugada == 1 && jugada[0] == '1') {
+                    agregarCaracter(c);
+                    estado = TABLAS;
+                } else if (EscanerTurnos.esEspacio(c) && esResultado()) {
+                    // Una marca de resultado tras la jugada blanca no es la jugada negra
+                    estado = BUSCANDO;
+                } else {
+                    completarNegra();
+                    if (estado != FALLIDO) {
+                        estado = BUSCANDO;
+                    }
+                }
+                break;
+            case TABLAS:
+                if (EscanerTurnos.esEspacio(c)) {
+                    terminarTablas();
+                } else {
+                    agregarCaracter(c);
+                }
+                break;
+            default:
+                break;
+        }
+        posicion++;
+    }
+
+    // La jugada blanca completa confirma el turno: se valida el número y la jugada
+    private void completarBlanca() {
+        Jugada blanca = tabla.obtener(jugada, 0, longitudJugada);
+        int valor = numeroTurno();
+        if (valor < 0) {
+            // El número no cabe en un entero: se muestra tal como se escribió
+            rechazar(CodigoError.NUMERO_TURNO_INVALIDO, -1, Diagnostico.SIN_COLOR, blanca,
+                    inicioNumero, new String(numero, 0, longitudNumero));
+            return;
+        }
+        if (valor == 0) {
+            rechazar(CodigoError.NUMERO_TURNO_INVALIDO, valor, Diagnostico.SIN_COLOR, blanca,
+                    inicioNumero, new String(numero, 0, longitudNumero));
+            return;
+        }
+        turnoActual = valor;
+        if (!blanca.esValida()) {
+            rechazar(CodigoError.JUGADA_BLANCA_INVALIDA, valor, Diagnostico.BLANCAS, blanca,
+                    inicioJugada, new String(jugada, 0, longitudJugada));
+            return;
+        }
+        ultimoTurno = new Turno(valor);
+        ultimoTurno.setJugadaBlanca(blanca);
+        partida.agregarTurno(ultimoTurno);
+        numeroTurnos++;
+        numeroJugadas++;
+        oyente.jugadaAceptada(valor, true, blanca);
+    }
+
+    private void completarNegra() {
+        Jugada negra = tabla.obtener(jugada, 0, longitudJugada);
+        if (!negra.esValida()) {
+            rechazar(CodigoError.JUGADA_NEGRA_INVALIDA, turnoActual, Diagnostico.NEGRAS, negra,
+                    inicioJugada, new String(jugada, 0, longitudJugada));
+            return;
+        }
+        ultimoTurno.setJugadaNegra(negra);
+        numeroJugadas++;
+        oyente.jugadaAceptada(turnoActual, false, negra);
+    }
+
+    // Si la palabra no es "1/2-1/2", la jugada negra es el "1" que la empieza, como en EscanerTurnos
+    private void terminarTablas() {
+        if (esResultado()) {
+            estado = BUSCANDO;
+            return;
+        }
+        longitudJugada = 1;
+        completarNegra();
+    }
+
+    // Indica si la jugada en curso es en realidad una marca de resultado
+    private boolean esResultado() {
+        return esJugada("1-0") || esJugada("0-1") || esJugada("1/2-1/2");
+    }
+
+    private boolean esJugada(String texto) {
+        if (longitudJugada != texto.length()) {
+            return false;
+        }
+        for (int i = 0; i < longitudJugada; i++) {
+            if (jugada[i] != texto.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Anota el error con los mismos datos que AnalizadorSintactico. Como el texto
+     * anterior no se conserva, el buffer recibe solo el texto erróneo, situado
+     * en la posición que ocupa dentro de la partida
+     */
+    private void rechazar(CodigoError codigo, int turno, int color, Jugada rechazada, int inicio, String erroneo) {
+        estado = FALLIDO;
+        diagnosticos.reiniciar(erroneo, -inicio);
+        diagnosticos.agregar(codigo, turno, color, 0, erroneo.length());
+        oyente.jugadaRechazada(Math.max(turno, 0), color != Diagnostico.NEGRAS, rechazada,
+                diagnosticos.get(0).getMensaje());
+    }
+
+    private int numeroTurno() {
+        long valor = 0;
+        for (int i = 0; i < longitudNumero; i++) {
+            valor = valor * 10 + (numero[i] - '0');
+            if (valor > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return (int) valor;
+    }
+
+    private void agregarDigito(char c) {
+        if (longitudNumero == numero.length) {
+            numero = Arrays.copyOf(numero, numero.length * 2);
+        }
+        numero[longitudNumero++] = c;
+    }
+
+    private void empezarJugada(char c) {
+        inicioJugada = posicion;
+        longitudJugada = 0;
+        agregarCaracter(c);
+    }
+
+    private void agregarCaracter(char c) {
+        if (longitudJugada == jugada.length) {
+            jugada = Arrays.copyOf(jugada, jugada.length * 2);
+        }
+        jugada[longitudJugada++] = c;
+    }
+}
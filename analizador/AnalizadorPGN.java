@@ -0,0 +1,210 @@
+package analizador;
+
+import modelo.Diagnostico;
+import modelo.Diagnosticos;
+import modelo.ReporteRendimiento;
+import modelo.ResultadoAnalisis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Analiza archivos en PGN completo, con cabeceras, comentarios, NAG y variantes.
+ *
+ * El archivo se mapea por ventanas como en AnalizadorArchivo y EscanerPGN lo
+ * recorre una sola vez. Los turnos de la línea principal de cada partida pasan
+ * al mismo análisis de AnalizadorSintactico que el texto en SAN, así que las
+ * jugadas se validan, se construyen y dan los mismos diagnósticos. Las
+ * etiquetas se pueden leer desde el receptor sin que se copien.
+ */
+public class AnalizadorPGN {
+
+    /**
+     * Destino de las partidas de un archivo PGN
+     */
+    public interface ReceptorPGN {
+
+        /**
+         * Recibe una partida del archivo
+         * @param numeroPartida Posición de la partida dentro del archivo, empezando en 1
+         * @param resultado Resultado del análisis de la partida
+         * @param partida Escáner posicionado en la partida, para leer sus etiquetas;
+         *                solo es válido durante la llamada
+         */
+        void recibir(long numeroPartida, ResultadoAnalisis resultado, EscanerPGN partida);
+    }
+
+    // Tamaño de cada ventana mapeada; crece si una sola partida no cabe en ella
+    private static final int VENTANA_POR_DEFECTO = 1 << 28;
+
+    private final AnalizadorSintactico analizador;
+    private final int ventana;
+
+    /**
+     * Constructor con el analizador y la ventana por defecto
+     */
+    public AnalizadorPGN() {
+        this(new AnalizadorSintactico(true), VENTANA_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor
+     * @param analizador Analizador que valida las jugadas de cada partida
+     * @param ventana Número de bytes que se mapean cada vez
+     */
+    public AnalizadorPGN(AnalizadorSintactico analizador, int ventana) {
+        if (ventana <= 0) {
+            throw new IllegalArgumentException("Tamaño de ventana inválido: " + ventana);
+        }
+        this.analizador = analizador;
+        this.ventana = ventana;
+    }
+
+    /**
+     * Analiza todas las partidas de un archivo PGN
+     * @param archivo Ruta del archivo
+     * @param receptor Destino de los resultados, en el orden del archivo
+     * @return Partidas, jugadas, bytes y tiempo del recorrido
+     * @throws IOException Si no se puede leer el archivo
+     */
+    public ReporteRendimiento analizar(Path archivo, ReceptorPGN receptor) throws IOException {
+        return analizar(archivo, receptor, false);
+    }
+
+    /**
+     * Analiza todas las partidas de un archivo PGN
+     * @param archivo Ruta del archivo
+     * @param receptor Destino de los resultados, en el orden del archivo
+     * @param construirPartidas true para que los resultados válidos incluyan la partida
+     * @return Partidas, jugadas, bytes y tiempo del recorrido
+     * @throws IOException Si no se puede leer el archivo
+     */
+    public ReporteRendimiento analizar(Path archivo, ReceptorPGN receptor, boolean construirPartidas) throws IOException {
+        long comienzo = System.nanoTime();
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            Recorrido recorrido = new Recorrido(receptor, construirPartidas);
+            long tamano = canal.size();
+            long posicion = 0;
+            int ventanaActual = ventana;
+            while (posicion < tamano) {
+                int longitud = (int) Math.min(ventanaActual, tamano - posicion);
+                boolean ultima = posicion + longitud == tamano;
+                MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, posicion, longitud);
+                int consumidos = recorrido.procesar(buffer, ultima);
+                if (consumidos == 0) {
+                    // Una partida ocupa toda la ventana: se vuelve a mapear con el doble
+                    if (ventanaActual > Integer.MAX_VALUE / 2) {
+                        throw new IOException("Partida demasiado grande en la posición " + posicion);
+                    }
+                    ventanaActual *= 2;
+                    continue;
+                }
+                posicion += consumidos;
+            }
+            return new ReporteRendimiento(1, recorrido.partidas, recorrido.jugadas, tamano, System.nanoTime() - comienzo);
+        }
+    }
+
+    /**
+     * Analiza todas las partidas PGN de un buffer ya cargado
+     * @param buffer Buffer con las partidas, entre su posición y su límite
+     * @param receptor Destino de los resultados, en el orden del buffer
+     * @return Partidas, jugadas, bytes y tiempo del recorrido
+     */
+    public ReporteRendimiento analizar(ByteBuffer buffer, ReceptorPGN receptor) {
+        long comienzo = System.nanoTime();
+        Recorrido recorrido = new Recorrido(receptor, false);
+        recorrido.procesar(buffer.duplicate(), true);
+        return new ReporteRendimiento(1, recorrido.partidas, recorrido.jugadas, buffer.remaining(), System.nanoTime() - comienzo);
+    }
+
+    /**
+     * Estado de un recorrido por el archivo; el escáner y los diagnósticos se
+     * reutilizan para todas las partidas
+     */
+    private final class Recorrido {
+        private final ReceptorPGN receptor;
+        private final EscanerPGN escaner = new EscanerPGN();
+        private final TurnosPGN turnos = new TurnosPGN(escaner);
+        private final Diagnosticos diagnosticos = new Diagnosticos();
+        private final boolean construirPartidas;
+        private long partidas;
+        private long jugadas;
+
+        Recorrido(ReceptorPGN receptor, boolean construirPartidas) {
+            this.receptor = receptor;
+            this.construirPartidas = construirPartidas;
+        }
+
+        /**
+         * Analiza las partidas completas de una ventana o de un buffer
+         * @return Número de bytes consumidos; lo que queda se vuelve a mapear en la siguiente
+         */
+        int procesar(ByteBuffer buffer, boolean ultima) {
+            escaner.reiniciar(buffer, buffer.position(), buffer.limit(), ultima);
+            while (escaner.siguientePartida()) {
+                ResultadoAnalisis resultado;
+                if (escaner.getError() != null) {
+                    // Un error de estructura invalida la partida sin mirar sus jugadas
+                    diagnosticos.reiniciar(escaner.getTexto(), escaner.getInicioPartida());
+                    diagnosticos.agregar(escaner.getError(), -1, Diagnostico.SIN_COLOR,
+                            escaner.getInicioError(), escaner.getLongitudError());
+                    resultado = new ResultadoAnalisis(diagnosticos.aLista());
+                } else {
+                    turnos.reiniciar();
+                    resultado = analizador.analizar(turnos, construirPartidas, diagnosticos);
+                }
+                jugadas += escaner.getNumeroJugadas();
+                receptor.recibir(++partidas, resultado, escaner);
+            }
+            return escaner.getPosicion() - buffer.position();
+        }
+    }
+
+    /**
+     * Presenta los turnos que EscanerPGN ya encontró como los de un EscanerTurnos,
+     * que es lo que recorre AnalizadorSintactico
+     */
+    private static final class TurnosPGN extends EscanerTurnos {
+        private final EscanerPGN escaner;
+        private int turno;
+
+        TurnosPGN(EscanerPGN escaner) {
+            this.escaner = escaner;
+        }
+
+        void reiniciar() {
+            reiniciar(escaner.getTexto(), escaner.getInicioPartida(), escaner.getFinPartida());
+            turno = 0;
+        }
+
+        @Override
+        public boolean siguiente() {
+            if (turno == escaner.getNumeroTurnos()) {
+                return false;
+            }
+            int inicioNumero = escaner.getInicioNumero(turno);
+            int inicioBlanca = escaner.getInicioBlanca(turno);
+            int inicioNegra = escaner.getInicioNegra(turno);
+            fijarTurno(inicioNumero, inicioNumero + escaner.getLongitudNumero(turno),
+                    inicioBlanca, inicioBlanca + escaner.getLongitudBlanca(turno),
+                    inicioNegra, inicioNegra < 0 ? -1 : inicioNegra + escaner.getLongitudNegra(turno));
+            turno++;
+            return true;
+        }
+
+        @Override
+        public int numeroTurno() {
+            return escaner.getNumeroTurno(turno - 1);
+        }
+
+        @Override
+        public int resultado() {
+            return escaner.getResultado();
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package analizador;
+
+import modelo.EstadisticasPartidas;
+import modelo.ReporteRendimiento;
+import modelo.Diagnosticos;
+import modelo.ResultadoAnalisis;
+import util.VistaBytes;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Analiza muchas partidas a la vez repartiéndolas en tareas fork/join.
+ *
+ * La entrada puede ser una lista de partidas o un buffer con muchas partidas,
+ * que se corta por los límites entre ellas. Los resultados se devuelven siempre
+ * en el mismo orden que la entrada.
+ */
+public class AnalizadorParalelo {
+
+    // Por debajo de estos tamaños una tarea se resuelve sin dividirse más
+    private static final int UMBRAL_PARTIDAS = 64;
+    private static final int UMBRAL_BYTES = 64 * 1024;
+
+    private final AnalizadorSintactico analizador;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor que usa el pool común de fork/join
+     */
+    public AnalizadorParalelo() {
+        this(new AnalizadorSintactico(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor
+     * @param analizador Analizador que comparten todas las tareas
+     * @param pool Pool de fork/join donde se ejecutan las tareas
+     */
+    public AnalizadorParalelo(AnalizadorSintactico analizador, ForkJoinPool pool) {
+        this.analizador = analizador;
+        this.pool = pool;
+    }
+
+    /**
+     * Analiza una lista de partidas
+     * @param partidas Textos de las partidas
+     * @return Resultados en el mismo orden que las partidas
+     */
+    public List<ResultadoAnalisis> analizar(List<? extends CharSequence> partidas) {
+        ResultadoAnalisis[] resultados = new ResultadoAnalisis[partidas.size()];
+        pool.invoke(new TareaLista(partidas, resultados, 0, resultados.length));
+        return Arrays.asList(resultados);
+    }
+
+    /**
+     * Analiza todas las partidas contenidas en un buffer
+     * @param buffer Buffer con las partidas, entre su posición y su límite
+     * @return Resultados en el orden en que aparecen las partidas
+     */
+    public List<ResultadoAnalisis> analizar(ByteBuffer buffer) {
+        return pool.invoke(new TareaBuffer(buffer, buffer.position(), buffer.limit()));
+    }
+
+    /**
+     * Calcula en una sola pasada las estadísticas de todas las partidas válidas
+     * de un buffer. Cada tarea llena sus propias estadísticas y se combinan al
+     * juntar las tareas, sin guardar ninguna partida
+     * @param buffer Buffer con las partidas, entre su posición y su límite
+     * @return Estadísticas de las partidas válidas
+     */
+    public EstadisticasPartidas estadisticas(ByteBuffer buffer) {
+        return pool.invoke(new TareaEstadisticas(buffer, buffer.position(), buffer.limit()));
+    }
+
+    /**
+     * Analiza una lista de partidas y mide el rendimiento
+     * @param partidas Textos de las partidas
+     * @return Reporte con partidas y jugadas por segundo
+     */
+    public ReporteRendimiento medir(List<? extends CharSequence> partidas) {
+        long inicio = System.nanoTime();
+        List<ResultadoAnalisis> resultados = analizar(partidas);
+        long tiempo = System.nanoTime() - inicio;
+        long jugadas = 0;
+        for (ResultadoAnalisis resultado : resultados) {
+            jugadas += resultado.getNumeroJugadas();
+        }
+        return new ReporteRendimiento(pool.getParallelism(), resultados.size(), jugadas, tiempo);
+    }
+
+    /**
+     * Mide el rendimiento con distintos números de hilos para comprobar cómo escala
+     * @param partidas Textos de las partidas
+     * @param hilos Números de hilos que se prueban
+     * @return Un reporte por cada número de hilos, en el mismo orden
+     */
+    public static List<ReporteRendimiento> medirEscalado(List<? extends CharSequence> partidas, int... hilos) {
+        AnalizadorSintactico analizador = new AnalizadorSintactico();
+        List<ReporteRendimiento> reportes = new ArrayList<>();
+        for (int n : hilos) {
+            ForkJoinPool pool = new ForkJoinPool(n);
+            try {
+                AnalizadorParalelo paralelo = new AnalizadorParalelo(analizador, pool);
+                // Una primera pasada para que el JIT compile antes de medir
+                paralelo.analizar(partidas);
+                reportes.add(paralelo.medir(partidas));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return reportes;
+    }
+
+    /**
+     * Tarea que analiza un rango de la lista y guarda cada resultado en su posición
+     */
+    private final class TareaLista extends RecursiveAction {
+        // Las tareas de fork/join son serializables, aunque estas nunca se serializan
+        private static final long serialVersionUID = 1L;
+
+        private final List<? extends CharSequence> partidas;
+        private final ResultadoAnalisis[] resultados;
+        private final int desde;
+        private final int hasta;
+
+        TareaLista(List<? extends CharSequence> partidas, ResultadoAnalisis[] resultados, int desde, int hasta) {
+            this.partidas = partidas;
+            this.resultados = resultados;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected void compute() {
+            if (hasta - desde <= UMBRAL_PARTIDAS) {
+                EscanerTurnos escaner = new EscanerTurnos();
+                Diagnosticos diagnosticos = new Diagnosticos();
+                for (int i = desde; i < hasta; i++) {
+                    escaner.reiniciar(partidas.get(i));
+                    resultados[i] = analizador.analizar(escaner, false, diagnosticos);
+                }
+                return;
+            }
+            int mitad = (desde + hasta) >>> 1;
+            invokeAll(new TareaLista(partidas, resultados, desde, mitad),
+                    new TareaLista(partidas, resultados, mitad, hasta));
+        }
+    }
+
+    /**
+     * Tarea que analiza un tramo del buffer; lo divide en dos por el límite entre
+     * partidas más cercano a la mitad
+     */
+    private final class TareaBuffer extends RecursiveTask<List<ResultadoAnalisis>> {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer buffer;
+        private final int desde;
+        private final int hasta;
+
+        TareaBuffer(ByteBuffer buffer, int desde, int hasta) {
+            this.buffer = buffer;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected List<ResultadoAnalisis> compute() {
+            if (hasta - desde > UMBRAL_BYTES) {
+                int corte = DivisorPartidas.siguienteCorte(buffer, desde + (hasta - desde) / 2, hasta);
+                if (corte < hasta) {
+                    TareaBuffer izquierda = new TareaBuffer(buffer, desde, corte);
+                    izquierda.fork();
+                    List<ResultadoAnalisis> derecha = new TareaBuffer(buffer, corte, hasta).compute();
+                    List<ResultadoAnalisis> resultados = izquierda.join();
+                    resultados.addAll(derecha);
+                    return resultados;
+                }
+            }
+            // Cada hoja lee con su propia copia del buffer, su vista, su escáner y sus diagnósticos
+            ByteBuffer propio = buffer.duplicate();
+            VistaBytes vista = new VistaBytes();
+            EscanerTurnos escaner = new EscanerTurnos();
+            Diagnosticos diagnosticos = new Diagnosticos();
+            List<ResultadoAnalisis> resultados = new ArrayList<>();
+            DivisorPartidas.recorrer(propio, desde, hasta, true, (inicio, fin) -> {
+                vista.reiniciar(propio, inicio, fin);
+                escaner.reiniciar(vista);
+                resultados.add(analizador.analizar(escaner, false, diagnosticos));
+            });
+            return resultados;
+        }
+    }
+
+    /**
+     * Tarea que suma las estadísticas de un tramo del buffer; se divide igual
+     * que TareaBuffer
+     */
+    private final class TareaEstadisticas extends RecursiveTask<EstadisticasPartidas> {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer buffer;
+        private final int desde;
+        private final int hasta;
+
+        TareaEstadisticas(ByteBuffer buffer, int desde, int hasta) {
+            this.buffer = buffer;
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected EstadisticasPartidas compute() {
+            if (hasta - desde > UMBRAL_BYTES) {
+                int corte = DivisorPartidas.siguienteCorte(buffer, desde + (hasta - desde) / 2, hasta);
+                if (corte < hasta) {
+                    TareaEstadisticas izquierda = new TareaEstadisticas(buffer, desde, corte);
+                    izquierda.fork();
+                    EstadisticasPartidas estadisticas = new TareaEstadisticas(buffer, corte, hasta).compute();
+                    estadisticas.combinar(izquierda.join());
+                    return estadisticas;
+                }
+            }
+            ByteBuffer propio = buffer.duplicate();
+            VistaBytes vista = new VistaBytes();
+            EscanerTurnos escaner = new EscanerTurnos();
+            Diagnosticos diagnosticos = new Diagnosticos();
+            EstadisticasPartidas estadisticas = new EstadisticasPartidas();
+            DivisorPartidas.recorrer(propio, desde, hasta, true, (inicio, fin) -> {
+                vista.reiniciar(propio, inicio, fin);
+                escaner.reiniciar(vista);
+                ResultadoAnalisis resultado = analizador.analizar(escaner, true, diagnosticos);
+                if (resultado.esValido()) {
+                    estadisticas.agregar(resultado.getPartida());
+                }
+            });
+            return estadisticas;
+        }
+    }
+}
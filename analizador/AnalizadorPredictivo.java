@@ -0,0 +1,286 @@
+package analizador;
+
+import modelo.CodigoError;
+import modelo.Diagnostico;
+import modelo.Diagnosticos;
+import modelo.Jugada;
+import modelo.Partida;
+import modelo.ResultadoAnalisis;
+import modelo.TablaJugadas;
+import modelo.Turno;
+
+import java.util.Arrays;
+
+/**
+ * Analizador sintáctico predictivo (LL(1)) guiado por las tablas de una
+ * gramática BNF, sin expresiones regulares ni retroceso.
+ *
+ * Recorre el texto una sola vez: el autómata léxico de la gramática corta el
+ * siguiente token y la tabla LL(1) decide qué producción aplicar con ese único
+ * token. Cada carácter se lee una vez y cada token se predice una vez, así que
+ * el tiempo es lineal en la longitud del texto. A diferencia de
+ * AnalizadorSintactico, cualquier carácter que la gramática no explique es un
+ * error: no se salta nada.
+ *
+ * No guarda estado entre llamadas, así que una misma instancia se puede
+ * compartir entre varios hilos.
+ */
+public class AnalizadorPredictivo {
+
+    // Marca en la pila que cierra el nodo abierto al expandir un no terminal
+    private static final int CERRAR = Integer.MIN_VALUE;
+
+    private final GramaticaBNF gramatica;
+    private final TablaJugadas tabla = TablaJugadas.compartida();
+
+    /**
+     * Constructor con la gramática de partidas SAN
+     */
+    public AnalizadorPredictivo() {
+        this(GramaticaBNF.partidas());
+    }
+
+    /**
+     * Constructor
+     * @param gramatica Gramática compilada que guía el análisis
+     */
+    public AnalizadorPredictivo(GramaticaBNF gramatica) {
+        this.gramatica = gramatica;
+    }
+
+    /**
+     * Analiza una partida y, si es válida, construye sus turnos y jugadas a
+     * partir del árbol sintáctico
+     * @param textoPartida Texto de la partida en notación SAN
+     * @return Resultado del análisis
+     */
+    public ResultadoAnalisis analizar(CharSequence textoPartida) {
+        Diagnosticos diagnosticos = new Diagnosticos();
+        return construir(textoPartida, analizar(textoPartida, diagnosticos), diagnosticos);
+    }
+
+    /**
+     * Construye los turnos y jugadas de una partida a partir de su árbol
+     * sintáctico, para quien además necesita el árbol
+     * @param textoPartida Texto analizado
+     * @param arbol Árbol que devolvió analizar(texto, diagnosticos), o null si falló
+     * @param diagnosticos Los mismos diagnósticos que recibió analizar
+     * @return Resultado del análisis
+     */
+    public ResultadoAnalisis construir(CharSequence textoPartida, NodoSintactico arbol, Diagnosticos diagnosticos) {
+        if (arbol == null) {
+            return new ResultadoAnalisis(diagnosticos.aLista());
+        }
+        Partida partida = new Partida();
+        int numeroJugadas = 0;
+        for (NodoSintactico hijo : arbol.getHijos()) {
+            if (hijo.getSimbolo().equals("resultado")) {
+                partida.setResultado(Partida.leerResultado(textoPartida, hijo.getInicio(), hijo.getFin() - hijo.getInicio()));
+                continue;
+            }
+            NodoSintactico numero = hijo.hijo("NUMERO");
+            int valor = numeroTurno(textoPartida, numero);
+            if (valor <= 0) {
+                diagnosticos.agregar(CodigoError.NUMERO_TURNO_INVALIDO, -1, Diagnostico.SIN_COLOR,
+                        numero.getInicio(), numero.getFin() - numero.getInicio());
+                return new ResultadoAnalisis(diagnosticos.aLista());
+            }
+            Turno turno = new Turno(valor);
+            turno.setJugadaBlanca(jugada(textoPartida, hijo.hijo("blanca")));
+            NodoSintactico negra = hijo.hijo("negra");
+            if (negra != null) {
+                turno.setJugadaNegra(jugada(textoPartida, negra));
+            }
+            partida.agregarTurno(turno);
+            numeroJugadas += negra != null ? 2 : 1;
+        }
+        return new ResultadoAnalisis(true, partida.getTurnos().size(), numeroJugadas, partida);
+    }
+
+    /**
+     * Analiza un texto y construye su árbol sintáctico concreto
+     * @param texto Texto que se analiza entero
+     * @param diagnosticos Buffer donde se anota el error; se vacía al empezar
+     * @return Raíz del árbol, o null si el texto no pertenece a la gramática
+     */
+    public NodoSintactico analizar(CharSequence texto, Diagnosticos diagnosticos) {
+        diagnosticos.reiniciar(texto, 0);
+        Lector lector = new Lector(texto);
+        int fin = gramatica.getNumeroTokens();
+        if (!lector.avanzar(diagnosticos)) {
+            return null;
+        }
+        if (lector.token == fin) {
+            diagnosticos.agregar(CodigoError.SIN_TURNOS, -1, Diagnostico.SIN_COLOR, -1, 0);
+            return null;
+        }
+
+        int[] pila = new int[32];
+        int cima = 0;
+        pila[cima++] = 0;
+        NodoSintactico raiz = null;
+        NodoSintactico actual = null;
+        // Padres de los nodos abiertos, para volver a ellos al cerrar
+        NodoSintactico[] abiertos = new NodoSintactico[16];
+        int numeroAbiertos = 0;
+        int ultimoFin = 0;
+
+        while (cima > 0) {
+            int simbolo = pila[--cima];
+            if (simbolo == CERRAR) {
+                actual.setFin(Math.max(actual.getInicio(), ultimoFin));
+                actual = abiertos[--numeroAbiertos];
+            } else if (simbolo < 0) {
+                int esperado = -1 - simbolo;
+                if (lector.token != esperado) {
+                    inesperado(lector, diagnosticos);
+                    return null;
+                }
+                actual.agregarHijo(new NodoSintactico(gramatica.nombreToken(esperado), true,
+                        texto, lector.inicio, lector.fin));
+                ultimoFin = lector.fin;
+                if (!lector.avanzar(diagnosticos)) {
+                    return null;
+                }
+            } else {
+                int produccion = gramatica.prediccion(simbolo, lector.token);
+                if (produccion < 0) {
+                    inesperado(lector, diagnosticos);
+                    return null;
+                }
+                if (!gramatica.esAuxiliar(simbolo)) {
+                    int inicio = lector.token == fin ? ultimoFin : lector.inicio;
+                    NodoSintactico nodo = new NodoSintactico(gramatica.nombreNoTerminal(simbolo), false, texto, inicio, inicio);
+                    if (actual == null) {
+                        raiz = nodo;
+                    } else {
+                        actual.agregarHijo(nodo);
+                    }
+                    if (numeroAbiertos == abiertos.length) {
+                        abiertos = Arrays.copyOf(abiertos, numeroAbiertos * 2);
+                    }
+                    abiertos[numeroAbiertos++] = actual;
+                    actual = nodo;
+                    pila = asegurar(pila, cima + 1);
+                    pila[cima++] = CERRAR;
+                }
+                // Los símbolos se apilan al revés para que el primero quede arriba
+                int[] simbolos = gramatica.produccion(produccion);
+                pila = asegurar(pila, cima + simbolos.length);
+                for (int i = simbolos.length - 1; i >= 0; i--) {
+                    pila[cima++] = simbolos[i];
+                }
+            }
+        }
+        if (lector.token != fin) {
+            inesperado(lector, diagnosticos);
+            return null;
+        }
+        return raiz;
+    }
+
+    /**
+     * Obtiene la gramática que guía el análisis
+     * @return Gramática compilada
+     */
+    public GramaticaBNF getGramatica() {
+        return gramatica;
+    }
+
+    private static int[] asegurar(int[] pila, int capacidad) {
+        return capacidad <= pila.length ? pila : Arrays.copyOf(pila, Math.max(capacidad, pila.length * 2));
+    }
+
+    private void inesperado(Lector lector, Diagnosticos diagnosticos) {
+        diagnosticos.agregar(CodigoError.SIMBOLO_INESPERADO, -1, Diagnostico.SIN_COLOR,
+                lector.inicio, lector.fin - lector.inicio);
+    }
+
+    private Jugada jugada(CharSequence texto, NodoSintactico nodo) {
+        // La jugada es el único token del nodo blanca o negra
+        NodoSintactico token = nodo.getHijos().get(0);
+        return tabla.obtener(texto, token.getInicio(), token.getFin() - token.getInicio());
+    }
+
+    // Valor del número de turno, o -1 si es 0 o no cabe en un entero
+    private static int numeroTurno(CharSequence texto, NodoSintactico numero) {
+        long valor = 0;
+        for (int i = numero.getInicio(); i < numero.getFin(); i++) {
+            valor = valor * 10 + (texto.charAt(i) - '0');
+            if (valor > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return valor == 0 ? -1 : (int) valor;
+    }
+
+    /**
+     * Corta el texto en tokens con el autómata de la gramática. Se queda siempre
+     * con el token más largo, sin retroceder: si el autómata se detiene en un
+     * estado que no termina ningún token, el texto no es válido
+     */
+    private final class Lector {
+        private final CharSequence texto;
+        private final int separador = gramatica.getSeparador();
+        private int posicion;
+        // Token actual: índice (o el de fin del texto) y posición
+        int token = -1;
+        int inicio;
+        int fin;
+
+        Lector(CharSequence texto) {
+            this.texto = texto;
+        }
+
+        /**
+         * Lee el siguiente token que no es un separador
+         * @return false si el texto no forma un token; el error queda anotado
+         */
+        boolean avanzar(Diagnosticos diagnosticos) {
+            int anterior = token;
+            boolean separado = anterior < 0;
+            while (posicion < texto.length()) {
+                int estado = 0;
+                int p = posicion;
+                while (p < texto.length()) {
+                    int siguiente = gramatica.transicion(estado, texto.charAt(p));
+                    if (siguiente < 0) {
+                        break;
+                    }
+                    estado = siguiente;
+                    p++;
+                }
+                int reconocido = p > posicion ? gramatica.tokenAceptado(estado) : -1;
+                if (reconocido < 0) {
+                    // Se señala la palabra entera donde está el carácter que no encaja
+                    int finPalabra = Math.max(p + 1, posicion + 1);
+                    while (finPalabra < texto.length() && !Character.isWhitespace(texto.charAt(finPalabra))) {
+                        finPalabra++;
+                    }
+                    diagnosticos.agregar(CodigoError.TEXTO_NO_RECONOCIDO, -1, Diagnostico.SIN_COLOR,
+                            posicion, Math.min(finPalabra, texto.length()) - posicion);
+                    return false;
+                }
+                if (reconocido == separador) {
+                    posicion = p;
+                    separado = true;
+                    continue;
+                }
+                token = reconocido;
+                inicio = posicion;
+                fin = p;
+                posicion = p;
+                if (!separado && !gramatica.esPegado(anterior) && !gramatica.esPegado(reconocido)) {
+                    // Dos tokens juntos que necesitan un separador, como "e4e5"
+                    diagnosticos.agregar(CodigoError.SIMBOLO_INESPERADO, -1, Diagnostico.SIN_COLOR, inicio, fin - inicio);
+                    return false;
+                }
+                return true;
+            }
+            token = gramatica.getNumeroTokens();
+            inicio = texto.length();
+            fin = texto.length();
+            return true;
+        }
+    }
+}
@@ -1,114 +1,291 @@
 package analizador;
 
+import modelo.CodigoError;
+import modelo.CodigoJugada;
+import modelo.Diagnostico;
+import modelo.Diagnosticos;
 import modelo.Jugada;
 import modelo.Partida;
+import modelo.PartidaCompacta;
 import modelo.ResultadoAnalisis;
+import modelo.TablaJugadas;
 import modelo.Turno;
+import util.Metricas;
 import util.ValidadorSAN;
-// Librerías para el manejo de listas
-import java.util.ArrayList;
-import java.util.List;
-//Librerias para el análisis de expresiones regulares
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Clase que implementa el analizador sintáctico para notación SAN
+ *
+ * No guarda estado entre llamadas, así que una misma instancia se puede
+ * compartir entre varios hilos.
  */
 public class AnalizadorSintactico {
-        // Patrón para que los turnos esten en formato "1. e4 e5" o "1. e4 e5 2. Nf3 Nc6"....
-    private static final Pattern PATRON_TURNO = Pattern.compile("(\\d+)\\.\\s*([A-Za-z0-9\\-O\\+#x=]+)(?:\\s+([A-Za-z0-9\\-O\\+#x=]+))?");
-    
+
+    // Si es true, las partidas se construyen como PartidaCompacta
+    private final boolean partidasCompactas;
+    // Si es true, se siguen analizando los turnos después del primer error
+    private final boolean todosLosErrores;
+    // Jugadas canónicas compartidas por todas las partidas
+    private final TablaJugadas tabla = TablaJugadas.compartida();
+
+    /**
+     * Constructor que construye las partidas con turnos y jugadas
+     */
+    public AnalizadorSintactico() {
+        this(false);
+    }
+
+    /**
+     * Constructor
+     * @param partidasCompactas true para construir las partidas como PartidaCompacta,
+     *                          que ocupa mucha menos memoria cuando se cargan muchas
+     */
+    public AnalizadorSintactico(boolean partidasCompactas) {
+        this(partidasCompactas, false);
+    }
+
+    /**
+     * Constructor
+     * @param partidasCompactas true para construir las partidas como PartidaCompacta
+     * @param todosLosErrores true para anotar todos los errores de la partida en lugar
+     *                        de detenerse en el primero
+     */
+    public AnalizadorSintactico(boolean partidasCompactas, boolean todosLosErrores) {
+        this.partidasCompactas = partidasCompactas;
+        this.todosLosErrores = todosLosErrores;
+    }
+
     /**
-     * Analiza una partida en notación SAN
+     * Analiza una partida en notación SAN. Si es válida, el resultado incluye la
+     * partida ya construida, lista para mostrarse sin volver a leer el texto
      * @param textoPartida Texto de la partida en notación SAN
      * @return Resultado del análisis
      */
-    public ResultadoAnalisis analizar(String textoPartida) {
-        try {
-            //Hace una instancia de Partida y extrae los turnos
-            Partida partida = new Partida();
-            List<Turno> turnos = extraerTurnos(textoPartida);
-            //Si turnos está vacío, retorna un resultado de análisis con error
-            if (turnos.isEmpty()) {
-                return new ResultadoAnalisis(false, "No se encontraron turnos válidos en la partida.");
+    public ResultadoAnalisis analizar(CharSequence textoPartida) {
+        return analizar(textoPartida, new Diagnosticos());
+    }
+
+    /**
+     * Analiza una partida anotando los errores en un buffer que se puede reutilizar
+     * entre partidas. Si la partida es inválida, el resultado lleva su propia copia
+     * de los diagnósticos
+     * @param textoPartida Texto de la partida en notación SAN
+     * @param diagnosticos Buffer donde se anotan los errores; se vacía al empezar
+     * @return Resultado del análisis
+     */
+    public ResultadoAnalisis analizar(CharSequence textoPartida, Diagnosticos diagnosticos) {
+        // Los turnos tienen el formato "1. e4 e5" o "1. e4 e5 2. Nf3 Nc6"....
+        EscanerTurnos escaner = new EscanerTurnos();
+        escaner.reiniciar(textoPartida);
+        return analizar(escaner, true, diagnosticos);
+    }
+
+    /**
+     * Analiza la partida que recorre un escáner ya preparado. Permite reutilizar
+     * el mismo escáner para muchas partidas, por ejemplo al leer un archivo
+     * @param escaner Escáner posicionado al inicio de la partida
+     * @param construirPartida true para crear los turnos y jugadas de la partida;
+     *                         en los análisis en lote basta con validar
+     * @param diagnosticos Buffer donde se anotan los errores; se vacía al empezar
+     * @return Resultado del análisis
+     */
+    ResultadoAnalisis analizar(EscanerTurnos escaner, boolean construirPartida, Diagnosticos diagnosticos) {
+        return analizar(escaner, construirPartida, diagnosticos, null);
+    }
+
+    /**
+     * Analiza la partida que recorre un escáner calculando a la vez la huella
+     * de sus jugadas
+     * @param escaner Escáner posicionado al inicio de la partida
+     * @param construirPartida true para crear los turnos y jugadas de la partida
+     * @param diagnosticos Buffer donde se anotan los errores; se vacía al empezar
+     * @param huella Huella que se calcula si la partida es válida, o null
+     * @return Resultado del análisis
+     */
+    ResultadoAnalisis analizar(EscanerTurnos escaner, boolean construirPartida, Diagnosticos diagnosticos, HuellaPartida huella) {
+        // Con las métricas apagadas es null y no se mide nada
+        Metricas.Medicion medicion = Metricas.iniciarAnalisis();
+        diagnosticos.reiniciar(escaner.getTexto(), escaner.getInicio());
+        //Hace una instancia de Partida solo si se va a devolver
+        Partida partida = null;
+        if (construirPartida) {
+            partida = partidasCompactas ? new PartidaCompacta() : new Partida();
+        }
+        int numeroTurnos = 0;
+        int numeroJugadas = 0;
+        if (huella != null) {
+            huella.reiniciar();
+        }
+        //Valida cada turno a medida que el escáner lo encuentra, sin copiar el texto
+        while (escaner.siguiente()) {
+            if (medicion != null) {
+                medicion.marcar(Metricas.Fase.ESCANEO);
+            }
+            boolean correcto;
+            if (partida instanceof PartidaCompacta) {
+                correcto = agregarCodigos((PartidaCompacta) partida, escaner, diagnosticos, medicion);
+            } else if (partida != null) {
+                //La funcion agrregaTurno esta en la clase Partida
+                Turno turno = crearTurno(escaner, diagnosticos, medicion);
+                correcto = turno != null;
+                if (correcto) {
+                    partida.agregarTurno(turno);
+                    if (medicion != null) {
+                        medicion.marcar(Metricas.Fase.CONSTRUCCION);
+                    }
+                }
+            } else {
+                CharSequence texto = escaner.getTexto();
+                boolean blancaValida = ValidadorSAN.clasificar(texto, escaner.getInicioBlanca(), escaner.getLongitudBlanca()) != ValidadorSAN.INVALIDA;
+                boolean negraValida = !escaner.tieneNegra()
+                        || ValidadorSAN.clasificar(texto, escaner.getInicioNegra(), escaner.getLongitudNegra()) != ValidadorSAN.INVALIDA;
+                correcto = validarTurno(escaner, blancaValida, negraValida, diagnosticos) > 0;
+                if (medicion != null) {
+                    medicion.marcar(Metricas.Fase.VALIDACION);
+                }
+            }
+            //Sin el modo de todos los errores, el primer error termina el análisis
+            if (!correcto && !todosLosErrores) {
+                break;
+            }
+            numeroTurnos++;
+            numeroJugadas += escaner.tieneNegra() ? 2 : 1;
+            if (huella != null) {
+                huella.agregarTurno(escaner);
             }
-            //Crea una variable de tipo Turno y valida cada turno
-            for (Turno turno : turnos) {
-                validarTurno(turno);
-                //La funcion agrregaTurno esta en la clase Partida 
-                partida.agregarTurno(turno);
+        }
+        //Si no hubo turnos, retorna un resultado de análisis con error
+        if (numeroTurnos == 0 && diagnosticos.estaVacio()) {
+            diagnosticos.agregar(CodigoError.SIN_TURNOS, -1, Diagnostico.SIN_COLOR, -1, 0);
+        }
+        if (medicion != null) {
+            medicion.marcar(Metricas.Fase.ESCANEO);
+        }
+        if (!diagnosticos.estaVacio()) {
+            if (medicion != null) {
+                contarRechazos(diagnosticos);
+                medicion.terminarAnalisis(false, numeroTurnos, numeroJugadas);
             }
-            
-            return new ResultadoAnalisis(true, partida.getTurnos().size());
-            
-        } catch (IllegalArgumentException e) {
-            return new ResultadoAnalisis(false, e.getMessage());
+            return new ResultadoAnalisis(diagnosticos.aLista());
         }
+        //La partida puede terminar con su resultado, por ejemplo "... 17. Rd8# Nf6 1-0"
+        if (partida != null || huella != null) {
+            int resultado = escaner.resultado();
+            if (partida != null) {
+                partida.setResultado(resultado);
+            }
+            if (huella != null) {
+                huella.terminar(resultado);
+            }
+        }
+        if (medicion != null) {
+            medicion.terminarAnalisis(true, numeroTurnos, numeroJugadas);
+        }
+
+        return new ResultadoAnalisis(true, numeroTurnos, numeroJugadas, partida);
     }
-    
-    /**
-     * Extrae los turnos de la partida
-     * @param textoPartida Texto de la partida
-     * @return Lista de turnos
-     */
 
-     //Función para extraer los turnos de la partida
-    private List<Turno> extraerTurnos(String textoPartida) {
-       // Crea una lista para almacenar los turnos
-        List<Turno> turnos = new ArrayList<>();
-        // Utiliza el patrón para encontrar los turnos 
-        Matcher matcher = PATRON_TURNO.matcher(textoPartida);
-        //Itera mientras los turnos coincidan con el patron
-        while (matcher.find()) {
-            //los groups del matcher contienen el número de turno, la jugada blanca y la jugada negra 
-            int numeroTurno = Integer.parseInt(matcher.group(1));
-            String jugadaBlanca = matcher.group(2).trim();
-            String jugadaNegra = matcher.group(3) != null ? matcher.group(3).trim() : null;
-            // Crea una insancia de Turno con el número de turno
-            Turno turno = new Turno(numeroTurno);
-            //Crea el objeto jugda y almacena la jugada blanca
-            turno.setJugadaBlanca(new Jugada(jugadaBlanca));
-            
-            if (jugadaNegra != null && !jugadaNegra.isEmpty()) {
-                turno.setJugadaNegra(new Jugada(jugadaNegra));
+    // Cuenta los errores de la partida por categoría; solo se llama con las métricas activas
+    private static void contarRechazos(Diagnosticos diagnosticos) {
+        for (int i = 0; i < diagnosticos.getNumero(); i++) {
+            switch (diagnosticos.getCodigo(i)) {
+                case NUMERO_TURNO_INVALIDO:
+                    Metricas.rechazo(Metricas.Rechazo.NUMERO_TURNO);
+                    break;
+                case SIN_TURNOS:
+                    Metricas.rechazo(Metricas.Rechazo.SIN_TURNOS);
+                    break;
+                default:
+                    Metricas.rechazo(Metricas.Rechazo.deJugada(diagnosticos.get(i).getTexto()));
+                    break;
             }
-            // Va agregando los turnos a la lista
-            turnos.add(turno);
         }
-        
-        return turnos;
     }
-    
+
+    // Crea el turno con las jugadas que el escáner acaba de encontrar. Las jugadas
+    // salen de la tabla compartida, que ya sabe si son válidas
+    private Turno crearTurno(EscanerTurnos escaner, Diagnosticos diagnosticos, Metricas.Medicion medicion) {
+        CharSequence texto = escaner.getTexto();
+        Jugada blanca = tabla.obtener(texto, escaner.getInicioBlanca(), escaner.getLongitudBlanca());
+        Jugada negra = escaner.tieneNegra()
+                ? tabla.obtener(texto, escaner.getInicioNegra(), escaner.getLongitudNegra())
+                : null;
+        int numero = validarTurno(escaner, blanca.esValida(), negra == null || negra.esValida(), diagnosticos);
+        if (medicion != null) {
+            medicion.marcar(Metricas.Fase.VALIDACION);
+        }
+        if (numero <= 0) {
+            return null;
+        }
+        Turno turno = new Turno(numero);
+        turno.setJugadaBlanca(blanca);
+        turno.setJugadaNegra(negra);
+        return turno;
+    }
+
+    // Codifica las jugadas directamente desde el texto, sin crear cadenas
+    private boolean agregarCodigos(PartidaCompacta partida, EscanerTurnos escaner, Diagnosticos diagnosticos,
+                                   Metricas.Medicion medicion) {
+        CharSequence texto = escaner.getTexto();
+        int blanca = CodigoJugada.codificar(texto, escaner.getInicioBlanca(), escaner.getLongitudBlanca());
+        int negra = escaner.tieneNegra()
+                ? CodigoJugada.codificar(texto, escaner.getInicioNegra(), escaner.getLongitudNegra())
+                : CodigoJugada.NINGUNA;
+        int numero = validarTurno(escaner, blanca != CodigoJugada.NINGUNA, !escaner.tieneNegra() || negra != CodigoJugada.NINGUNA, diagnosticos);
+        if (medicion != null) {
+            medicion.marcar(Metricas.Fase.VALIDACION);
+        }
+        if (numero <= 0) {
+            return false;
+        }
+        partida.agregarTurno(numero, blanca, negra);
+        if (medicion != null) {
+            medicion.marcar(Metricas.Fase.CONSTRUCCION);
+        }
+        return true;
+    }
+
     /**
-     * Valida un turno según las reglas BNF
-     * @param turno Turno a validar
-     * @throws IllegalArgumentException Si el turno no es válido
+     * Valida el turno actual del escáner según las reglas BNF. Los errores se
+     * anotan en el buffer de diagnósticos en lugar de lanzar excepciones
+     * @param escaner Escáner posicionado en el turno a validar
+     * @param blancaValida Si la jugada blanca cumple la gramática SAN
+     * @param negraValida Si la jugada negra cumple la gramática SAN, o no existe
+     * @param diagnosticos Buffer donde se anotan los errores
+     * @return Número del turno, o -1 si el turno tiene algún error
      */
-    private void validarTurno(Turno turno) throws IllegalArgumentException { //Tiene de parmetro el turno, el metodo tambien puede lanzar una excepcion
+    private int validarTurno(EscanerTurnos escaner, boolean blancaValida, boolean negraValida, Diagnosticos diagnosticos) {
+        boolean correcto = true;
         // Validar número de turno
-        if (turno.getNumero() <= 0) { //Verifica si el turno es menor o igual a 0, esto no se puede, los turnos empiezan en 1 
-            throw new IllegalArgumentException("Número de turno inválido: " + turno.getNumero());
-        }
-        
-        // Validar jugada blanca 
-        //Se obtiene la jugada blanca del turno y se verifica que no sea nula o vacía
-        Jugada jugadaBlanca = turno.getJugadaBlanca();
-        if (jugadaBlanca == null || jugadaBlanca.getNotacion().isEmpty()) {
-            throw new IllegalArgumentException("Falta la jugada blanca en el turno " + turno.getNumero());
+        int numero = escaner.numeroTurno();
+        if (numero <= 0) { //Verifica si el turno es menor o igual a 0, esto no se puede, los turnos empiezan en 1
+            diagnosticos.agregar(CodigoError.NUMERO_TURNO_INVALIDO, numero, Diagnostico.SIN_COLOR,
+                    escaner.getInicioNumero(), escaner.getLongitudNumero());
+            if (!todosLosErrores) {
+                return -1;
+            }
+            correcto = false;
         }
-        //Verifica si la notacio de la jugada blanca es válida usando el validador SAN
-        if (!ValidadorSAN.esJugadaValida(jugadaBlanca.getNotacion())) {
-            throw new IllegalArgumentException("Jugada blanca inválida en turno " + turno.getNumero() + ": " + jugadaBlanca.getNotacion());
+        // Con un número inválido las jugadas del turno se sitúan por su posición, no por el número
+        int turno = numero > 0 ? numero : -1;
+
+        // Validar jugada blanca
+        if (!blancaValida) {
+            diagnosticos.agregar(CodigoError.JUGADA_BLANCA_INVALIDA, turno, Diagnostico.BLANCAS,
+                    escaner.getInicioBlanca(), escaner.getLongitudBlanca());
+            if (!todosLosErrores) {
+                return -1;
+            }
+            correcto = false;
         }
-        
+
         // Validar jugada negra (si existe)
-        Jugada jugadaNegra = turno.getJugadaNegra();
-        if (jugadaNegra != null) {
-            //Si la jugada negra no es válida lanza una excepción
-            if (!ValidadorSAN.esJugadaValida(jugadaNegra.getNotacion())) {
-                throw new IllegalArgumentException("Jugada negra inválida en turno " + turno.getNumero() + ": " + jugadaNegra.getNotacion());
-            }
+        if (!negraValida) {
+            //Si la jugada negra no es válida se anota el error
+            diagnosticos.agregar(CodigoError.JUGADA_NEGRA_INVALIDA, turno, Diagnostico.NEGRAS,
+                    escaner.getInicioNegra(), escaner.getLongitudNegra());
+            correcto = false;
         }
+        return correcto ? numero : -1;
     }
 }
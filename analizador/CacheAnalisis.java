@@ -0,0 +1,520 @@
+package analizador;
+
+import modelo.Diagnosticos;
+import modelo.Partida;
+import modelo.PartidaCompacta;
+import modelo.ResultadoAnalisis;
+
+/**
+ * Caché acotada de resultados delante de un AnalizadorSintactico, para las
+ * partidas que se envían una y otra vez (miniaturas conocidas, líneas de
+ * problemas, reintentos).
+ *
+ * La clave es un hash de 128 bits (MurmurHash3 x64) del texto normalizado: sin
+ * espacios al principio ni al final y con cada grupo de espacios reducido a uno
+ * solo, que es lo único que el analizador distingue. No se guarda el texto, así
+ * que la clave no ocupa más que dos long; con 128 bits la probabilidad de que
+ * dos partidas distintas choquen es despreciable.
+ *
+ * Los resultados válidos no dependen de los espacios y sirven para cualquier
+ * texto con la misma forma normalizada. Los inválidos llevan posiciones dentro
+ * del texto, así que solo se guardan y se devuelven cuando el texto ya venía
+ * normalizado; si no, se analiza de nuevo.
+ *
+ * Las entradas se reparten en segmentos, cada uno con su propio cerrojo, su
+ * tabla hash y su lista LRU, para que los hilos que consultan partidas
+ * distintas casi nunca esperen unos por otros. Cada segmento tiene una parte
+ * del peso máximo, medido como una estimación de los bytes que ocupa cada
+ * resultado, y al superarla desaloja las entradas usadas hace más tiempo. El
+ * análisis de un fallo se hace fuera del cerrojo.
+ *
+ * Los resultados y las partidas que devuelve la caché se comparten entre todos
+ * los que piden el mismo texto: no se deben modificar.
+ */
+public class CacheAnalisis {
+
+    public static final int SEGMENTOS_POR_DEFECTO = 16;
+
+    // Estimación en bytes de una entrada y un resultado sin partida ni diagnósticos
+    private static final int PESO_BASE = 96;
+
+    private static final long C1 = 0x87C37B91114253D5L;
+    private static final long C2 = 0x4CF5AD432745937FL;
+
+    private final AnalizadorSintactico analizador;
+    private final Segmento[] segmentos;
+    private final long pesoMaximo;
+
+    /**
+     * Constructor con un analizador de partidas compactas
+     * @param pesoMaximo Bytes aproximados que pueden ocupar los resultados guardados
+     */
+    public CacheAnalisis(long pesoMaximo) {
+        this(new AnalizadorSintactico(true), pesoMaximo, SEGMENTOS_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor
+     * @param analizador Analizador que resuelve los fallos
+     * @param pesoMaximo Bytes aproximados que pueden ocupar los resultados guardados
+     * @param segmentos Número de segmentos con cerrojo propio; se redondea a una potencia de 2
+     * @throws IllegalArgumentException Si el peso o los segmentos no son positivos
+     */
+    public CacheAnalisis(AnalizadorSintactico analizador, long pesoMaximo, int segmentos) {
+        if (pesoMaximo <= 0 || segmentos <= 0) {
+            throw new IllegalArgumentException("El peso máximo y los segmentos deben ser positivos");
+        }
+        int n = Integer.highestOneBit(Math.min(segmentos, 1 << 16));
+        if (n < segmentos) {
+            n <<= 1;
+        }
+        this.analizador = analizador;
+        this.pesoMaximo = pesoMaximo;
+        this.segmentos = new Segmento[n];
+        for (int i = 0; i < n; i++) {
+            this.segmentos[i] = new Segmento(Math.max(1, pesoMaximo / n));
+        }
+    }
+
+    /**
+     * Analiza una partida, o devuelve el resultado guardado si ya se analizó
+     * @param textoPartida Texto de la partida en notación SAN
+     * @return Resultado del análisis
+     */
+    public ResultadoAnalisis analizar(CharSequence textoPartida) {
+        return analizar(textoPartida, new Diagnosticos());
+    }
+
+    /**
+     * Analiza una partida, o devuelve el resultado guardado si ya se analizó
+     * @param textoPartida Texto de la partida en notación SAN
+     * @param diagnosticos Buffer para los errores si hay que analizar; se vacía al empezar
+     * @return Resultado del análisis
+     */
+    public ResultadoAnalisis analizar(CharSequence textoPartida, Diagnosticos diagnosticos) {
+        long[] huella = new long[2];
+        boolean normalizado = huella(textoPartida, huella);
+        long h1 = huella[0];
+        long h2 = huella[1];
+        Segmento segmento = segmentos[(int) (h1 >>> 32) & (segmentos.length - 1)];
+        ResultadoAnalisis guardado = segmento.obtener(h1, h2, normalizado);
+        if (guardado != null) {
+            return guardado;
+        }
+        ResultadoAnalisis resultado = analizador.analizar(textoPartida, diagnosticos);
+        if (resultado.esValido() || normalizado) {
+            segmento.guardar(h1, h2, resultado, peso(resultado, textoPartida.length()));
+        }
+        return resultado;
+    }
+
+    /**
+     * Elimina todas las entradas. Las estadísticas no se reinician
+     */
+    public void vaciar() {
+        for (Segmento segmento : segmentos) {
+            synchronized (segmento) {
+                segmento.vaciar();
+            }
+        }
+    }
+
+    /**
+     * Copia las estadísticas de todos los segmentos
+     * @return Aciertos, fallos, desalojos, entradas y peso actuales
+     */
+    public Estadisticas estadisticas() {
+        long aciertos = 0;
+        long fallos = 0;
+        long desalojos = 0;
+        long entradas = 0;
+        long peso = 0;
+        for (Segmento segmento : segmentos) {
+            synchronized (segmento) {
+                aciertos += segmento.aciertos;
+                fallos += segmento.fallos;
+                desalojos += segmento.desalojos;
+                entradas += segmento.tamano;
+                peso += segmento.peso;
+            }
+        }
+        return new Estadisticas(aciertos, fallos, desalojos, entradas, peso, pesoMaximo);
+    }
+
+    /**
+     * Calcula el hash de 128 bits del texto normalizado, sin copiarlo
+     * @param texto Texto de la partida
+     * @param huella Destino de las dos mitades del hash
+     * @return true si el texto ya estaba normalizado
+     */
+    static boolean huella(CharSequence texto, long[] huella) {
+        // Casi todas las partidas llegan ya normalizadas y basta una pasada sin saltos
+        // por los espacios; si no lo estaban, se repite normalizando
+        if (huella(texto, false, huella)) {
+            return true;
+        }
+        huella(texto, true, huella);
+        return false;
+    }
+
+    /**
+     * Recorre el texto una vez calculando el hash. Los caracteres se agrupan de
+     * ocho en ocho (dos long) a medida que se leen, como los bloques de 16 bytes
+     * de MurmurHash3
+     * @param texto Texto de la partida
+     * @param normalizar true para reducir los espacios al calcular el hash; con
+     *                   false se calcula sobre el texto tal cual
+     * @param huella Destino de las dos mitades del hash
+     * @return true si el texto ya estaba normalizado
+     */
+    private static boolean huella(CharSequence texto, boolean normalizar, long[] huella) {
+        long h1 = 0;
+        long h2 = 0;
+        long k1 = 0;
+        long palabra = 0;
+        int longitud = 0;
+        // Sin normalizar se anota, sin saltos, si aparece un espacio que no sea ' ' o
+        // dos ' ' seguidos; empezar como si antes hubiera un ' ' detecta el del principio
+        boolean irregular = false;
+        char anterior = ' ';
+        boolean espacioPendiente = false;
+        int n = texto.length();
+        for (int i = 0; i < n; i++) {
+            char c = texto.charAt(i);
+            if (!normalizar) {
+                irregular |= (c == ' ') & (anterior == ' ') | (char) (c - '\t') <= '\r' - '\t';
+                anterior = c;
+            } else if (c <= ' ' && EscanerTurnos.esEspacio(c)) {
+                espacioPendiente = longitud > 0;
+                continue;
+            } else if (espacioPendiente) {
+                // Un grupo de espacios cuenta como un solo ' ', y solo si le sigue algo;
+                // el carácter actual se vuelve a leer en la siguiente vuelta
+                c = ' ';
+                espacioPendiente = false;
+                i--;
+            }
+            palabra |= (long) c << ((longitud & 3) << 4);
+            longitud++;
+            if ((longitud & 3) == 0) {
+                if ((longitud & 4) != 0) {
+                    k1 = palabra;
+                } else {
+                    h1 ^= mezclarK1(k1);
+                    h1 = Long.rotateLeft(h1, 27) + h2;
+                    h1 = h1 * 5 + 0x52DCE729;
+                    h2 ^= mezclarK2(palabra);
+                    h2 = Long.rotateLeft(h2, 31) + h1;
+                    h2 = h2 * 5 + 0x38495AB5;
+                    k1 = 0;
+                }
+                palabra = 0;
+            }
+        }
+        // Un ' ' al final tampoco está normalizado
+        if (!normalizar && (irregular || n > 0 && anterior == ' ')) {
+            return false;
+        }
+        // Último bloque incompleto y mezcla final, con la longitud en bytes
+        if ((longitud & 4) != 0) {
+            h1 ^= mezclarK1(k1);
+            h2 ^= mezclarK2(palabra);
+        } else {
+            h1 ^= mezclarK1(palabra);
+        }
+        h1 ^= longitud * 2L;
+        h2 ^= longitud * 2L;
+        h1 += h2;
+        h2 += h1;
+        h1 = mezclar(h1);
+        h2 = mezclar(h2);
+        h1 += h2;
+        h2 += h1;
+        huella[0] = h1;
+        huella[1] = h2;
+        return !normalizar;
+    }
+
+    private static long mezclarK1(long k1) {
+        return Long.rotateLeft(k1 * C1, 31) * C2;
+    }
+
+    private static long mezclarK2(long k2) {
+        return Long.rotateLeft(k2 * C2, 33) * C1;
+    }
+
+    // Mezcla final de MurmurHash3 (fmix64)
+    private static long mezclar(long k) {
+        k = (k ^ (k >>> 33)) * 0xFF51AFD7ED558CCDL;
+        k = (k ^ (k >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return k ^ (k >>> 33);
+    }
+
+    // Bytes aproximados que ocupa un resultado con su partida o sus diagnósticos
+    private static int peso(ResultadoAnalisis resultado, int longitudTexto) {
+        long peso = PESO_BASE;
+        Partida partida = resultado.getPartida();
+        if (partida != null) {
+            // Una PartidaCompacta guarda 4 bytes por jugada y 8 por turno; una Partida
+            // normal, un Turno por turno y Jugada compartidas
+            peso += 64 + resultado.getNumeroJugadas() * 4L + resultado.getNumeroTurnos() * 8L;
+            if (!(partida instanceof PartidaCompacta)) {
+                peso += resultado.getNumeroTurnos() * 32L;
+            }
+        }
+        if (!resultado.esValido()) {
+            // Cada diagnóstico guarda su texto, y el mensaje de error se calcula del primero
+            peso += resultado.getDiagnosticos().size() * 64L + resultado.getMensajeError().length() * 2L
+                    + Math.min(longitudTexto, 64) * 2L;
+        }
+        return (int) Math.min(peso, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Entrada guardada: clave, resultado y enlaces a la cadena de su cubeta y a
+     * sus vecinas en la lista LRU
+     */
+    private static final class Entrada {
+        final long h1;
+        final long h2;
+        ResultadoAnalisis resultado;
+        int peso;
+        Entrada siguiente;
+        Entrada masReciente;
+        Entrada menosReciente;
+
+        Entrada(long h1, long h2) {
+            this.h1 = h1;
+            this.h2 = h2;
+        }
+    }
+
+    /**
+     * Tabla hash con lista LRU protegida por su propio monitor. La cabeza de la
+     * lista es la entrada usada más recientemente y la cola la siguiente en salir
+     */
+    private static final class Segmento {
+        private final long pesoMaximo;
+        private Entrada[] tabla = new Entrada[16];
+        private Entrada cabeza;
+        private Entrada cola;
+        int tamano;
+        long peso;
+        long aciertos;
+        long fallos;
+        long desalojos;
+
+        Segmento(long pesoMaximo) {
+            this.pesoMaximo = pesoMaximo;
+        }
+
+        synchronized ResultadoAnalisis obtener(long h1, long h2, boolean normalizado) {
+            Entrada entrada = buscar(h1, h2);
+            // Un resultado inválido solo vale para el mismo texto, que tiene que venir normalizado
+            if (entrada == null || !(normalizado || entrada.resultado.esValido())) {
+                fallos++;
+                return null;
+            }
+            aciertos++;
+            if (entrada != cabeza) {
+                desenlazar(entrada);
+                enlazarAlPrincipio(entrada);
+            }
+            return entrada.resultado;
+        }
+
+        synchronized void guardar(long h1, long h2, ResultadoAnalisis resultado, int pesoResultado) {
+            if (pesoResultado > pesoMaximo) {
+                return;
+            }
+            Entrada entrada = buscar(h1, h2);
+            if (entrada != null) {
+                // Otro hilo lo analizó a la vez, o era un inválido con otros espacios
+                peso += pesoResultado - entrada.peso;
+                entrada.resultado = resultado;
+                entrada.peso = pesoResultado;
+                desenlazar(entrada);
+            } else {
+                entrada = new Entrada(h1, h2);
+                entrada.resultado = resultado;
+                entrada.peso = pesoResultado;
+                int indice = indice(h1, tabla.length);
+                entrada.siguiente = tabla[indice];
+                tabla[indice] = entrada;
+                tamano++;
+                peso += pesoResultado;
+                if (tamano > tabla.length - (tabla.length >>> 2)) {
+                    crecer();
+                }
+            }
+            enlazarAlPrincipio(entrada);
+            while (peso > pesoMaximo) {
+                eliminar(cola);
+                desalojos++;
+            }
+        }
+
+        void vaciar() {
+            tabla = new Entrada[16];
+            cabeza = null;
+            cola = null;
+            tamano = 0;
+            peso = 0;
+        }
+
+        private Entrada buscar(long h1, long h2) {
+            for (Entrada e = tabla[indice(h1, tabla.length)]; e != null; e = e.siguiente) {
+                if (e.h1 == h1 && e.h2 == h2) {
+                    return e;
+                }
+            }
+            return null;
+        }
+
+        private void eliminar(Entrada entrada) {
+            int indice = indice(entrada.h1, tabla.length);
+            if (tabla[indice] == entrada) {
+                tabla[indice] = entrada.siguiente;
+            } else {
+                Entrada anterior = tabla[indice];
+                while (anterior.siguiente != entrada) {
+                    anterior = anterior.siguiente;
+                }
+                anterior.siguiente = entrada.siguiente;
+            }
+            desenlazar(entrada);
+            tamano--;
+            peso -= entrada.peso;
+        }
+
+        private void desenlazar(Entrada entrada) {
+            if (entrada.masReciente != null) {
+                entrada.masReciente.menosReciente = entrada.menosReciente;
+            } else {
+                cabeza = entrada.menosReciente;
+            }
+            if (entrada.menosReciente != null) {
+                entrada.menosReciente.masReciente = entrada.masReciente;
+            } else {
+                cola = entrada.masReciente;
+            }
+            entrada.masReciente = null;
+            entrada.menosReciente = null;
+        }
+
+        private void enlazarAlPrincipio(Entrada entrada) {
+            entrada.menosReciente = cabeza;
+            if (cabeza != null) {
+                cabeza.masReciente = entrada;
+            }
+            cabeza = entrada;
+            if (cola == null) {
+                cola = entrada;
+            }
+        }
+
+        private void crecer() {
+            Entrada[] nueva = new Entrada[tabla.length * 2];
+            for (Entrada primera : tabla) {
+                Entrada e = primera;
+                while (e != null) {
+                    Entrada siguiente = e.siguiente;
+                    int indice = indice(e.h1, nueva.length);
+                    e.siguiente = nueva[indice];
+                    nueva[indice] = e;
+                    e = siguiente;
+                }
+            }
+            tabla = nueva;
+        }
+
+        // Los bits altos ya eligieron el segmento; la cubeta sale de los bajos
+        private static int indice(long h1, int longitud) {
+            return (int) h1 & (longitud - 1);
+        }
+    }
+
+    /**
+     * Estadísticas de la caché en un momento dado
+     */
+    public static final class Estadisticas {
+        private final long aciertos;
+        private final long fallos;
+        private final long desalojos;
+        private final long entradas;
+        private final long peso;
+        private final long pesoMaximo;
+
+        Estadisticas(long aciertos, long fallos, long desalojos, long entradas, long peso, long pesoMaximo) {
+            this.aciertos = aciertos;
+            this.fallos = fallos;
+            this.desalojos = desalojos;
+            this.entradas = entradas;
+            this.peso = peso;
+            this.pesoMaximo = pesoMaximo;
+        }
+
+        /**
+         * Obtiene las consultas resueltas con un resultado guardado
+         * @return Número de aciertos
+         */
+        public long getAciertos() {
+            return aciertos;
+        }
+
+        /**
+         * Obtiene las consultas que tuvieron que analizar la partida
+         * @return Número de fallos
+         */
+        public long getFallos() {
+            return fallos;
+        }
+
+        /**
+         * Obtiene la proporción de consultas resueltas con un resultado guardado
+         * @return Tasa de aciertos entre 0 y 1, o 0 si no hubo consultas
+         */
+        public double getTasaAciertos() {
+            long consultas = aciertos + fallos;
+            return consultas == 0 ? 0 : (double) aciertos / consultas;
+        }
+
+        /**
+         * Obtiene las entradas desalojadas por falta de espacio
+         * @return Número de desalojos
+         */
+        public long getDesalojos() {
+            return desalojos;
+        }
+
+        /**
+         * Obtiene el número de resultados guardados
+         * @return Número de entradas
+         */
+        public long getEntradas() {
+            return entradas;
+        }
+
+        /**
+         * Obtiene el peso de los resultados guardados
+         * @return Bytes aproximados
+         */
+        public long getPeso() {
+            return peso;
+        }
+
+        /**
+         * Obtiene el peso máximo de la caché
+         * @return Bytes aproximados
+         */
+        public long getPesoMaximo() {
+            return pesoMaximo;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Aciertos: %d, fallos: %d (%.1f%% de aciertos), desalojos: %d, entradas: %d, peso: %d/%d bytes",
+                    aciertos, fallos, getTasaAciertos() * 100, desalojos, entradas, peso, pesoMaximo);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package analizador;
+
+import modelo.ArchivoPartidas;
+import modelo.EscritorArchivoPartidas;
+import modelo.Partida;
+import modelo.PartidaCompacta;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Convierte entre archivos de partidas en texto SAN y el formato binario de
+ * ArchivoPartidas. Solo las partidas válidas pasan al archivo binario.
+ */
+public class ConversorArchivoPartidas {
+
+    private final AnalizadorArchivo analizador;
+
+    /**
+     * Constructor con la ventana de lectura por defecto
+     */
+    public ConversorArchivoPartidas() {
+        // Las partidas compactas se escriben tal cual, sin volver a codificar las jugadas
+        this.analizador = new AnalizadorArchivo(new AnalizadorSintactico(true), 1 << 28);
+    }
+
+    /**
+     * Analiza un archivo de texto y escribe sus partidas válidas en binario
+     * @param texto Archivo con partidas en SAN, separadas como las lee AnalizadorArchivo
+     * @param binario Archivo binario que se crea
+     * @param rechazadas Recibe las partidas inválidas, que no se escriben; puede ser null
+     * @return Número de partidas escritas
+     * @throws IOException Si no se puede leer o escribir
+     */
+    public long aBinario(Path texto, Path binario, ReceptorResultados rechazadas) throws IOException {
+        try (EscritorArchivoPartidas escritor = new EscritorArchivoPartidas(binario)) {
+            try {
+                analizador.analizar(texto, (numero, resultado) -> {
+                    if (!resultado.esValido()) {
+                        if (rechazadas != null) {
+                            rechazadas.recibir(numero, resultado);
+                        }
+                        return;
+                    }
+                    try {
+                        escritor.agregar(resultado.getPartida());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, true);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return escritor.getNumeroPartidas();
+        }
+    }
+
+    /**
+     * Escribe las partidas de un archivo binario como texto SAN, una por línea y
+     * separadas por líneas en blanco
+     * @param binario Archivo creado con aBinario o con EscritorArchivoPartidas
+     * @param texto Archivo de texto que se crea
+     * @return Número de partidas escritas
+     * @throws IOException Si no se puede leer o escribir
+     */
+    public long aTexto(Path binario, Path texto) throws IOException {
+        ArchivoPartidas archivo = ArchivoPartidas.abrir(binario);
+        try (Writer salida = new BufferedWriter(Files.newBufferedWriter(texto, StandardCharsets.UTF_8), 1 << 16)) {
+            for (long i = 0; i < archivo.getNumeroPartidas(); i++) {
+                PartidaCompacta partida = archivo.obtener(i);
+                salida.write(partida.toString());
+                String marca = Partida.marcaResultado(partida.getResultado());
+                if (marca != null) {
+                    salida.write(' ');
+                    salida.write(marca);
+                }
+                salida.write("\n\n");
+            }
+        }
+        return archivo.getNumeroPartidas();
+    }
+}
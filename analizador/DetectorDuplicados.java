@@ -0,0 +1,272 @@
+package analizador;
+
+import modelo.Diagnosticos;
+import modelo.ResultadoAnalisis;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Detecta partidas repetidas en una sola pasada por un corpus, con memoria
+ * acotada que se reserva al crearlo.
+ *
+ * De cada partida válida se calcula, mientras se analiza, una huella de 64 bits
+ * de su secuencia de jugadas y su resultado (ver HuellaPartida), así que dos
+ * partidas que solo se diferencian en los espacios o en cómo se escriben los
+ * números de turno son la misma. Cada huella pasa primero por un filtro de
+ * Bloom por bloques: todos sus bits caen en el mismo bloque de 512 bits, una
+ * línea de caché, y una partida nueva se descarta con un solo acceso a memoria.
+ * Solo las candidatas que el filtro da como vistas se confirman en un conjunto
+ * exacto de huellas, una tabla de long con direccionamiento abierto.
+ *
+ * El conjunto tiene la capacidad que se pide al crear el detector y no crece.
+ * Si se llena, las huellas nuevas ya no se guardan en él y las repeticiones de
+ * esas partidas dejan de detectarse; esExacto() avisa de ello. Nunca se marca
+ * como repetida una partida que no lo es: al fusionar archivos es peor perder
+ * una partida que conservar un duplicado.
+ *
+ * No es seguro entre hilos: cada pasada usa su propio detector.
+ */
+public class DetectorDuplicados {
+
+    /**
+     * Destino de las partidas de un archivo con la marca de si están repetidas
+     */
+    public interface ReceptorDuplicados {
+
+        /**
+         * Recibe una partida del archivo
+         * @param numeroPartida Posición de la partida dentro del archivo, empezando en 1
+         * @param resultado Resultado del análisis de la partida
+         * @param duplicada true si una partida anterior tiene las mismas jugadas y resultado
+         */
+        void recibir(long numeroPartida, ResultadoAnalisis resultado, boolean duplicada);
+    }
+
+    // Bits de un bloque del filtro (8 long, 64 bytes)
+    private static final int BITS_BLOQUE = 512;
+    private static final int LONGS_BLOQUE = BITS_BLOQUE / 64;
+    private static final double CARGA_MAXIMA = 0.75;
+    private static final long MULTIPLICADOR = 0x9E3779B97F4A7C15L;
+
+    private final long[] filtro;
+    private final int numeroBloques;
+    private final int funciones;
+    private final long[] conjunto;
+    private final int mascara;
+    private final int capacidad;
+    private int tamano;
+
+    private long partidas;
+    private long duplicadas;
+    private long falsosPositivos;
+    private boolean lleno;
+
+    // Para registrar partidas sueltas sin pasar por un archivo
+    private final AnalizadorSintactico analizador = new AnalizadorSintactico(true);
+    private final EscanerTurnos escaner = new EscanerTurnos();
+    private final Diagnosticos diagnosticos = new Diagnosticos();
+    private final HuellaPartida huella = new HuellaPartida();
+
+    /**
+     * Constructor
+     * @param partidasEsperadas Número de partidas distintas que se espera encontrar;
+     *                          dimensiona el filtro y el conjunto exacto
+     * @param tasaFalsosPositivos Proporción de partidas nuevas que el filtro puede dar
+     *                            como vistas, por ejemplo 0.01
+     * @throws IllegalArgumentException Si el número de partidas no es positivo o no
+     *                                  cabe en un conjunto, o la tasa no está entre 0 y 1
+     */
+    public DetectorDuplicados(long partidasEsperadas, double tasaFalsosPositivos) {
+        if (partidasEsperadas <= 0 || partidasEsperadas > (1L << 30) * CARGA_MAXIMA) {
+            throw new IllegalArgumentException("Número de partidas esperadas inválido: " + partidasEsperadas);
+        }
+        if (!(tasaFalsosPositivos > 0 && tasaFalsosPositivos < 1)) {
+            throw new IllegalArgumentException("Tasa de falsos positivos inválida: " + tasaFalsosPositivos);
+        }
+        // Tamaño óptimo de un filtro de Bloom: m = -n ln p / (ln 2)^2 y k = m / n ln 2
+        double bits = -partidasEsperadas * Math.log(tasaFalsosPositivos) / (Math.log(2) * Math.log(2));
+        long bloques = Math.max(1, (long) Math.ceil(bits / BITS_BLOQUE));
+        if (bloques * LONGS_BLOQUE > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("El filtro no cabe en memoria con esa tasa: " + tasaFalsosPositivos);
+        }
+        this.numeroBloques = (int) bloques;
+        this.filtro = new long[numeroBloques * LONGS_BLOQUE];
+        this.funciones = (int) Math.max(1, Math.min(16, Math.round(bloques * BITS_BLOQUE / (double) partidasEsperadas * Math.log(2))));
+
+        int longitud = Integer.highestOneBit((int) Math.max(16, (long) Math.ceil(partidasEsperadas / CARGA_MAXIMA)) - 1) << 1;
+        this.conjunto = new long[longitud];
+        this.mascara = longitud - 1;
+        this.capacidad = (int) (longitud * CARGA_MAXIMA);
+    }
+
+    /**
+     * Registra la huella de una partida
+     * @param huella Huella de 64 bits de la partida
+     * @return true si ya se había registrado antes
+     */
+    public boolean registrar(long huella) {
+        partidas++;
+        boolean duplicada;
+        if (!enFiltro(huella)) {
+            duplicada = false;
+        } else {
+            // Si el conjunto está lleno, la candidata puede ser una repetición que no
+            // se pudo guardar; sin confirmarla se trata como nueva
+            duplicada = contiene(huella);
+            if (!duplicada) {
+                falsosPositivos++;
+            }
+        }
+        if (duplicada) {
+            duplicadas++;
+        } else {
+            agregarAlFiltro(huella);
+            agregar(huella);
+        }
+        return duplicada;
+    }
+
+    /**
+     * Analiza una partida y la registra si es válida
+     * @param textoPartida Texto de la partida en notación SAN
+     * @return true si es válida y ya se había registrado una partida con las mismas
+     *         jugadas y resultado
+     */
+    public boolean registrar(CharSequence textoPartida) {
+        escaner.reiniciar(textoPartida);
+        ResultadoAnalisis resultado = analizador.analizar(escaner, false, diagnosticos, huella);
+        return resultado.esValido() && registrar(huella.getValor());
+    }
+
+    /**
+     * Recorre un archivo de partidas en una sola pasada, sin cargarlo en memoria,
+     * marcando las partidas válidas que repiten otra anterior
+     * @param archivo Ruta del archivo
+     * @param receptor Destino de cada partida con su marca, en el orden del archivo
+     * @return Número de partidas del archivo
+     * @throws IOException Si no se puede leer el archivo
+     */
+    public long analizar(Path archivo, ReceptorDuplicados receptor) throws IOException {
+        HuellaPartida huellaArchivo = new HuellaPartida();
+        AnalizadorArchivo analizadorArchivo = new AnalizadorArchivo();
+        return analizadorArchivo.analizar(archivo, (numero, resultado) ->
+                receptor.recibir(numero, resultado, resultado.esValido() && registrar(huellaArchivo.getValor())),
+                false, huellaArchivo);
+    }
+
+    /**
+     * Obtiene el número de partidas registradas
+     * @return Partidas válidas vistas hasta ahora
+     */
+    public long getPartidas() {
+        return partidas;
+    }
+
+    /**
+     * Obtiene el número de partidas repetidas
+     * @return Partidas que repetían otra anterior
+     */
+    public long getDuplicadas() {
+        return duplicadas;
+    }
+
+    /**
+     * Obtiene las veces que el filtro dio como vista una partida que el conjunto
+     * exacto no tenía
+     * @return Número de falsos positivos del filtro
+     */
+    public long getFalsosPositivos() {
+        return falsosPositivos;
+    }
+
+    /**
+     * Indica si todas las partidas nuevas caben en el conjunto exacto
+     * @return false si el conjunto se llenó y alguna repetición puede no haberse detectado
+     */
+    public boolean esExacto() {
+        return !lleno;
+    }
+
+    /**
+     * Obtiene la memoria reservada por el filtro y el conjunto
+     * @return Número de bytes
+     */
+    public long getBytes() {
+        return (filtro.length + (long) conjunto.length) * Long.BYTES;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Partidas: %d, duplicadas: %d, falsos positivos del filtro: %d, memoria: %d MiB%s",
+                partidas, duplicadas, falsosPositivos, getBytes() >> 20, lleno ? " (conjunto lleno, pueden faltar duplicadas)" : "");
+    }
+
+    // El bloque sale de los 32 bits altos de la huella; cada bit dentro del bloque,
+    // de 9 bits de una segunda mezcla que se renueva cuando se agotan
+    private boolean enFiltro(long huella) {
+        int base = bloque(huella) * LONGS_BLOQUE;
+        long bits = huella * MULTIPLICADOR;
+        for (int i = 0, disponibles = 7; i < funciones; i++, disponibles--) {
+            if (disponibles == 0) {
+                bits = (bits ^ (bits >>> 29)) * MULTIPLICADOR;
+                disponibles = 7;
+            }
+            int bit = (int) (bits >>> 55);
+            bits <<= 9;
+            if ((filtro[base + (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void agregarAlFiltro(long huella) {
+        int base = bloque(huella) * LONGS_BLOQUE;
+        long bits = huella * MULTIPLICADOR;
+        for (int i = 0, disponibles = 7; i < funciones; i++, disponibles--) {
+            if (disponibles == 0) {
+                bits = (bits ^ (bits >>> 29)) * MULTIPLICADOR;
+                disponibles = 7;
+            }
+            int bit = (int) (bits >>> 55);
+            bits <<= 9;
+            filtro[base + (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private int bloque(long huella) {
+        return (int) (((huella >>> 32) * numeroBloques) >>> 32);
+    }
+
+    // El 0 marca una casilla libre, así que la huella 0 se guarda como 1
+    private boolean contiene(long huella) {
+        long clave = huella == 0 ? 1 : huella;
+        for (int i = (int) huella & mascara; ; i = (i + 1) & mascara) {
+            long actual = conjunto[i];
+            if (actual == clave) {
+                return true;
+            }
+            if (actual == 0) {
+                return false;
+            }
+        }
+    }
+
+    private void agregar(long huella) {
+        if (tamano >= capacidad) {
+            lleno = true;
+            return;
+        }
+        long clave = huella == 0 ? 1 : huella;
+        int i = (int) huella & mascara;
+        while (conjunto[i] != 0) {
+            if (conjunto[i] == clave) {
+                return;
+            }
+            i = (i + 1) & mascara;
+        }
+        conjunto[i] = clave;
+        tamano++;
+    }
+}
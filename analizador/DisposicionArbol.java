@@ -0,0 +1,375 @@
+package analizador;
+
+import modelo.Partida;
+import modelo.Turno;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Posición de cada nodo de un árbol, calculada una sola vez y sin depender de
+ * la interfaz gráfica.
+ *
+ * Los nodos se numeran por niveles, empezando por la raíz: los de un mismo
+ * nivel ocupan índices consecutivos y están ordenados de izquierda a derecha,
+ * así que los que caen dentro de un rectángulo se encuentran con una búsqueda
+ * binaria, sin recorrer el árbol entero. El árbol de una partida es binario y
+ * se guarda como un montículo (los hijos del nodo i son 2i+1 y 2i+2); el árbol
+ * sintáctico de AnalizadorPredictivo tiene las hojas a la misma distancia y
+ * cada regla centrada sobre sus hijos.
+ */
+public class DisposicionArbol {
+
+    // Medidas en unidades del lienzo sin escalar
+    public static final int DIAMETRO_NODO = 30;
+    public static final int ALTURA_NIVEL = 100;
+    public static final int MARGEN_SUPERIOR = 50;
+    // Distancia entre dos nodos vecinos del nivel más profundo
+    public static final int SEPARACION_HOJAS = DIAMETRO_NODO * 2;
+
+    // Tipos de nodo, que deciden su color
+    public static final int TIPO_REGLA = 0;
+    public static final int TIPO_BLANCAS = 1;
+    public static final int TIPO_NEGRAS = 2;
+
+    private final String[] etiquetas;
+    private final byte[] tipos;
+    private final int[] padres;
+    private final double[] xs;
+    // inicioNivel[n] es el primer nodo del nivel n; el último elemento es el número de nodos
+    private final int[] inicioNivel;
+    private final double[] separaciones;
+    private final int profundidad;
+    private final int ancho;
+    private final int alto;
+
+    /**
+     * Constructor de un árbol binario guardado como montículo, con la raíz de
+     * tipo regla y los hijos izquierdo y derecho de blancas y de negras
+     * @param etiquetas Texto de cada nodo, empezando por la raíz
+     */
+    public DisposicionArbol(String[] etiquetas) {
+        int n = etiquetas.length;
+        // Número de niveles: 32 menos los ceros a la izquierda de n, sin logaritmos
+        int niveles = n == 0 ? 0 : 32 - Integer.numberOfLeadingZeros(n);
+        int anchoArbol = niveles == 0 ? 0 : (1 << (niveles - 1)) * SEPARACION_HOJAS;
+        byte[] tiposNodos = new byte[n];
+        int[] padresNodos = new int[n];
+        double[] xsNodos = new double[n];
+        int[] inicios = new int[niveles + 1];
+        for (int nivel = 0; nivel < niveles; nivel++) {
+            inicios[nivel] = (1 << nivel) - 1;
+        }
+        inicios[niveles] = n;
+        for (int nodo = 0; nodo < n; nodo++) {
+            int nivel = 31 - Integer.numberOfLeadingZeros(nodo + 1);
+            padresNodos[nodo] = nodo == 0 ? -1 : (nodo - 1) >>> 1;
+            tiposNodos[nodo] = (byte) (nodo == 0 ? TIPO_REGLA : nodo % 2 == 1 ? TIPO_BLANCAS : TIPO_NEGRAS);
+            xsNodos[nodo] = (nodo - inicios[nivel] + 0.5) * (anchoArbol / (double) (1 << nivel));
+        }
+        this.etiquetas = etiquetas;
+        this.tipos = tiposNodos;
+        this.padres = padresNodos;
+        this.xs = xsNodos;
+        this.inicioNivel = inicios;
+        this.profundidad = niveles;
+        this.ancho = anchoArbol;
+        this.alto = niveles * ALTURA_NIVEL + MARGEN_SUPERIOR;
+        // En el montículo cada nivel parte el ancho en tantas partes como nodos le caben, esté lleno o no
+        this.separaciones = new double[niveles];
+        for (int nivel = 0; nivel < niveles; nivel++) {
+            separaciones[nivel] = anchoArbol / (double) (1 << nivel);
+        }
+    }
+
+    private DisposicionArbol(String[] etiquetas, byte[] tipos, int[] padres, double[] xs, int[] inicioNivel, int ancho) {
+        this.etiquetas = etiquetas;
+        this.tipos = tipos;
+        this.padres = padres;
+        this.xs = xs;
+        this.inicioNivel = inicioNivel;
+        this.profundidad = inicioNivel.length - 1;
+        this.ancho = ancho;
+        this.alto = profundidad * ALTURA_NIVEL + MARGEN_SUPERIOR;
+        this.separaciones = calcularSeparaciones();
+    }
+
+    /**
+     * Calcula la disposición del árbol de una partida
+     * @param partida Partida validada por el analizador sintáctico
+     * @return Disposición con la raíz "Inicio" y una hoja por jugada
+     */
+    public static DisposicionArbol de(Partida partida) {
+        List<String> jugadas = new ArrayList<>(partida.getNumeroJugadas() + 1);
+        jugadas.add("Inicio");
+        for (Turno turno : partida.getTurnos()) {
+            jugadas.add(turno.getJugadaBlanca().getNotacion());
+            if (turno.getJugadaNegra() != null) {
+                jugadas.add(turno.getJugadaNegra().getNotacion());
+            }
+        }
+        return new DisposicionArbol(jugadas.toArray(new String[0]));
+    }
+
+    /**
+     * Calcula la disposición de un árbol sintáctico concreto. Las reglas se
+     * etiquetan con su nombre y los tokens con su texto; los tokens de las
+     * jugadas blancas y negras llevan su propio tipo
+     * @param raiz Raíz del árbol que construye AnalizadorPredictivo
+     * @return Disposición con un nodo por regla y una hoja por token
+     */
+    public static DisposicionArbol de(NodoSintactico raiz) {
+        // Recorrido en anchura: los hijos de cada nodo quedan seguidos y por niveles
+        List<NodoSintactico> nodos = new ArrayList<>();
+        List<Integer> padresNodos = new ArrayList<>();
+        List<Integer> inicios = new ArrayList<>();
+        nodos.add(raiz);
+        padresNodos.add(-1);
+        int inicioActual = 0;
+        while (inicioActual < nodos.size()) {
+            inicios.add(inicioActual);
+            int finActual = nodos.size();
+            for (int i = inicioActual; i < finActual; i++) {
+                for (NodoSintactico hijo : nodos.get(i).getHijos()) {
+                    nodos.add(hijo);
+                    padresNodos.add(i);
+                }
+            }
+            inicioActual = finActual;
+        }
+        int n = nodos.size();
+        inicios.add(n);
+
+        String[] etiquetas = new String[n];
+        byte[] tipos = new byte[n];
+        int[] padres = new int[n];
+        int[] primerHijo = new int[n];
+        int[] numeroHijos = new int[n];
+        for (int i = 0; i < n; i++) {
+            NodoSintactico nodo = nodos.get(i);
+            padres[i] = padresNodos.get(i);
+            etiquetas[i] = nodo.esToken() ? nodo.getTexto() : nodo.getSimbolo();
+            tipos[i] = TIPO_REGLA;
+            if (nodo.esToken() && padres[i] >= 0) {
+                String padre = nodos.get(padres[i]).getSimbolo();
+                tipos[i] = (byte) (padre.equals("blanca") ? TIPO_BLANCAS : padre.equals("negra") ? TIPO_NEGRAS : TIPO_REGLA);
+            }
+            if (i > 0 && numeroHijos[padres[i]]++ == 0) {
+                primerHijo[padres[i]] = i;
+            }
+        }
+
+        // Las hojas, en el orden del texto, a la misma distancia unas de otras
+        double[] xs = new double[n];
+        int hojas = 0;
+        int[] pila = new int[n];
+        int cima = 0;
+        pila[cima++] = 0;
+        while (cima > 0) {
+            int nodo = pila[--cima];
+            if (numeroHijos[nodo] == 0) {
+                xs[nodo] = (hojas++ + 0.5) * SEPARACION_HOJAS;
+            }
+            for (int k = numeroHijos[nodo] - 1; k >= 0; k--) {
+                pila[cima++] = primerHijo[nodo] + k;
+            }
+        }
+        // Cada regla sobre el centro de sus hijos; los hijos tienen índices mayores que el padre
+        for (int nodo = n - 1; nodo >= 0; nodo--) {
+            if (numeroHijos[nodo] > 0) {
+                xs[nodo] = (xs[primerHijo[nodo]] + xs[primerHijo[nodo] + numeroHijos[nodo] - 1]) / 2;
+            }
+        }
+        int[] inicioNivel = new int[inicios.size()];
+        for (int i = 0; i < inicioNivel.length; i++) {
+            inicioNivel[i] = inicios.get(i);
+        }
+        return new DisposicionArbol(etiquetas, tipos, padres, xs, inicioNivel, hojas * SEPARACION_HOJAS);
+    }
+
+    // Distancia mínima entre dos nodos vecinos de cada nivel, o el ancho si el nivel tiene uno solo
+    private double[] calcularSeparaciones() {
+        double[] resultado = new double[profundidad];
+        for (int nivel = 0; nivel < profundidad; nivel++) {
+            double minima = ancho;
+            for (int nodo = inicioNivel[nivel] + 1; nodo < inicioNivel[nivel + 1]; nodo++) {
+                minima = Math.min(minima, xs[nodo] - xs[nodo - 1]);
+            }
+            resultado[nivel] = minima;
+        }
+        return resultado;
+    }
+
+    /**
+     * Obtiene el número de nodos
+     * @return Número de nodos, contando la raíz
+     */
+    public int getNumeroNodos() {
+        return etiquetas.length;
+    }
+
+    /**
+     * Obtiene el texto de un nodo
+     * @param nodo Índice del nodo
+     * @return Jugada, nombre de la regla o texto del token
+     */
+    public String getEtiqueta(int nodo) {
+        return etiquetas[nodo];
+    }
+
+    /**
+     * Obtiene el tipo de un nodo
+     * @param nodo Índice del nodo
+     * @return TIPO_REGLA, TIPO_BLANCAS o TIPO_NEGRAS
+     */
+    public int getTipo(int nodo) {
+        return tipos[nodo];
+    }
+
+    /**
+     * Obtiene el número de niveles del árbol
+     * @return Número de niveles
+     */
+    public int getProfundidad() {
+        return profundidad;
+    }
+
+    /**
+     * Obtiene el ancho del lienzo necesario para el árbol completo
+     * @return Ancho sin escalar
+     */
+    public int getAncho() {
+        return ancho;
+    }
+
+    /**
+     * Obtiene el alto del lienzo necesario para el árbol completo
+     * @return Alto sin escalar
+     */
+    public int getAlto() {
+        return alto;
+    }
+
+    /**
+     * Obtiene el nivel de un nodo
+     * @param nodo Índice del nodo
+     * @return Nivel, 0 para la raíz
+     */
+    public int nivel(int nodo) {
+        int desde = 0;
+        int hasta = profundidad - 1;
+        // Último nivel que empieza en el nodo o antes
+        while (desde < hasta) {
+            int medio = (desde + hasta + 1) >>> 1;
+            if (inicioNivel[medio] <= nodo) {
+                desde = medio;
+            } else {
+                hasta = medio - 1;
+            }
+        }
+        return desde;
+    }
+
+    /**
+     * Obtiene el padre de un nodo
+     * @param nodo Índice del nodo, distinto de la raíz
+     * @return Índice del padre
+     */
+    public int padre(int nodo) {
+        return padres[nodo];
+    }
+
+    /**
+     * Obtiene el primer nodo de un nivel
+     * @param nivel Nivel
+     * @return Índice del nodo más a la izquierda del nivel
+     */
+    public int primerNodo(int nivel) {
+        return inicioNivel[nivel];
+    }
+
+    /**
+     * Obtiene el último nodo de un nivel
+     * @param nivel Nivel
+     * @return Índice del nodo más a la derecha del nivel
+     */
+    public int ultimoNodo(int nivel) {
+        return inicioNivel[nivel + 1] - 1;
+    }
+
+    /**
+     * Obtiene la menor distancia horizontal entre dos nodos vecinos de un nivel
+     * @param nivel Nivel
+     * @return Separación sin escalar
+     */
+    public double separacion(int nivel) {
+        return separaciones[nivel];
+    }
+
+    /**
+     * Obtiene la coordenada x del centro de un nodo
+     * @param nodo Índice del nodo
+     * @return Coordenada sin escalar
+     */
+    public double x(int nodo) {
+        return xs[nodo];
+    }
+
+    /**
+     * Obtiene la coordenada y del centro de un nodo
+     * @param nodo Índice del nodo
+     * @return Coordenada sin escalar
+     */
+    public double y(int nodo) {
+        return yNivel(nivel(nodo));
+    }
+
+    /**
+     * Obtiene la coordenada y del centro de los nodos de un nivel
+     * @param nivel Nivel
+     * @return Coordenada sin escalar
+     */
+    public static double yNivel(int nivel) {
+        return MARGEN_SUPERIOR + nivel * (double) ALTURA_NIVEL;
+    }
+
+    /**
+     * Busca el primer nodo de un nivel cuyo centro está en x o a su derecha
+     * @param nivel Nivel
+     * @param x Coordenada sin escalar
+     * @return Índice del nodo, que puede pasar del último del nivel si no hay ninguno
+     */
+    public int nodoDesde(int nivel, double x) {
+        int desde = inicioNivel[nivel];
+        int hasta = inicioNivel[nivel + 1];
+        while (desde < hasta) {
+            int medio = (desde + hasta) >>> 1;
+            if (xs[medio] < x) {
+                desde = medio + 1;
+            } else {
+                hasta = medio;
+            }
+        }
+        return desde;
+    }
+
+    /**
+     * Busca el último nodo de un nivel cuyo centro está en x o a su izquierda
+     * @param nivel Nivel
+     * @param x Coordenada sin escalar
+     * @return Índice del nodo, que puede ser anterior al primero del nivel si no hay ninguno
+     */
+    public int nodoHasta(int nivel, double x) {
+        int desde = inicioNivel[nivel];
+        int hasta = inicioNivel[nivel + 1];
+        while (desde < hasta) {
+            int medio = (desde + hasta) >>> 1;
+            if (xs[medio] <= x) {
+                desde = medio + 1;
+            } else {
+                hasta = medio;
+            }
+        }
+        return desde - 1;
+    }
+}
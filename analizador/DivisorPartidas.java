@@ -0,0 +1,118 @@
+package analizador;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Localiza los límites de las partidas dentro de un buffer de bytes.
+ *
+ * Una partida termina en una línea en blanco o cuando empieza una línea con
+ * "1." después de otra partida. Por eso justo antes de cualquiera de esas dos
+ * líneas se puede cortar el buffer sin partir ninguna partida.
+ */
+public final class DivisorPartidas {
+
+    /**
+     * Recibe el tramo de bytes de cada partida encontrada
+     */
+    public interface ReceptorTramos {
+        /**
+         * @param inicio Posición absoluta del primer byte de la partida
+         * @param fin Posición absoluta siguiente al último byte de la partida
+         */
+        void partida(int inicio, int fin);
+    }
+
+    private DivisorPartidas() {
+    }
+
+    /**
+     * Recorre las partidas de un tramo del buffer
+     * @param buffer Buffer con el texto
+     * @param inicio Posición absoluta donde empieza el recorrido
+     * @param limite Posición absoluta donde termina el recorrido
+     * @param ultimo true si después del límite no hay más texto
+     * @param receptor Recibe cada partida completa, en orden
+     * @return Posición hasta la que se consumió el texto; si no es el último tramo,
+     *         lo que queda a partir de ella puede pertenecer a una partida incompleta
+     */
+    public static int recorrer(ByteBuffer buffer, int inicio, int limite, boolean ultimo, ReceptorTramos receptor) {
+        int inicioPartida = -1;
+        int finPartida = -1;
+        int i = inicio;
+        while (i < limite) {
+            int inicioLinea = i;
+            int finLinea = buscarFinLinea(buffer, i, limite);
+            if (finLinea == limite && !ultimo) {
+                // Línea cortada por el final del tramo
+                return inicioPartida >= 0 ? inicioPartida : inicioLinea;
+            }
+            int primero = saltarEspacios(buffer, inicioLinea, finLinea);
+            if (primero == finLinea) {
+                // Línea en blanco: cierra la partida abierta
+                if (inicioPartida >= 0) {
+                    receptor.partida(inicioPartida, finPartida);
+                    inicioPartida = -1;
+                }
+            } else {
+                if (inicioPartida >= 0 && empiezaPrimerTurno(buffer, primero, finLinea)) {
+                    receptor.partida(inicioPartida, finPartida);
+                    inicioPartida = -1;
+                }
+                if (inicioPartida < 0) {
+                    inicioPartida = inicioLinea;
+                }
+                finPartida = finLinea;
+            }
+            i = finLinea + 1;
+        }
+        if (inicioPartida >= 0) {
+            if (!ultimo) {
+                // La partida puede seguir después del límite
+                return inicioPartida;
+            }
+            receptor.partida(inicioPartida, finPartida);
+        }
+        return limite;
+    }
+
+    /**
+     * Busca la primera posición a partir de una dada donde se puede cortar el buffer
+     * sin partir ninguna partida
+     * @param buffer Buffer con el texto
+     * @param desde Posición a partir de la que se busca
+     * @param limite Posición absoluta donde termina el texto
+     * @return Inicio de una línea en blanco o de una línea que empieza con "1.", o el límite
+     */
+    public static int siguienteCorte(ByteBuffer buffer, int desde, int limite) {
+        // Se empieza en la línea siguiente para no caer en medio de una
+        int i = buscarFinLinea(buffer, desde, limite) + 1;
+        while (i < limite) {
+            int finLinea = buscarFinLinea(buffer, i, limite);
+            int primero = saltarEspacios(buffer, i, finLinea);
+            if (primero == finLinea || empiezaPrimerTurno(buffer, primero, finLinea)) {
+                return i;
+            }
+            i = finLinea + 1;
+        }
+        return limite;
+    }
+
+    private static int buscarFinLinea(ByteBuffer buffer, int i, int limite) {
+        while (i < limite && buffer.get(i) != '\n') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int saltarEspacios(ByteBuffer buffer, int i, int fin) {
+        while (i < fin && EscanerTurnos.esEspacio((char) buffer.get(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    // Una línea que empieza por "1." abre una partida nueva
+    private static boolean empiezaPrimerTurno(ByteBuffer buffer, int i, int fin) {
+        return i + 1 < fin && buffer.get(i) == '1' && buffer.get(i + 1) == '.';
+    }
+}
@@ -0,0 +1,632 @@
+package analizador;
+
+import modelo.CodigoError;
+import modelo.Partida;
+import util.VistaBytes;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Recorre un buffer de bytes con partidas en PGN completo, una partida cada vez
+ * y en una sola pasada hacia delante.
+ *
+ * De cada partida guarda solo posiciones: las de los nombres y valores de las
+ * etiquetas de la cabecera ([Event "..."]) y las de los números de turno y las
+ * jugadas. Los comentarios entre llaves o tras ";", las líneas de escape con
+ * "%", los NAG ($12), las anotaciones "!" y "?" y las variantes entre
+ * paréntesis, anidadas o no, se saltan sin copiarlos. Las etiquetas se piden
+ * después como tramos del buffer, también sin copiar.
+ *
+ * Una partida termina en su resultado (1-0, 0-1, 1/2-1/2 o *), al empezar la
+ * cabecera de la siguiente o al final del texto. Los turnos sin número se
+ * numeran siguiendo al anterior, y "12..." indica que sigue la jugada negra.
+ *
+ * Los errores de estructura (un comentario o una variante sin cerrar, una
+ * etiqueta mal formada, un símbolo que no pertenece a PGN, un "12..." sin la
+ * jugada blanca de ese turno) no detienen el
+ * recorrido: se anota el primero y se sigue hasta el final de la partida. La
+ * validez de las jugadas no se comprueba aquí sino en AnalizadorPGN.
+ */
+public class EscanerPGN {
+
+    private static final int CAPACIDAD_INICIAL = 64;
+    // Posiciones por etiqueta: inicio y fin del nombre, inicio y fin del valor
+    private static final int CAMPOS_ETIQUETA = 4;
+    // Posiciones por turno: número, jugada blanca y jugada negra, inicio y fin de cada uno
+    private static final int CAMPOS_TURNO = 6;
+
+    // Clase de cada byte, para no repetir las comparaciones de EscanerTurnos en
+    // los bucles que recorren espacios y jugadas
+    private static final byte ESPACIO = 1;
+    private static final byte JUGADA = 2;
+    private static final byte[] CLASES = new byte[256];
+
+    static {
+        for (int c = 0; c < 256; c++) {
+            if (EscanerTurnos.esEspacio((char) c)) {
+                CLASES[c] = ESPACIO;
+            } else if (EscanerTurnos.esCaracterJugada((char) c)) {
+                CLASES[c] = JUGADA;
+            }
+        }
+    }
+
+    private ByteBuffer buffer;
+    private final VistaBytes texto = new VistaBytes();
+    private int posicion;
+    private int fin;
+    private boolean ultimo;
+
+    // Partida actual
+    private int inicioPartida;
+    private int finPartida;
+    private int resultado;
+    private int[] etiquetas = new int[CAPACIDAD_INICIAL];
+    private int numeroEtiquetas;
+    private int[] turnos = new int[CAPACIDAD_INICIAL * CAMPOS_TURNO];
+    private int[] numeros = new int[CAPACIDAD_INICIAL];
+    private int numeroTurnos;
+    private int numeroJugadas;
+    private CodigoError error;
+    private int inicioError;
+    private int longitudError;
+
+    // Número de turno leído que aún no tiene jugada; inicioNumero es -1 si no hay
+    private int inicioNumero;
+    private int finNumero;
+    private boolean siguenNegras;
+    // El último turno tiene jugada blanca pero todavía no negra
+    private boolean turnoAbierto;
+
+    /**
+     * Prepara el escáner para recorrer un tramo del buffer
+     * @param buffer Buffer con el texto en ASCII o ISO-8859-1
+     * @param inicio Posición absoluta donde empieza el recorrido
+     * @param fin Posición absoluta donde termina el recorrido
+     * @param ultimo true si después del fin no hay más texto; si es false, la
+     *               partida que llegue al fin se deja sin recorrer
+     */
+    public void reiniciar(ByteBuffer buffer, int inicio, int fin, boolean ultimo) {
+        this.buffer = buffer;
+        this.texto.reiniciar(buffer, 0, fin);
+        this.posicion = inicio;
+        this.fin = fin;
+        this.ultimo = ultimo;
+        this.numeroEtiquetas = 0;
+        this.numeroTurnos = 0;
+        this.numeroJugadas = 0;
+    }
+
+    /**
+     * Recorre la siguiente partida
+     * @return true si se encontró una partida completa; false si no quedan más
+     *         o si la siguiente sigue después del fin del tramo (ver getPosicion)
+     */
+    public boolean siguientePartida() {
+        numeroEtiquetas = 0;
+        numeroTurnos = 0;
+        numeroJugadas = 0;
+        resultado = Partida.RESULTADO_DESCONOCIDO;
+        error = null;
+        inicioNumero = -1;
+        turnoAbierto = false;
+
+        int i = saltarEspacios(posicion);
+        if (i >= fin) {
+            posicion = fin;
+            return false;
+        }
+        inicioPartida = i;
+        finPartida = i;
+        boolean enJugadas = false;
+        while (true) {
+            i = saltarEspacios(i);
+            if (i >= fin) {
+                if (!ultimo) {
+                    return incompleta();
+                }
+                // Al final del texto sin resultado; unos comentarios sueltos no son una partida
+                posicion = fin;
+                return enJugadas || numeroEtiquetas > 0 || error != null;
+            }
+            int c = leer(i);
+            int j;
+            switch (c) {
+                case '[':
+                    if (enJugadas) {
+                        // Empieza la cabecera de la siguiente partida
+                        posicion = i;
+                        return true;
+                    }
+                    j = leerEtiqueta(i);
+                    break;
+                case '{':
+                    j = buscar('}', i + 1);
+                    j = j < fin ? j + 1 : sinCerrar();
+                    break;
+                case ';':
+                    j = buscar('\n', i + 1);
+                    break;
+                case '(':
+                    j = saltarVariante(i);
+                    break;
+                case '$':
+                    j = i + 1;
+                    while (j < fin && EscanerTurnos.esDigito((char) leer(j))) {
+                        j++;
+                    }
+                    break;
+                case '!':
+                case '?':
+                case '.':
+                    // Anotaciones sueltas y puntos que no siguen a un número de turno
+                    j = i + 1;
+                    while (j < fin && (leer(j) == '!' || leer(j) == '?' || leer(j) == '.')) {
+                        j++;
+                    }
+                    break;
+                case '*':
+                    j = i + 1;
+                    if (j >= fin && !ultimo) {
+                        return incompleta();
+                    }
+                    return terminar(Partida.RESULTADO_DESCONOCIDO, j);
+                default:
+                    if (c == '%' && (i == 0 || leer(i - 1) == '\n')) {
+                        // Línea de escape
+                        j = buscar('\n', i + 1);
+                        break;
+                    }
+                    if (CLASES[c] != JUGADA) {
+                        anotarError(CodigoError.SIMBOLO_INESPERADO, i, 1);
+                        j = i + 1;
+                        break;
+                    }
+                    j = i;
+                    while (j < fin && CLASES[leer(j)] == JUGADA) {
+                        j++;
+                    }
+                    if (j >= fin && !ultimo) {
+                        // La palabra puede seguir en el siguiente tramo
+                        return incompleta();
+                    }
+                    enJugadas = true;
+                    if (EscanerTurnos.esDigito((char) c)) {
+                        if (j < fin && leer(j) == '/' && i + 8 > fin && !ultimo) {
+                            // Puede ser un 1/2-1/2 partido entre dos tramos
+                            return incompleta();
+                        }
+                        int marca = leerResultado(i, j);
+                        if (marca >= 0) {
+                            int finMarca = marca == Partida.TABLAS ? i + 7 : j;
+                            if (finMarca >= fin && !ultimo) {
+                                return incompleta();
+                            }
+                            return terminar(marca, finMarca);
+                        }
+                        // El formato de importación de PGN admite el número sin puntos: "12 e4"
+                        if (soloDigitos(i, j)) {
+                            j = leerNumero(i, j);
+                            break;
+                        }
+                    }
+                    agregarJugada(i, j);
+                    break;
+            }
+            if (j >= fin && !ultimo) {
+                return incompleta();
+            }
+            finPartida = Math.min(j, fin);
+            i = j;
+        }
+    }
+
+    // La partida sigue en el siguiente tramo: se deja entera para entonces
+    private boolean incompleta() {
+        posicion = inicioPartida;
+        return false;
+    }
+
+    private boolean terminar(int marca, int finMarca) {
+        resultado = marca;
+        finPartida = finMarca;
+        posicion = finMarca;
+        return true;
+    }
+
+    // Un comentario, variante o etiqueta llega al final del texto sin cerrarse
+    private int sinCerrar() {
+        if (ultimo) {
+            anotarError(CodigoError.SIMBOLO_INESPERADO, fin, 0);
+        }
+        return fin;
+    }
+
+    private void anotarError(CodigoError codigo, int inicio, int longitud) {
+        if (error == null) {
+            error = codigo;
+            inicioError = inicio;
+            longitudError = longitud;
+        }
+    }
+
+    // [Nombre "valor"], con \" y \\ dentro del valor
+    private int leerEtiqueta(int i) {
+        int j = saltarEspacios(i + 1);
+        int inicioNombre = j;
+        while (j < fin && CLASES[leer(j)] != ESPACIO && leer(j) != '"' && leer(j) != ']') {
+            j++;
+        }
+        int finNombre = j;
+        j = saltarEspacios(j);
+        if (j < fin && leer(j) == '"' && finNombre > inicioNombre) {
+            int inicioValor = ++j;
+            while (j < fin && leer(j) != '"') {
+                j += leer(j) == '\\' ? 2 : 1;
+            }
+            int finValor = Math.min(j, fin);
+            j = saltarEspacios(j + 1);
+            if (j < fin && leer(j) == ']') {
+                agregarEtiqueta(inicioNombre, finNombre, inicioValor, finValor);
+                return j + 1;
+            }
+        }
+        if (j >= fin) {
+            return sinCerrar();
+        }
+        // Etiqueta mal formada: se descarta hasta el final de la línea
+        int finLinea = buscar('\n', i);
+        anotarError(CodigoError.TEXTO_NO_RECONOCIDO, i, finLinea - i);
+        return finLinea;
+    }
+
+    // Salta una variante con todas las que lleve dentro. Los paréntesis de los
+    // comentarios no cuentan
+    private int saltarVariante(int i) {
+        int profundidad = 0;
+        int j = i;
+        while (j < fin) {
+            int c = leer(j);
+            if (c == '(') {
+                profundidad++;
+            } else if (c == ')') {
+                if (--profundidad == 0) {
+                    return j + 1;
+                }
+            } else if (c == '{') {
+                j = buscar('}', j + 1);
+                if (j >= fin) {
+                    break;
+                }
+            } else if (c == ';') {
+                j = buscar('\n', j + 1);
+                continue;
+            }
+            j++;
+        }
+        return sinCerrar();
+    }
+
+    // "12", "12.", "12..." o "12 ...": queda pendiente hasta la jugada que numera.
+    // Los puntos se cuentan aunque vayan separados del número por espacios
+    private int leerNumero(int inicio, int finDigitos) {
+        int j = finDigitos;
+        int puntos = 0;
+        while (j < fin && (leer(j) == '.' || CLASES[leer(j)] == ESPACIO)) {
+            if (leer(j) == '.') {
+                puntos++;
+            }
+            j++;
+        }
+        inicioNumero = inicio;
+        finNumero = finDigitos;
+        siguenNegras = puntos >= 3;
+        return j;
+    }
+
+    private void agregarJugada(int inicio, int finJugada) {
+        numeroJugadas++;
+        boolean nuevoTurno = inicioNumero >= 0 && !siguenNegras;
+        if (turnoAbierto && !nuevoTurno) {
+            int base = (numeroTurnos - 1) * CAMPOS_TURNO;
+            turnos[base + 4] = inicio;
+            turnos[base + 5] = finJugada;
+            turnoAbierto = false;
+            inicioNumero = -1;
+            return;
+        }
+        if (numeroTurnos == numeros.length) {
+            numeros = Arrays.copyOf(numeros, numeroTurnos * 2);
+            turnos = Arrays.copyOf(turnos, numeroTurnos * 2 * CAMPOS_TURNO);
+        }
+        int numero;
+        int base = numeroTurnos * CAMPOS_TURNO;
+        if (inicioNumero >= 0) {
+            // "12..." sin la jugada blanca del turno no se puede representar en una Partida
+            if (siguenNegras) {
+                anotarError(CodigoError.FALTA_JUGADA_BLANCA, inicioNumero, finNumero - inicioNumero);
+            }
+            numero = siguenNegras ? -1 : valorNumero(inicioNumero, finNumero);
+            turnos[base] = inicioNumero;
+            turnos[base + 1] = finNumero;
+        } else {
+            // Sin número, el turno sigue al anterior
+            numero = numeroTurnos == 0 ? 1 : numeros[numeroTurnos - 1] + 1;
+            turnos[base] = inicio;
+            turnos[base + 1] = inicio;
+        }
+        numeros[numeroTurnos] = numero;
+        turnos[base + 2] = inicio;
+        turnos[base + 3] = finJugada;
+        turnos[base + 4] = -1;
+        turnos[base + 5] = -1;
+        numeroTurnos++;
+        turnoAbierto = true;
+        inicioNumero = -1;
+    }
+
+    private void agregarEtiqueta(int inicioNombre, int finNombre, int inicioValor, int finValor) {
+        int base = numeroEtiquetas * CAMPOS_ETIQUETA;
+        if (base == etiquetas.length) {
+            etiquetas = Arrays.copyOf(etiquetas, base * 2);
+        }
+        etiquetas[base] = inicioNombre;
+        etiquetas[base + 1] = finNombre;
+        etiquetas[base + 2] = inicioValor;
+        etiquetas[base + 3] = finValor;
+        numeroEtiquetas++;
+    }
+
+    // Resultado de Partida si la palabra es una marca de resultado, o -1. La de
+    // tablas incluye una "/", que no es carácter de jugada
+    private int leerResultado(int inicio, int finPalabra) {
+        if (finPalabra - inicio == 1 && inicio + 7 <= fin && leer(inicio) == '1' && leer(inicio + 1) == '/') {
+            int marca = Partida.leerResultado(texto, inicio, 7);
+            boolean separada = inicio + 7 == fin || CLASES[leer(inicio + 7)] != JUGADA;
+            return marca == Partida.TABLAS && separada ? marca : -1;
+        }
+        int marca = Partida.leerResultado(texto, inicio, finPalabra - inicio);
+        return marca == Partida.RESULTADO_DESCONOCIDO ? -1 : marca;
+    }
+
+    // Igual que EscanerTurnos.numeroTurno: -1 si no cabe en un entero
+    private int valorNumero(int inicio, int finDigitos) {
+        long numero = 0;
+        for (int i = inicio; i < finDigitos; i++) {
+            numero = numero * 10 + (leer(i) - '0');
+            if (numero > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return (int) numero;
+    }
+
+    private boolean soloDigitos(int inicio, int finPalabra) {
+        for (int i = inicio; i < finPalabra; i++) {
+            if (!EscanerTurnos.esDigito((char) leer(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int saltarEspacios(int i) {
+        while (i < fin && CLASES[leer(i)] == ESPACIO) {
+            i++;
+        }
+        return i;
+    }
+
+    // Posición del byte buscado, o el fin si no está
+    private int buscar(int b, int i) {
+        while (i < fin && leer(i) != b) {
+            i++;
+        }
+        return i;
+    }
+
+    private int leer(int i) {
+        return buffer.get(i) & 0xFF;
+    }
+
+    /**
+     * Obtiene la posición desde la que seguirá el recorrido. Cuando
+     * siguientePartida devuelve false antes del fin del tramo, es el inicio de
+     * una partida incompleta que hay que volver a recorrer con más texto
+     * @return Posición absoluta en el buffer
+     */
+    public int getPosicion() {
+        return posicion;
+    }
+
+    /**
+     * Obtiene el texto recorrido. Las posiciones de este escáner son índices de
+     * este texto, que no copia el buffer
+     * @return Texto desde el inicio del buffer hasta el fin del tramo
+     */
+    public CharSequence getTexto() {
+        return texto;
+    }
+
+    /**
+     * Obtiene la posición donde empieza la partida actual, con su cabecera
+     * @return Posición absoluta del primer byte de la partida
+     */
+    public int getInicioPartida() {
+        return inicioPartida;
+    }
+
+    /**
+     * Obtiene la posición donde termina la partida actual
+     * @return Posición absoluta siguiente a su último byte
+     */
+    public int getFinPartida() {
+        return finPartida;
+    }
+
+    /**
+     * Obtiene el resultado con que termina la partida actual
+     * @return Resultado de Partida; RESULTADO_DESCONOCIDO si es "*" o no hay
+     */
+    public int getResultado() {
+        return resultado;
+    }
+
+    /**
+     * Obtiene el número de etiquetas de la cabecera
+     * @return Número de etiquetas
+     */
+    public int getNumeroEtiquetas() {
+        return numeroEtiquetas;
+    }
+
+    /**
+     * Obtiene el nombre de una etiqueta sin copiarlo
+     * @param indice Posición de la etiqueta en la cabecera
+     * @return Tramo del buffer con el nombre
+     */
+    public CharSequence getNombreEtiqueta(int indice) {
+        int base = indice * CAMPOS_ETIQUETA;
+        return new VistaBytes(buffer, etiquetas[base], etiquetas[base + 1]);
+    }
+
+    /**
+     * Obtiene el valor de una etiqueta sin copiarlo. Los escapes \" y \\ se
+     * dejan tal como están en el texto
+     * @param indice Posición de la etiqueta en la cabecera
+     * @return Tramo del buffer con el valor, sin las comillas
+     */
+    public CharSequence getValorEtiqueta(int indice) {
+        int base = indice * CAMPOS_ETIQUETA;
+        return new VistaBytes(buffer, etiquetas[base + 2], etiquetas[base + 3]);
+    }
+
+    /**
+     * Busca una etiqueta por su nombre, comparando los bytes directamente
+     * @param nombre Nombre de la etiqueta, por ejemplo "White"
+     * @return Tramo del buffer con el valor, o null si la cabecera no la tiene
+     */
+    public CharSequence getEtiqueta(String nombre) {
+        for (int e = 0; e < numeroEtiquetas; e++) {
+            int base = e * CAMPOS_ETIQUETA;
+            int inicio = etiquetas[base];
+            if (etiquetas[base + 1] - inicio != nombre.length()) {
+                continue;
+            }
+            int i = 0;
+            while (i < nombre.length() && leer(inicio + i) == nombre.charAt(i)) {
+                i++;
+            }
+            if (i == nombre.length()) {
+                return getValorEtiqueta(e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Obtiene el número de turnos de la línea principal de la partida
+     * @return Número de turnos
+     */
+    public int getNumeroTurnos() {
+        return numeroTurnos;
+    }
+
+    /**
+     * Obtiene el número de jugadas de la línea principal de la partida
+     * @return Número de jugadas, blancas y negras
+     */
+    public int getNumeroJugadas() {
+        return numeroJugadas;
+    }
+
+    /**
+     * Obtiene el número de un turno: el escrito o, si no lo tiene, el siguiente
+     * al del turno anterior
+     * @param turno Índice del turno
+     * @return Número de turno, o -1 si no cabe en un entero o el turno empieza
+     *         con la jugada negra
+     */
+    public int getNumeroTurno(int turno) {
+        return numeros[turno];
+    }
+
+    /**
+     * Obtiene la posición del número de un turno
+     * @param turno Índice del turno
+     * @return Posición del primer dígito, o de la jugada blanca si no tiene número
+     */
+    public int getInicioNumero(int turno) {
+        return turnos[turno * CAMPOS_TURNO];
+    }
+
+    /**
+     * Obtiene la longitud del número de un turno
+     * @param turno Índice del turno
+     * @return Número de dígitos, o 0 si no tiene número
+     */
+    public int getLongitudNumero(int turno) {
+        return turnos[turno * CAMPOS_TURNO + 1] - turnos[turno * CAMPOS_TURNO];
+    }
+
+    /**
+     * Obtiene la posición de la jugada blanca de un turno
+     * @param turno Índice del turno
+     * @return Posición del primer carácter de la jugada, sin anotaciones
+     */
+    public int getInicioBlanca(int turno) {
+        return turnos[turno * CAMPOS_TURNO + 2];
+    }
+
+    /**
+     * Obtiene la longitud de la jugada blanca de un turno
+     * @param turno Índice del turno
+     * @return Número de caracteres de la jugada, sin anotaciones
+     */
+    public int getLongitudBlanca(int turno) {
+        return turnos[turno * CAMPOS_TURNO + 3] - turnos[turno * CAMPOS_TURNO + 2];
+    }
+
+    /**
+     * Obtiene la posición de la jugada negra de un turno
+     * @param turno Índice del turno
+     * @return Posición del primer carácter de la jugada, o -1 si no hay
+     */
+    public int getInicioNegra(int turno) {
+        return turnos[turno * CAMPOS_TURNO + 4];
+    }
+
+    /**
+     * Obtiene la longitud de la jugada negra de un turno
+     * @param turno Índice del turno
+     * @return Número de caracteres de la jugada, o 0 si no hay
+     */
+    public int getLongitudNegra(int turno) {
+        return turnos[turno * CAMPOS_TURNO + 5] - turnos[turno * CAMPOS_TURNO + 4];
+    }
+
+    /**
+     * Obtiene el primer error de estructura de la partida
+     * @return Código del error, o null si la partida está bien formada
+     */
+    public CodigoError getError() {
+        return error;
+    }
+
+    /**
+     * Obtiene la posición del primer error de estructura
+     * @return Posición absoluta del texto erróneo
+     */
+    public int getInicioError() {
+        return inicioError;
+    }
+
+    /**
+     * Obtiene la longitud del primer error de estructura
+     * @return Número de bytes erróneos; 0 si la partida termina sin cerrar algo
+     */
+    public int getLongitudError() {
+        return longitudError;
+    }
+}
@@ -0,0 +1,275 @@
+package analizador;
+
+import modelo.Partida;
+
+/**
+ * Recorre un texto buscando turnos con la misma semántica que el patrón
+ * <code>(\d+)\.\s*([A-Za-z0-9\-O\+#x=]+)(?:\s+([A-Za-z0-9\-O\+#x=]+))?</code>
+ * aplicado con find(), pero sin crear Matcher ni cadenas: de cada turno solo
+ * guarda las posiciones del número y de las jugadas dentro del texto. A
+ * diferencia del patrón, una marca de resultado ("1-0", "0-1", "1/2-1/2")
+ * después de una jugada blanca no se toma por la jugada negra.
+ */
+public class EscanerTurnos {
+
+    private CharSequence texto;
+    private int inicio;
+    private int posicion;
+    private int fin;
+
+    // Posiciones del último turno encontrado; inicioNegra es -1 si no hay jugada negra
+    private int inicioNumero;
+    private int finNumero;
+    private int inicioBlanca;
+    private int finBlanca;
+    private int inicioNegra;
+    private int finNegra;
+
+    /**
+     * Prepara el escáner para recorrer un texto completo
+     * @param texto Texto de la partida
+     */
+    public void reiniciar(CharSequence texto) {
+        reiniciar(texto, 0, texto.length());
+    }
+
+    /**
+     * Prepara el escáner para recorrer un tramo de un texto
+     * @param texto Texto que contiene la partida
+     * @param inicio Posición del primer carácter
+     * @param fin Posición siguiente al último carácter
+     */
+    public void reiniciar(CharSequence texto, int inicio, int fin) {
+        this.texto = texto;
+        this.inicio = inicio;
+        this.posicion = inicio;
+        this.fin = fin;
+        this.inicioNegra = -1;
+    }
+
+    /**
+     * Busca el siguiente turno a partir del final del anterior
+     * @return true si se encontró un turno, false si se llegó al final del texto
+     */
+    public boolean siguiente() {
+        int i = posicion;
+        while (i < fin) {
+            if (!esDigito(texto.charAt(i))) {
+                i++;
+                continue;
+            }
+            // Número de turno: todos los dígitos seguidos, y después un punto
+            int digitos = i;
+            while (i < fin && esDigito(texto.charAt(i))) {
+                i++;
+            }
+            if (i >= fin || texto.charAt(i) != '.') {
+                continue;
+            }
+            int j = saltarEspacios(i + 1);
+            int blanca = j;
+            j = saltarJugada(j);
+            if (j == blanca) {
+                // Sin jugada tras el punto no hay turno; se sigue buscando desde aquí
+                i = j;
+                continue;
+            }
+            inicioNumero = digitos;
+            finNumero = i;
+            inicioBlanca = blanca;
+            finBlanca = j;
+            // La jugada negra es opcional y debe ir separada por al menos un espacio;
+            // una marca de resultado tras la jugada blanca no es la jugada negra
+            int k = saltarEspacios(j);
+            int finNegraLeida = saltarJugada(k);
+            if (k > j && finNegraLeida > k && !esResultado(k)) {
+                inicioNegra = k;
+                finNegra = finNegraLeida;
+                posicion = finNegraLeida;
+            } else {
+                inicioNegra = -1;
+                finNegra = -1;
+                posicion = j;
+            }
+            return true;
+        }
+        posicion = fin;
+        return false;
+    }
+
+    /**
+     * Fija el turno actual sin buscarlo en el texto, para las subclases que
+     * encuentran los turnos por su cuenta. Las posiciones son del texto recorrido
+     * @param inicioNumero Posición del primer dígito del número de turno
+     * @param finNumero Posición siguiente al último dígito
+     * @param inicioBlanca Posición del primer carácter de la jugada blanca
+     * @param finBlanca Posición siguiente al último carácter de la jugada blanca
+     * @param inicioNegra Posición del primer carácter de la jugada negra, o -1 si no hay
+     * @param finNegra Posición siguiente al último carácter de la jugada negra, o -1
+     */
+    void fijarTurno(int inicioNumero, int finNumero, int inicioBlanca, int finBlanca, int inicioNegra, int finNegra) {
+        this.inicioNumero = inicioNumero;
+        this.finNumero = finNumero;
+        this.inicioBlanca = inicioBlanca;
+        this.finBlanca = finBlanca;
+        this.inicioNegra = inicioNegra;
+        this.finNegra = finNegra;
+    }
+
+    /**
+     * Obtiene el número del último turno encontrado
+     * @return Número de turno, o -1 si no cabe en un entero
+     */
+    public int numeroTurno() {
+        long numero = 0;
+        for (int i = inicioNumero; i < finNumero; i++) {
+            numero = numero * 10 + (texto.charAt(i) - '0');
+            if (numero > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return (int) numero;
+    }
+
+    /**
+     * Obtiene la posición del número del último turno
+     * @return Posición del primer dígito
+     */
+    public int getInicioNumero() {
+        return inicioNumero;
+    }
+
+    /**
+     * Obtiene la longitud del número del último turno
+     * @return Número de dígitos
+     */
+    public int getLongitudNumero() {
+        return finNumero - inicioNumero;
+    }
+
+    /**
+     * Obtiene la posición donde empieza el tramo que se recorre
+     * @return Posición del primer carácter de la partida en el texto
+     */
+    public int getInicio() {
+        return inicio;
+    }
+
+    /**
+     * Obtiene el texto que se está recorriendo
+     * @return Texto de la partida
+     */
+    public CharSequence getTexto() {
+        return texto;
+    }
+
+    /**
+     * Obtiene la posición de la jugada blanca del último turno
+     * @return Posición del primer carácter de la jugada blanca
+     */
+    public int getInicioBlanca() {
+        return inicioBlanca;
+    }
+
+    /**
+     * Obtiene la longitud de la jugada blanca del último turno
+     * @return Número de caracteres de la jugada blanca
+     */
+    public int getLongitudBlanca() {
+        return finBlanca - inicioBlanca;
+    }
+
+    /**
+     * Indica si el último turno encontrado tiene jugada negra
+     * @return true si hay jugada negra
+     */
+    public boolean tieneNegra() {
+        return inicioNegra >= 0;
+    }
+
+    /**
+     * Obtiene la posición de la jugada negra del último turno
+     * @return Posición del primer carácter de la jugada negra, o -1 si no hay
+     */
+    public int getInicioNegra() {
+        return inicioNegra;
+    }
+
+    /**
+     * Obtiene la longitud de la jugada negra del último turno
+     * @return Número de caracteres de la jugada negra
+     */
+    public int getLongitudNegra() {
+        return finNegra - inicioNegra;
+    }
+
+    /**
+     * Copia la jugada blanca del último turno a una cadena
+     * @return Notación de la jugada blanca
+     */
+    public String blanca() {
+        return texto.subSequence(inicioBlanca, finBlanca).toString();
+    }
+
+    /**
+     * Copia la jugada negra del último turno a una cadena
+     * @return Notación de la jugada negra, o null si no hay
+     */
+    public String negra() {
+        return tieneNegra() ? texto.subSequence(inicioNegra, finNegra).toString() : null;
+    }
+
+    /**
+     * Lee la marca de resultado con que termina el texto, si la hay ("1-0", "0-1", "1/2-1/2")
+     * @return Resultado de Partida, o Partida.RESULTADO_DESCONOCIDO si el texto no termina en una marca
+     */
+    public int resultado() {
+        int finMarca = fin;
+        while (finMarca > inicio && esEspacio(texto.charAt(finMarca - 1))) {
+            finMarca--;
+        }
+        int inicioMarca = finMarca;
+        while (inicioMarca > inicio && !esEspacio(texto.charAt(inicioMarca - 1))) {
+            inicioMarca--;
+        }
+        return Partida.leerResultado(texto, inicioMarca, finMarca - inicioMarca);
+    }
+
+    // Indica si la palabra que empieza en i es "1-0", "0-1" o "1/2-1/2"
+    private boolean esResultado(int i) {
+        int finPalabra = i;
+        while (finPalabra < fin && !esEspacio(texto.charAt(finPalabra))) {
+            finPalabra++;
+        }
+        return Partida.leerResultado(texto, i, finPalabra - i) != Partida.RESULTADO_DESCONOCIDO;
+    }
+
+    private int saltarEspacios(int i) {
+        while (i < fin && esEspacio(texto.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private int saltarJugada(int i) {
+        while (i < fin && esCaracterJugada(texto.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    static boolean esDigito(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // Equivale a \s en las expresiones regulares de Java
+    static boolean esEspacio(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0B;
+    }
+
+    // Equivale a la clase [A-Za-z0-9\-O\+#x=]
+    static boolean esCaracterJugada(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || esDigito(c)
+                || c == '-' || c == '+' || c == '#' || c == '=';
+    }
+}
@@ -0,0 +1,432 @@
+package analizador;
+
+import modelo.CodigoJugada;
+import modelo.Diagnostico;
+import modelo.Partida;
+import modelo.ResultadoAnalisis;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Escribe los resultados del análisis en JSON Lines: un objeto JSON por
+ * partida y por línea, con los mismos campos que las respuestas del servidor
+ * más el número de la partida y sus jugadas, por ejemplo
+ * <pre>
+ * {"partida":1,"valido":true,"turnos":2,"jugadas":3,"resultado":"1-0","movimientos":["e4","e5","Nf3"]}
+ * {"partida":2,"valido":false,"error":"Jugada blanca inválida en turno 2: Qh9","diagnosticos":[...]}
+ * </pre>
+ *
+ * El JSON se escribe byte a byte en UTF-8 en un lote, sin pasar por String ni
+ * StringBuilder; las jugadas salen de los códigos de CodigoJugada. Un lote se
+ * vuelca al canal cuando se llena, siempre en objetos completos, así que las
+ * líneas de varios lotes no se mezclan. Cada hilo de un análisis en paralelo
+ * pide su propio lote y serializa sin bloquear a los demás; solo la escritura
+ * en el canal es exclusiva. Los arreglos de los lotes se reutilizan.
+ */
+public class EscritorJSONL implements ReceptorResultados, Closeable {
+
+    // Tamaño de cada lote; también es el tamaño de las escrituras en el canal
+    private static final int TAMANO_LOTE = 1 << 20;
+    // Lotes libres que se guardan para reutilizarlos
+    private static final int LOTES_LIBRES = 16;
+
+    private static final byte[] PARTIDA = bytes("{\"partida\":");
+    private static final byte[] VALIDO = bytes(",\"valido\":true,\"turnos\":");
+    private static final byte[] INVALIDO = bytes(",\"valido\":false,\"error\":");
+    private static final byte[] JUGADAS = bytes(",\"jugadas\":");
+    private static final byte[] RESULTADO = bytes(",\"resultado\":\"");
+    private static final byte[] MOVIMIENTOS = bytes(",\"movimientos\":[");
+    private static final byte[] DIAGNOSTICOS = bytes(",\"diagnosticos\":[");
+    private static final byte[] CODIGO = bytes("{\"codigo\":\"");
+    private static final byte[] TURNO = bytes(",\"turno\":");
+    private static final byte[] COLOR_BLANCAS = bytes(",\"color\":\"blancas\"");
+    private static final byte[] COLOR_NEGRAS = bytes(",\"color\":\"negras\"");
+    private static final byte[] DESPLAZAMIENTO = bytes(",\"desplazamiento\":");
+    private static final byte[] LONGITUD = bytes(",\"longitud\":");
+    private static final byte[] TEXTO = bytes(",\"texto\":");
+    private static final byte[] HEXADECIMAL = bytes("0123456789abcdef");
+
+    private final WritableByteChannel canal;
+    private final GZIPOutputStream comprimido;
+    private final int tamanoLote;
+    private final ArrayBlockingQueue<byte[]> libres = new ArrayBlockingQueue<>(LOTES_LIBRES);
+    private Lote principal;
+    private long bytesEscritos;
+    private boolean cerrado;
+
+    /**
+     * Constructor con el tamaño de lote por defecto
+     * @param canal Destino del JSON; se cierra al cerrar el escritor
+     * @param comprimir true para escribir la salida comprimida con gzip
+     * @throws IOException Si no se puede escribir la cabecera gzip
+     */
+    public EscritorJSONL(WritableByteChannel canal, boolean comprimir) throws IOException {
+        this(canal, comprimir, TAMANO_LOTE);
+    }
+
+    /**
+     * Constructor
+     * @param canal Destino del JSON; se cierra al cerrar el escritor
+     * @param comprimir true para escribir la salida comprimida con gzip
+     * @param tamanoLote Número de bytes que se acumulan antes de escribir en el canal
+     * @throws IOException Si no se puede escribir la cabecera gzip
+     */
+    public EscritorJSONL(WritableByteChannel canal, boolean comprimir, int tamanoLote) throws IOException {
+        if (tamanoLote < 1024) {
+            throw new IllegalArgumentException("Tamaño de lote inválido: " + tamanoLote);
+        }
+        this.tamanoLote = tamanoLote;
+        if (comprimir) {
+            OutputStream salida = Channels.newOutputStream(canal);
+            comprimido = new GzipRapido(salida, tamanoLote);
+            this.canal = Channels.newChannel(comprimido);
+        } else {
+            comprimido = null;
+            this.canal = canal;
+        }
+    }
+
+    /**
+     * Pide un lote para escribir resultados desde un hilo. Se debe cerrar al
+     * terminar para que lo que queda en él llegue al canal
+     * @return Lote vacío, que solo debe usar un hilo
+     */
+    public Lote lote() {
+        byte[] arreglo = libres.poll();
+        return new Lote(arreglo != null ? arreglo : new byte[tamanoLote]);
+    }
+
+    /**
+     * Escribe un resultado en el lote del escritor. Es el camino de un análisis
+     * secuencial y no se debe llamar desde varios hilos a la vez
+     * @param numeroPartida Posición de la partida dentro de la entrada, empezando en 1
+     * @param resultado Resultado del análisis; las jugadas se escriben si incluye la partida
+     * @throws UncheckedIOException Si no se puede escribir en el canal
+     */
+    @Override
+    public void recibir(long numeroPartida, ResultadoAnalisis resultado) {
+        if (principal == null) {
+            principal = lote();
+        }
+        try {
+            principal.escribir(numeroPartida, resultado);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Obtiene el número de bytes de JSON escritos en el canal, sin comprimir
+     * @return Bytes escritos hasta el último volcado
+     */
+    public synchronized long getBytesEscritos() {
+        return bytesEscritos;
+    }
+
+    /**
+     * Vuelca el lote del escritor, termina el gzip y cierra el canal. Los lotes
+     * pedidos con lote() deben estar ya cerrados
+     * @throws IOException Si no se puede escribir en el canal
+     */
+    @Override
+    public void close() throws IOException {
+        if (cerrado) {
+            return;
+        }
+        try {
+            if (principal != null) {
+                principal.close();
+                principal = null;
+            }
+        } finally {
+            synchronized (this) {
+                cerrado = true;
+                // Al cerrar el canal de un GZIPOutputStream se escribe el final del gzip
+                canal.close();
+            }
+        }
+    }
+
+    // Escribe bytes ya serializados; las escrituras de distintos lotes no se intercalan
+    private synchronized void volcar(byte[] arreglo, int longitud) throws IOException {
+        if (cerrado) {
+            throw new IOException("El escritor ya está cerrado");
+        }
+        if (comprimido != null) {
+            comprimido.write(arreglo, 0, longitud);
+        } else {
+            ByteBuffer buffer = ByteBuffer.wrap(arreglo, 0, longitud);
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+        }
+        bytesEscritos += longitud;
+    }
+
+    private static byte[] bytes(String texto) {
+        return texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * gzip con el nivel de compresión más rápido: con el nivel por defecto
+     * comprimir cuesta varias veces más que analizar las partidas
+     */
+    private static final class GzipRapido extends GZIPOutputStream {
+
+        GzipRapido(OutputStream salida, int tamano) throws IOException {
+            super(salida, tamano);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+
+    /**
+     * Buffer donde un hilo serializa sus resultados. Se vuelca al canal cuando
+     * no cabe el siguiente objeto y al cerrarlo
+     */
+    public final class Lote implements Closeable {
+        private byte[] buffer;
+        private int longitud;
+        // Inicio del objeto que se está escribiendo; lo anterior ya está completo
+        private int inicioObjeto;
+        private final char[] notacion = new char[CodigoJugada.LONGITUD_MAXIMA];
+
+        private Lote(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * Escribe el resultado de una partida como una línea JSON
+         * @param numeroPartida Número de la partida
+         * @param resultado Resultado del análisis; las jugadas se escriben si incluye la partida
+         * @throws IOException Si hay que volcar el lote y no se puede escribir en el canal
+         */
+        public void escribir(long numeroPartida, ResultadoAnalisis resultado) throws IOException {
+            try {
+                serializar(numeroPartida, resultado);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void serializar(long numeroPartida, ResultadoAnalisis resultado) {
+            inicioObjeto = longitud;
+            agregar(PARTIDA);
+            numero(numeroPartida);
+            if (resultado.esValido()) {
+                agregar(VALIDO);
+                numero(resultado.getNumeroTurnos());
+                agregar(JUGADAS);
+                numero(resultado.getNumeroJugadas());
+                Partida partida = resultado.getPartida();
+                if (partida != null) {
+                    escribirPartida(partida);
+                }
+            } else {
+                agregar(INVALIDO);
+                cadena(resultado.getMensajeError());
+                agregar(DIAGNOSTICOS);
+                boolean primero = true;
+                for (Diagnostico diagnostico : resultado.getDiagnosticos()) {
+                    if (!primero) {
+                        agregar((byte) ',');
+                    }
+                    primero = false;
+                    escribir(diagnostico);
+                }
+                agregar((byte) ']');
+            }
+            asegurar(2);
+            buffer[longitud++] = '}';
+            buffer[longitud++] = '\n';
+            inicioObjeto = longitud;
+        }
+
+        /**
+         * Vuelca al canal lo que queda en el lote y devuelve su arreglo para
+         * que lo use otro lote
+         * @throws IOException Si no se puede escribir en el canal
+         */
+        @Override
+        public void close() throws IOException {
+            if (buffer == null) {
+                return;
+            }
+            try {
+                if (longitud > 0) {
+                    volcar(buffer, longitud);
+                }
+            } finally {
+                if (buffer.length == tamanoLote) {
+                    libres.offer(buffer);
+                }
+                buffer = null;
+                longitud = 0;
+            }
+        }
+
+        private void escribirPartida(Partida partida) {
+            String marca = Partida.marcaResultado(partida.getResultado());
+            if (marca != null) {
+                agregar(RESULTADO);
+                asegurar(marca.length() + 1);
+                for (int i = 0; i < marca.length(); i++) {
+                    buffer[longitud++] = (byte) marca.charAt(i);
+                }
+                buffer[longitud++] = '"';
+            }
+            agregar(MOVIMIENTOS);
+            for (int i = 0, n = partida.getNumeroJugadas(); i < n; i++) {
+                asegurar(CodigoJugada.LONGITUD_MAXIMA + 3);
+                if (i > 0) {
+                    buffer[longitud++] = ',';
+                }
+                buffer[longitud++] = '"';
+                int codigo = partida.getCodigoJugada(i);
+                if (codigo != CodigoJugada.NINGUNA) {
+                    int caracteres = CodigoJugada.escribir(codigo, notacion, 0);
+                    for (int k = 0; k < caracteres; k++) {
+                        buffer[longitud++] = (byte) notacion[k];
+                    }
+                }
+                buffer[longitud++] = '"';
+            }
+            agregar((byte) ']');
+        }
+
+        private void escribir(Diagnostico diagnostico) {
+            agregar(CODIGO);
+            String nombre = diagnostico.getCodigo().name();
+            asegurar(nombre.length() + 1);
+            for (int i = 0; i < nombre.length(); i++) {
+                buffer[longitud++] = (byte) nombre.charAt(i);
+            }
+            buffer[longitud++] = '"';
+            if (diagnostico.getTurno() >= 0) {
+                agregar(TURNO);
+                numero(diagnostico.getTurno());
+            }
+            if (diagnostico.getColor() == Diagnostico.BLANCAS) {
+                agregar(COLOR_BLANCAS);
+            } else if (diagnostico.getColor() == Diagnostico.NEGRAS) {
+                agregar(COLOR_NEGRAS);
+            }
+            if (diagnostico.getDesplazamiento() >= 0) {
+                agregar(DESPLAZAMIENTO);
+                numero(diagnostico.getDesplazamiento());
+                agregar(LONGITUD);
+                numero(diagnostico.getLongitud());
+                agregar(TEXTO);
+                cadena(diagnostico.getTexto());
+            }
+            agregar((byte) '}');
+        }
+
+        // Cadena JSON en UTF-8 con las comillas, las barras y los caracteres de control escapados
+        private void cadena(String texto) {
+            asegurar(texto.length() * 3 + 2);
+            buffer[longitud++] = '"';
+            for (int i = 0; i < texto.length(); i++) {
+                char c = texto.charAt(i);
+                if (c == '"' || c == '\\') {
+                    asegurar(2 + 3 * (texto.length() - i));
+                    buffer[longitud++] = '\\';
+                    buffer[longitud++] = (byte) c;
+                } else if (c < 0x20) {
+                    asegurar(6 + 3 * (texto.length() - i));
+                    buffer[longitud++] = '\\';
+                    buffer[longitud++] = 'u';
+                    buffer[longitud++] = '0';
+                    buffer[longitud++] = '0';
+                    buffer[longitud++] = HEXADECIMAL[c >>> 4];
+                    buffer[longitud++] = HEXADECIMAL[c & 0xf];
+                } else if (c < 0x80) {
+                    buffer[longitud++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[longitud++] = (byte) (0xc0 | c >>> 6);
+                    buffer[longitud++] = (byte) (0x80 | c & 0x3f);
+                } else if (Character.isHighSurrogate(c) && i + 1 < texto.length()
+                        && Character.isLowSurrogate(texto.charAt(i + 1))) {
+                    int punto = Character.toCodePoint(c, texto.charAt(++i));
+                    buffer[longitud++] = (byte) (0xf0 | punto >>> 18);
+                    buffer[longitud++] = (byte) (0x80 | punto >>> 12 & 0x3f);
+                    buffer[longitud++] = (byte) (0x80 | punto >>> 6 & 0x3f);
+                    buffer[longitud++] = (byte) (0x80 | punto & 0x3f);
+                } else if (Character.isSurrogate(c)) {
+                    // Un sustituto suelto no es UTF-8 válido
+                    buffer[longitud++] = '?';
+                } else {
+                    buffer[longitud++] = (byte) (0xe0 | c >>> 12);
+                    buffer[longitud++] = (byte) (0x80 | c >>> 6 & 0x3f);
+                    buffer[longitud++] = (byte) (0x80 | c & 0x3f);
+                }
+            }
+            asegurar(1);
+            buffer[longitud++] = '"';
+        }
+
+        private void numero(long valor) {
+            asegurar(20);
+            if (valor < 0) {
+                buffer[longitud++] = '-';
+                valor = -valor;
+            }
+            int inicio = longitud;
+            do {
+                buffer[longitud++] = (byte) ('0' + valor % 10);
+                valor /= 10;
+            } while (valor > 0);
+            // Las cifras salen al revés
+            for (int i = inicio, j = longitud - 1; i < j; i++, j--) {
+                byte cifra = buffer[i];
+                buffer[i] = buffer[j];
+                buffer[j] = cifra;
+            }
+        }
+
+        private void agregar(byte[] bytes) {
+            asegurar(bytes.length);
+            System.arraycopy(bytes, 0, buffer, longitud, bytes.length);
+            longitud += bytes.length;
+        }
+
+        private void agregar(byte b) {
+            asegurar(1);
+            buffer[longitud++] = b;
+        }
+
+        /**
+         * Deja sitio para n bytes más. Si no caben, se vuelcan los objetos
+         * completos y el que está a medias pasa al principio; solo si un objeto
+         * no cabe en todo el lote se amplía el arreglo
+         */
+        private void asegurar(int n) {
+            if (longitud + n <= buffer.length) {
+                return;
+            }
+            if (inicioObjeto > 0) {
+                try {
+                    volcar(buffer, inicioObjeto);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                System.arraycopy(buffer, inicioObjeto, buffer, 0, longitud - inicioObjeto);
+                longitud -= inicioObjeto;
+                inicioObjeto = 0;
+            }
+            if (longitud + n > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, longitud + n));
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package analizador;
+
+import modelo.Partida;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+
+/**
+ * Exporta el árbol de derivación de una partida como SVG o como Graphviz DOT,
+ * con la misma disposición que se muestra en la interfaz gráfica.
+ *
+ * No usa java.awt ni Swing, así que funciona en servidores sin pantalla. El
+ * texto se escribe directamente en el Writer, nodo a nodo, sin construir el
+ * documento en memoria: el tamaño de la salida crece con el número de jugadas.
+ */
+public class ExportadorArbol {
+
+    // Los mismos colores que usa el panel del árbol
+    private static final String COLOR_INICIO = "#dfe6e6";
+    private static final String COLOR_BLANCAS = "#ffd700";
+    private static final String COLOR_NEGRAS = "#6495ed";
+
+    /**
+     * Exporta el árbol de una partida como SVG en UTF-8
+     * @param partida Partida validada por el analizador sintáctico
+     * @param salida Flujo de salida; no se cierra
+     * @throws IOException Si no se puede escribir
+     */
+    public void exportarSVG(Partida partida, OutputStream salida) throws IOException {
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        exportarSVG(DisposicionArbol.de(partida), escritor);
+        escritor.flush();
+    }
+
+    /**
+     * Exporta el árbol de una partida como DOT en UTF-8
+     * @param partida Partida validada por el analizador sintáctico
+     * @param salida Flujo de salida; no se cierra
+     * @throws IOException Si no se puede escribir
+     */
+    public void exportarDOT(Partida partida, OutputStream salida) throws IOException {
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        exportarDOT(DisposicionArbol.de(partida), escritor);
+        escritor.flush();
+    }
+
+    /**
+     * Escribe un árbol como documento SVG
+     * @param disposicion Disposición del árbol
+     * @param salida Destino del texto; no se cierra ni se vacía
+     * @throws IOException Si no se puede escribir
+     */
+    public void exportarSVG(DisposicionArbol disposicion, Writer salida) throws IOException {
+        int radio = DisposicionArbol.DIAMETRO_NODO / 2;
+        salida.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"");
+        escribirNumero(salida, disposicion.getAncho());
+        salida.write("\" height=\"");
+        escribirNumero(salida, disposicion.getAlto());
+        salida.write("\" font-family=\"sans-serif\" font-size=\"12\" text-anchor=\"middle\">\n");
+
+        // Primero las aristas, para que los nodos queden encima
+        salida.write("<g stroke=\"black\">\n");
+        for (int nodo = 1; nodo < disposicion.getNumeroNodos(); nodo++) {
+            int padre = disposicion.padre(nodo);
+            salida.write("<line x1=\"");
+            escribirNumero(salida, (long) disposicion.x(padre));
+            salida.write("\" y1=\"");
+            escribirNumero(salida, (long) disposicion.y(padre) + radio);
+            salida.write("\" x2=\"");
+            escribirNumero(salida, (long) disposicion.x(nodo));
+            salida.write("\" y2=\"");
+            escribirNumero(salida, (long) disposicion.y(nodo) - radio);
+            salida.write("\"/>\n");
+        }
+        salida.write("</g>\n<g stroke=\"black\">\n");
+        for (int nodo = 0; nodo < disposicion.getNumeroNodos(); nodo++) {
+            long x = (long) disposicion.x(nodo);
+            long y = (long) disposicion.y(nodo);
+            salida.write("<circle cx=\"");
+            escribirNumero(salida, x);
+            salida.write("\" cy=\"");
+            escribirNumero(salida, y);
+            salida.write("\" r=\"");
+            escribirNumero(salida, radio);
+            salida.write("\" fill=\"");
+            salida.write(color(disposicion, nodo));
+            salida.write("\"/><text x=\"");
+            escribirNumero(salida, x);
+            salida.write("\" y=\"");
+            escribirNumero(salida, y + 5);
+            salida.write("\" stroke=\"none\">");
+            escribirEscapadoXML(salida, disposicion.getEtiqueta(nodo));
+            salida.write("</text>\n");
+        }
+        salida.write("</g>\n</svg>\n");
+    }
+
+    /**
+     * Escribe un árbol como grafo DOT. Cada nodo lleva su posición fija
+     * (atributo pos), que respetan los motores neato y fdp de Graphviz
+     * @param disposicion Disposición del árbol
+     * @param salida Destino del texto; no se cierra ni se vacía
+     * @throws IOException Si no se puede escribir
+     */
+    public void exportarDOT(DisposicionArbol disposicion, Writer salida) throws IOException {
+        salida.write("digraph arbol {\n");
+        salida.write("  node [shape=circle, style=filled, fixedsize=true, width=0.42, fontsize=10];\n");
+        for (int nodo = 0; nodo < disposicion.getNumeroNodos(); nodo++) {
+            salida.write("  n");
+            escribirNumero(salida, nodo);
+            salida.write(" [label=\"");
+            escribirEscapadoDOT(salida, disposicion.getEtiqueta(nodo));
+            salida.write("\", fillcolor=\"");
+            salida.write(color(disposicion, nodo));
+            // En Graphviz el eje y crece hacia arriba
+            salida.write("\", pos=\"");
+            escribirNumero(salida, (long) disposicion.x(nodo));
+            salida.write(',');
+            escribirNumero(salida, disposicion.getAlto() - (long) disposicion.y(nodo));
+            salida.write("!\"];\n");
+        }
+        for (int nodo = 1; nodo < disposicion.getNumeroNodos(); nodo++) {
+            salida.write("  n");
+            escribirNumero(salida, disposicion.padre(nodo));
+            salida.write(" -> n");
+            escribirNumero(salida, nodo);
+            salida.write(";\n");
+        }
+        salida.write("}\n");
+    }
+
+    /**
+     * Escribe un árbol sintáctico concreto como grafo DOT, con un nodo por regla
+     * y una hoja por token
+     * @param raiz Raíz del árbol que construye AnalizadorPredictivo
+     * @param salida Destino del texto; no se cierra ni se vacía
+     * @throws IOException Si no se puede escribir
+     */
+    public void exportarDOT(NodoSintactico raiz, Writer salida) throws IOException {
+        salida.write("digraph sintaxis {\n");
+        salida.write("  node [fontsize=10];\n");
+        // Recorrido en preorden con una pila, numerando los nodos según se visitan
+        ArrayDeque<NodoSintactico> pendientes = new ArrayDeque<>();
+        ArrayDeque<Integer> padres = new ArrayDeque<>();
+        pendientes.push(raiz);
+        padres.push(-1);
+        int numero = 0;
+        while (!pendientes.isEmpty()) {
+            NodoSintactico nodo = pendientes.pop();
+            int padre = padres.pop();
+            salida.write("  n");
+            escribirNumero(salida, numero);
+            if (nodo.esToken()) {
+                salida.write(" [shape=box, style=filled, fillcolor=\"");
+                salida.write(COLOR_BLANCAS);
+                salida.write("\", label=\"");
+                escribirEscapadoDOT(salida, nodo.getTexto());
+                salida.write("\"];\n");
+            } else {
+                salida.write(" [shape=ellipse, label=\"");
+                escribirEscapadoDOT(salida, nodo.getSimbolo());
+                salida.write("\"];\n");
+            }
+            if (padre >= 0) {
+                salida.write("  n");
+                escribirNumero(salida, padre);
+                salida.write(" -> n");
+                escribirNumero(salida, numero);
+                salida.write(";\n");
+            }
+            for (int i = nodo.getHijos().size() - 1; i >= 0; i--) {
+                pendientes.push(nodo.getHijos().get(i));
+                padres.push(numero);
+            }
+            numero++;
+        }
+        salida.write("}\n");
+    }
+
+    private static String color(DisposicionArbol disposicion, int nodo) {
+        switch (disposicion.getTipo(nodo)) {
+            case DisposicionArbol.TIPO_BLANCAS:
+                return COLOR_BLANCAS;
+            case DisposicionArbol.TIPO_NEGRAS:
+                return COLOR_NEGRAS;
+            default:
+                return COLOR_INICIO;
+        }
+    }
+
+    // Escribe un entero sin crear cadenas
+    private static void escribirNumero(Writer salida, long numero) throws IOException {
+        if (numero < 0) {
+            salida.write('-');
+            numero = -numero;
+        }
+        if (numero >= 10) {
+            escribirNumero(salida, numero / 10);
+        }
+        salida.write((char) ('0' + numero % 10));
+    }
+
+    // En DOT solo hay que escapar las comillas y la barra invertida
+    private static void escribirEscapadoDOT(Writer salida, String texto) throws IOException {
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '"' || c == '\\') {
+                salida.write('\\');
+            }
+            salida.write(c);
+        }
+    }
+
+    // Las jugadas SAN no tienen caracteres especiales, pero una etiqueta cualquiera podría tenerlos
+    private static void escribirEscapadoXML(Writer salida, String texto) throws IOException {
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '&': salida.write("&amp;"); break;
+                case '<': salida.write("&lt;"); break;
+                case '>': salida.write("&gt;"); break;
+                case '"': salida.write("&quot;"); break;
+                default: salida.write(c); break;
+            }
+        }
+    }
+}
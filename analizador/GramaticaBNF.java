@@ -0,0 +1,699 @@
+package analizador;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Gramática BNF compilada en las tablas de un analizador predictivo.
+ *
+ * El archivo BNF tiene dos tipos de reglas (ver partida.bnf): las léxicas, en
+ * mayúsculas, se convierten en un autómata finito determinista que separa el
+ * texto en tokens, y las sintácticas, en minúsculas, en la tabla LL(1) que
+ * dice qué producción aplicar para cada no terminal y cada token siguiente.
+ * Para la tabla se calculan los conjuntos FIRST y FOLLOW; si una casilla
+ * recibe dos producciones la gramática no es LL(1) y se rechaza al cargarla,
+ * no al analizar.
+ *
+ * Una vez construida es inmutable y se puede compartir entre hilos.
+ */
+public final class GramaticaBNF {
+
+    /** Número de caracteres que entiende el autómata; los demás no forman ningún token */
+    public static final int CARACTERES = 128;
+
+    private static final String EPSILON = "ε";
+
+    // Reglas leídas del archivo, en orden
+    private final Map<String, List<List<String>>> reglas = new LinkedHashMap<>();
+    private String separador;
+    private final Set<String> pegados = new HashSet<>();
+
+    // Tokens: reglas léxicas sin "_", en el orden del archivo (el primero gana en un empate)
+    private final List<String> tokens = new ArrayList<>();
+    // No terminales sintácticos y sus producciones. En una producción, un número
+    // n >= 0 es el no terminal n y un número negativo es el token -1 - n
+    private final List<String> noTerminales = new ArrayList<>();
+    private int[][] producciones;
+    private int[] cabezas;
+    private int[][] tabla;
+
+    // Autómata léxico: transiciones[estado][carácter] y token aceptado por estado
+    private int[][] transiciones;
+    private int[] aceptados;
+
+    private GramaticaBNF() {
+    }
+
+    // La gramática de partidas se compila una sola vez, la primera vez que se usa
+    private static final class Partidas {
+        static final GramaticaBNF GRAMATICA = cargarRecurso("partida.bnf");
+    }
+
+    /**
+     * Obtiene la gramática de partidas SAN incluida como recurso (partida.bnf)
+     * @return Gramática compilada
+     */
+    public static GramaticaBNF partidas() {
+        return Partidas.GRAMATICA;
+    }
+
+    private static GramaticaBNF cargarRecurso(String nombre) {
+        try (InputStream entrada = GramaticaBNF.class.getResourceAsStream(nombre)) {
+            if (entrada == null) {
+                throw new IllegalStateException("No se encontró el recurso " + nombre);
+            }
+            return compilar(new String(entrada.readAllBytes(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Compila una gramática escrita en BNF
+     * @param texto Texto de la gramática
+     * @return Gramática con sus tablas construidas
+     * @throws IllegalArgumentException Si la gramática está mal escrita, una regla
+     *                                  léxica no es regular o la sintaxis no es LL(1)
+     */
+    public static GramaticaBNF compilar(String texto) {
+        GramaticaBNF gramatica = new GramaticaBNF();
+        gramatica.leer(texto);
+        gramatica.construirAutomata();
+        gramatica.construirTabla();
+        return gramatica;
+    }
+
+    // ---------------------------------------------------------------- Lectura
+
+    private void leer(String texto) {
+        String actual = null;
+        String[] lineas = texto.split("\r?\n");
+        for (int i = 0; i < lineas.length; i++) {
+            String linea = lineas[i].trim();
+            if (linea.isEmpty() || linea.startsWith("#")) {
+                continue;
+            }
+            if (linea.startsWith("%")) {
+                directiva(linea, i + 1);
+                continue;
+            }
+            String alternativas;
+            if (linea.startsWith("|")) {
+                if (actual == null) {
+                    throw error(i + 1, "alternativa sin regla");
+                }
+                alternativas = linea.substring(1);
+            } else {
+                int definicion = linea.indexOf("::=");
+                if (definicion < 0) {
+                    throw error(i + 1, "se esperaba <nombre> ::= ...");
+                }
+                actual = nombre(linea.substring(0, definicion).trim(), i + 1);
+                if (reglas.containsKey(actual)) {
+                    throw error(i + 1, "regla repetida <" + actual + ">");
+                }
+                reglas.put(actual, new ArrayList<>());
+                alternativas = linea.substring(definicion + 3);
+            }
+            for (String alternativa : dividir(alternativas, i + 1)) {
+                reglas.get(actual).add(simbolos(alternativa, i + 1));
+            }
+        }
+        for (Map.Entry<String, List<List<String>>> regla : reglas.entrySet()) {
+            for (List<String> alternativa : regla.getValue()) {
+                for (String simbolo : alternativa) {
+                    if (simbolo.startsWith("<") && !reglas.containsKey(simbolo.substring(1))) {
+                        throw new IllegalArgumentException("Regla <" + regla.getKey() + ">: no se define " + simbolo + ">");
+                    }
+                }
+            }
+        }
+    }
+
+    private void directiva(String linea, int numero) {
+        String[] partes = linea.split("\\s+");
+        if (partes[0].equals("%separador") && partes.length == 2) {
+            separador = nombre(partes[1], numero);
+        } else if (partes[0].equals("%pegado")) {
+            for (int i = 1; i < partes.length; i++) {
+                pegados.add(nombre(partes[i], numero));
+            }
+        } else {
+            throw error(numero, "directiva desconocida " + partes[0]);
+        }
+    }
+
+    // Parte las alternativas por "|", sin cortar dentro de comillas ni corchetes
+    private static List<String> dividir(String texto, int numero) {
+        List<String> partes = new ArrayList<>();
+        int inicio = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '\'') {
+                i = cierre(texto, i, '\'', numero);
+            } else if (c == '[') {
+                i = cierre(texto, i, ']', numero);
+            } else if (c == '|') {
+                partes.add(texto.substring(inicio, i));
+                inicio = i + 1;
+            }
+        }
+        partes.add(texto.substring(inicio));
+        return partes;
+    }
+
+    private static int cierre(String texto, int abre, char cierra, int numero) {
+        for (int i = abre + 1; i < texto.length(); i++) {
+            if (texto.charAt(i) == '\\') {
+                i++;
+            } else if (texto.charAt(i) == cierra) {
+                return i;
+            }
+        }
+        throw error(numero, "falta " + cierra);
+    }
+
+    // Símbolos de una alternativa: "<nombre" para un no terminal, o el conjunto
+    // de caracteres de un literal o una clase en formato "=" + caracteres
+    private static List<String> simbolos(String alternativa, int numero) {
+        List<String> simbolos = new ArrayList<>();
+        String texto = alternativa.trim();
+        int i = 0;
+        while (i < texto.length()) {
+            char c = texto.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '<') {
+                int fin = texto.indexOf('>', i);
+                if (fin < 0) {
+                    throw error(numero, "falta >");
+                }
+                simbolos.add("<" + texto.substring(i + 1, fin));
+                i = fin + 1;
+            } else if (c == '\'') {
+                int fin = cierre(texto, i, '\'', numero);
+                String literal = escapes(texto.substring(i + 1, fin));
+                if (literal.length() != 1) {
+                    throw error(numero, "un literal es un solo carácter: '" + literal + "'");
+                }
+                simbolos.add("=" + literal);
+                i = fin + 1;
+            } else if (c == '[') {
+                int fin = cierre(texto, i, ']', numero);
+                simbolos.add("=" + clase(escapes(texto.substring(i + 1, fin)), numero));
+                i = fin + 1;
+            } else if (texto.startsWith(EPSILON, i)) {
+                i += EPSILON.length();
+            } else {
+                throw error(numero, "símbolo inesperado '" + c + "'");
+            }
+        }
+        return simbolos;
+    }
+
+    private static String escapes(String texto) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '\\' && i + 1 < texto.length()) {
+                char siguiente = texto.charAt(++i);
+                sb.append(siguiente == 't' ? '\t' : siguiente == 'n' ? '\n' : siguiente == 'r' ? '\r' : siguiente);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    // Expande los rangos de una clase: "a-c1" da "abc1"
+    private static String clase(String texto, int numero) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (i + 2 < texto.length() && texto.charAt(i + 1) == '-') {
+                char hasta = texto.charAt(i + 2);
+                if (hasta < c) {
+                    throw error(numero, "rango vacío " + c + "-" + hasta);
+                }
+                for (char x = c; x <= hasta; x++) {
+                    sb.append(x);
+                }
+                i += 2;
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String nombre(String texto, int numero) {
+        if (!texto.startsWith("<") || !texto.endsWith(">") || texto.length() < 3) {
+            throw error(numero, "se esperaba <nombre>: " + texto);
+        }
+        return texto.substring(1, texto.length() - 1);
+    }
+
+    private static boolean esLexica(String nombre) {
+        return nombre.equals(nombre.toUpperCase()) && !nombre.equals(nombre.toLowerCase());
+    }
+
+    private static IllegalArgumentException error(int linea, String mensaje) {
+        return new IllegalArgumentException("Línea " + linea + " de la gramática: " + mensaje);
+    }
+
+    // --------------------------------------------------------- Autómata léxico
+
+    // Autómata no determinista que se construye a partir de las reglas léxicas
+    private final List<BitSet[]> conjuntosNFA = new ArrayList<>();
+    private final List<int[]> destinosNFA = new ArrayList<>();
+    private final List<BitSet> epsilonNFA = new ArrayList<>();
+    private final List<Integer> tokenNFA = new ArrayList<>();
+
+    private void construirAutomata() {
+        for (String nombre : reglas.keySet()) {
+            if (esLexica(nombre) && !nombre.startsWith("_")) {
+                tokens.add(nombre);
+            }
+        }
+        if (separador != null && !tokens.contains(separador)) {
+            throw new IllegalArgumentException("El separador <" + separador + "> no es un token");
+        }
+        for (String pegado : pegados) {
+            if (!tokens.contains(pegado)) {
+                throw new IllegalArgumentException("<" + pegado + "> no es un token");
+            }
+        }
+        int inicio = nuevoEstado();
+        for (int t = 0; t < tokens.size(); t++) {
+            int aceptacion = nuevoEstado();
+            tokenNFA.set(aceptacion, t);
+            epsilonNFA.get(inicio).set(instanciar(tokens.get(t), aceptacion, new HashMap<>(), new HashSet<>()));
+        }
+
+        // Construcción de subconjuntos: cada estado del autómata determinista es un
+        // conjunto de estados del no determinista
+        Map<BitSet, Integer> numeros = new HashMap<>();
+        List<BitSet> pendientes = new ArrayList<>();
+        List<int[]> filas = new ArrayList<>();
+        BitSet primero = new BitSet();
+        primero.set(inicio);
+        cerrar(primero);
+        numeros.put(primero, 0);
+        pendientes.add(primero);
+        for (int d = 0; d < pendientes.size(); d++) {
+            BitSet conjunto = pendientes.get(d);
+            int[] fila = new int[CARACTERES];
+            for (int c = 0; c < CARACTERES; c++) {
+                BitSet destino = new BitSet();
+                for (int s = conjunto.nextSetBit(0); s >= 0; s = conjunto.nextSetBit(s + 1)) {
+                    BitSet[] conjuntos = conjuntosNFA.get(s);
+                    for (int k = 0; k < conjuntos.length; k++) {
+                        if (conjuntos[k].get(c)) {
+                            destino.set(destinosNFA.get(s)[k]);
+                        }
+                    }
+                }
+                if (destino.isEmpty()) {
+                    fila[c] = -1;
+                    continue;
+                }
+                cerrar(destino);
+                Integer numero = numeros.get(destino);
+                if (numero == null) {
+                    numero = pendientes.size();
+                    numeros.put(destino, numero);
+                    pendientes.add(destino);
+                }
+                fila[c] = numero;
+            }
+            filas.add(fila);
+        }
+        transiciones = filas.toArray(new int[0][]);
+        aceptados = new int[pendientes.size()];
+        for (int d = 0; d < pendientes.size(); d++) {
+            int token = -1;
+            BitSet conjunto = pendientes.get(d);
+            for (int s = conjunto.nextSetBit(0); s >= 0; s = conjunto.nextSetBit(s + 1)) {
+                int t = tokenNFA.get(s);
+                if (t >= 0 && (token < 0 || t < token)) {
+                    token = t;
+                }
+            }
+            aceptados[d] = token;
+        }
+    }
+
+    private int nuevoEstado() {
+        conjuntosNFA.add(new BitSet[0]);
+        destinosNFA.add(new int[0]);
+        epsilonNFA.add(new BitSet());
+        tokenNFA.add(-1);
+        return tokenNFA.size() - 1;
+    }
+
+    private void transicion(int desde, BitSet caracteres, int hasta) {
+        BitSet[] conjuntos = conjuntosNFA.get(desde);
+        int[] destinos = destinosNFA.get(desde);
+        conjuntos = Arrays.copyOf(conjuntos, conjuntos.length + 1);
+        destinos = Arrays.copyOf(destinos, destinos.length + 1);
+        conjuntos[conjuntos.length - 1] = caracteres;
+        destinos[destinos.length - 1] = hasta;
+        conjuntosNFA.set(desde, conjuntos);
+        destinosNFA.set(desde, destinos);
+    }
+
+    // Crea una copia de la regla que termina en el estado continuacion y devuelve
+    // su estado inicial. Una llamada a una regla al final de una alternativa con la
+    // misma continuación vuelve al estado inicial de esa copia, lo que permite la
+    // recursión por la derecha; cualquier otra recursión no es regular
+    private int instanciar(String regla, int continuacion, Map<String, Integer> enCurso, Set<String> pila) {
+        if (!esLexica(regla)) {
+            throw new IllegalArgumentException("La regla léxica usa la regla sintáctica <" + regla + ">");
+        }
+        int inicio = nuevoEstado();
+        String clave = regla + "@" + continuacion;
+        enCurso.put(clave, inicio);
+        pila.add(regla);
+        for (List<String> alternativa : reglas.get(regla)) {
+            int actual = inicio;
+            if (alternativa.isEmpty()) {
+                epsilonNFA.get(inicio).set(continuacion);
+            }
+            for (int i = 0; i < alternativa.size(); i++) {
+                String simbolo = alternativa.get(i);
+                boolean ultimo = i == alternativa.size() - 1;
+                int siguiente = ultimo ? continuacion : nuevoEstado();
+                if (simbolo.startsWith("=")) {
+                    BitSet caracteres = new BitSet(CARACTERES);
+                    for (int k = 1; k < simbolo.length(); k++) {
+                        caracteres.set(simbolo.charAt(k));
+                    }
+                    transicion(actual, caracteres, siguiente);
+                } else {
+                    String otra = simbolo.substring(1);
+                    Integer repetida = ultimo ? enCurso.get(otra + "@" + continuacion) : null;
+                    if (repetida != null) {
+                        epsilonNFA.get(actual).set(repetida);
+                    } else if (pila.contains(otra)) {
+                        throw new IllegalArgumentException("La regla léxica <" + regla + "> no es regular: llama a <"
+                                + otra + "> fuera del final de una alternativa");
+                    } else {
+                        epsilonNFA.get(actual).set(instanciar(otra, siguiente, enCurso, pila));
+                    }
+                }
+                actual = siguiente;
+            }
+        }
+        pila.remove(regla);
+        enCurso.remove(clave);
+        return inicio;
+    }
+
+    // Añade al conjunto los estados alcanzables por transiciones vacías
+    private void cerrar(BitSet conjunto) {
+        int[] pendientes = conjunto.stream().toArray();
+        List<Integer> cola = new ArrayList<>();
+        for (int s : pendientes) {
+            cola.add(s);
+        }
+        for (int i = 0; i < cola.size(); i++) {
+            BitSet vacias = epsilonNFA.get(cola.get(i));
+            for (int s = vacias.nextSetBit(0); s >= 0; s = vacias.nextSetBit(s + 1)) {
+                if (!conjunto.get(s)) {
+                    conjunto.set(s);
+                    cola.add(s);
+                }
+            }
+        }
+    }
+
+    // -------------------------------------------------------------- Tabla LL(1)
+
+    private void construirTabla() {
+        for (String nombre : reglas.keySet()) {
+            if (!esLexica(nombre)) {
+                noTerminales.add(nombre);
+            }
+        }
+        if (noTerminales.isEmpty()) {
+            throw new IllegalArgumentException("La gramática no tiene reglas sintácticas");
+        }
+        List<int[]> lista = new ArrayList<>();
+        List<Integer> listaCabezas = new ArrayList<>();
+        for (int n = 0; n < noTerminales.size(); n++) {
+            String nombre = noTerminales.get(n);
+            for (List<String> alternativa : reglas.get(nombre)) {
+                int[] produccion = new int[alternativa.size()];
+                for (int i = 0; i < produccion.length; i++) {
+                    String simbolo = alternativa.get(i);
+                    if (simbolo.startsWith("=")) {
+                        throw new IllegalArgumentException("La regla sintáctica <" + nombre
+                                + "> usa caracteres; tiene que usar tokens");
+                    }
+                    String otro = simbolo.substring(1);
+                    if (esLexica(otro)) {
+                        int token = tokens.indexOf(otro);
+                        if (token < 0) {
+                            throw new IllegalArgumentException("La regla <" + nombre + "> usa la regla auxiliar <" + otro + ">");
+                        }
+                        if (otro.equals(separador)) {
+                            throw new IllegalArgumentException("La regla <" + nombre + "> usa el separador <" + otro + ">");
+                        }
+                        produccion[i] = -1 - token;
+                    } else {
+                        produccion[i] = noTerminales.indexOf(otro);
+                    }
+                }
+                lista.add(produccion);
+                listaCabezas.add(n);
+            }
+        }
+        producciones = lista.toArray(new int[0][]);
+        cabezas = listaCabezas.stream().mapToInt(Integer::intValue).toArray();
+
+        // FIRST y anulables por punto fijo; el token FIN es el índice tokens.size()
+        int fin = tokens.size();
+        boolean[] anulable = new boolean[noTerminales.size()];
+        BitSet[] first = new BitSet[noTerminales.size()];
+        BitSet[] follow = new BitSet[noTerminales.size()];
+        for (int n = 0; n < first.length; n++) {
+            first[n] = new BitSet();
+            follow[n] = new BitSet();
+        }
+        follow[0].set(fin);
+        boolean cambio = true;
+        while (cambio) {
+            cambio = false;
+            for (int p = 0; p < producciones.length; p++) {
+                int cabeza = cabezas[p];
+                BitSet conjunto = new BitSet();
+                boolean vacia = firstDe(producciones[p], 0, anulable, first, conjunto);
+                if (!contiene(first[cabeza], conjunto)) {
+                    first[cabeza].or(conjunto);
+                    cambio = true;
+                }
+                if (vacia && !anulable[cabeza]) {
+                    anulable[cabeza] = true;
+                    cambio = true;
+                }
+            }
+        }
+        cambio = true;
+        while (cambio) {
+            cambio = false;
+            for (int p = 0; p < producciones.length; p++) {
+                int[] produccion = producciones[p];
+                for (int i = 0; i < produccion.length; i++) {
+                    int simbolo = produccion[i];
+                    if (simbolo < 0) {
+                        continue;
+                    }
+                    BitSet resto = new BitSet();
+                    if (firstDe(produccion, i + 1, anulable, first, resto)) {
+                        resto.or(follow[cabezas[p]]);
+                    }
+                    if (!contiene(follow[simbolo], resto)) {
+                        follow[simbolo].or(resto);
+                        cambio = true;
+                    }
+                }
+            }
+        }
+
+        tabla = new int[noTerminales.size()][tokens.size() + 1];
+        for (int[] fila : tabla) {
+            Arrays.fill(fila, -1);
+        }
+        for (int p = 0; p < producciones.length; p++) {
+            int cabeza = cabezas[p];
+            BitSet prediccion = new BitSet();
+            if (firstDe(producciones[p], 0, anulable, first, prediccion)) {
+                prediccion.or(follow[cabeza]);
+            }
+            for (int t = prediccion.nextSetBit(0); t >= 0; t = prediccion.nextSetBit(t + 1)) {
+                if (tabla[cabeza][t] >= 0) {
+                    throw new IllegalArgumentException("La gramática no es LL(1): <" + noTerminales.get(cabeza)
+                            + "> tiene dos producciones para " + nombreToken(t));
+                }
+                tabla[cabeza][t] = p;
+            }
+        }
+    }
+
+    // Calcula FIRST de la producción desde la posición dada; devuelve si esa parte es anulable
+    private static boolean firstDe(int[] produccion, int desde, boolean[] anulable, BitSet[] first, BitSet destino) {
+        for (int i = desde; i < produccion.length; i++) {
+            int simbolo = produccion[i];
+            if (simbolo < 0) {
+                destino.set(-1 - simbolo);
+                return false;
+            }
+            destino.or(first[simbolo]);
+            if (!anulable[simbolo]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contiene(BitSet conjunto, BitSet otro) {
+        BitSet resto = (BitSet) otro.clone();
+        resto.andNot(conjunto);
+        return resto.isEmpty();
+    }
+
+    // ------------------------------------------------------------- Consultas
+
+    /**
+     * Obtiene el número de tokens; el índice siguiente es el fin del texto
+     * @return Número de tokens
+     */
+    public int getNumeroTokens() {
+        return tokens.size();
+    }
+
+    /**
+     * Obtiene el nombre de un token
+     * @param token Índice del token, o getNumeroTokens() para el fin del texto
+     * @return Nombre del token
+     */
+    public String nombreToken(int token) {
+        return token == tokens.size() ? "fin de la partida" : tokens.get(token);
+    }
+
+    /**
+     * Obtiene el token que se descarta entre los demás
+     * @return Índice del token separador, o -1 si no hay
+     */
+    public int getSeparador() {
+        return separador == null ? -1 : tokens.indexOf(separador);
+    }
+
+    /**
+     * Indica si un token puede ir junto a otro sin separador
+     * @param token Índice del token
+     * @return true si el token se declaró con %pegado
+     */
+    public boolean esPegado(int token) {
+        return pegados.contains(tokens.get(token));
+    }
+
+    /**
+     * Obtiene el estado siguiente del autómata léxico
+     * @param estado Estado actual; el inicial es 0
+     * @param caracter Carácter leído
+     * @return Estado siguiente, o -1 si el carácter no continúa ningún token
+     */
+    public int transicion(int estado, char caracter) {
+        return caracter < CARACTERES ? transiciones[estado][caracter] : -1;
+    }
+
+    /**
+     * Obtiene el token que reconoce un estado del autómata léxico
+     * @param estado Estado del autómata
+     * @return Índice del token, o -1 si el estado no termina ningún token
+     */
+    public int tokenAceptado(int estado) {
+        return aceptados[estado];
+    }
+
+    /**
+     * Obtiene el número de estados del autómata léxico
+     * @return Número de estados
+     */
+    public int getNumeroEstados() {
+        return transiciones.length;
+    }
+
+    /**
+     * Obtiene el número de no terminales sintácticos; el 0 es el inicial
+     * @return Número de no terminales
+     */
+    public int getNumeroNoTerminales() {
+        return noTerminales.size();
+    }
+
+    /**
+     * Obtiene el nombre de un no terminal
+     * @param noTerminal Índice del no terminal
+     * @return Nombre sin los corchetes angulares
+     */
+    public String nombreNoTerminal(int noTerminal) {
+        return noTerminales.get(noTerminal);
+    }
+
+    /**
+     * Indica si un no terminal es auxiliar y no aparece en el árbol sintáctico
+     * @param noTerminal Índice del no terminal
+     * @return true si su nombre empieza por "_"
+     */
+    public boolean esAuxiliar(int noTerminal) {
+        return noTerminales.get(noTerminal).startsWith("_");
+    }
+
+    /**
+     * Consulta la tabla LL(1)
+     * @param noTerminal No terminal que se expande
+     * @param token Token siguiente, o getNumeroTokens() al final del texto
+     * @return Índice de la producción, o -1 si el token no puede aparecer aquí
+     */
+    public int prediccion(int noTerminal, int token) {
+        return tabla[noTerminal][token];
+    }
+
+    /**
+     * Obtiene los símbolos de una producción: n >= 0 es el no terminal n y un
+     * número negativo es el token -1 - n
+     * @param produccion Índice de la producción
+     * @return Símbolos de la parte derecha; no se debe modificar
+     */
+    public int[] produccion(int produccion) {
+        return producciones[produccion];
+    }
+
+    /**
+     * Lista los tokens que pueden aparecer al expandir un no terminal
+     * @param noTerminal No terminal
+     * @return Nombres de los tokens con una casilla en la tabla
+     */
+    public List<String> esperados(int noTerminal) {
+        List<String> esperados = new ArrayList<>();
+        for (int t = 0; t <= tokens.size(); t++) {
+            if (tabla[noTerminal][t] >= 0) {
+                esperados.add(nombreToken(t));
+            }
+        }
+        return esperados;
+    }
+}
@@ -0,0 +1,68 @@
+package analizador;
+
+/**
+ * Huella de 64 bits de la secuencia de jugadas de una partida, calculada
+ * mientras se analiza.
+ *
+ * Solo entran el texto de cada jugada, en orden, y el resultado: los espacios,
+ * los saltos de línea y la forma de escribir los números de turno no cambian la
+ * huella, así que "1.e4 e5" y "1. e4\n   e5" dan la misma. Cada carácter se
+ * suma a un hash polinómico que se va desplazando, y al terminar se mezcla para
+ * que todos los bits dependan de toda la partida.
+ */
+final class HuellaPartida {
+
+    private static final long MULTIPLICADOR = 0x9E3779B97F4A7C15L;
+
+    private long valor;
+
+    /**
+     * Empieza la huella de una partida nueva
+     */
+    void reiniciar() {
+        valor = 0;
+    }
+
+    /**
+     * Suma las jugadas del turno que el escáner acaba de encontrar
+     * @param escaner Escáner posicionado en el turno
+     */
+    void agregarTurno(EscanerTurnos escaner) {
+        CharSequence texto = escaner.getTexto();
+        agregarJugada(texto, escaner.getInicioBlanca(), escaner.getLongitudBlanca());
+        if (escaner.tieneNegra()) {
+            agregarJugada(texto, escaner.getInicioNegra(), escaner.getLongitudNegra());
+        }
+    }
+
+    private void agregarJugada(CharSequence texto, int inicio, int longitud) {
+        long h = valor;
+        for (int i = inicio; i < inicio + longitud; i++) {
+            h = (h + texto.charAt(i)) * MULTIPLICADOR;
+        }
+        // Un separador entre jugadas, para que "e4" "e5" no sea lo mismo que "e4e" "5"
+        valor = (h + ' ') * MULTIPLICADOR;
+    }
+
+    /**
+     * Termina la huella con el resultado de la partida
+     * @param resultado Resultado de Partida
+     * @return Huella de la partida
+     */
+    long terminar(int resultado) {
+        long k = (valor + resultado) * MULTIPLICADOR;
+        // Mezcla final de MurmurHash3 (fmix64)
+        k = (k ^ (k >>> 33)) * 0xFF51AFD7ED558CCDL;
+        k = (k ^ (k >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        valor = k ^ (k >>> 33);
+        return valor;
+    }
+
+    /**
+     * Obtiene la huella calculada por el último terminar
+     * @return Huella de la partida
+     */
+    long getValor() {
+        return valor;
+    }
+}
@@ -0,0 +1,135 @@
+package analizador;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Nodo del árbol sintáctico concreto que construye el analizador predictivo.
+ *
+ * Los nodos internos son las reglas sintácticas de la gramática (sin las
+ * auxiliares) y las hojas son los tokens. Cada nodo sabe qué parte del texto
+ * cubre, así que el árbol da cuenta de todo el texto salvo los separadores.
+ */
+public class NodoSintactico {
+
+    private final String simbolo;
+    private final boolean token;
+    private final CharSequence texto;
+    private final int inicio;
+    private int fin;
+    private final List<NodoSintactico> hijos;
+
+    NodoSintactico(String simbolo, boolean token, CharSequence texto, int inicio, int fin) {
+        this.simbolo = simbolo;
+        this.token = token;
+        this.texto = texto;
+        this.inicio = inicio;
+        this.fin = fin;
+        this.hijos = token ? Collections.emptyList() : new ArrayList<>(4);
+    }
+
+    void agregarHijo(NodoSintactico hijo) {
+        hijos.add(hijo);
+    }
+
+    void setFin(int fin) {
+        this.fin = fin;
+    }
+
+    /**
+     * Obtiene el nombre de la regla o del token
+     * @return Nombre sin los corchetes angulares, por ejemplo "turno" o "NUMERO"
+     */
+    public String getSimbolo() {
+        return simbolo;
+    }
+
+    /**
+     * Indica si el nodo es un token
+     * @return true para las hojas
+     */
+    public boolean esToken() {
+        return token;
+    }
+
+    /**
+     * Obtiene la posición del primer carácter que cubre el nodo
+     * @return Posición en el texto analizado
+     */
+    public int getInicio() {
+        return inicio;
+    }
+
+    /**
+     * Obtiene la posición siguiente al último carácter que cubre el nodo
+     * @return Posición en el texto analizado
+     */
+    public int getFin() {
+        return fin;
+    }
+
+    /**
+     * Obtiene el texto que cubre el nodo
+     * @return Texto, con los separadores que haya dentro
+     */
+    public String getTexto() {
+        return texto.subSequence(inicio, fin).toString();
+    }
+
+    /**
+     * Obtiene los hijos del nodo
+     * @return Lista de solo lectura, vacía para los tokens
+     */
+    public List<NodoSintactico> getHijos() {
+        return Collections.unmodifiableList(hijos);
+    }
+
+    /**
+     * Busca el primer hijo con un símbolo
+     * @param simbolo Nombre de la regla o del token
+     * @return Hijo, o null si no hay ninguno
+     */
+    public NodoSintactico hijo(String simbolo) {
+        for (NodoSintactico hijo : hijos) {
+            if (hijo.simbolo.equals(simbolo)) {
+                return hijo;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cuenta los nodos del subárbol
+     * @return Número de nodos, contando este
+     */
+    public int contarNodos() {
+        int total = 1;
+        for (NodoSintactico hijo : hijos) {
+            total += hijo.contarNodos();
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        escribir(sb, 0);
+        return sb.toString();
+    }
+
+    // Un nodo por línea, sangrado según su profundidad
+    private void escribir(StringBuilder sb, int nivel) {
+        for (int i = 0; i < nivel; i++) {
+            sb.append("  ");
+        }
+        sb.append(simbolo);
+        if (token) {
+            sb.append(" \"").append(texto, inicio, fin).append('"');
+        }
+        sb.append('\n');
+        for (NodoSintactico hijo : hijos) {
+            hijo.escribir(sb, nivel + 1);
+        }
+    }
+}
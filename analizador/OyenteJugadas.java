@@ -0,0 +1,26 @@
+package analizador;
+
+import modelo.Jugada;
+
+/**
+ * Recibe los eventos del análisis incremental de una partida, jugada a jugada
+ */
+public interface OyenteJugadas {
+
+    /**
+     * Se llama cuando una jugada está completa y es válida
+     * @param numeroTurno Número del turno al que pertenece
+     * @param blancas true si es la jugada de las blancas
+     * @param jugada Jugada aceptada
+     */
+    void jugadaAceptada(int numeroTurno, boolean blancas, Jugada jugada);
+
+    /**
+     * Se llama con el primer error encontrado; después ya no se emiten más eventos
+     * @param numeroTurno Número del turno al que pertenece, o 0 si el número no es legible
+     * @param blancas true si es la jugada de las blancas
+     * @param jugada Jugada rechazada
+     * @param mensaje Descripción del error, la misma que daría AnalizadorSintactico
+     */
+    void jugadaRechazada(int numeroTurno, boolean blancas, Jugada jugada, String mensaje);
+}
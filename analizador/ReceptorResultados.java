@@ -0,0 +1,16 @@
+package analizador;
+
+import modelo.ResultadoAnalisis;
+
+/**
+ * Destino al que se envían, una a una, las partidas analizadas en lote
+ */
+public interface ReceptorResultados {
+
+    /**
+     * Recibe el resultado de una partida
+     * @param numeroPartida Posición de la partida dentro de la entrada, empezando en 1
+     * @param resultado Resultado del análisis de la partida
+     */
+    void recibir(long numeroPartida, ResultadoAnalisis resultado);
+}
@@ -0,0 +1,67 @@
+package rendimiento;
+
+import analizador.AnalizadorSintactico;
+import modelo.ResultadoAnalisis;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide AnalizadorSintactico.analizar con partidas cortas y muy largas
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalizadorSintacticoBenchmark {
+
+    private static final int PARTIDAS = 64;
+
+    // Número de turnos de cada partida
+    @Param({"20", "500"})
+    public int turnos;
+
+    private String[] partidas;
+    private int siguiente;
+    private AnalizadorSintactico analizador;
+    private AnalizadorSintactico analizadorCompacto;
+
+    @Setup
+    public void preparar() {
+        GeneradorPartidas generador = new GeneradorPartidas(7);
+        partidas = new String[PARTIDAS];
+        for (int i = 0; i < PARTIDAS; i++) {
+            partidas[i] = generador.partida(turnos);
+        }
+        analizador = new AnalizadorSintactico();
+        analizadorCompacto = new AnalizadorSintactico(true);
+    }
+
+    @Benchmark
+    public ResultadoAnalisis analizar() {
+        return analizador.analizar(siguientePartida());
+    }
+
+    @Benchmark
+    public ResultadoAnalisis analizarCompacta() {
+        return analizadorCompacto.analizar(siguientePartida());
+    }
+
+    private String siguientePartida() {
+        String partida = partidas[siguiente];
+        siguiente = (siguiente + 1) % PARTIDAS;
+        return partida;
+    }
+}
@@ -0,0 +1,81 @@
+package rendimiento;
+
+import analizador.AnalizadorArchivo;
+import analizador.AnalizadorSintactico;
+import analizador.ConversorArchivoPartidas;
+import modelo.ArchivoPartidas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara el tiempo de cargar un corpus analizando su texto SAN con el de
+ * leerlo del archivo binario
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArchivoPartidasBenchmark {
+
+    private static final int PARTIDAS = 20_000;
+
+    private Path texto;
+    private Path binario;
+    private AnalizadorArchivo analizador;
+
+    @Setup
+    public void preparar() throws IOException {
+        GeneradorPartidas generador = new GeneradorPartidas(11);
+        texto = Files.createTempFile("partidas", ".txt");
+        binario = Files.createTempFile("partidas", ".bin");
+        try (BufferedWriter salida = Files.newBufferedWriter(texto, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < PARTIDAS; i++) {
+                salida.write(generador.partida(40));
+                salida.write("\n\n");
+            }
+        }
+        new ConversorArchivoPartidas().aBinario(texto, binario, null);
+        analizador = new AnalizadorArchivo(new AnalizadorSintactico(true), 1 << 28);
+    }
+
+    @TearDown
+    public void limpiar() throws IOException {
+        Files.deleteIfExists(texto);
+        Files.deleteIfExists(binario);
+    }
+
+    @Benchmark
+    public long analizarTexto() throws IOException {
+        long[] jugadas = new long[1];
+        analizador.analizar(texto, (numero, resultado) -> jugadas[0] += resultado.getPartida().getNumeroJugadas(), true);
+        return jugadas[0];
+    }
+
+    @Benchmark
+    public long cargarBinario() throws IOException {
+        ArchivoPartidas archivo = ArchivoPartidas.abrir(binario);
+        long jugadas = 0;
+        for (long i = 0; i < archivo.getNumeroPartidas(); i++) {
+            jugadas += archivo.obtener(i).getNumeroJugadas();
+        }
+        return jugadas;
+    }
+}
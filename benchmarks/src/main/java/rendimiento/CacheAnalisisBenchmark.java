@@ -0,0 +1,68 @@
+package rendimiento;
+
+import analizador.AnalizadorSintactico;
+import analizador.CacheAnalisis;
+import modelo.ResultadoAnalisis;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara el análisis de partidas repetidas con y sin la caché de resultados,
+ * con varios hilos consultando a la vez
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class CacheAnalisisBenchmark {
+
+    private static final int PARTIDAS = 1024;
+
+    // Número de turnos de cada partida
+    @Param({"10", "40"})
+    public int turnos;
+
+    private String[] partidas;
+    private AnalizadorSintactico analizador;
+    private CacheAnalisis cache;
+
+    @Setup
+    public void preparar() {
+        GeneradorPartidas generador = new GeneradorPartidas(13);
+        partidas = new String[PARTIDAS];
+        for (int i = 0; i < PARTIDAS; i++) {
+            partidas[i] = generador.partida(turnos);
+        }
+        analizador = new AnalizadorSintactico(true);
+        cache = new CacheAnalisis(analizador, 64 << 20, CacheAnalisis.SEGMENTOS_POR_DEFECTO);
+        for (String partida : partidas) {
+            cache.analizar(partida);
+        }
+    }
+
+    @Benchmark
+    public ResultadoAnalisis sinCache() {
+        return analizador.analizar(partidas[ThreadLocalRandom.current().nextInt(PARTIDAS)]);
+    }
+
+    @Benchmark
+    public ResultadoAnalisis conCache() {
+        return cache.analizar(partidas[ThreadLocalRandom.current().nextInt(PARTIDAS)]);
+    }
+}
@@ -0,0 +1,101 @@
+package rendimiento;
+
+import analizador.AnalizadorArchivo;
+import analizador.AnalizadorPGN;
+import analizador.AnalizadorSintactico;
+import analizador.EscanerPGN;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide el recorrido de un corpus en PGN completo, solo el escáner y con la
+ * validación de las jugadas, frente al mismo corpus en SAN sin anotaciones.
+ * El caudal en MB/s es el tamaño de cada buffer entre el tiempo medio
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EscanerPGNBenchmark {
+
+    private static final int PARTIDAS = 5_000;
+
+    private ByteBuffer pgn;
+    private ByteBuffer san;
+    private final EscanerPGN escaner = new EscanerPGN();
+    private AnalizadorPGN analizadorPGN;
+    private AnalizadorArchivo analizadorSAN;
+
+    @Setup
+    public void preparar() {
+        GeneradorPartidas generador = new GeneradorPartidas(17);
+        Random aleatorio = new Random(17);
+        StringBuilder textoPGN = new StringBuilder();
+        StringBuilder textoSAN = new StringBuilder();
+        for (int i = 0; i < PARTIDAS; i++) {
+            String partida = generador.partida(40);
+            textoSAN.append(partida).append("\n\n");
+            textoPGN.append("[Event \"Torneo ").append(i).append("\"]\n[Site \"Ciudad\"]\n")
+                    .append("[White \"Blancas\"]\n[Black \"Negras\"]\n[Result \"*\"]\n\n");
+            // Un comentario, un NAG o una variante después de algunas jugadas
+            for (String palabra : partida.split(" ")) {
+                textoPGN.append(palabra).append(' ');
+                if (!palabra.endsWith(".")) {
+                    switch (aleatorio.nextInt(20)) {
+                        case 0: textoPGN.append("{una idea mejor} "); break;
+                        case 1: textoPGN.append("$1 "); break;
+                        case 2: textoPGN.append("(1. d4 {otra} (1... d5) Nf6) "); break;
+                        default: break;
+                    }
+                }
+            }
+            textoPGN.append("*\n\n");
+        }
+        pgn = directo(textoPGN);
+        san = directo(textoSAN);
+        analizadorPGN = new AnalizadorPGN(new AnalizadorSintactico(true), 1 << 28);
+        analizadorSAN = new AnalizadorArchivo(new AnalizadorSintactico(true), 1 << 28);
+    }
+
+    private static ByteBuffer directo(CharSequence texto) {
+        byte[] bytes = texto.toString().getBytes(StandardCharsets.ISO_8859_1);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+
+    @Benchmark
+    public long escanearPGN() {
+        escaner.reiniciar(pgn, 0, pgn.limit(), true);
+        long jugadas = 0;
+        while (escaner.siguientePartida()) {
+            jugadas += escaner.getNumeroJugadas();
+        }
+        return jugadas;
+    }
+
+    @Benchmark
+    public long analizarPGN() {
+        return analizadorPGN.analizar(pgn, (numero, resultado, partida) -> { }).getJugadas();
+    }
+
+    @Benchmark
+    public long analizarSAN() {
+        return analizadorSAN.analizar(san, (numero, resultado) -> { });
+    }
+}
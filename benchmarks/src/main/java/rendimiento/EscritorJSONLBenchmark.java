@@ -0,0 +1,85 @@
+package rendimiento;
+
+import analizador.AnalizadorSintactico;
+import analizador.EscritorJSONL;
+import modelo.ResultadoAnalisis;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la escritura en JSON Lines de resultados ya analizados, con y sin gzip,
+ * hacia un canal que descarta los bytes, para no medir el disco
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EscritorJSONLBenchmark {
+
+    private static final int PARTIDAS = 5_000;
+
+    @Param({"false", "true"})
+    public boolean comprimir;
+
+    private ResultadoAnalisis[] resultados;
+
+    private final WritableByteChannel descarte = new WritableByteChannel() {
+        @Override
+        public int write(ByteBuffer buffer) {
+            int bytes = buffer.remaining();
+            buffer.position(buffer.limit());
+            return bytes;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Setup
+    public void preparar() {
+        GeneradorPartidas generador = new GeneradorPartidas(23);
+        AnalizadorSintactico analizador = new AnalizadorSintactico(true);
+        resultados = new ResultadoAnalisis[PARTIDAS];
+        for (int i = 0; i < PARTIDAS; i++) {
+            // Una de cada diez partidas con un error, para escribir también diagnósticos
+            String partida = generador.partida(40);
+            resultados[i] = analizador.analizar(i % 10 == 0 ? partida + " Qh9" : partida);
+            // Los códigos de las jugadas se calculan una vez y quedan en la partida
+            if (resultados[i].getPartida() != null) {
+                resultados[i].getPartida().getNumeroJugadas();
+            }
+        }
+    }
+
+    @Benchmark
+    public long escribir() throws IOException {
+        EscritorJSONL escritor = new EscritorJSONL(descarte, comprimir);
+        for (int i = 0; i < resultados.length; i++) {
+            escritor.recibir(i + 1, resultados[i]);
+        }
+        escritor.close();
+        return escritor.getBytesEscritos();
+    }
+}
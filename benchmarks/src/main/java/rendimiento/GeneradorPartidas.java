@@ -0,0 +1,130 @@
+package rendimiento;
+
+import java.util.Random;
+
+/**
+ * Genera partidas sintácticamente válidas con una distribución de jugadas
+ * parecida a la de partidas reales: muchos movimientos de peón y de caballo,
+ * capturas frecuentes, algún jaque, un enroque por bando y coronaciones raras.
+ * Usa una semilla fija para que todas las ejecuciones midan lo mismo.
+ */
+final class GeneradorPartidas {
+
+    private static final String PIEZAS = "NNNBBBRRQK";
+
+    private final Random aleatorio;
+
+    GeneradorPartidas(long semilla) {
+        this.aleatorio = new Random(semilla);
+    }
+
+    /**
+     * Genera el texto de una partida
+     * @param turnos Número de turnos
+     * @return Partida en notación SAN, por ejemplo "1. e4 e5 2. Nf3 Nc6"
+     */
+    String partida(int turnos) {
+        StringBuilder sb = new StringBuilder(turnos * 12);
+        int enroqueBlancas = 5 + aleatorio.nextInt(8);
+        int enroqueNegras = 5 + aleatorio.nextInt(8);
+        for (int t = 1; t <= turnos; t++) {
+            if (t > 1) {
+                sb.append(' ');
+            }
+            sb.append(t).append(". ");
+            sb.append(t == enroqueBlancas ? enroque() : jugada(t));
+            // La última jugada de la partida a veces es solo de las blancas
+            if (t < turnos || aleatorio.nextBoolean()) {
+                sb.append(' ').append(t == enroqueNegras ? enroque() : jugada(t));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Genera una jugada suelta de una categoría
+     * @param categoria "enroque", "pieza", "peon" o "invalida"
+     * @return Notación de la jugada
+     */
+    String jugada(String categoria) {
+        switch (categoria) {
+            case "enroque":
+                return enroque();
+            case "pieza":
+                return movimientoPieza();
+            case "peon":
+                return movimientoPeon(true);
+            default:
+                return invalida();
+        }
+    }
+
+    private String jugada(int turno) {
+        // Al principio predominan los peones; después, las piezas
+        int peon = turno < 10 ? 45 : 30;
+        return aleatorio.nextInt(100) < peon ? movimientoPeon(turno > 25) : movimientoPieza();
+    }
+
+    private String enroque() {
+        return aleatorio.nextInt(4) == 0 ? "O-O-O" : "O-O";
+    }
+
+    private String movimientoPieza() {
+        StringBuilder sb = new StringBuilder(8);
+        sb.append(PIEZAS.charAt(aleatorio.nextInt(PIEZAS.length())));
+        if (aleatorio.nextInt(12) == 0) {
+            // Desambiguación por columna o por fila
+            sb.append(aleatorio.nextBoolean() ? columna() : fila());
+        }
+        if (aleatorio.nextInt(4) == 0) {
+            sb.append('x');
+        }
+        sb.append(columna()).append(fila());
+        return jaque(sb);
+    }
+
+    private String movimientoPeon(boolean puedeCoronar) {
+        StringBuilder sb = new StringBuilder(8);
+        if (aleatorio.nextInt(5) == 0) {
+            sb.append(columna()).append('x');
+        }
+        if (puedeCoronar && aleatorio.nextInt(40) == 0) {
+            sb.append(columna()).append(aleatorio.nextBoolean() ? '8' : '1').append('=').append("QRBN".charAt(aleatorio.nextInt(4)));
+        } else {
+            sb.append(columna()).append((char) ('2' + aleatorio.nextInt(6)));
+        }
+        return jaque(sb);
+    }
+
+    private String invalida() {
+        // Errores típicos: casilla fuera del tablero, pieza inexistente, enroque mal escrito
+        switch (aleatorio.nextInt(4)) {
+            case 0:
+                return "Q" + columna() + "9";
+            case 1:
+                return "P" + columna() + fila();
+            case 2:
+                return "0-0";
+            default:
+                return columna() + fila() + "=K";
+        }
+    }
+
+    private String jaque(StringBuilder sb) {
+        int r = aleatorio.nextInt(100);
+        if (r < 8) {
+            sb.append('+');
+        } else if (r == 8) {
+            sb.append('#');
+        }
+        return sb.toString();
+    }
+
+    private char columna() {
+        return (char) ('a' + aleatorio.nextInt(8));
+    }
+
+    private char fila() {
+        return (char) ('1' + aleatorio.nextInt(8));
+    }
+}
@@ -0,0 +1,52 @@
+package rendimiento;
+
+import analizador.AnalizadorSintactico;
+import modelo.Partida;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide Partida.toString con la representación de objetos y con la compacta
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PartidaBenchmark {
+
+    @Param({"40", "300"})
+    public int turnos;
+
+    private Partida partida;
+    private Partida compacta;
+
+    @Setup
+    public void preparar() {
+        String texto = new GeneradorPartidas(11).partida(turnos);
+        partida = new AnalizadorSintactico().analizar(texto).getPartida();
+        compacta = new AnalizadorSintactico(true).analizar(texto).getPartida();
+    }
+
+    @Benchmark
+    public String toStringPartida() {
+        return partida.toString();
+    }
+
+    @Benchmark
+    public String toStringCompacta() {
+        return compacta.toString();
+    }
+}
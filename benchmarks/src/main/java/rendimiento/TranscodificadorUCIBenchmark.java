@@ -0,0 +1,79 @@
+package rendimiento;
+
+import analizador.AnalizadorSintactico;
+import modelo.Partida;
+import motor.TranscodificadorUCI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la traducción entre SAN y UCI en un solo hilo, en jugadas por segundo,
+ * con las mismas partidas reales que TableroBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@OperationsPerInvocation(TableroBenchmark.JUGADAS)
+public class TranscodificadorUCIBenchmark {
+
+    private static final String[] PARTIDAS = {
+        "1. e4 e5 2. Nf3 d6 3. d4 Bg4 4. dxe5 Bxf3 5. Qxf3 dxe5 6. Bc4 Nf6 7. Qb3 Qe7 8. Nc3 c6 9. Bg5 b5 "
+                + "10. Nxb5 cxb5 11. Bxb5+ Nbd7 12. O-O-O Rd8 13. Rxd7 Rxd7 14. Rd1 Qe6 15. Bxd7+ Nxd7 16. Qb8+ Nxb8 17. Rd8#",
+        "1. e4 e5 2. f4 exf4 3. Bc4 Qh4+ 4. Kf1 b5 5. Bxb5 Nf6 6. Nf3 Qh6 7. d3 Nh5 8. Nh4 Qg5 9. Nf5 c6 "
+                + "10. g4 Nf6 11. Rg1 cxb5 12. h4 Qg6 13. h5 Qg5 14. Qf3 Ng8 15. Bxf4 Qf6 16. Nc3 Bc5 17. Nd5 Qxb2 "
+                + "18. Bd6 Bxg1 19. e5 Qxa1+ 20. Ke2 Na6 21. Nxg7+ Kd8 22. Qf6+ Nxf6 23. Be7#",
+        "1. e4 Nf6 2. e5 d5 3. exd6 e6 4. Nf3 Be7 5. dxc7 O-O 6. Bc4 Nc6 7. O-O b6 8. cxd8=Q Rxd8 9. d3 Bb7 10. Bg5 h6"
+    };
+
+    private final TranscodificadorUCI transcodificador = new TranscodificadorUCI();
+    private Partida[] partidas;
+    private String[] lineasUCI;
+
+    @Setup
+    public void preparar() {
+        AnalizadorSintactico analizador = new AnalizadorSintactico(true);
+        partidas = new Partida[PARTIDAS.length];
+        lineasUCI = new String[PARTIDAS.length];
+        for (int i = 0; i < PARTIDAS.length; i++) {
+            partidas[i] = analizador.analizar(PARTIDAS[i]).getPartida();
+            transcodificador.vaciar();
+            if (transcodificador.agregarUCI(partidas[i]) >= 0) {
+                throw new IllegalStateException("Partida ilegal en el benchmark: " + PARTIDAS[i]);
+            }
+            lineasUCI[i] = new String(transcodificador.getBuffer(), 0, transcodificador.getLongitud(), StandardCharsets.US_ASCII);
+        }
+    }
+
+    @Benchmark
+    public int aUCI() {
+        transcodificador.vaciar();
+        for (Partida partida : partidas) {
+            transcodificador.agregarUCI(partida);
+        }
+        return transcodificador.getLongitud();
+    }
+
+    @Benchmark
+    public int aSAN() {
+        transcodificador.vaciar();
+        for (String linea : lineasUCI) {
+            transcodificador.agregarSAN(linea, 0, linea.length());
+        }
+        return transcodificador.getLongitud();
+    }
+}
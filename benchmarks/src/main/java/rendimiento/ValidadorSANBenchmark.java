@@ -0,0 +1,57 @@
+package rendimiento;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import util.ValidadorSAN;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide ValidadorSAN.esJugadaValida con jugadas de cada categoría
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidadorSANBenchmark {
+
+    private static final int JUGADAS = 1024;
+
+    @Param({"enroque", "pieza", "peon", "invalida"})
+    public String categoria;
+
+    private String[] jugadas;
+
+    @Setup
+    public void preparar() {
+        GeneradorPartidas generador = new GeneradorPartidas(42);
+        jugadas = new String[JUGADAS];
+        for (int i = 0; i < JUGADAS; i++) {
+            jugadas[i] = generador.jugada(categoria);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(JUGADAS)
+    public int esJugadaValida() {
+        int validas = 0;
+        for (String jugada : jugadas) {
+            if (ValidadorSAN.esJugadaValida(jugada)) {
+                validas++;
+            }
+        }
+        return validas;
+    }
+}
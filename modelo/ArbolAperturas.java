@@ -0,0 +1,412 @@
+package modelo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Árbol de aperturas: un trie de secuencias de jugadas que reúne muchas
+ * partidas. Cada nodo es la posición tras una secuencia de jugadas, y guarda
+ * cuántas partidas pasaron por ella y cómo terminaron. Los prefijos comunes
+ * se guardan una sola vez.
+ *
+ * Los nodos no son objetos: cada dato es un arreglo de enteros con un elemento
+ * por nodo, y los hijos de un nodo forman una lista enlazada a través de
+ * primerHijo y siguienteHermano. El nodo 0 es la raíz (ninguna jugada hecha).
+ *
+ * Las jugadas se guardan como códigos de CodigoJugada sin las marcas de jaque,
+ * de modo que "Bb5" y "Bb5+" son la misma rama. No es seguro agregar partidas
+ * desde varios hilos a la vez.
+ */
+public class ArbolAperturas {
+
+    // Nodo que no existe, usado como fin de lista
+    public static final int NINGUNO = -1;
+    public static final int RAIZ = 0;
+
+    // "APER" como primeros bytes del archivo
+    private static final int MAGICO = 0x52455041;
+    private static final int CAPACIDAD_INICIAL = 1024;
+    private static final int PROFUNDIDAD_POR_DEFECTO = 40;
+
+    private final int profundidadMaxima;
+
+    private int numeroNodos;
+    private int[] primerHijo;
+    private int[] siguienteHermano;
+    private int[] codigo;
+    private int[] partidas;
+    private int[] victoriasBlancas;
+    private int[] victoriasNegras;
+    private int[] tablas;
+
+    /**
+     * Constructor que guarda las primeras 40 jugadas de cada partida
+     */
+    public ArbolAperturas() {
+        this(PROFUNDIDAD_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor
+     * @param profundidadMaxima Número máximo de jugadas (blancas y negras) que se guardan de cada partida;
+     *                          limita la memoria, porque el final de cada partida casi nunca se repite
+     */
+    public ArbolAperturas(int profundidadMaxima) {
+        this.profundidadMaxima = profundidadMaxima;
+        reservar(CAPACIDAD_INICIAL);
+        numeroNodos = 1;
+        primerHijo[RAIZ] = NINGUNO;
+        siguienteHermano[RAIZ] = NINGUNO;
+    }
+
+    private void reservar(int capacidad) {
+        primerHijo = primerHijo == null ? new int[capacidad] : Arrays.copyOf(primerHijo, capacidad);
+        siguienteHermano = siguienteHermano == null ? new int[capacidad] : Arrays.copyOf(siguienteHermano, capacidad);
+        codigo = codigo == null ? new int[capacidad] : Arrays.copyOf(codigo, capacidad);
+        partidas = partidas == null ? new int[capacidad] : Arrays.copyOf(partidas, capacidad);
+        victoriasBlancas = victoriasBlancas == null ? new int[capacidad] : Arrays.copyOf(victoriasBlancas, capacidad);
+        victoriasNegras = victoriasNegras == null ? new int[capacidad] : Arrays.copyOf(victoriasNegras, capacidad);
+        tablas = tablas == null ? new int[capacidad] : Arrays.copyOf(tablas, capacidad);
+    }
+
+    /**
+     * Agrega una partida al árbol, con el resultado que tenga anotado
+     * @param partida Partida a agregar
+     */
+    public void agregar(Partida partida) {
+        agregar(partida, partida.getResultado());
+    }
+
+    /**
+     * Agrega una partida al árbol
+     * @param partida Partida a agregar
+     * @param resultado Resultado de la partida, con las constantes de Partida
+     */
+    public void agregar(Partida partida, int resultado) {
+        int nodo = RAIZ;
+        contar(nodo, resultado);
+        int n = Math.min(partida.getNumeroJugadas(), profundidadMaxima);
+        for (int i = 0; i < n; i++) {
+            int jugada = partida.getCodigoJugada(i) & CodigoJugada.MASCARA_MOVIMIENTO;
+            if (jugada == CodigoJugada.NINGUNA) {
+                // A partir de una jugada inválida la secuencia ya no tiene sentido
+                return;
+            }
+            nodo = hijoOCrear(nodo, jugada);
+            contar(nodo, resultado);
+        }
+    }
+
+    private void contar(int nodo, int resultado) {
+        partidas[nodo]++;
+        if (resultado == Partida.VICTORIA_BLANCAS) {
+            victoriasBlancas[nodo]++;
+        } else if (resultado == Partida.VICTORIA_NEGRAS) {
+            victoriasNegras[nodo]++;
+        } else if (resultado == Partida.TABLAS) {
+            tablas[nodo]++;
+        }
+    }
+
+    private int hijoOCrear(int padre, int jugada) {
+        int anterior = NINGUNO;
+        for (int hijo = primerHijo[padre]; hijo != NINGUNO; hijo = siguienteHermano[hijo]) {
+            if (codigo[hijo] == jugada) {
+                // Se adelanta un puesto en la lista: las jugadas frecuentes quedan al principio
+                if (anterior != NINGUNO && partidas[hijo] >= partidas[anterior]) {
+                    intercambiarConAnterior(padre, anterior, hijo);
+                }
+                return hijo;
+            }
+            anterior = hijo;
+        }
+        if (numeroNodos == primerHijo.length) {
+            reservar(primerHijo.length * 2);
+        }
+        int nuevo = numeroNodos++;
+        codigo[nuevo] = jugada;
+        primerHijo[nuevo] = NINGUNO;
+        siguienteHermano[nuevo] = NINGUNO;
+        // El hijo nuevo, con una sola partida, va al final de la lista
+        if (anterior == NINGUNO) {
+            primerHijo[padre] = nuevo;
+        } else {
+            siguienteHermano[anterior] = nuevo;
+        }
+        return nuevo;
+    }
+
+    // Pone el hijo delante de su hermano anterior
+    private void intercambiarConAnterior(int padre, int anterior, int hijo) {
+        siguienteHermano[anterior] = siguienteHermano[hijo];
+        siguienteHermano[hijo] = anterior;
+        if (primerHijo[padre] == anterior) {
+            primerHijo[padre] = hijo;
+            return;
+        }
+        for (int h = primerHijo[padre]; h != NINGUNO; h = siguienteHermano[h]) {
+            if (siguienteHermano[h] == anterior) {
+                siguienteHermano[h] = hijo;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Busca el nodo al que se llega con una secuencia de jugadas
+     * @param codigos Jugadas codificadas con CodigoJugada
+     * @param longitud Número de jugadas de la secuencia
+     * @return Nodo, o NINGUNO si ninguna partida jugó esa secuencia
+     */
+    public int buscar(int[] codigos, int longitud) {
+        int nodo = RAIZ;
+        for (int i = 0; i < longitud && nodo != NINGUNO; i++) {
+            nodo = hijo(nodo, codigos[i]);
+        }
+        return nodo;
+    }
+
+    /**
+     * Busca el nodo al que se llega con las jugadas de una partida,
+     * por ejemplo la que resulta de analizar "1. d4 d5 2. Bf4"
+     * @param prefijo Partida con la secuencia de jugadas
+     * @return Nodo, o NINGUNO si ninguna partida jugó esa secuencia
+     */
+    public int buscar(Partida prefijo) {
+        int nodo = RAIZ;
+        for (int i = 0, n = prefijo.getNumeroJugadas(); i < n && nodo != NINGUNO; i++) {
+            nodo = hijo(nodo, prefijo.getCodigoJugada(i));
+        }
+        return nodo;
+    }
+
+    /**
+     * Busca la continuación de un nodo con una jugada
+     * @param nodo Nodo padre
+     * @param jugada Jugada codificada con CodigoJugada; las marcas de jaque se ignoran
+     * @return Nodo hijo, o NINGUNO si no existe
+     */
+    public int hijo(int nodo, int jugada) {
+        int buscada = jugada & CodigoJugada.MASCARA_MOVIMIENTO;
+        for (int hijo = primerHijo[nodo]; hijo != NINGUNO; hijo = siguienteHermano[hijo]) {
+            if (codigo[hijo] == buscada) {
+                return hijo;
+            }
+        }
+        return NINGUNO;
+    }
+
+    /**
+     * Obtiene las continuaciones de un nodo ordenadas de la más jugada a la menos jugada
+     * @param nodo Nodo padre
+     * @return Nodos hijos
+     */
+    public int[] continuaciones(int nodo) {
+        int n = 0;
+        for (int hijo = primerHijo[nodo]; hijo != NINGUNO; hijo = siguienteHermano[hijo]) {
+            n++;
+        }
+        int[] hijos = new int[n];
+        n = 0;
+        for (int hijo = primerHijo[nodo]; hijo != NINGUNO; hijo = siguienteHermano[hijo]) {
+            hijos[n++] = hijo;
+        }
+        // La lista ya está casi ordenada, así que la inserción apenas mueve elementos
+        for (int i = 1; i < hijos.length; i++) {
+            int actual = hijos[i];
+            int j = i - 1;
+            while (j >= 0 && partidas[hijos[j]] < partidas[actual]) {
+                hijos[j + 1] = hijos[j];
+                j--;
+            }
+            hijos[j + 1] = actual;
+        }
+        return hijos;
+    }
+
+    /**
+     * Obtiene el primer hijo de un nodo, para recorrer sus hijos sin crear arreglos
+     * @param nodo Nodo padre
+     * @return Primer hijo, o NINGUNO si no tiene
+     */
+    public int getPrimerHijo(int nodo) {
+        return primerHijo[nodo];
+    }
+
+    /**
+     * Obtiene el siguiente hermano de un nodo
+     * @param nodo Nodo
+     * @return Siguiente hermano, o NINGUNO si es el último
+     */
+    public int getSiguienteHermano(int nodo) {
+        return siguienteHermano[nodo];
+    }
+
+    /**
+     * Obtiene la jugada que lleva a un nodo
+     * @param nodo Nodo distinto de la raíz
+     * @return Código de CodigoJugada sin marcas de jaque
+     */
+    public int getCodigo(int nodo) {
+        return codigo[nodo];
+    }
+
+    /**
+     * Obtiene la notación de la jugada que lleva a un nodo
+     * @param nodo Nodo distinto de la raíz
+     * @return Notación SAN, sin marcas de jaque
+     */
+    public String getNotacion(int nodo) {
+        return CodigoJugada.aNotacion(codigo[nodo]);
+    }
+
+    /**
+     * Obtiene cuántas partidas pasaron por un nodo
+     * @param nodo Nodo
+     * @return Número de partidas
+     */
+    public int getPartidas(int nodo) {
+        return partidas[nodo];
+    }
+
+    /**
+     * Obtiene cuántas de las partidas que pasaron por un nodo ganaron las blancas
+     * @param nodo Nodo
+     * @return Número de victorias blancas
+     */
+    public int getVictoriasBlancas(int nodo) {
+        return victoriasBlancas[nodo];
+    }
+
+    /**
+     * Obtiene cuántas de las partidas que pasaron por un nodo ganaron las negras
+     * @param nodo Nodo
+     * @return Número de victorias negras
+     */
+    public int getVictoriasNegras(int nodo) {
+        return victoriasNegras[nodo];
+    }
+
+    /**
+     * Obtiene cuántas de las partidas que pasaron por un nodo terminaron en tablas
+     * @param nodo Nodo
+     * @return Número de tablas
+     */
+    public int getTablas(int nodo) {
+        return tablas[nodo];
+    }
+
+    /**
+     * Obtiene el número de nodos del árbol, contando la raíz
+     * @return Número de nodos
+     */
+    public int getNumeroNodos() {
+        return numeroNodos;
+    }
+
+    /**
+     * Describe las continuaciones de un nodo, una por línea, con su frecuencia y resultados
+     * @param nodo Nodo padre
+     * @return Texto con las continuaciones de la más jugada a la menos jugada
+     */
+    public String describirContinuaciones(int nodo) {
+        StringBuilder sb = new StringBuilder();
+        for (int hijo : continuaciones(nodo)) {
+            sb.append(getNotacion(hijo)).append(": ").append(partidas[hijo]).append(" partidas (")
+                    .append(victoriasBlancas[hijo]).append(" / ").append(tablas[hijo]).append(" / ")
+                    .append(victoriasNegras[hijo]).append(")\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Guarda el árbol en un archivo
+     * @param archivo Ruta del archivo; se sobrescribe si existe
+     * @throws IOException Si no se puede escribir
+     */
+    public void guardar(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer bloque = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            bloque.putInt(MAGICO).putInt(profundidadMaxima).putInt(numeroNodos).flip();
+            escribir(canal, bloque);
+            for (int[] arreglo : arreglos()) {
+                escribir(canal, arreglo, bloque);
+            }
+        }
+    }
+
+    /**
+     * Carga un árbol guardado con guardar
+     * @param archivo Ruta del archivo
+     * @return Árbol con los mismos nodos y estadísticas; se le pueden seguir agregando partidas
+     * @throws IOException Si no se puede leer o no es un árbol de aperturas
+     */
+    public static ArbolAperturas cargar(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            ByteBuffer bloque = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            bloque.limit(3 * Integer.BYTES);
+            leer(canal, bloque);
+            if (bloque.getInt(0) != MAGICO) {
+                throw new IOException("El archivo no es un árbol de aperturas: " + archivo);
+            }
+            ArbolAperturas arbol = new ArbolAperturas(bloque.getInt(4));
+            int nodos = bloque.getInt(8);
+            arbol.reservar(Math.max(nodos, CAPACIDAD_INICIAL));
+            arbol.numeroNodos = nodos;
+            for (int[] arreglo : arbol.arreglos()) {
+                leer(canal, arreglo, nodos, bloque);
+            }
+            return arbol;
+        }
+    }
+
+    // Orden en que se guardan los arreglos
+    private int[][] arreglos() {
+        return new int[][] {primerHijo, siguienteHermano, codigo, partidas, victoriasBlancas, victoriasNegras, tablas};
+    }
+
+    // Escribe los nodos usados de un arreglo por bloques
+    private void escribir(FileChannel canal, int[] arreglo, ByteBuffer bloque) throws IOException {
+        int capacidad = bloque.capacity() / Integer.BYTES;
+        for (int i = 0; i < numeroNodos; i += capacidad) {
+            int n = Math.min(capacidad, numeroNodos - i);
+            bloque.clear();
+            bloque.asIntBuffer().put(arreglo, i, n);
+            bloque.limit(n * Integer.BYTES);
+            escribir(canal, bloque);
+        }
+    }
+
+    private static void escribir(FileChannel canal, ByteBuffer bloque) throws IOException {
+        while (bloque.hasRemaining()) {
+            canal.write(bloque);
+        }
+    }
+
+    private static void leer(FileChannel canal, int[] arreglo, int nodos, ByteBuffer bloque) throws IOException {
+        int capacidad = bloque.capacity() / Integer.BYTES;
+        for (int i = 0; i < nodos; i += capacidad) {
+            int n = Math.min(capacidad, nodos - i);
+            bloque.clear().limit(n * Integer.BYTES);
+            leer(canal, bloque);
+            IntBuffer enteros = bloque.asIntBuffer();
+            enteros.get(arreglo, i, n);
+        }
+    }
+
+    private static void leer(FileChannel canal, ByteBuffer bloque) throws IOException {
+        while (bloque.hasRemaining()) {
+            if (canal.read(bloque) < 0) {
+                throw new IOException("El árbol de aperturas está incompleto");
+            }
+        }
+        bloque.flip();
+    }
+}
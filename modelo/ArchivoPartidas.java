@@ -0,0 +1,187 @@
+package modelo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Archivo binario de partidas validadas, para volver a cargar un corpus sin
+ * analizar otra vez el texto SAN.
+ *
+ * Formato, todo en little-endian:
+ * <pre>
+ *   "PARTBIN1"
+ *   por cada partida:
+ *     int   longitud de lo que sigue, en bytes
+ *     byte  resultado (Partida.RESULTADO_*), byte banderas, short 0
+ *     int   número de turnos, int número de jugadas
+ *     int[] códigos de CodigoJugada, blancas y negras intercaladas
+ *     int[] pares (número del turno, primera jugada), solo si la numeración no es 1, 2, 3...
+ *   long[] posición de cada partida en el archivo
+ *   long posición del índice, long número de partidas, long longitud máxima de una partida
+ *   "PARTBIN1"
+ * </pre>
+ * El archivo se abre proyectándolo en memoria: la partida N se localiza con una
+ * lectura del índice, sin recorrer las anteriores, y solo se decodifica cuando
+ * se pide. Las lecturas son absolutas, así que un archivo abierto se puede
+ * consultar desde varios hilos a la vez.
+ */
+public class ArchivoPartidas {
+
+    // "PARTBIN1" al principio y al final del archivo
+    static final long MAGICO = 0x314E_4942_5452_4150L;
+    static final int CABECERA_PARTIDA = 4 * Integer.BYTES;
+    static final int PIE = 4 * Long.BYTES;
+    static final int NUMERACION_EXPLICITA = 1;
+    // El archivo se proyecta por segmentos; cada uno se solapa con el siguiente
+    // lo que mide la partida más larga, para que ninguna quede partida entre dos
+    static final int BITS_SEGMENTO = 30;
+    static final long TAMANO_SEGMENTO = 1L << BITS_SEGMENTO;
+
+    private final ByteBuffer[] segmentos;
+    private final LongBuffer indice;
+    private final long numeroPartidas;
+
+    private ArchivoPartidas(ByteBuffer[] segmentos, LongBuffer indice, long numeroPartidas) {
+        this.segmentos = segmentos;
+        this.indice = indice;
+        this.numeroPartidas = numeroPartidas;
+    }
+
+    /**
+     * Abre un archivo creado con EscritorArchivoPartidas
+     * @param archivo Ruta del archivo
+     * @return Archivo de solo lectura
+     * @throws IOException Si no se puede leer o no es un archivo de partidas completo
+     */
+    public static ArchivoPartidas abrir(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            if (tamano < Long.BYTES + PIE) {
+                throw new IOException("El archivo no es un archivo de partidas: " + archivo);
+            }
+            ByteBuffer pie = canal.map(FileChannel.MapMode.READ_ONLY, tamano - PIE, PIE).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer cabecera = canal.map(FileChannel.MapMode.READ_ONLY, 0, Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            if (cabecera.getLong(0) != MAGICO || pie.getLong(24) != MAGICO) {
+                throw new IOException("El archivo no es un archivo de partidas completo: " + archivo);
+            }
+            long posicionIndice = pie.getLong(0);
+            long numeroPartidas = pie.getLong(8);
+            long longitudMaxima = pie.getLong(16);
+            if (posicionIndice + numeroPartidas * Long.BYTES != tamano - PIE) {
+                throw new IOException("Índice de partidas dañado: " + archivo);
+            }
+            if (numeroPartidas * Long.BYTES > Integer.MAX_VALUE) {
+                throw new IOException("Demasiadas partidas para un solo archivo: " + numeroPartidas);
+            }
+            LongBuffer indice = canal.map(FileChannel.MapMode.READ_ONLY, posicionIndice, numeroPartidas * Long.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+
+            int numeroSegmentos = (int) ((posicionIndice + TAMANO_SEGMENTO - 1) >>> BITS_SEGMENTO);
+            ByteBuffer[] segmentos = new ByteBuffer[numeroSegmentos];
+            for (int i = 0; i < numeroSegmentos; i++) {
+                long inicio = (long) i << BITS_SEGMENTO;
+                long longitud = Math.min(TAMANO_SEGMENTO + longitudMaxima, posicionIndice - inicio);
+                segmentos[i] = canal.map(FileChannel.MapMode.READ_ONLY, inicio, longitud).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new ArchivoPartidas(segmentos, indice, numeroPartidas);
+        }
+    }
+
+    /**
+     * Obtiene el número de partidas del archivo
+     * @return Número de partidas
+     */
+    public long getNumeroPartidas() {
+        return numeroPartidas;
+    }
+
+    /**
+     * Lee una partida. Solo se copian sus códigos; los Turno y Jugada se crean
+     * cuando se piden a la partida
+     * @param partida Índice de la partida, empezando en 0
+     * @return Partida compacta con las jugadas y el resultado
+     */
+    public PartidaCompacta obtener(long partida) {
+        long posicion = posicion(partida);
+        ByteBuffer segmento = segmento(posicion);
+        int base = desplazamiento(posicion);
+        int turnos = segmento.getInt(base + 8);
+        int jugadas = segmento.getInt(base + 12);
+        int[] codigos = new int[Math.max(jugadas, 1)];
+        int p = base + CABECERA_PARTIDA;
+        for (int i = 0; i < jugadas; i++, p += Integer.BYTES) {
+            codigos[i] = segmento.getInt(p);
+        }
+        int[] numeracion = new int[Math.max(turnos * 2, 2)];
+        if ((segmento.get(base + 5) & NUMERACION_EXPLICITA) != 0) {
+            for (int i = 0; i < turnos * 2; i++, p += Integer.BYTES) {
+                numeracion[i] = segmento.getInt(p);
+            }
+        } else {
+            for (int t = 0; t < turnos; t++) {
+                numeracion[t * 2] = t + 1;
+                numeracion[t * 2 + 1] = t * 2;
+            }
+        }
+        PartidaCompacta compacta = new PartidaCompacta(codigos, jugadas, numeracion, turnos);
+        compacta.setResultado(segmento.get(base + 4));
+        return compacta;
+    }
+
+    /**
+     * Obtiene el número de jugadas de una partida sin leerla
+     * @param partida Índice de la partida, empezando en 0
+     * @return Número de jugadas, sumando blancas y negras
+     */
+    public int getNumeroJugadas(long partida) {
+        long posicion = posicion(partida);
+        return segmento(posicion).getInt(desplazamiento(posicion) + 12);
+    }
+
+    /**
+     * Obtiene el código de una jugada sin leer la partida entera
+     * @param partida Índice de la partida, empezando en 0
+     * @param jugada Índice de la jugada dentro de la partida
+     * @return Código de CodigoJugada
+     */
+    public int getCodigoJugada(long partida, int jugada) {
+        long posicion = posicion(partida);
+        ByteBuffer segmento = segmento(posicion);
+        int base = desplazamiento(posicion);
+        int jugadas = segmento.getInt(base + 12);
+        if (jugada < 0 || jugada >= jugadas) {
+            throw new IndexOutOfBoundsException("Jugada " + jugada + " de " + jugadas);
+        }
+        return segmento.getInt(base + CABECERA_PARTIDA + jugada * Integer.BYTES);
+    }
+
+    /**
+     * Obtiene el resultado de una partida sin leerla
+     * @param partida Índice de la partida, empezando en 0
+     * @return Uno de los resultados de Partida
+     */
+    public int getResultado(long partida) {
+        long posicion = posicion(partida);
+        return segmento(posicion).get(desplazamiento(posicion) + 4);
+    }
+
+    private long posicion(long partida) {
+        if (partida < 0 || partida >= numeroPartidas) {
+            throw new IndexOutOfBoundsException("Partida " + partida + " de " + numeroPartidas);
+        }
+        return indice.get((int) partida);
+    }
+
+    private ByteBuffer segmento(long posicion) {
+        return segmentos[(int) (posicion >>> BITS_SEGMENTO)];
+    }
+
+    private static int desplazamiento(long posicion) {
+        return (int) (posicion & (TAMANO_SEGMENTO - 1));
+    }
+}
@@ -0,0 +1,33 @@
+package modelo;
+
+/**
+ * Tipos de error que puede encontrar el análisis sintáctico de una partida
+ */
+public enum CodigoError {
+    // El número de turno es 0 o no cabe en un entero
+    NUMERO_TURNO_INVALIDO,
+    // La jugada blanca no cumple la gramática SAN
+    JUGADA_BLANCA_INVALIDA,
+    // La jugada negra no cumple la gramática SAN
+    JUGADA_NEGRA_INVALIDA,
+    // El texto no contiene ningún turno
+    SIN_TURNOS,
+    // El texto no forma ningún token de la gramática (analizador predictivo)
+    TEXTO_NO_RECONOCIDO,
+    // Un token aparece donde la gramática no lo permite (analizador predictivo)
+    SIMBOLO_INESPERADO,
+    // Un turno empieza por la jugada negra ("12... e5") sin que la blanca esté antes (PGN)
+    FALTA_JUGADA_BLANCA;
+
+    // values() crea un arreglo nuevo en cada llamada
+    private static final CodigoError[] VALORES = values();
+
+    /**
+     * Obtiene el código con un ordinal dado
+     * @param ordinal Posición del código en la enumeración
+     * @return Código de error
+     */
+    public static CodigoError deOrdinal(int ordinal) {
+        return VALORES[ordinal];
+    }
+}
@@ -0,0 +1,356 @@
+package modelo;
+
+import util.ValidadorSAN;
+
+/**
+ * Codifica una jugada SAN válida en un único entero de 32 bits.
+ *
+ * Distribución de los bits:
+ * <pre>
+ *   0-2   tipo (los de ValidadorSAN: enroque corto, enroque largo, pieza, peón)
+ *   3-5   pieza que mueve (REY ... PEON); 0 en los enroques
+ *   6-10  primer carácter de desambiguación (0 si no hay, 1-8 columnas a-h, 9-16 filas 1-8)
+ *   11-15 segundo carácter de desambiguación, con la misma codificación
+ *   16    captura
+ *   17-22 casilla destino (columna + 8 * fila, a1 = 0, h8 = 63)
+ *   23-25 pieza a la que se corona (0 si no hay coronación)
+ *   26    jaque
+ *   27    jaque mate
+ * </pre>
+ * Toda jugada válida tiene un código distinto de cero, así que 0 (NINGUNA)
+ * puede usarse para indicar que no hay jugada. Decodificar un código devuelve
+ * exactamente la misma notación que se codificó.
+ */
+public final class CodigoJugada {
+
+    // Código reservado para "sin jugada"
+    public static final int NINGUNA = 0;
+
+    // Piezas
+    public static final int REY = 1;
+    public static final int DAMA = 2;
+    public static final int TORRE = 3;
+    public static final int ALFIL = 4;
+    public static final int CABALLO = 5;
+    public static final int PEON = 6;
+
+    private static final String LETRAS_PIEZA = "?KQRBNP";
+
+    private static final int DESPLAZAMIENTO_PIEZA = 3;
+    private static final int DESPLAZAMIENTO_DESAMBIGUACION_1 = 6;
+    private static final int DESPLAZAMIENTO_DESAMBIGUACION_2 = 11;
+    private static final int BIT_CAPTURA = 1 << 16;
+    private static final int DESPLAZAMIENTO_DESTINO = 17;
+    private static final int DESPLAZAMIENTO_CORONACION = 23;
+    private static final int BIT_JAQUE = 1 << 26;
+    private static final int BIT_MATE = 1 << 27;
+
+    // Bits que identifican el movimiento sin tener en cuenta el jaque o el mate anotados
+    public static final int MASCARA_MOVIMIENTO = BIT_JAQUE - 1;
+
+    // Longitud máxima de una jugada válida: pieza, dos desambiguaciones, captura, destino, coronación y jaque
+    public static final int LONGITUD_MAXIMA = 9;
+
+    private CodigoJugada() {
+    }
+
+    /**
+     * Codifica una jugada
+     * @param jugada Notación de la jugada
+     * @return Código de la jugada, o NINGUNA si no es válida
+     */
+    public static int codificar(CharSequence jugada) {
+        return codificar(jugada, 0, jugada.length());
+    }
+
+    /**
+     * Codifica la jugada contenida en un tramo de texto, sin crear objetos
+     * @param texto Texto que contiene la jugada
+     * @param inicio Posición del primer carácter
+     * @param longitud Número de caracteres de la jugada
+     * @return Código de la jugada, o NINGUNA si no es válida
+     */
+    public static int codificar(CharSequence texto, int inicio, int longitud) {
+        int clasificacion = ValidadorSAN.clasificar(texto, inicio, longitud);
+        int tipo = ValidadorSAN.tipo(clasificacion);
+        if (tipo == ValidadorSAN.INVALIDA) {
+            return NINGUNA;
+        }
+        if (ValidadorSAN.esEnroque(clasificacion)) {
+            return tipo;
+        }
+        int codigo = tipo;
+        int fin = inicio + longitud;
+        // Los sufijos se leen desde el final: jaque, coronación, destino y captura
+        char ultimo = texto.charAt(fin - 1);
+        if (ultimo == '+') {
+            codigo |= BIT_JAQUE;
+            fin--;
+        } else if (ultimo == '#') {
+            codigo |= BIT_MATE;
+            fin--;
+        }
+        if (texto.charAt(fin - 2) == '=') {
+            codigo |= pieza(texto.charAt(fin - 1)) << DESPLAZAMIENTO_CORONACION;
+            fin -= 2;
+        }
+        int destino = (texto.charAt(fin - 2) - 'a') + 8 * (texto.charAt(fin - 1) - '1');
+        codigo |= destino << DESPLAZAMIENTO_DESTINO;
+        fin -= 2;
+        if (fin > inicio && texto.charAt(fin - 1) == 'x') {
+            codigo |= BIT_CAPTURA;
+            fin--;
+        }
+        // Lo que queda antes del destino es la pieza y la desambiguación
+        int i = inicio;
+        if (tipo == ValidadorSAN.MOVIMIENTO_PIEZA) {
+            codigo |= pieza(texto.charAt(i++)) << DESPLAZAMIENTO_PIEZA;
+        } else {
+            codigo |= PEON << DESPLAZAMIENTO_PIEZA;
+        }
+        if (i < fin) {
+            codigo |= desambiguacion(texto.charAt(i++)) << DESPLAZAMIENTO_DESAMBIGUACION_1;
+        }
+        if (i < fin) {
+            codigo |= desambiguacion(texto.charAt(i)) << DESPLAZAMIENTO_DESAMBIGUACION_2;
+        }
+        return codigo;
+    }
+
+    /**
+     * Construye el código de una jugada a partir de sus partes, sin pasar por el
+     * texto. Da el mismo código que codificar con la notación equivalente
+     * @param pieza Pieza que mueve (REY ... PEON)
+     * @param columnaOrigen Columna de desambiguación de 0 (a) a 7 (h), o -1; en las
+     *                      capturas de peón es la columna de la que sale
+     * @param filaOrigen Fila de desambiguación de 0 (1) a 7 (8), o -1
+     * @param captura true si la jugada captura
+     * @param destino Casilla de 0 (a1) a 63 (h8)
+     * @param coronacion Pieza a la que se corona, o 0
+     * @return Código de la jugada, sin jaque ni mate
+     */
+    public static int crear(int pieza, int columnaOrigen, int filaOrigen, boolean captura, int destino, int coronacion) {
+        int codigo = (pieza == PEON ? ValidadorSAN.MOVIMIENTO_PEON : ValidadorSAN.MOVIMIENTO_PIEZA)
+                | pieza << DESPLAZAMIENTO_PIEZA
+                | destino << DESPLAZAMIENTO_DESTINO
+                | coronacion << DESPLAZAMIENTO_CORONACION;
+        // Como en la notación, la columna va antes que la fila
+        int desplazamiento = DESPLAZAMIENTO_DESAMBIGUACION_1;
+        if (columnaOrigen >= 0) {
+            codigo |= (columnaOrigen + 1) << desplazamiento;
+            desplazamiento = DESPLAZAMIENTO_DESAMBIGUACION_2;
+        }
+        if (filaOrigen >= 0) {
+            codigo |= (filaOrigen + 9) << desplazamiento;
+        }
+        return captura ? codigo | BIT_CAPTURA : codigo;
+    }
+
+    /**
+     * Obtiene el código de un enroque
+     * @param corto true para O-O, false para O-O-O
+     * @return Código del enroque, sin jaque ni mate
+     */
+    public static int enroque(boolean corto) {
+        return corto ? ValidadorSAN.ENROQUE_CORTO : ValidadorSAN.ENROQUE_LARGO;
+    }
+
+    /**
+     * Añade a un código la marca de jaque o de jaque mate
+     * @param codigo Código de la jugada
+     * @param mate true para marcar jaque mate, false para jaque
+     * @return Código con la marca
+     */
+    public static int conJaque(int codigo, boolean mate) {
+        return codigo | (mate ? BIT_MATE : BIT_JAQUE);
+    }
+
+    /**
+     * Obtiene el tipo de jugada
+     * @param codigo Código de la jugada
+     * @return Tipo según las constantes de ValidadorSAN
+     */
+    public static int tipo(int codigo) {
+        return codigo & ValidadorSAN.MASCARA_TIPO;
+    }
+
+    /**
+     * Obtiene la pieza que mueve
+     * @param codigo Código de la jugada
+     * @return REY ... PEON, o 0 si es un enroque
+     */
+    public static int pieza(int codigo) {
+        return (codigo >>> DESPLAZAMIENTO_PIEZA) & 0x7;
+    }
+
+    /**
+     * Obtiene la casilla destino
+     * @param codigo Código de la jugada
+     * @return Casilla de 0 (a1) a 63 (h8); no tiene sentido en los enroques
+     */
+    public static int destino(int codigo) {
+        return (codigo >>> DESPLAZAMIENTO_DESTINO) & 0x3F;
+    }
+
+    /**
+     * Obtiene la columna de origen indicada en la desambiguación
+     * @param codigo Código de la jugada
+     * @return Columna de 0 (a) a 7 (h), o -1 si no se indica
+     */
+    public static int columnaOrigen(int codigo) {
+        int d1 = desambiguacion1(codigo);
+        int d2 = desambiguacion2(codigo);
+        if (d1 >= 1 && d1 <= 8) {
+            return d1 - 1;
+        }
+        return d2 >= 1 && d2 <= 8 ? d2 - 1 : -1;
+    }
+
+    /**
+     * Obtiene la fila de origen indicada en la desambiguación
+     * @param codigo Código de la jugada
+     * @return Fila de 0 (1) a 7 (8), o -1 si no se indica
+     */
+    public static int filaOrigen(int codigo) {
+        int d1 = desambiguacion1(codigo);
+        int d2 = desambiguacion2(codigo);
+        if (d1 >= 9) {
+            return d1 - 9;
+        }
+        return d2 >= 9 ? d2 - 9 : -1;
+    }
+
+    /**
+     * Obtiene la pieza a la que corona un peón
+     * @param codigo Código de la jugada
+     * @return DAMA, TORRE, ALFIL o CABALLO, o 0 si no hay coronación
+     */
+    public static int coronacion(int codigo) {
+        return (codigo >>> DESPLAZAMIENTO_CORONACION) & 0x7;
+    }
+
+    /**
+     * Indica si la jugada es una captura
+     * @param codigo Código de la jugada
+     * @return true si la notación incluye "x"
+     */
+    public static boolean esCaptura(int codigo) {
+        return (codigo & BIT_CAPTURA) != 0;
+    }
+
+    /**
+     * Indica si la jugada está anotada como jaque
+     * @param codigo Código de la jugada
+     * @return true si la notación termina en "+"
+     */
+    public static boolean esJaque(int codigo) {
+        return (codigo & BIT_JAQUE) != 0;
+    }
+
+    /**
+     * Indica si la jugada está anotada como jaque mate
+     * @param codigo Código de la jugada
+     * @return true si la notación termina en "#"
+     */
+    public static boolean esMate(int codigo) {
+        return (codigo & BIT_MATE) != 0;
+    }
+
+    /**
+     * Escribe la notación SAN de una jugada en un arreglo de caracteres
+     * @param codigo Código de la jugada
+     * @param destino Arreglo donde se escribe; debe tener sitio para LONGITUD_MAXIMA caracteres
+     * @param posicion Posición donde se empieza a escribir
+     * @return Posición siguiente al último carácter escrito
+     */
+    public static int escribir(int codigo, char[] destino, int posicion) {
+        int tipo = tipo(codigo);
+        if (tipo == ValidadorSAN.ENROQUE_CORTO || tipo == ValidadorSAN.ENROQUE_LARGO) {
+            destino[posicion++] = 'O';
+            destino[posicion++] = '-';
+            destino[posicion++] = 'O';
+            if (tipo == ValidadorSAN.ENROQUE_LARGO) {
+                destino[posicion++] = '-';
+                destino[posicion++] = 'O';
+            }
+            return posicion;
+        }
+        if (tipo == ValidadorSAN.MOVIMIENTO_PIEZA) {
+            destino[posicion++] = LETRAS_PIEZA.charAt(pieza(codigo));
+        }
+        int d1 = desambiguacion1(codigo);
+        if (d1 != 0) {
+            destino[posicion++] = caracterDesambiguacion(d1);
+        }
+        int d2 = desambiguacion2(codigo);
+        if (d2 != 0) {
+            destino[posicion++] = caracterDesambiguacion(d2);
+        }
+        if (esCaptura(codigo)) {
+            destino[posicion++] = 'x';
+        }
+        int casilla = destino(codigo);
+        destino[posicion++] = (char) ('a' + (casilla & 7));
+        destino[posicion++] = (char) ('1' + (casilla >>> 3));
+        int coronacion = coronacion(codigo);
+        if (coronacion != 0) {
+            destino[posicion++] = '=';
+            destino[posicion++] = LETRAS_PIEZA.charAt(coronacion);
+        }
+        if (esJaque(codigo)) {
+            destino[posicion++] = '+';
+        } else if (esMate(codigo)) {
+            destino[posicion++] = '#';
+        }
+        return posicion;
+    }
+
+    /**
+     * Añade la notación SAN de una jugada a un StringBuilder
+     * @param codigo Código de la jugada
+     * @param sb Destino
+     */
+    public static void escribir(int codigo, StringBuilder sb) {
+        char[] caracteres = new char[LONGITUD_MAXIMA];
+        sb.append(caracteres, 0, escribir(codigo, caracteres, 0));
+    }
+
+    /**
+     * Obtiene la notación SAN de una jugada
+     * @param codigo Código de la jugada
+     * @return Notación de la jugada
+     */
+    public static String aNotacion(int codigo) {
+        char[] caracteres = new char[LONGITUD_MAXIMA];
+        return new String(caracteres, 0, escribir(codigo, caracteres, 0));
+    }
+
+    /**
+     * Obtiene la letra de una pieza
+     * @param pieza REY ... PEON
+     * @return Letra en notación inglesa: K, Q, R, B, N o P
+     */
+    public static char letraPieza(int pieza) {
+        return LETRAS_PIEZA.charAt(pieza);
+    }
+
+    private static int desambiguacion1(int codigo) {
+        return (codigo >>> DESPLAZAMIENTO_DESAMBIGUACION_1) & 0x1F;
+    }
+
+    private static int desambiguacion2(int codigo) {
+        return (codigo >>> DESPLAZAMIENTO_DESAMBIGUACION_2) & 0x1F;
+    }
+
+    private static int pieza(char letra) {
+        return LETRAS_PIEZA.indexOf(letra);
+    }
+
+    private static int desambiguacion(char c) {
+        return c >= 'a' && c <= 'h' ? c - 'a' + 1 : c - '1' + 9;
+    }
+
+    private static char caracterDesambiguacion(int valor) {
+        return valor <= 8 ? (char) ('a' + valor - 1) : (char) ('1' + valor - 9);
+    }
+}
@@ -0,0 +1,120 @@
+package modelo;
+
+/**
+ * Error encontrado al analizar una partida, con su posición exacta en el texto
+ */
+public class Diagnostico {
+
+    // Color de la jugada a la que se refiere el error
+    public static final int SIN_COLOR = -1;
+    public static final int BLANCAS = 0;
+    public static final int NEGRAS = 1;
+
+    private final CodigoError codigo;
+    private final int turno;
+    private final int color;
+    private final int desplazamiento;
+    private final int longitud;
+    private final String texto;
+
+    /**
+     * Constructor
+     * @param codigo Tipo de error
+     * @param turno Número del turno, o -1 si no se conoce o no cabe en un entero
+     * @param color BLANCAS, NEGRAS o SIN_COLOR
+     * @param desplazamiento Posición del primer carácter erróneo, contada desde el inicio de la partida, o -1
+     * @param longitud Número de caracteres erróneos
+     * @param texto Texto erróneo, por ejemplo la jugada inválida
+     */
+    public Diagnostico(CodigoError codigo, int turno, int color, int desplazamiento, int longitud, String texto) {
+        this.codigo = codigo;
+        this.turno = turno;
+        this.color = color;
+        this.desplazamiento = desplazamiento;
+        this.longitud = longitud;
+        this.texto = texto;
+    }
+
+    /**
+     * Obtiene el tipo de error
+     * @return Código de error
+     */
+    public CodigoError getCodigo() {
+        return codigo;
+    }
+
+    /**
+     * Obtiene el número del turno donde está el error
+     * @return Número de turno, o -1 si no se conoce
+     */
+    public int getTurno() {
+        return turno;
+    }
+
+    /**
+     * Obtiene el color de la jugada errónea
+     * @return BLANCAS, NEGRAS o SIN_COLOR
+     */
+    public int getColor() {
+        return color;
+    }
+
+    /**
+     * Obtiene la posición del error
+     * @return Posición del primer carácter erróneo desde el inicio de la partida, o -1
+     */
+    public int getDesplazamiento() {
+        return desplazamiento;
+    }
+
+    /**
+     * Obtiene la longitud del texto erróneo
+     * @return Número de caracteres
+     */
+    public int getLongitud() {
+        return longitud;
+    }
+
+    /**
+     * Obtiene el texto erróneo
+     * @return Texto tal como aparece en la partida
+     */
+    public String getTexto() {
+        return texto;
+    }
+
+    /**
+     * Describe el error con el mismo mensaje que da el análisis sintáctico
+     * @return Mensaje de error
+     */
+    public String getMensaje() {
+        switch (codigo) {
+            case NUMERO_TURNO_INVALIDO:
+                return "Número de turno inválido: " + (turno >= 0 ? String.valueOf(turno) : texto);
+            case JUGADA_BLANCA_INVALIDA:
+                return "Jugada blanca inválida " + lugar() + ": " + texto;
+            case JUGADA_NEGRA_INVALIDA:
+                return "Jugada negra inválida " + lugar() + ": " + texto;
+            case TEXTO_NO_RECONOCIDO:
+                return "Texto no reconocido en la posición " + desplazamiento + ": " + texto;
+            case FALTA_JUGADA_BLANCA:
+                return "Falta la jugada blanca del turno " + (turno >= 0 ? String.valueOf(turno) : texto);
+            case SIMBOLO_INESPERADO:
+                return texto.isEmpty()
+                        ? "La partida termina de forma incompleta en la posición " + desplazamiento
+                        : "Símbolo inesperado en la posición " + desplazamiento + ": " + texto;
+            default:
+                return "No se encontraron turnos válidos en la partida.";
+        }
+    }
+
+    // Las jugadas de un turno con número inválido se sitúan por su posición en el texto
+    private String lugar() {
+        return turno > 0 ? "en turno " + turno : "en la posición " + desplazamiento;
+    }
+
+    @Override
+    public String toString() {
+        return desplazamiento >= 0 ? getMensaje() + " (posición " + desplazamiento + ")" : getMensaje();
+    }
+}
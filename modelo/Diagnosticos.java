@@ -0,0 +1,130 @@
+package modelo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Buffer reutilizable donde el análisis anota los errores de una partida sin
+ * lanzar excepciones ni crear objetos: cada error ocupa una posición en varios
+ * arreglos de enteros. Los Diagnostico se crean solo cuando se piden.
+ *
+ * Guarda una referencia al texto analizado para poder copiar después el texto
+ * erróneo, así que debe leerse antes de reutilizarlo con otra partida.
+ */
+public class Diagnosticos {
+
+    private static final int CAPACIDAD_INICIAL = 4;
+
+    private CharSequence texto;
+    private int inicioTexto;
+    private int numero;
+    private int[] codigos = new int[CAPACIDAD_INICIAL];
+    private int[] turnos = new int[CAPACIDAD_INICIAL];
+    private int[] colores = new int[CAPACIDAD_INICIAL];
+    private int[] inicios = new int[CAPACIDAD_INICIAL];
+    private int[] longitudes = new int[CAPACIDAD_INICIAL];
+
+    /**
+     * Vacía el buffer para anotar los errores de otra partida
+     * @param texto Texto que se va a analizar
+     * @param inicio Posición del primer carácter de la partida dentro del texto
+     */
+    public void reiniciar(CharSequence texto, int inicio) {
+        this.texto = texto;
+        this.inicioTexto = inicio;
+        this.numero = 0;
+    }
+
+    /**
+     * Anota un error
+     * @param codigo Tipo de error
+     * @param turno Número de turno, o -1 si no se conoce
+     * @param color Diagnostico.BLANCAS, Diagnostico.NEGRAS o Diagnostico.SIN_COLOR
+     * @param inicio Posición del texto erróneo dentro del texto analizado, o -1
+     * @param longitud Número de caracteres erróneos
+     */
+    public void agregar(CodigoError codigo, int turno, int color, int inicio, int longitud) {
+        if (numero == codigos.length) {
+            int capacidad = numero * 2;
+            codigos = Arrays.copyOf(codigos, capacidad);
+            turnos = Arrays.copyOf(turnos, capacidad);
+            colores = Arrays.copyOf(colores, capacidad);
+            inicios = Arrays.copyOf(inicios, capacidad);
+            longitudes = Arrays.copyOf(longitudes, capacidad);
+        }
+        codigos[numero] = codigo.ordinal();
+        turnos[numero] = turno;
+        colores[numero] = color;
+        inicios[numero] = inicio;
+        longitudes[numero] = longitud;
+        numero++;
+    }
+
+    /**
+     * Obtiene el número de errores anotados
+     * @return Número de errores
+     */
+    public int getNumero() {
+        return numero;
+    }
+
+    /**
+     * Indica si no se anotó ningún error
+     * @return true si la partida no tiene errores
+     */
+    public boolean estaVacio() {
+        return numero == 0;
+    }
+
+    /**
+     * Obtiene el tipo de un error
+     * @param indice Posición del error, en el orden en que se anotó
+     * @return Código de error
+     */
+    public CodigoError getCodigo(int indice) {
+        return CodigoError.deOrdinal(codigos[indice]);
+    }
+
+    /**
+     * Obtiene el turno de un error
+     * @param indice Posición del error
+     * @return Número de turno, o -1 si no se conoce
+     */
+    public int getTurno(int indice) {
+        return turnos[indice];
+    }
+
+    /**
+     * Obtiene la posición de un error contada desde el inicio de la partida
+     * @param indice Posición del error
+     * @return Desplazamiento en caracteres, o -1
+     */
+    public int getDesplazamiento(int indice) {
+        return inicios[indice] < 0 ? -1 : inicios[indice] - inicioTexto;
+    }
+
+    /**
+     * Crea el diagnóstico de un error, copiando el texto erróneo
+     * @param indice Posición del error
+     * @return Diagnóstico independiente del buffer
+     */
+    public Diagnostico get(int indice) {
+        String erroneo = inicios[indice] < 0 ? ""
+                : texto.subSequence(inicios[indice], inicios[indice] + longitudes[indice]).toString();
+        return new Diagnostico(getCodigo(indice), turnos[indice], colores[indice],
+                getDesplazamiento(indice), longitudes[indice], erroneo);
+    }
+
+    /**
+     * Crea los diagnósticos de todos los errores anotados
+     * @return Lista nueva, independiente del buffer
+     */
+    public List<Diagnostico> aLista() {
+        List<Diagnostico> lista = new ArrayList<>(numero);
+        for (int i = 0; i < numero; i++) {
+            lista.add(get(i));
+        }
+        return lista;
+    }
+}
@@ -0,0 +1,156 @@
+package modelo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Escribe partidas ya validadas en el formato binario de ArchivoPartidas.
+ *
+ * Las partidas se escriben una tras otra según llegan, por un buffer de tamaño
+ * fijo, así que la memoria no depende del número de partidas salvo por el
+ * índice de posiciones (8 bytes por partida), que se escribe al cerrar.
+ * Hasta llamar a close el archivo no tiene índice y no se puede abrir.
+ */
+public class EscritorArchivoPartidas implements Closeable {
+
+    private static final int TAMANO_BUFFER = 1 << 16;
+
+    private final FileChannel canal;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANO_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+    private long[] posiciones = new long[1024];
+    private long numeroPartidas;
+    private long posicion;
+    private int longitudMaxima;
+    private boolean cerrado;
+
+    /**
+     * Crea el archivo, o lo vacía si ya existe
+     * @param archivo Ruta del archivo
+     * @throws IOException Si no se puede crear
+     */
+    public EscritorArchivoPartidas(Path archivo) throws IOException {
+        canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        buffer.putLong(ArchivoPartidas.MAGICO);
+        posicion = Long.BYTES;
+    }
+
+    /**
+     * Agrega una partida al final del archivo
+     * @param partida Partida con jugadas válidas
+     * @return Índice de la partida en el archivo, empezando en 0
+     * @throws IOException Si no se puede escribir
+     * @throws IllegalArgumentException Si alguna jugada no es SAN válida
+     */
+    public long agregar(Partida partida) throws IOException {
+        if (cerrado) {
+            throw new IllegalStateException("El archivo ya está cerrado");
+        }
+        PartidaCompacta compacta = PartidaCompacta.desde(partida);
+        int turnos = compacta.getNumeroTurnos();
+        int jugadas = compacta.getNumeroJugadas();
+        boolean explicita = !numeracionImplicita(compacta);
+        long enteros = (long) jugadas + (explicita ? 2L * turnos : 0);
+        long longitud = ArchivoPartidas.CABECERA_PARTIDA + enteros * Integer.BYTES;
+        if (longitud >= ArchivoPartidas.TAMANO_SEGMENTO) {
+            throw new IllegalArgumentException("Partida demasiado larga: " + jugadas + " jugadas");
+        }
+
+        if (numeroPartidas == posiciones.length) {
+            posiciones = Arrays.copyOf(posiciones, posiciones.length * 2);
+        }
+        posiciones[(int) numeroPartidas] = posicion;
+        longitudMaxima = Math.max(longitudMaxima, (int) longitud);
+
+        asegurar(ArchivoPartidas.CABECERA_PARTIDA);
+        // La longitud no cuenta el propio entero que la guarda
+        buffer.putInt((int) longitud - Integer.BYTES);
+        buffer.put((byte) compacta.getResultado());
+        buffer.put((byte) (explicita ? ArchivoPartidas.NUMERACION_EXPLICITA : 0));
+        buffer.putShort((short) 0);
+        buffer.putInt(turnos);
+        buffer.putInt(jugadas);
+        for (int i = 0; i < jugadas; i++) {
+            asegurar(Integer.BYTES);
+            buffer.putInt(compacta.getCodigoJugada(i));
+        }
+        if (explicita) {
+            for (int t = 0; t < turnos; t++) {
+                asegurar(2 * Integer.BYTES);
+                buffer.putInt(compacta.getNumeroTurno(t));
+                buffer.putInt(compacta.getPrimeraJugada(t));
+            }
+        }
+        posicion += longitud;
+        return numeroPartidas++;
+    }
+
+    /**
+     * Obtiene cuántas partidas se han escrito
+     * @return Número de partidas
+     */
+    public long getNumeroPartidas() {
+        return numeroPartidas;
+    }
+
+    /**
+     * Escribe el índice y el pie del archivo y lo cierra
+     * @throws IOException Si no se puede escribir
+     */
+    @Override
+    public void close() throws IOException {
+        if (cerrado) {
+            return;
+        }
+        cerrado = true;
+        try {
+            long posicionIndice = posicion;
+            for (long i = 0; i < numeroPartidas; i++) {
+                asegurar(Long.BYTES);
+                buffer.putLong(posiciones[(int) i]);
+            }
+            asegurar(ArchivoPartidas.PIE);
+            buffer.putLong(posicionIndice);
+            buffer.putLong(numeroPartidas);
+            buffer.putLong(longitudMaxima);
+            buffer.putLong(ArchivoPartidas.MAGICO);
+            vaciar();
+        } finally {
+            canal.close();
+        }
+    }
+
+    // La numeración es la habitual si el turno t es el t+1 y empieza en la jugada 2t
+    private static boolean numeracionImplicita(PartidaCompacta partida) {
+        int turnos = partida.getNumeroTurnos();
+        if (partida.getNumeroJugadas() < 2 * turnos - 1) {
+            return false;
+        }
+        for (int t = 0; t < turnos; t++) {
+            if (partida.getNumeroTurno(t) != t + 1 || partida.getPrimeraJugada(t) != 2 * t) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void asegurar(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            vaciar();
+        }
+    }
+
+    private void vaciar() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.clear();
+    }
+}
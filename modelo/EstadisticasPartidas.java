@@ -0,0 +1,357 @@
+package modelo;
+
+import util.ValidadorSAN;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Estadísticas agregadas de muchas partidas: jugadas por pieza, tasas de
+ * capturas, jaques, mates y coronaciones, enroques por flanco, resultados y
+ * distribución de la longitud de las partidas.
+ *
+ * Todo sale de los códigos de CodigoJugada, que ya guardan el tipo de jugada
+ * que reconoce ValidadorSAN, la pieza y las marcas de captura, coronación,
+ * jaque y mate, así que no se mira la notación de ninguna jugada. Los contadores
+ * son arreglos de long indexados por color y pieza.
+ *
+ * No es segura entre hilos: cada hilo llena la suya y al final se combinan con
+ * combinar(), que es como las usan calcular() y los recorridos en paralelo.
+ */
+public class EstadisticasPartidas {
+
+    public static final int BLANCAS = 0;
+    public static final int NEGRAS = 1;
+
+    // Las partidas de más turnos se cuentan juntas en la última cubeta
+    public static final int TURNOS_MAXIMOS = 300;
+
+    private static final String[] NOMBRES_PIEZA = {"", "Rey", "Dama", "Torre", "Alfil", "Caballo", "Peón"};
+    private static final String[] NOMBRES_COLOR = {"Blancas", "Negras"};
+
+    private long partidas;
+    // Por resultado de Partida: desconocido, blancas, negras, tablas
+    private final long[] resultados = new long[4];
+    // Partidas por número de turnos
+    private final long[] longitudes = new long[TURNOS_MAXIMOS + 1];
+    private long turnos;
+
+    // Por color
+    private final long[] jugadas = new long[2];
+    private final long[] capturas = new long[2];
+    private final long[] jaques = new long[2];
+    private final long[] mates = new long[2];
+    private final long[] coronaciones = new long[2];
+    private final long[] enroquesCortos = new long[2];
+    private final long[] enroquesLargos = new long[2];
+    // Por color * 8 + pieza de CodigoJugada
+    private final long[] porPieza = new long[16];
+    private final long[] capturasPorPieza = new long[16];
+    // Por pieza a la que se corona
+    private final long[] coronacionesPorPieza = new long[8];
+    // Por casilla destino, a1 = 0
+    private final long[] destinos = new long[64];
+
+    /**
+     * Calcula las estadísticas de una colección de partidas repartiéndola entre
+     * los hilos del pool común
+     * @param partidas Partidas válidas
+     * @return Estadísticas de todas las partidas
+     */
+    public static EstadisticasPartidas calcular(Collection<? extends Partida> partidas) {
+        return partidas.parallelStream().collect(EstadisticasPartidas::new,
+                EstadisticasPartidas::agregar, EstadisticasPartidas::combinar);
+    }
+
+    /**
+     * Suma una partida. El color de cada jugada y el número de turnos salen de
+     * los turnos de la partida, porque cualquier turno puede quedarse sin
+     * jugada negra
+     * @param partida Partida válida
+     */
+    public void agregar(Partida partida) {
+        if (partida instanceof PartidaCompacta) {
+            // Los turnos de la partida compacta se recorren sin crear objetos Turno
+            PartidaCompacta compacta = (PartidaCompacta) partida;
+            int numeroTurnos = compacta.getNumeroTurnos();
+            for (int t = 0; t < numeroTurnos; t++) {
+                int primera = compacta.getPrimeraJugada(t);
+                agregarJugada(compacta.getCodigoJugada(primera), BLANCAS);
+                if (compacta.finTurno(t) - primera == 2) {
+                    agregarJugada(compacta.getCodigoJugada(primera + 1), NEGRAS);
+                }
+            }
+            terminarPartida(numeroTurnos, partida.getResultado());
+            return;
+        }
+        List<Turno> turnosPartida = partida.getTurnos();
+        int indice = 0;
+        for (Turno turno : turnosPartida) {
+            agregarJugada(partida.getCodigoJugada(indice++), BLANCAS);
+            if (turno.getJugadaNegra() != null) {
+                agregarJugada(partida.getCodigoJugada(indice++), NEGRAS);
+            }
+        }
+        terminarPartida(turnosPartida.size(), partida.getResultado());
+    }
+
+    /**
+     * Suma una jugada suelta
+     * @param codigo Código de CodigoJugada; se ignora si es CodigoJugada.NINGUNA
+     * @param color BLANCAS o NEGRAS
+     */
+    public void agregarJugada(int codigo, int color) {
+        if (codigo == CodigoJugada.NINGUNA) {
+            return;
+        }
+        jugadas[color]++;
+        int tipo = CodigoJugada.tipo(codigo);
+        if (tipo == ValidadorSAN.ENROQUE_CORTO) {
+            enroquesCortos[color]++;
+        } else if (tipo == ValidadorSAN.ENROQUE_LARGO) {
+            enroquesLargos[color]++;
+        } else {
+            int indice = color * 8 + CodigoJugada.pieza(codigo);
+            porPieza[indice]++;
+            destinos[CodigoJugada.destino(codigo)]++;
+            if (CodigoJugada.esCaptura(codigo)) {
+                capturas[color]++;
+                capturasPorPieza[indice]++;
+            }
+            int coronacion = CodigoJugada.coronacion(codigo);
+            if (coronacion != 0) {
+                coronaciones[color]++;
+                coronacionesPorPieza[coronacion]++;
+            }
+        }
+        if (CodigoJugada.esMate(codigo)) {
+            mates[color]++;
+        } else if (CodigoJugada.esJaque(codigo)) {
+            jaques[color]++;
+        }
+    }
+
+    /**
+     * Cierra una partida cuyas jugadas se sumaron con agregarJugada
+     * @param numeroTurnos Número de turnos de la partida
+     * @param resultado Resultado de Partida
+     */
+    public void terminarPartida(int numeroTurnos, int resultado) {
+        partidas++;
+        turnos += numeroTurnos;
+        longitudes[Math.min(numeroTurnos, TURNOS_MAXIMOS)]++;
+        resultados[resultado]++;
+    }
+
+    /**
+     * Suma a estas estadísticas las de otra parte del corpus
+     * @param otra Estadísticas de otras partidas; no se modifican
+     */
+    public void combinar(EstadisticasPartidas otra) {
+        partidas += otra.partidas;
+        turnos += otra.turnos;
+        sumar(resultados, otra.resultados);
+        sumar(longitudes, otra.longitudes);
+        sumar(jugadas, otra.jugadas);
+        sumar(capturas, otra.capturas);
+        sumar(jaques, otra.jaques);
+        sumar(mates, otra.mates);
+        sumar(coronaciones, otra.coronaciones);
+        sumar(enroquesCortos, otra.enroquesCortos);
+        sumar(enroquesLargos, otra.enroquesLargos);
+        sumar(porPieza, otra.porPieza);
+        sumar(capturasPorPieza, otra.capturasPorPieza);
+        sumar(coronacionesPorPieza, otra.coronacionesPorPieza);
+        sumar(destinos, otra.destinos);
+    }
+
+    private static void sumar(long[] destino, long[] origen) {
+        for (int i = 0; i < destino.length; i++) {
+            destino[i] += origen[i];
+        }
+    }
+
+    /**
+     * Obtiene el número de partidas sumadas
+     * @return Número de partidas
+     */
+    public long getPartidas() {
+        return partidas;
+    }
+
+    /**
+     * Obtiene el número de partidas con un resultado
+     * @param resultado Resultado de Partida
+     * @return Número de partidas
+     */
+    public long getResultados(int resultado) {
+        return resultados[resultado];
+    }
+
+    /**
+     * Obtiene el número de jugadas de un color
+     * @param color BLANCAS o NEGRAS
+     * @return Número de jugadas
+     */
+    public long getJugadas(int color) {
+        return jugadas[color];
+    }
+
+    /**
+     * Obtiene el número de jugadas de una pieza, sin contar los enroques
+     * @param color BLANCAS o NEGRAS
+     * @param pieza Pieza de CodigoJugada (REY ... PEON)
+     * @return Número de jugadas
+     */
+    public long getJugadasPieza(int color, int pieza) {
+        return porPieza[color * 8 + pieza];
+    }
+
+    /**
+     * Obtiene el número de capturas hechas por una pieza
+     * @param color BLANCAS o NEGRAS
+     * @param pieza Pieza de CodigoJugada (REY ... PEON)
+     * @return Número de capturas
+     */
+    public long getCapturasPieza(int color, int pieza) {
+        return capturasPorPieza[color * 8 + pieza];
+    }
+
+    /**
+     * Obtiene el número de capturas de un color
+     * @param color BLANCAS o NEGRAS
+     * @return Número de capturas
+     */
+    public long getCapturas(int color) {
+        return capturas[color];
+    }
+
+    /**
+     * Obtiene el número de jaques de un color, sin contar los mates
+     * @param color BLANCAS o NEGRAS
+     * @return Número de jaques
+     */
+    public long getJaques(int color) {
+        return jaques[color];
+    }
+
+    /**
+     * Obtiene el número de jaques mate de un color
+     * @param color BLANCAS o NEGRAS
+     * @return Número de mates
+     */
+    public long getMates(int color) {
+        return mates[color];
+    }
+
+    /**
+     * Obtiene el número de coronaciones de un color
+     * @param color BLANCAS o NEGRAS
+     * @return Número de coronaciones
+     */
+    public long getCoronaciones(int color) {
+        return coronaciones[color];
+    }
+
+    /**
+     * Obtiene el número de coronaciones a una pieza, de los dos colores
+     * @param pieza Pieza de CodigoJugada (DAMA ... CABALLO)
+     * @return Número de coronaciones
+     */
+    public long getCoronacionesPieza(int pieza) {
+        return coronacionesPorPieza[pieza];
+    }
+
+    /**
+     * Obtiene el número de enroques cortos de un color
+     * @param color BLANCAS o NEGRAS
+     * @return Número de enroques cortos
+     */
+    public long getEnroquesCortos(int color) {
+        return enroquesCortos[color];
+    }
+
+    /**
+     * Obtiene el número de enroques largos de un color
+     * @param color BLANCAS o NEGRAS
+     * @return Número de enroques largos
+     */
+    public long getEnroquesLargos(int color) {
+        return enroquesLargos[color];
+    }
+
+    /**
+     * Obtiene el número de jugadas que terminan en una casilla, sin contar los enroques
+     * @param casilla Casilla de 0 (a1) a 63 (h8)
+     * @return Número de jugadas
+     */
+    public long getDestinos(int casilla) {
+        return destinos[casilla];
+    }
+
+    /**
+     * Obtiene el número de partidas con una longitud
+     * @param numeroTurnos Número de turnos; TURNOS_MAXIMOS cuenta también las más largas
+     * @return Número de partidas
+     */
+    public long getPartidasConTurnos(int numeroTurnos) {
+        return longitudes[numeroTurnos];
+    }
+
+    /**
+     * Obtiene la longitud media de las partidas
+     * @return Turnos por partida, o 0 si no hay partidas
+     */
+    public double getTurnosMedios() {
+        return partidas == 0 ? 0 : (double) turnos / partidas;
+    }
+
+    /**
+     * Obtiene un percentil de la longitud de las partidas
+     * @param percentil Proporción entre 0 y 1, por ejemplo 0.5 para la mediana
+     * @return Número de turnos tal que esa proporción de partidas no es más larga
+     */
+    public int getPercentilTurnos(double percentil) {
+        long objetivo = (long) Math.ceil(percentil * partidas);
+        long acumulado = 0;
+        for (int i = 0; i < longitudes.length; i++) {
+            acumulado += longitudes[i];
+            if (acumulado >= objetivo && acumulado > 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        long todas = jugadas[BLANCAS] + jugadas[NEGRAS];
+        sb.append(String.format("Partidas: %d, jugadas: %d%n", partidas, todas));
+        sb.append(String.format("Resultados: 1-0 %s, 0-1 %s, 1/2-1/2 %s, sin resultado %s%n",
+                porcentaje(resultados[Partida.VICTORIA_BLANCAS], partidas),
+                porcentaje(resultados[Partida.VICTORIA_NEGRAS], partidas),
+                porcentaje(resultados[Partida.TABLAS], partidas),
+                porcentaje(resultados[Partida.RESULTADO_DESCONOCIDO], partidas)));
+        sb.append(String.format("Turnos por partida: media %.1f, mediana %d, p90 %d, p99 %d%n",
+                getTurnosMedios(), getPercentilTurnos(0.5), getPercentilTurnos(0.9), getPercentilTurnos(0.99)));
+        for (int color = BLANCAS; color <= NEGRAS; color++) {
+            long n = jugadas[color];
+            sb.append(String.format("%n%s: %d jugadas%n", NOMBRES_COLOR[color], n));
+            sb.append(String.format("  Capturas %s, jaques %s, mates %s, coronaciones %s%n",
+                    porcentaje(capturas[color], n), porcentaje(jaques[color], n),
+                    porcentaje(mates[color], n), porcentaje(coronaciones[color], n)));
+            sb.append(String.format("  Enroques: corto %d, largo %d%n", enroquesCortos[color], enroquesLargos[color]));
+            for (int pieza = CodigoJugada.REY; pieza <= CodigoJugada.PEON; pieza++) {
+                sb.append(String.format("  %-8s %10d jugadas (%s), %10d capturas%n", NOMBRES_PIEZA[pieza],
+                        porPieza[color * 8 + pieza], porcentaje(porPieza[color * 8 + pieza], n),
+                        capturasPorPieza[color * 8 + pieza]));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String porcentaje(long parte, long total) {
+        return String.format("%.2f%%", total == 0 ? 0.0 : 100.0 * parte / total);
+    }
+}
@@ -1,18 +1,35 @@
 package modelo;
 
+import util.ValidadorSAN;
+
 /**
  * Clase que representa una jugada en una partida de ajedrez
+ *
+ * Es inmutable, así que la misma instancia se puede compartir entre partidas
+ * e hilos (ver TablaJugadas).
  */
 public class Jugada {
     //Almacena la notación de la jugada, por ejemplo "e4", "Nf3", "O-O", etc.
-    private String notacion; 
+    private final String notacion;
+    // Resultado de ValidadorSAN.clasificar, calculado al crear la jugada
+    private final int clasificacion;
     
     /**
      * Constructor
      * @param notacion Notación de la jugada
      */
     public Jugada(String notacion) {
+        this(notacion, notacion == null ? ValidadorSAN.INVALIDA : ValidadorSAN.clasificar(notacion));
+    }
+
+    /**
+     * Constructor para una jugada ya clasificada
+     * @param notacion Notación de la jugada
+     * @param clasificacion Resultado de ValidadorSAN.clasificar sobre la notación
+     */
+    public Jugada(String notacion, int clasificacion) {
         this.notacion = notacion;
+        this.clasificacion = clasificacion;
     }
     
     /**
@@ -22,6 +39,25 @@ public class Jugada {
     public String getNotacion() {
         return notacion;
     }
-    
-   
-}
\ No newline at end of file
+
+    /**
+     * Obtiene el tipo y las banderas de la jugada
+     * @return Resultado de ValidadorSAN.clasificar, o ValidadorSAN.INVALIDA
+     */
+    public int getClasificacion() {
+        return clasificacion;
+    }
+
+    /**
+     * Verifica si la jugada es válida según la gramática SAN
+     * @return true si la jugada es válida
+     */
+    public boolean esValida() {
+        return getClasificacion() != ValidadorSAN.INVALIDA;
+    }
+
+    @Override
+    public String toString() {
+        return notacion;
+    }
+}
@@ -1,14 +1,24 @@
 package modelo;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Clase que representa una partida de ajedrez
  */
 public class Partida {
+    // Resultados de la partida
+    public static final int RESULTADO_DESCONOCIDO = 0;
+    public static final int VICTORIA_BLANCAS = 1;
+    public static final int VICTORIA_NEGRAS = 2;
+    public static final int TABLAS = 3;
+
     //Creo la lista de turnos 
     private List<Turno> turnos;
+    // Códigos de las jugadas, calculados la primera vez que se piden
+    private int[] codigos;
+    private int resultado = RESULTADO_DESCONOCIDO;
     
     /**
      * Constructor
@@ -25,6 +35,7 @@ public class Partida {
      //Funcion para agrepgar un turno a la lista de turnos
     public void agregarTurno(Turno turno) {
         turnos.add(turno);
+        codigos = null;
     }
     
     /**
@@ -34,6 +45,124 @@ public class Partida {
     public List<Turno> getTurnos() {
         return turnos;
     }
+
+    /**
+     * Obtiene el número de turnos
+     * @return Número de turnos
+     */
+    public int getNumeroTurnos() {
+        return turnos.size();
+    }
+
+    /**
+     * Obtiene el número con el que se escribió un turno
+     * @param indice Posición del turno, empezando en 0
+     * @return Número del turno
+     */
+    public int getNumeroTurno(int indice) {
+        return turnos.get(indice).getNumero();
+    }
+
+    /**
+     * Indica si un turno tiene jugada negra
+     * @param indice Posición del turno, empezando en 0
+     * @return true si el turno tiene las dos jugadas
+     */
+    public boolean tieneJugadaNegra(int indice) {
+        return turnos.get(indice).getJugadaNegra() != null;
+    }
+
+    /**
+     * Obtiene el resultado de la partida
+     * @return RESULTADO_DESCONOCIDO, VICTORIA_BLANCAS, VICTORIA_NEGRAS o TABLAS
+     */
+    public int getResultado() {
+        return resultado;
+    }
+
+    /**
+     * Establece el resultado de la partida
+     * @param resultado RESULTADO_DESCONOCIDO, VICTORIA_BLANCAS, VICTORIA_NEGRAS o TABLAS
+     */
+    public void setResultado(int resultado) {
+        this.resultado = resultado;
+    }
+
+    /**
+     * Interpreta la marca de resultado con que termina una partida ("1-0", "0-1", "1/2-1/2" o "*")
+     * @param texto Texto que contiene la marca
+     * @param inicio Posición del primer carácter
+     * @param longitud Número de caracteres
+     * @return Resultado correspondiente, o RESULTADO_DESCONOCIDO si no es una marca de resultado
+     */
+    public static int leerResultado(CharSequence texto, int inicio, int longitud) {
+        if (longitud == 3 && texto.charAt(inicio + 1) == '-') {
+            char blancas = texto.charAt(inicio);
+            char negras = texto.charAt(inicio + 2);
+            if (blancas == '1' && negras == '0') {
+                return VICTORIA_BLANCAS;
+            }
+            if (blancas == '0' && negras == '1') {
+                return VICTORIA_NEGRAS;
+            }
+        } else if (longitud == 7) {
+            String tablas = "1/2-1/2";
+            for (int i = 0; i < 7; i++) {
+                if (texto.charAt(inicio + i) != tablas.charAt(i)) {
+                    return RESULTADO_DESCONOCIDO;
+                }
+            }
+            return TABLAS;
+        }
+        return RESULTADO_DESCONOCIDO;
+    }
+
+    /**
+     * Obtiene la marca de un resultado, la inversa de leerResultado
+     * @param resultado Uno de VICTORIA_BLANCAS, VICTORIA_NEGRAS o TABLAS
+     * @return "1-0", "0-1" o "1/2-1/2", o null si el resultado es desconocido
+     */
+    public static String marcaResultado(int resultado) {
+        switch (resultado) {
+            case VICTORIA_BLANCAS: return "1-0";
+            case VICTORIA_NEGRAS: return "0-1";
+            case TABLAS: return "1/2-1/2";
+            default: return null;
+        }
+    }
+
+    /**
+     * Obtiene el número de jugadas de la partida, sumando blancas y negras
+     * @return Número de jugadas
+     */
+    public int getNumeroJugadas() {
+        return codigos().length;
+    }
+
+    /**
+     * Obtiene una jugada codificada con CodigoJugada
+     * @param indice Posición de la jugada, empezando en 0 con la primera jugada blanca
+     * @return Código de la jugada, o CodigoJugada.NINGUNA si su notación no es válida
+     */
+    public int getCodigoJugada(int indice) {
+        return codigos()[indice];
+    }
+
+    // Los códigos se calculan a partir de los turnos agregados hasta el momento
+    private int[] codigos() {
+        if (codigos == null) {
+            int[] calculados = new int[turnos.size() * 2];
+            int n = 0;
+            for (Turno turno : turnos) {
+                calculados[n++] = CodigoJugada.codificar(turno.getJugadaBlanca().getNotacion());
+                if (turno.getJugadaNegra() != null) {
+                    calculados[n++] = CodigoJugada.codificar(turno.getJugadaNegra().getNotacion());
+                }
+            }
+            codigos = Arrays.copyOf(calculados, n);
+        }
+        return codigos;
+    }
     
     @Override
     public String toString() {
@@ -0,0 +1,205 @@
+package modelo;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Partida que guarda sus jugadas como códigos de CodigoJugada en arreglos de
+ * enteros que crecen según se necesita, en lugar de un Turno y dos Jugada por
+ * turno. Los objetos Turno y Jugada solo se crean cuando alguien los pide con
+ * getTurnos(), y son vistas de solo lectura.
+ */
+public class PartidaCompacta extends Partida {
+
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    // Jugadas consecutivas, blancas y negras intercaladas
+    private int[] jugadas;
+    private int numeroJugadas;
+    // Por cada turno: su número y la posición de su jugada blanca en jugadas
+    private int[] turnos;
+    private int numeroTurnos;
+
+    /**
+     * Constructor
+     */
+    public PartidaCompacta() {
+        this.jugadas = new int[CAPACIDAD_INICIAL];
+        this.turnos = new int[CAPACIDAD_INICIAL];
+    }
+
+    // Usa directamente los arreglos leídos del archivo binario, sin copiarlos
+    PartidaCompacta(int[] jugadas, int numeroJugadas, int[] turnos, int numeroTurnos) {
+        this.jugadas = jugadas;
+        this.numeroJugadas = numeroJugadas;
+        this.turnos = turnos;
+        this.numeroTurnos = numeroTurnos;
+    }
+
+    /**
+     * Crea la versión compacta de una partida
+     * @param partida Partida con jugadas válidas
+     * @return Partida compacta equivalente
+     */
+    public static PartidaCompacta desde(Partida partida) {
+        if (partida instanceof PartidaCompacta) {
+            return (PartidaCompacta) partida;
+        }
+        PartidaCompacta compacta = new PartidaCompacta();
+        for (Turno turno : partida.getTurnos()) {
+            compacta.agregarTurno(turno);
+        }
+        compacta.setResultado(partida.getResultado());
+        return compacta;
+    }
+
+    /**
+     * Agrega un turno a la partida codificando sus jugadas
+     * @param turno Turno a agregar
+     * @throws IllegalArgumentException Si alguna jugada no es SAN válida
+     */
+    @Override
+    public void agregarTurno(Turno turno) {
+        int blanca = codificar(turno.getJugadaBlanca());
+        int negra = turno.getJugadaNegra() != null ? codificar(turno.getJugadaNegra()) : CodigoJugada.NINGUNA;
+        agregarTurno(turno.getNumero(), blanca, negra);
+    }
+
+    /**
+     * Agrega un turno con sus jugadas ya codificadas
+     * @param numero Número del turno
+     * @param blanca Código de la jugada blanca
+     * @param negra Código de la jugada negra, o CodigoJugada.NINGUNA si no hay
+     */
+    public void agregarTurno(int numero, int blanca, int negra) {
+        if (numeroTurnos * 2 == turnos.length) {
+            turnos = Arrays.copyOf(turnos, turnos.length * 2);
+        }
+        if (numeroJugadas + 2 > jugadas.length) {
+            jugadas = Arrays.copyOf(jugadas, jugadas.length * 2);
+        }
+        turnos[numeroTurnos * 2] = numero;
+        turnos[numeroTurnos * 2 + 1] = numeroJugadas;
+        numeroTurnos++;
+        jugadas[numeroJugadas++] = blanca;
+        if (negra != CodigoJugada.NINGUNA) {
+            jugadas[numeroJugadas++] = negra;
+        }
+    }
+
+    /**
+     * Obtiene los turnos de la partida. Cada Turno se crea al pedirlo
+     * @return Lista de solo lectura con los turnos
+     */
+    @Override
+    public List<Turno> getTurnos() {
+        return new AbstractList<Turno>() {
+            @Override
+            public Turno get(int indice) {
+                return getTurno(indice);
+            }
+
+            @Override
+            public int size() {
+                return numeroTurnos;
+            }
+        };
+    }
+
+    /**
+     * Crea la vista de un turno
+     * @param indice Posición del turno, empezando en 0
+     * @return Turno con sus jugadas
+     */
+    public Turno getTurno(int indice) {
+        if (indice < 0 || indice >= numeroTurnos) {
+            throw new IndexOutOfBoundsException("Turno " + indice + " de " + numeroTurnos);
+        }
+        Turno turno = new Turno(turnos[indice * 2]);
+        int primera = turnos[indice * 2 + 1];
+        // Las jugadas salen de la tabla compartida: no se repiten objetos por cada turno
+        TablaJugadas tabla = TablaJugadas.compartida();
+        turno.setJugadaBlanca(tabla.obtener(jugadas[primera]));
+        if (finTurno(indice) - primera == 2) {
+            turno.setJugadaNegra(tabla.obtener(jugadas[primera + 1]));
+        }
+        return turno;
+    }
+
+    @Override
+    public int getNumeroTurnos() {
+        return numeroTurnos;
+    }
+
+    @Override
+    public int getNumeroTurno(int indice) {
+        return turnos[indice * 2];
+    }
+
+    @Override
+    public boolean tieneJugadaNegra(int indice) {
+        return finTurno(indice) - getPrimeraJugada(indice) == 2;
+    }
+
+    /**
+     * Obtiene la posición de la jugada blanca de un turno
+     * @param indice Posición del turno, empezando en 0
+     * @return Índice de la jugada en getCodigoJugada
+     */
+    int getPrimeraJugada(int indice) {
+        return turnos[indice * 2 + 1];
+    }
+
+    @Override
+    public int getNumeroJugadas() {
+        return numeroJugadas;
+    }
+
+    @Override
+    public int getCodigoJugada(int indice) {
+        if (indice < 0 || indice >= numeroJugadas) {
+            throw new IndexOutOfBoundsException("Jugada " + indice + " de " + numeroJugadas);
+        }
+        return jugadas[indice];
+    }
+
+    @Override
+    public String toString() {
+        // Se escribe directamente desde los códigos, sin crear turnos ni jugadas
+        StringBuilder sb = new StringBuilder(numeroJugadas * 5 + numeroTurnos * 4);
+        char[] jugada = new char[CodigoJugada.LONGITUD_MAXIMA];
+        for (int t = 0; t < numeroTurnos; t++) {
+            if (t > 0) {
+                sb.append(' ');
+            }
+            sb.append(turnos[t * 2]).append(". ");
+            int primera = turnos[t * 2 + 1];
+            int fin = finTurno(t);
+            for (int j = primera; j < fin; j++) {
+                if (j > primera) {
+                    sb.append(' ');
+                }
+                sb.append(jugada, 0, CodigoJugada.escribir(jugadas[j], jugada, 0));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Obtiene la posición siguiente a la última jugada de un turno
+     * @param indice Posición del turno, empezando en 0
+     * @return Índice en getCodigoJugada; menos la primera jugada, el número de jugadas del turno
+     */
+    int finTurno(int indice) {
+        return indice + 1 < numeroTurnos ? turnos[indice * 2 + 3] : numeroJugadas;
+    }
+
+    private static int codificar(Jugada jugada) {
+        int codigo = CodigoJugada.codificar(jugada.getNotacion());
+        if (codigo == CodigoJugada.NINGUNA) {
+            throw new IllegalArgumentException("Jugada no representable: " + jugada.getNotacion());
+        }
+        return codigo;
+    }
+}
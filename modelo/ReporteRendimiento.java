@@ -0,0 +1,124 @@
+package modelo;
+
+/**
+ * Clase que resume el rendimiento de un análisis en lote
+ */
+public class ReporteRendimiento {
+
+    private final int hilos;
+    private final long partidas;
+    private final long jugadas;
+    private final long bytes;
+    private final long nanosegundos;
+
+    /**
+     * Constructor
+     * @param hilos Número de hilos usados en el análisis
+     * @param partidas Número de partidas analizadas
+     * @param jugadas Número de jugadas analizadas
+     * @param nanosegundos Tiempo total del análisis
+     */
+    public ReporteRendimiento(int hilos, long partidas, long jugadas, long nanosegundos) {
+        this(hilos, partidas, jugadas, 0, nanosegundos);
+    }
+
+    /**
+     * Constructor para los análisis que recorren un texto y pueden informar del caudal
+     * @param hilos Número de hilos usados en el análisis
+     * @param partidas Número de partidas analizadas
+     * @param jugadas Número de jugadas analizadas
+     * @param bytes Número de bytes de texto recorridos
+     * @param nanosegundos Tiempo total del análisis
+     */
+    public ReporteRendimiento(int hilos, long partidas, long jugadas, long bytes, long nanosegundos) {
+        this.hilos = hilos;
+        this.partidas = partidas;
+        this.jugadas = jugadas;
+        this.bytes = bytes;
+        this.nanosegundos = nanosegundos;
+    }
+
+    /**
+     * Obtiene el número de hilos usados
+     * @return Número de hilos
+     */
+    public int getHilos() {
+        return hilos;
+    }
+
+    /**
+     * Obtiene el número de partidas analizadas
+     * @return Número de partidas
+     */
+    public long getPartidas() {
+        return partidas;
+    }
+
+    /**
+     * Obtiene el número de jugadas analizadas
+     * @return Número de jugadas
+     */
+    public long getJugadas() {
+        return jugadas;
+    }
+
+    /**
+     * Obtiene el número de bytes de texto recorridos
+     * @return Número de bytes, o 0 si el análisis no los cuenta
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Obtiene el tiempo total del análisis
+     * @return Tiempo en nanosegundos
+     */
+    public long getNanosegundos() {
+        return nanosegundos;
+    }
+
+    /**
+     * Calcula las partidas analizadas por segundo
+     * @return Partidas por segundo
+     */
+    public double partidasPorSegundo() {
+        return porSegundo(partidas);
+    }
+
+    /**
+     * Calcula las jugadas analizadas por segundo
+     * @return Jugadas por segundo
+     */
+    public double jugadasPorSegundo() {
+        return porSegundo(jugadas);
+    }
+
+    /**
+     * Calcula el caudal de texto recorrido
+     * @return Megabytes (10^6 bytes) por segundo
+     */
+    public double megabytesPorSegundo() {
+        return porSegundo(bytes) / 1_000_000;
+    }
+
+    /**
+     * Calcula cuántas veces más rápido fue este análisis que otro de referencia
+     * @param referencia Reporte con el que se compara, normalmente el de un solo hilo
+     * @return Aceleración respecto a la referencia
+     */
+    public double aceleracion(ReporteRendimiento referencia) {
+        return partidasPorSegundo() / referencia.partidasPorSegundo();
+    }
+
+    private double porSegundo(long cantidad) {
+        return nanosegundos == 0 ? 0 : cantidad * 1_000_000_000.0 / nanosegundos;
+    }
+
+    @Override
+    public String toString() {
+        String texto = String.format("%d hilos: %d partidas, %d jugadas en %.1f ms (%.0f partidas/s, %.0f jugadas/s",
+                hilos, partidas, jugadas, nanosegundos / 1_000_000.0, partidasPorSegundo(), jugadasPorSegundo());
+        return bytes == 0 ? texto + ")" : texto + String.format(", %.1f MB/s)", megabytesPorSegundo());
+    }
+}
@@ -1,5 +1,8 @@
 package modelo;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Clase que representa el resultado del análisis sintáctico
  */
@@ -8,6 +11,9 @@ public class ResultadoAnalisis {
     private boolean valido;
     private String mensajeError;
     private int numeroTurnos;
+    private int numeroJugadas;
+    private Partida partida;
+    private List<Diagnostico> diagnosticos = Collections.emptyList();
     
     /**
      * Constructor para resultado inválido
@@ -20,15 +26,47 @@ public class ResultadoAnalisis {
         this.numeroTurnos = 0;
     }
     
+    /**
+     * Constructor para resultado inválido con los errores encontrados
+     * @param diagnosticos Errores de la partida, al menos uno; el mensaje de error es el del primero
+     */
+    public ResultadoAnalisis(List<Diagnostico> diagnosticos) {
+        this(false, diagnosticos.get(0).getMensaje());
+        this.diagnosticos = diagnosticos;
+    }
+
     /**
      * Constructor para resultado válido
      * @param valido Indica si el análisis es válido
      * @param numeroTurnos Número de turnos analizados
      */
     public ResultadoAnalisis(boolean valido, int numeroTurnos) {
+        this(valido, numeroTurnos, 0);
+    }
+
+    /**
+     * Constructor para resultado válido con el número de jugadas
+     * @param valido Indica si el análisis es válido
+     * @param numeroTurnos Número de turnos analizados
+     * @param numeroJugadas Número de jugadas analizadas, sumando blancas y negras
+     */
+    public ResultadoAnalisis(boolean valido, int numeroTurnos, int numeroJugadas) {
+        this(valido, numeroTurnos, numeroJugadas, null);
+    }
+
+    /**
+     * Constructor para resultado válido con la partida ya construida
+     * @param valido Indica si el análisis es válido
+     * @param numeroTurnos Número de turnos analizados
+     * @param numeroJugadas Número de jugadas analizadas, sumando blancas y negras
+     * @param partida Partida validada, o null si no se construyó
+     */
+    public ResultadoAnalisis(boolean valido, int numeroTurnos, int numeroJugadas, Partida partida) {
         this.valido = valido;
         this.mensajeError = "";
         this.numeroTurnos = numeroTurnos;
+        this.numeroJugadas = numeroJugadas;
+        this.partida = partida;
     }
     
     /**
@@ -47,6 +85,14 @@ public class ResultadoAnalisis {
         return mensajeError;
     }
     
+    /**
+     * Obtiene los errores encontrados, con su turno, color y posición
+     * @return Lista de errores; vacía si la partida es válida o si el error no tiene posición
+     */
+    public List<Diagnostico> getDiagnosticos() {
+        return diagnosticos;
+    }
+
     /**
      * Obtiene el número de turnos analizados
      * @return Número de turnos analizados
@@ -54,4 +100,20 @@ public class ResultadoAnalisis {
     public int getNumeroTurnos() {
         return numeroTurnos;
     }
+
+    /**
+     * Obtiene el número de jugadas analizadas
+     * @return Número de jugadas, sumando blancas y negras
+     */
+    public int getNumeroJugadas() {
+        return numeroJugadas;
+    }
+
+    /**
+     * Obtiene la partida validada
+     * @return Partida construida durante el análisis, o null si no es válida o no se construyó
+     */
+    public Partida getPartida() {
+        return partida;
+    }
 }
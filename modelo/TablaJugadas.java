@@ -0,0 +1,195 @@
+package modelo;
+
+import util.ValidadorSAN;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tabla de jugadas canónicas compartidas (patrón flyweight).
+ *
+ * Las jugadas SAN válidas son un conjunto finito y en la práctica se repiten
+ * mucho ("e4", "Nf3", "O-O"...), así que en lugar de crear una cadena y una
+ * Jugada por cada aparición se busca la jugada por sus caracteres y se
+ * devuelve siempre la misma instancia inmutable, que ya trae su clasificación.
+ * La tabla se llena a medida que aparecen jugadas nuevas, sin bloqueos, y deja
+ * de crecer al llegar a su capacidad. Las jugadas inválidas no se guardan.
+ */
+public class TablaJugadas {
+
+    private static final int CAPACIDAD_POR_DEFECTO = 1 << 16;
+    private static final TablaJugadas COMPARTIDA = new TablaJugadas(CAPACIDAD_POR_DEFECTO);
+
+    private final AtomicReferenceArray<Jugada> tabla;
+    private final int mascara;
+    private final int maximoJugadas;
+    private final AtomicInteger numeroJugadas = new AtomicInteger();
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+
+    /**
+     * Constructor
+     * @param capacidad Número de posiciones de la tabla; se redondea a potencia de dos.
+     *                  Se llena como mucho hasta la mitad
+     */
+    public TablaJugadas(int capacidad) {
+        int tamano = Integer.highestOneBit(Math.max(capacidad, 16) - 1) << 1;
+        this.tabla = new AtomicReferenceArray<>(tamano);
+        this.mascara = tamano - 1;
+        this.maximoJugadas = tamano / 2;
+    }
+
+    /**
+     * Obtiene la tabla que comparte todo el programa
+     * @return Tabla compartida
+     */
+    public static TablaJugadas compartida() {
+        return COMPARTIDA;
+    }
+
+    /**
+     * Obtiene la jugada canónica para un tramo de texto
+     * @param texto Texto que contiene la jugada
+     * @param inicio Posición del primer carácter
+     * @param longitud Número de caracteres de la jugada
+     * @return Jugada con su clasificación; compartida si es válida
+     */
+    public Jugada obtener(CharSequence texto, int inicio, int longitud) {
+        int hash = 0;
+        for (int i = inicio, fin = inicio + longitud; i < fin; i++) {
+            hash = hash * 31 + texto.charAt(i);
+        }
+        int posicion = mezclar(hash) & mascara;
+        Jugada jugada;
+        while ((jugada = tabla.get(posicion)) != null) {
+            if (iguales(jugada.getNotacion(), texto, inicio, longitud)) {
+                aciertos.increment();
+                return jugada;
+            }
+            posicion = (posicion + 1) & mascara;
+        }
+        fallos.increment();
+        String notacion = texto.subSequence(inicio, inicio + longitud).toString();
+        return insertar(new Jugada(notacion, ValidadorSAN.clasificar(notacion)), posicion);
+    }
+
+    /**
+     * Obtiene la jugada canónica para un tramo de un arreglo de caracteres
+     * @param texto Arreglo que contiene la jugada
+     * @param inicio Posición del primer carácter
+     * @param longitud Número de caracteres de la jugada
+     * @return Jugada con su clasificación; compartida si es válida
+     */
+    public Jugada obtener(char[] texto, int inicio, int longitud) {
+        int hash = 0;
+        for (int i = inicio, fin = inicio + longitud; i < fin; i++) {
+            hash = hash * 31 + texto[i];
+        }
+        int posicion = mezclar(hash) & mascara;
+        Jugada jugada;
+        while ((jugada = tabla.get(posicion)) != null) {
+            if (iguales(jugada.getNotacion(), texto, inicio, longitud)) {
+                aciertos.increment();
+                return jugada;
+            }
+            posicion = (posicion + 1) & mascara;
+        }
+        fallos.increment();
+        String notacion = new String(texto, inicio, longitud);
+        return insertar(new Jugada(notacion, ValidadorSAN.clasificar(notacion)), posicion);
+    }
+
+    /**
+     * Obtiene la jugada canónica para un código de CodigoJugada
+     * @param codigo Código de una jugada válida
+     * @return Jugada compartida
+     */
+    public Jugada obtener(int codigo) {
+        char[] caracteres = new char[CodigoJugada.LONGITUD_MAXIMA];
+        return obtener(caracteres, 0, CodigoJugada.escribir(codigo, caracteres, 0));
+    }
+
+    /**
+     * Obtiene el número de búsquedas que encontraron la jugada en la tabla
+     * @return Número de aciertos
+     */
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+
+    /**
+     * Obtiene el número de búsquedas que tuvieron que crear la jugada
+     * @return Número de fallos
+     */
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    /**
+     * Calcula la proporción de búsquedas resueltas desde la tabla
+     * @return Valor entre 0 y 1
+     */
+    public double tasaAciertos() {
+        long a = getAciertos();
+        long total = a + getFallos();
+        return total == 0 ? 0 : (double) a / total;
+    }
+
+    /**
+     * Obtiene el número de jugadas guardadas
+     * @return Número de jugadas distintas en la tabla
+     */
+    public int getNumeroJugadas() {
+        return numeroJugadas.get();
+    }
+
+    // Guarda una jugada válida a partir de la primera posición libre encontrada
+    private Jugada insertar(Jugada nueva, int posicion) {
+        if (!nueva.esValida() || numeroJugadas.get() >= maximoJugadas) {
+            return nueva;
+        }
+        while (true) {
+            if (tabla.compareAndSet(posicion, null, nueva)) {
+                numeroJugadas.incrementAndGet();
+                return nueva;
+            }
+            // Otro hilo ocupó la posición; puede que con la misma jugada
+            Jugada existente = tabla.get(posicion);
+            if (existente.getNotacion().equals(nueva.getNotacion())) {
+                return existente;
+            }
+            posicion = (posicion + 1) & mascara;
+        }
+    }
+
+    private static int mezclar(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean iguales(String notacion, CharSequence texto, int inicio, int longitud) {
+        if (notacion.length() != longitud) {
+            return false;
+        }
+        for (int i = 0; i < longitud; i++) {
+            if (notacion.charAt(i) != texto.charAt(inicio + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean iguales(String notacion, char[] texto, int inicio, int longitud) {
+        if (notacion.length() != longitud) {
+            return false;
+        }
+        for (int i = 0; i < longitud; i++) {
+            if (notacion.charAt(i) != texto[inicio + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,155 @@
+package motor;
+
+/**
+ * Tablas precalculadas de ataques sobre bitboards de 64 bits (bit 0 = a1, bit 63 = h8).
+ *
+ * Los saltos de caballo, los movimientos del rey y las capturas de peón se leen
+ * directamente de una tabla. Para las piezas deslizantes se guarda el rayo
+ * completo en cada una de las ocho direcciones; el ataque real se obtiene
+ * recortando el rayo en la primera pieza que lo bloquea, que se localiza con
+ * una sola instrucción de búsqueda de bit. Así no hace falta recorrer casillas.
+ */
+public final class Ataques {
+
+    // Direcciones: las cuatro primeras avanzan hacia bits más altos
+    private static final int NORTE = 0;
+    private static final int ESTE = 1;
+    private static final int NORESTE = 2;
+    private static final int NOROESTE = 3;
+    private static final int SUR = 4;
+    private static final int OESTE = 5;
+    private static final int SUROESTE = 6;
+    private static final int SURESTE = 7;
+
+    private static final int[] DESPLAZAMIENTO_COLUMNA = {0, 1, 1, -1, 0, -1, -1, 1};
+    private static final int[] DESPLAZAMIENTO_FILA = {1, 0, 1, 1, -1, 0, -1, -1};
+
+    private static final long[][] RAYOS = new long[8][64];
+    private static final long[] CABALLO = new long[64];
+    private static final long[] REY = new long[64];
+    // Casillas que ataca un peón de cada color
+    private static final long[][] PEON = new long[2][64];
+
+    static {
+        for (int casilla = 0; casilla < 64; casilla++) {
+            int columna = casilla & 7;
+            int fila = casilla >>> 3;
+            for (int d = 0; d < 8; d++) {
+                long rayo = 0;
+                int c = columna + DESPLAZAMIENTO_COLUMNA[d];
+                int f = fila + DESPLAZAMIENTO_FILA[d];
+                while (dentro(c, f)) {
+                    rayo |= 1L << (f * 8 + c);
+                    c += DESPLAZAMIENTO_COLUMNA[d];
+                    f += DESPLAZAMIENTO_FILA[d];
+                }
+                RAYOS[d][casilla] = rayo;
+                // El rey se mueve una casilla en cada dirección
+                if (dentro(columna + DESPLAZAMIENTO_COLUMNA[d], fila + DESPLAZAMIENTO_FILA[d])) {
+                    REY[casilla] |= 1L << ((fila + DESPLAZAMIENTO_FILA[d]) * 8 + columna + DESPLAZAMIENTO_COLUMNA[d]);
+                }
+            }
+            int[][] saltos = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+            for (int[] salto : saltos) {
+                if (dentro(columna + salto[0], fila + salto[1])) {
+                    CABALLO[casilla] |= 1L << ((fila + salto[1]) * 8 + columna + salto[0]);
+                }
+            }
+            for (int dc = -1; dc <= 1; dc += 2) {
+                if (dentro(columna + dc, fila + 1)) {
+                    PEON[Tablero.BLANCAS][casilla] |= 1L << ((fila + 1) * 8 + columna + dc);
+                }
+                if (dentro(columna + dc, fila - 1)) {
+                    PEON[Tablero.NEGRAS][casilla] |= 1L << ((fila - 1) * 8 + columna + dc);
+                }
+            }
+        }
+    }
+
+    private Ataques() {
+    }
+
+    private static boolean dentro(int columna, int fila) {
+        return columna >= 0 && columna < 8 && fila >= 0 && fila < 8;
+    }
+
+    /**
+     * Casillas a las que salta un caballo
+     * @param casilla Casilla del caballo
+     * @return Bitboard de casillas atacadas
+     */
+    public static long caballo(int casilla) {
+        return CABALLO[casilla];
+    }
+
+    /**
+     * Casillas vecinas de un rey
+     * @param casilla Casilla del rey
+     * @return Bitboard de casillas atacadas
+     */
+    public static long rey(int casilla) {
+        return REY[casilla];
+    }
+
+    /**
+     * Casillas que ataca un peón
+     * @param color Color del peón
+     * @param casilla Casilla del peón
+     * @return Bitboard de casillas atacadas
+     */
+    public static long peon(int color, int casilla) {
+        return PEON[color][casilla];
+    }
+
+    /**
+     * Casillas que ataca un alfil
+     * @param casilla Casilla del alfil
+     * @param ocupadas Bitboard de todas las piezas del tablero
+     * @return Bitboard de casillas atacadas, incluidas las de las piezas que bloquean
+     */
+    public static long alfil(int casilla, long ocupadas) {
+        return rayoCreciente(NORESTE, casilla, ocupadas) | rayoCreciente(NOROESTE, casilla, ocupadas)
+                | rayoDecreciente(SUROESTE, casilla, ocupadas) | rayoDecreciente(SURESTE, casilla, ocupadas);
+    }
+
+    /**
+     * Casillas que ataca una torre
+     * @param casilla Casilla de la torre
+     * @param ocupadas Bitboard de todas las piezas del tablero
+     * @return Bitboard de casillas atacadas, incluidas las de las piezas que bloquean
+     */
+    public static long torre(int casilla, long ocupadas) {
+        return rayoCreciente(NORTE, casilla, ocupadas) | rayoCreciente(ESTE, casilla, ocupadas)
+                | rayoDecreciente(SUR, casilla, ocupadas) | rayoDecreciente(OESTE, casilla, ocupadas);
+    }
+
+    /**
+     * Casillas que ataca una dama
+     * @param casilla Casilla de la dama
+     * @param ocupadas Bitboard de todas las piezas del tablero
+     * @return Bitboard de casillas atacadas
+     */
+    public static long dama(int casilla, long ocupadas) {
+        return alfil(casilla, ocupadas) | torre(casilla, ocupadas);
+    }
+
+    // Rayo hacia bits más altos: la primera pieza que bloquea es el bit más bajo
+    private static long rayoCreciente(int direccion, int casilla, long ocupadas) {
+        long rayo = RAYOS[direccion][casilla];
+        long bloqueo = rayo & ocupadas;
+        if (bloqueo != 0) {
+            rayo ^= RAYOS[direccion][Long.numberOfTrailingZeros(bloqueo)];
+        }
+        return rayo;
+    }
+
+    // Rayo hacia bits más bajos: la primera pieza que bloquea es el bit más alto
+    private static long rayoDecreciente(int direccion, int casilla, long ocupadas) {
+        long rayo = RAYOS[direccion][casilla];
+        long bloqueo = rayo & ocupadas;
+        if (bloqueo != 0) {
+            rayo ^= RAYOS[direccion][63 - Long.numberOfLeadingZeros(bloqueo)];
+        }
+        return rayo;
+    }
+}
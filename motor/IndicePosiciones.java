@@ -0,0 +1,337 @@
+package motor;
+
+import modelo.Partida;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Índice de las posiciones alcanzadas en un corpus de partidas, para saber en
+ * qué partidas y en qué jugada apareció una posición sin volver a reproducirlas.
+ *
+ * Cada posición se identifica por su hash de Zobrist. Todo se guarda en arreglos
+ * de longs, sin un objeto por posición:
+ * <ul>
+ *   <li>una tabla hash de direccionamiento abierto con pares (clave, primera aparición),
+ *       con una entrada por clave distinta;</li>
+ *   <li>una lista de apariciones con pares (partida y jugada, siguiente aparición),
+ *       encadenadas por clave.</li>
+ * </ul>
+ * Así, una posición que aparece en millones de partidas (las de la apertura)
+ * no alarga el sondeo de las demás claves. Los arreglos pueden vivir en el heap
+ * o fuera de él, y el índice se guarda y se vuelve a abrir desde disco
+ * proyectando el archivo en memoria, sin reconstruirlo.
+ *
+ * Agregar partidas no es seguro desde varios hilos; las consultas sobre un
+ * índice que ya no cambia sí lo son.
+ */
+public class IndicePosiciones {
+
+    // "ZOBRIDX1" como primeros bytes del archivo
+    private static final long MAGICO = 0x315844495242_4F5AL;
+    private static final int CABECERA = 4 * Long.BYTES;
+
+    // Bits de la jugada dentro de cada aparición; el resto es el número de partida
+    private static final int BITS_JUGADA = 16;
+    private static final long MASCARA_JUGADA = (1L << BITS_JUGADA) - 1;
+
+    private static final int CAPACIDAD_INICIAL = 1 << 16;
+
+    private static final long[] SIN_PARTIDAS = new long[0];
+    private static final int[] SIN_JUGADAS = new int[0];
+
+    private final boolean fueraDelHeap;
+    private final boolean soloLectura;
+    private final Tablero tablero = new Tablero();
+
+    // Pares (clave, índice de la primera aparición + 1); 0 indica una casilla libre
+    private LongBuffer tabla;
+    private int mascara;
+    private int numeroClaves;
+    // Pares (partida << 16 | jugada, índice de la siguiente aparición + 1)
+    private LongBuffer apariciones;
+    private long numeroApariciones;
+
+    /**
+     * Constructor de un índice vacío en el heap
+     */
+    public IndicePosiciones() {
+        this(CAPACIDAD_INICIAL, false);
+    }
+
+    /**
+     * Constructor de un índice vacío
+     * @param capacidadInicial Número de posiciones distintas previsto
+     * @param fueraDelHeap true para guardar los arreglos en memoria directa,
+     *                     fuera del heap y del recolector de basura
+     */
+    public IndicePosiciones(int capacidadInicial, boolean fueraDelHeap) {
+        this.fueraDelHeap = fueraDelHeap;
+        this.soloLectura = false;
+        int casillas = Integer.highestOneBit(Math.max(16, capacidadInicial - 1)) << 2;
+        tabla = reservar(casillas * 2L);
+        mascara = casillas - 1;
+        apariciones = reservar(casillas * 2L);
+    }
+
+    private IndicePosiciones(LongBuffer tabla, int numeroClaves, LongBuffer apariciones, long numeroApariciones) {
+        this.fueraDelHeap = true;
+        this.soloLectura = true;
+        this.tabla = tabla;
+        this.mascara = tabla.capacity() / 2 - 1;
+        this.numeroClaves = numeroClaves;
+        this.apariciones = apariciones;
+        this.numeroApariciones = numeroApariciones;
+    }
+
+    /**
+     * Reproduce una partida y agrega al índice cada posición tras cada jugada.
+     * La posición inicial no se indexa, porque aparece en todas las partidas
+     * @param numeroPartida Identificador de la partida en el corpus
+     * @param partida Partida a reproducir
+     * @return Número de posiciones agregadas; se detiene en la primera jugada ilegal
+     */
+    public int agregar(long numeroPartida, Partida partida) {
+        tablero.posicionInicial();
+        int n = partida.getNumeroJugadas();
+        for (int i = 0; i < n; i++) {
+            if (!tablero.jugar(partida.getCodigoJugada(i))) {
+                return i;
+            }
+            agregar(tablero.getClave(), numeroPartida, i + 1);
+        }
+        return n;
+    }
+
+    /**
+     * Agrega una aparición de una posición
+     * @param clave Hash de Zobrist de la posición
+     * @param numeroPartida Identificador de la partida
+     * @param jugada Número de jugadas hechas hasta llegar a la posición
+     */
+    public void agregar(long clave, long numeroPartida, int jugada) {
+        if (soloLectura) {
+            throw new UnsupportedOperationException("El índice cargado desde disco es de solo lectura");
+        }
+        if ((numeroClaves + 1) * 2L > mascara + 1) {
+            redimensionar();
+        }
+        if ((numeroApariciones + 1) * 2 > apariciones.capacity()) {
+            apariciones = copiar(apariciones, apariciones.capacity() * 2L);
+        }
+        int casilla = buscarCasilla(clave);
+        long anterior = tabla.get(casilla * 2 + 1);
+        if (anterior == 0) {
+            tabla.put(casilla * 2, clave);
+            numeroClaves++;
+        }
+        // La nueva aparición pasa a ser la primera de la lista de su clave
+        int posicion = (int) numeroApariciones * 2;
+        apariciones.put(posicion, numeroPartida << BITS_JUGADA | Math.min(jugada, MASCARA_JUGADA));
+        apariciones.put(posicion + 1, anterior);
+        numeroApariciones++;
+        tabla.put(casilla * 2 + 1, numeroApariciones);
+    }
+
+    /**
+     * Busca las partidas que alcanzaron una posición
+     * @param clave Hash de Zobrist de la posición
+     * @param partidas Arreglo donde se escriben los números de partida
+     * @param jugadas Arreglo donde se escribe la jugada en que se alcanzó, con el mismo índice
+     * @return Número total de apariciones, que puede superar el tamaño de los arreglos
+     */
+    public int buscar(long clave, long[] partidas, int[] jugadas) {
+        int casilla = buscarCasilla(clave);
+        int total = 0;
+        int limite = Math.min(partidas.length, jugadas.length);
+        for (long siguiente = tabla.get(casilla * 2 + 1); siguiente != 0; total++) {
+            int posicion = (int) (siguiente - 1) * 2;
+            long valor = apariciones.get(posicion);
+            if (total < limite) {
+                partidas[total] = valor >>> BITS_JUGADA;
+                jugadas[total] = (int) (valor & MASCARA_JUGADA);
+            }
+            siguiente = apariciones.get(posicion + 1);
+        }
+        return total;
+    }
+
+    /**
+     * Busca las partidas que alcanzaron una posición descrita en FEN
+     * @param fen Posición en notación FEN
+     * @param partidas Arreglo donde se escriben los números de partida
+     * @param jugadas Arreglo donde se escribe la jugada en que se alcanzó
+     * @return Número total de apariciones
+     * @throws IllegalArgumentException Si la posición no es FEN válido
+     */
+    public int buscar(CharSequence fen, long[] partidas, int[] jugadas) {
+        return buscar(clave(fen), partidas, jugadas);
+    }
+
+    /**
+     * Cuenta las apariciones de una posición
+     * @param clave Hash de Zobrist de la posición
+     * @return Número de veces que se alcanzó la posición en el corpus
+     */
+    public int contar(long clave) {
+        return buscar(clave, SIN_PARTIDAS, SIN_JUGADAS);
+    }
+
+    /**
+     * Calcula la clave de una posición en FEN
+     * @param fen Posición en notación FEN
+     * @return Hash de Zobrist, el mismo que se obtiene al llegar a ella jugando
+     * @throws IllegalArgumentException Si la posición no es FEN válido
+     */
+    public static long clave(CharSequence fen) {
+        Tablero posicion = new Tablero();
+        posicion.cargarFEN(fen);
+        return posicion.getClave();
+    }
+
+    // Sondeo lineal hasta la clave o hasta la primera casilla libre
+    private int buscarCasilla(long clave) {
+        int casilla = (int) (clave ^ (clave >>> 32)) & mascara;
+        while (tabla.get(casilla * 2 + 1) != 0 && tabla.get(casilla * 2) != clave) {
+            casilla = (casilla + 1) & mascara;
+        }
+        return casilla;
+    }
+
+    // Duplica la tabla y vuelve a colocar las claves; las apariciones no se mueven
+    private void redimensionar() {
+        LongBuffer anterior = tabla;
+        int casillas = (mascara + 1) * 2;
+        tabla = reservar(casillas * 2L);
+        mascara = casillas - 1;
+        for (int i = 0; i < anterior.capacity(); i += 2) {
+            long primera = anterior.get(i + 1);
+            if (primera != 0) {
+                int casilla = buscarCasilla(anterior.get(i));
+                tabla.put(casilla * 2, anterior.get(i));
+                tabla.put(casilla * 2 + 1, primera);
+            }
+        }
+    }
+
+    private LongBuffer copiar(LongBuffer origen, long longitud) {
+        LongBuffer destino = reservar(longitud);
+        LongBuffer fuente = origen.duplicate();
+        fuente.clear();
+        destino.put(fuente);
+        destino.clear();
+        return destino;
+    }
+
+    private LongBuffer reservar(long longs) {
+        if (longs * Long.BYTES > Integer.MAX_VALUE) {
+            throw new IllegalStateException("El índice supera el tamaño máximo de un buffer");
+        }
+        int bytes = (int) longs * Long.BYTES;
+        ByteBuffer buffer = fueraDelHeap ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes);
+        // Orden fijo, para que el archivo guardado se lea igual en cualquier máquina
+        return buffer.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+    }
+
+    /**
+     * Guarda el índice en un archivo
+     * @param archivo Ruta del archivo; se sobrescribe si existe
+     * @throws IOException Si no se puede escribir
+     */
+    public void guardar(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer cabecera = ByteBuffer.allocate(CABECERA).order(ByteOrder.LITTLE_ENDIAN);
+            cabecera.putLong(MAGICO).putLong(mascara + 1L).putLong(numeroClaves).putLong(numeroApariciones);
+            cabecera.flip();
+            escribir(canal, cabecera);
+            ByteBuffer bloque = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            escribir(canal, tabla, tabla.capacity(), bloque);
+            escribir(canal, apariciones, numeroApariciones * 2, bloque);
+        }
+    }
+
+    // Escribe los primeros longs de un buffer por bloques, sin copiarlo entero al heap
+    private static void escribir(FileChannel canal, LongBuffer origen, long longs, ByteBuffer bloque) throws IOException {
+        LongBuffer fuente = origen.duplicate();
+        fuente.clear().limit((int) longs);
+        while (fuente.hasRemaining()) {
+            bloque.clear();
+            LongBuffer vista = bloque.asLongBuffer();
+            int n = Math.min(vista.capacity(), fuente.remaining());
+            LongBuffer parte = fuente.slice();
+            parte.limit(n);
+            vista.put(parte);
+            fuente.position(fuente.position() + n);
+            bloque.limit(n * Long.BYTES);
+            escribir(canal, bloque);
+        }
+    }
+
+    private static void escribir(FileChannel canal, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+    }
+
+    /**
+     * Abre un índice guardado proyectando el archivo en memoria. Las consultas
+     * leen directamente del archivo, sin copiarlo al heap
+     * @param archivo Archivo creado con guardar
+     * @return Índice de solo lectura
+     * @throws IOException Si no se puede leer o no es un índice de posiciones
+     */
+    public static IndicePosiciones cargar(Path archivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            MappedByteBuffer cabecera = canal.map(FileChannel.MapMode.READ_ONLY, 0, CABECERA);
+            cabecera.order(ByteOrder.LITTLE_ENDIAN);
+            if (cabecera.getLong(0) != MAGICO) {
+                throw new IOException("El archivo no es un índice de posiciones: " + archivo);
+            }
+            long casillas = cabecera.getLong(8);
+            int numeroClaves = (int) cabecera.getLong(16);
+            long numeroApariciones = cabecera.getLong(24);
+            long bytesTabla = casillas * 2 * Long.BYTES;
+            long bytesApariciones = numeroApariciones * 2 * Long.BYTES;
+            if (CABECERA + bytesTabla + bytesApariciones > canal.size()) {
+                throw new IOException("Índice de posiciones incompleto: " + archivo);
+            }
+            // La proyección sigue siendo válida después de cerrar el canal
+            LongBuffer tabla = canal.map(FileChannel.MapMode.READ_ONLY, CABECERA, bytesTabla)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            LongBuffer apariciones = canal.map(FileChannel.MapMode.READ_ONLY, CABECERA + bytesTabla, bytesApariciones)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            return new IndicePosiciones(tabla, numeroClaves, apariciones, numeroApariciones);
+        }
+    }
+
+    /**
+     * Obtiene el número de posiciones distintas del índice
+     * @return Número de claves distintas
+     */
+    public int getNumeroPosiciones() {
+        return numeroClaves;
+    }
+
+    /**
+     * Obtiene el número total de apariciones guardadas
+     * @return Número de pares (partida, jugada)
+     */
+    public long getNumeroApariciones() {
+        return numeroApariciones;
+    }
+
+    /**
+     * Indica si el índice guarda sus arreglos fuera del heap
+     * @return true si usa memoria directa o un archivo proyectado
+     */
+    public boolean esFueraDelHeap() {
+        return fueraDelHeap;
+    }
+}
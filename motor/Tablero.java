@@ -0,0 +1,756 @@
+package motor;
+
+import modelo.CodigoJugada;
+import modelo.Partida;
+import util.ValidadorSAN;
+
+/**
+ * Estado de una posición de ajedrez representado con bitboards.
+ *
+ * Permite reproducir una partida jugada a jugada resolviendo cada jugada SAN
+ * (pieza, desambiguación, capturas, enroques, captura al paso y coronación)
+ * y comprobando que sea legal. Las jugadas internas se representan con un
+ * entero (origen, destino, coronación y tipo especial), así que reproducir una
+ * partida no crea ningún objeto. No es seguro compartir una instancia entre hilos.
+ */
+public class Tablero {
+
+    // Colores
+    public static final int BLANCAS = 0;
+    public static final int NEGRAS = 1;
+
+    // Derechos de enroque
+    public static final int ENROQUE_CORTO_BLANCAS = 1;
+    public static final int ENROQUE_LARGO_BLANCAS = 2;
+    public static final int ENROQUE_CORTO_NEGRAS = 4;
+    public static final int ENROQUE_LARGO_NEGRAS = 8;
+
+    // Motivos por los que una jugada no se puede hacer
+    public static final int SIN_ERROR = 0;
+    public static final int JUGADA_INVALIDA = 1;
+    public static final int SIN_PIEZA = 2;
+    public static final int AMBIGUA = 3;
+    public static final int CASILLA_OCUPADA = 4;
+    public static final int CAPTURA_INCORRECTA = 5;
+    public static final int CORONACION_INCORRECTA = 6;
+    public static final int ENROQUE_ILEGAL = 7;
+    public static final int REY_EN_JAQUE = 8;
+    public static final int MARCA_INCORRECTA = 9;
+
+    private static final String[] MENSAJES_ERROR = {
+        "sin error",
+        "la notación no es SAN válida",
+        "ninguna pieza puede llegar a esa casilla",
+        "hay más de una pieza que puede hacer la jugada",
+        "la casilla destino está ocupada por una pieza propia",
+        "la captura no coincide con la posición",
+        "la coronación no coincide con la posición",
+        "el enroque no está permitido",
+        "deja al rey en jaque",
+        "la marca de jaque o mate no corresponde a la posición"
+    };
+
+    // Tipos especiales de movimiento interno
+    static final int NORMAL = 0;
+    static final int ENROQUE = 1;
+    static final int AL_PASO = 2;
+    static final int DOBLE_AVANCE = 3;
+
+    // Al mover desde o hacia estas casillas se pierden derechos de enroque
+    private static final int[] MASCARA_ENROQUE = new int[64];
+
+    static {
+        for (int i = 0; i < 64; i++) {
+            MASCARA_ENROQUE[i] = 0xF;
+        }
+        MASCARA_ENROQUE[0] &= ~ENROQUE_LARGO_BLANCAS;
+        MASCARA_ENROQUE[7] &= ~ENROQUE_CORTO_BLANCAS;
+        MASCARA_ENROQUE[4] &= ~(ENROQUE_CORTO_BLANCAS | ENROQUE_LARGO_BLANCAS);
+        MASCARA_ENROQUE[56] &= ~ENROQUE_LARGO_NEGRAS;
+        MASCARA_ENROQUE[63] &= ~ENROQUE_CORTO_NEGRAS;
+        MASCARA_ENROQUE[60] &= ~(ENROQUE_CORTO_NEGRAS | ENROQUE_LARGO_NEGRAS);
+    }
+
+    private static final String POSICION_INICIAL = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    // Un bitboard por color y pieza, con índice color * 8 + pieza (piezas de CodigoJugada)
+    private final long[] piezas = new long[16];
+    private final long[] colores = new long[2];
+    private long ocupadas;
+    // Pieza de cada casilla con el mismo índice, o 0 si está vacía
+    private final byte[] casillas = new byte[64];
+
+    // Hash de Zobrist de las piezas, actualizado al poner y quitar cada una
+    private long clavePiezas;
+
+    private int turno;
+    private int enroques;
+    private int alPaso;
+    private int relojMedio;
+    private int numeroJugada;
+    private int error;
+
+    /**
+     * Constructor con la posición inicial
+     */
+    public Tablero() {
+        posicionInicial();
+    }
+
+    /**
+     * Coloca las piezas en la posición inicial
+     */
+    public void posicionInicial() {
+        cargarFEN(POSICION_INICIAL);
+    }
+
+    /**
+     * Coloca una posición descrita en notación FEN
+     * @param fen Posición en FEN; los contadores finales son opcionales
+     * @throws IllegalArgumentException Si la posición no es FEN válido
+     */
+    public void cargarFEN(CharSequence fen) {
+        java.util.Arrays.fill(piezas, 0);
+        java.util.Arrays.fill(casillas, (byte) 0);
+        colores[BLANCAS] = 0;
+        colores[NEGRAS] = 0;
+        ocupadas = 0;
+        clavePiezas = 0;
+        int i = 0;
+        int n = fen.length();
+        int fila = 7;
+        int columna = 0;
+        // Colocación de las piezas, de la fila 8 a la 1
+        for (; i < n && fen.charAt(i) != ' '; i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                fila--;
+                columna = 0;
+            } else if (c >= '1' && c <= '8') {
+                columna += c - '0';
+            } else {
+                int pieza = "?KQRBNP".indexOf(Character.toUpperCase(c));
+                if (pieza <= 0 || columna > 7 || fila < 0) {
+                    throw new IllegalArgumentException("FEN inválido: " + fen);
+                }
+                int color = Character.isUpperCase(c) ? BLANCAS : NEGRAS;
+                poner(fila * 8 + columna, color * 8 + pieza);
+                columna++;
+            }
+        }
+        if (fila != 0) {
+            throw new IllegalArgumentException("FEN inválido: " + fen);
+        }
+        i = saltarEspacio(fen, i);
+        turno = i < n && fen.charAt(i) == 'b' ? NEGRAS : BLANCAS;
+        i = saltarEspacio(fen, i + 1);
+        enroques = 0;
+        for (; i < n && fen.charAt(i) != ' '; i++) {
+            switch (fen.charAt(i)) {
+                case 'K': enroques |= ENROQUE_CORTO_BLANCAS; break;
+                case 'Q': enroques |= ENROQUE_LARGO_BLANCAS; break;
+                case 'k': enroques |= ENROQUE_CORTO_NEGRAS; break;
+                case 'q': enroques |= ENROQUE_LARGO_NEGRAS; break;
+                default: break;
+            }
+        }
+        i = saltarEspacio(fen, i);
+        alPaso = -1;
+        if (i + 1 < n && fen.charAt(i) >= 'a' && fen.charAt(i) <= 'h') {
+            alPaso = (fen.charAt(i + 1) - '1') * 8 + (fen.charAt(i) - 'a');
+            i += 2;
+        } else {
+            i++;
+        }
+        i = saltarEspacio(fen, i);
+        relojMedio = 0;
+        for (; i < n && Character.isDigit(fen.charAt(i)); i++) {
+            relojMedio = relojMedio * 10 + (fen.charAt(i) - '0');
+        }
+        i = saltarEspacio(fen, i);
+        numeroJugada = 0;
+        for (; i < n && Character.isDigit(fen.charAt(i)); i++) {
+            numeroJugada = numeroJugada * 10 + (fen.charAt(i) - '0');
+        }
+        if (numeroJugada == 0) {
+            numeroJugada = 1;
+        }
+        error = SIN_ERROR;
+    }
+
+    private static int saltarEspacio(CharSequence texto, int i) {
+        while (i < texto.length() && texto.charAt(i) == ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Copia la posición de otro tablero
+     * @param otro Tablero cuya posición se copia
+     */
+    public void copiar(Tablero otro) {
+        System.arraycopy(otro.piezas, 0, piezas, 0, piezas.length);
+        System.arraycopy(otro.casillas, 0, casillas, 0, casillas.length);
+        colores[BLANCAS] = otro.colores[BLANCAS];
+        colores[NEGRAS] = otro.colores[NEGRAS];
+        ocupadas = otro.ocupadas;
+        clavePiezas = otro.clavePiezas;
+        turno = otro.turno;
+        enroques = otro.enroques;
+        alPaso = otro.alPaso;
+        relojMedio = otro.relojMedio;
+        numeroJugada = otro.numeroJugada;
+        error = otro.error;
+    }
+
+    /**
+     * Reproduce una partida desde la posición inicial. Las jugadas se alternan
+     * entre blancas y negras en su orden, sin mirar los números de turno;
+     * ValidadorLegalidad comprueba además la numeración
+     * @param partida Partida a reproducir
+     * @return Índice de la primera jugada ilegal (0 es la primera jugada blanca), o -1 si todas son legales
+     */
+    public int reproducir(Partida partida) {
+        posicionInicial();
+        for (int i = 0, n = partida.getNumeroJugadas(); i < n; i++) {
+            if (!jugar(partida.getCodigoJugada(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Resuelve y hace una jugada SAN, y comprueba que su marca de jaque (+) o de
+     * jaque mate (#) corresponda a la posición a la que se llega: sin marca no
+     * puede dar jaque, con "+" debe dar jaque sin mate y con "#" mate. Los
+     * enroques no llevan marca en la gramática, así que pueden dar jaque sin ella
+     * @param codigo Jugada codificada con CodigoJugada
+     * @return true si la jugada es legal y se hizo; si no, getError() indica el
+     *         motivo. Con MARCA_INCORRECTA la jugada ya se ha hecho
+     */
+    public boolean jugar(int codigo) {
+        int movimiento = resolver(codigo);
+        if (movimiento < 0) {
+            return false;
+        }
+        mover(movimiento);
+        if (!marcaCorrecta(codigo)) {
+            error = MARCA_INCORRECTA;
+            return false;
+        }
+        return true;
+    }
+
+    // Compara la marca de la jugada recién hecha con la posición; el mate solo se busca si hay jaque
+    private boolean marcaCorrecta(int codigo) {
+        boolean jaque = CodigoJugada.esJaque(codigo);
+        boolean mate = CodigoJugada.esMate(codigo);
+        if (!enJaque()) {
+            return !jaque && !mate;
+        }
+        int tipo = CodigoJugada.tipo(codigo);
+        if (tipo == ValidadorSAN.ENROQUE_CORTO || tipo == ValidadorSAN.ENROQUE_LARGO) {
+            return true;
+        }
+        return tieneJugadasLegales() ? jaque : mate;
+    }
+
+    /**
+     * Busca el movimiento que corresponde a una jugada SAN en la posición actual
+     * @param codigo Jugada codificada con CodigoJugada
+     * @return Movimiento interno, o -1 si la jugada no es legal (ver getError())
+     */
+    public int resolver(int codigo) {
+        error = SIN_ERROR;
+        int tipo = CodigoJugada.tipo(codigo);
+        if (codigo == CodigoJugada.NINGUNA) {
+            return fallar(JUGADA_INVALIDA);
+        }
+        if (tipo == ValidadorSAN.ENROQUE_CORTO || tipo == ValidadorSAN.ENROQUE_LARGO) {
+            return resolverEnroque(tipo == ValidadorSAN.ENROQUE_CORTO);
+        }
+        int destino = CodigoJugada.destino(codigo);
+        if ((colores[turno] & (1L << destino)) != 0) {
+            return fallar(CASILLA_OCUPADA);
+        }
+        if (CodigoJugada.pieza(codigo) == CodigoJugada.PEON) {
+            return resolverPeon(codigo, destino);
+        }
+        return resolverPieza(codigo, destino);
+    }
+
+    private int resolverPieza(int codigo, int destino) {
+        int pieza = CodigoJugada.pieza(codigo);
+        if (CodigoJugada.coronacion(codigo) != 0) {
+            return fallar(CORONACION_INCORRECTA);
+        }
+        boolean captura = (colores[turno ^ 1] & (1L << destino)) != 0;
+        long candidatas = atacantes(pieza, destino) & piezas[turno * 8 + pieza];
+        // La desambiguación limita las casillas de origen
+        int columna = CodigoJugada.columnaOrigen(codigo);
+        if (columna >= 0) {
+            candidatas &= 0x0101010101010101L << columna;
+        }
+        int fila = CodigoJugada.filaOrigen(codigo);
+        if (fila >= 0) {
+            candidatas &= 0xFFL << (fila * 8);
+        }
+        if (candidatas == 0) {
+            return fallar(SIN_PIEZA);
+        }
+        if (captura != CodigoJugada.esCaptura(codigo)) {
+            return fallar(CAPTURA_INCORRECTA);
+        }
+        int elegido = -1;
+        for (long resto = candidatas; resto != 0; resto &= resto - 1) {
+            int origen = Long.numberOfTrailingZeros(resto);
+            if (!dejaReyEnJaque(origen, destino, captura ? destino : -1, pieza)) {
+                if (elegido >= 0) {
+                    return fallar(AMBIGUA);
+                }
+                elegido = origen;
+            }
+        }
+        if (elegido < 0) {
+            return fallar(REY_EN_JAQUE);
+        }
+        return movimiento(elegido, destino, 0, NORMAL);
+    }
+
+    private long atacantes(int pieza, int destino) {
+        switch (pieza) {
+            case CodigoJugada.CABALLO:
+                return Ataques.caballo(destino);
+            case CodigoJugada.ALFIL:
+                return Ataques.alfil(destino, ocupadas);
+            case CodigoJugada.TORRE:
+                return Ataques.torre(destino, ocupadas);
+            case CodigoJugada.DAMA:
+                return Ataques.dama(destino, ocupadas);
+            default:
+                return Ataques.rey(destino);
+        }
+    }
+
+    private int resolverPeon(int codigo, int destino) {
+        int avance = turno == BLANCAS ? 8 : -8;
+        int filaDestino = destino >>> 3;
+        long peones = piezas[turno * 8 + CodigoJugada.PEON];
+        int origen;
+        int capturada = -1;
+        int especial = NORMAL;
+        if (CodigoJugada.esCaptura(codigo)) {
+            int columna = CodigoJugada.columnaOrigen(codigo);
+            if (columna < 0 || Math.abs(columna - (destino & 7)) != 1 || filaDestino == (turno == BLANCAS ? 0 : 7)) {
+                return fallar(SIN_PIEZA);
+            }
+            origen = destino - avance - (destino & 7) + columna;
+            if ((peones & (1L << origen)) == 0) {
+                return fallar(SIN_PIEZA);
+            }
+            if ((colores[turno ^ 1] & (1L << destino)) != 0) {
+                capturada = destino;
+            } else if (destino == alPaso) {
+                capturada = destino - avance;
+                especial = AL_PASO;
+            } else {
+                return fallar(CAPTURA_INCORRECTA);
+            }
+        } else {
+            if ((ocupadas & (1L << destino)) != 0) {
+                return fallar(CAPTURA_INCORRECTA);
+            }
+            origen = destino - avance;
+            if (origen < 0 || origen > 63) {
+                return fallar(SIN_PIEZA);
+            }
+            if ((peones & (1L << origen)) == 0) {
+                // Avance doble desde la fila inicial, con la casilla intermedia libre
+                int doble = origen - avance;
+                boolean filaCorrecta = filaDestino == (turno == BLANCAS ? 3 : 4);
+                if (!filaCorrecta || (ocupadas & (1L << origen)) != 0 || (peones & (1L << doble)) == 0) {
+                    return fallar(SIN_PIEZA);
+                }
+                origen = doble;
+                especial = DOBLE_AVANCE;
+            }
+        }
+        // Al llegar a la última fila el peón tiene que coronar, y solo ahí
+        int coronacion = CodigoJugada.coronacion(codigo);
+        boolean ultimaFila = filaDestino == (turno == BLANCAS ? 7 : 0);
+        if (ultimaFila != (coronacion != 0)) {
+            return fallar(CORONACION_INCORRECTA);
+        }
+        if (dejaReyEnJaque(origen, destino, capturada, CodigoJugada.PEON)) {
+            return fallar(REY_EN_JAQUE);
+        }
+        return movimiento(origen, destino, coronacion, especial);
+    }
+
+    private int resolverEnroque(boolean corto) {
+        int derecho = turno == BLANCAS
+                ? (corto ? ENROQUE_CORTO_BLANCAS : ENROQUE_LARGO_BLANCAS)
+                : (corto ? ENROQUE_CORTO_NEGRAS : ENROQUE_LARGO_NEGRAS);
+        int rey = turno == BLANCAS ? 4 : 60;
+        int torre = corto ? rey + 3 : rey - 4;
+        if ((enroques & derecho) == 0
+                || casillas[rey] != turno * 8 + CodigoJugada.REY
+                || casillas[torre] != turno * 8 + CodigoJugada.TORRE) {
+            return fallar(ENROQUE_ILEGAL);
+        }
+        // Las casillas entre el rey y la torre tienen que estar vacías
+        long entre = corto ? 0x60L << (rey - 4) : 0x0EL << (rey - 4);
+        if ((ocupadas & entre) != 0) {
+            return fallar(ENROQUE_ILEGAL);
+        }
+        // El rey no puede estar en jaque ni pasar por casillas atacadas
+        int paso = corto ? 1 : -1;
+        for (int i = 0; i <= 2; i++) {
+            if (atacada(rey + i * paso, turno ^ 1, ocupadas, -1L)) {
+                return fallar(ENROQUE_ILEGAL);
+            }
+        }
+        return movimiento(rey, rey + 2 * paso, 0, ENROQUE);
+    }
+
+    // Comprueba si, tras mover la pieza, el rey propio quedaría atacado
+    private boolean dejaReyEnJaque(int origen, int destino, int capturada, int pieza) {
+        long reyes = piezas[turno * 8 + CodigoJugada.REY];
+        if (reyes == 0) {
+            return false;
+        }
+        long ocupacion = (ocupadas & ~(1L << origen)) | (1L << destino);
+        long vivas = -1L;
+        if (capturada >= 0) {
+            ocupacion &= ~(1L << capturada) | (1L << destino);
+            vivas = ~(1L << capturada);
+        }
+        int rey = pieza == CodigoJugada.REY ? destino : Long.numberOfTrailingZeros(reyes);
+        return atacada(rey, turno ^ 1, ocupacion, vivas);
+    }
+
+    /**
+     * Comprueba si una casilla está atacada por un color
+     * @param casilla Casilla a comprobar
+     * @param atacante Color que ataca
+     * @param ocupacion Bitboard de casillas ocupadas a tener en cuenta
+     * @param vivas Máscara de piezas del atacante que siguen en el tablero
+     * @return true si alguna pieza del atacante ataca la casilla
+     */
+    private boolean atacada(int casilla, int atacante, long ocupacion, long vivas) {
+        int base = atacante * 8;
+        return (Ataques.caballo(casilla) & piezas[base + CodigoJugada.CABALLO] & vivas) != 0
+                || (Ataques.rey(casilla) & piezas[base + CodigoJugada.REY]) != 0
+                || (Ataques.peon(atacante ^ 1, casilla) & piezas[base + CodigoJugada.PEON] & vivas) != 0
+                || (Ataques.alfil(casilla, ocupacion) & (piezas[base + CodigoJugada.ALFIL] | piezas[base + CodigoJugada.DAMA]) & vivas) != 0
+                || (Ataques.torre(casilla, ocupacion) & (piezas[base + CodigoJugada.TORRE] | piezas[base + CodigoJugada.DAMA]) & vivas) != 0;
+    }
+
+    /**
+     * Indica si el bando que mueve está en jaque
+     * @return true si su rey está atacado
+     */
+    public boolean enJaque() {
+        long reyes = piezas[turno * 8 + CodigoJugada.REY];
+        return reyes != 0 && atacada(Long.numberOfTrailingZeros(reyes), turno ^ 1, ocupadas, -1L);
+    }
+
+    /**
+     * Indica si el bando que mueve tiene alguna jugada legal. Junto con enJaque
+     * distingue el jaque mate y el ahogado
+     * @return true si alguna pieza puede mover sin dejar a su rey en jaque
+     */
+    public boolean tieneJugadasLegales() {
+        long propias = colores[turno];
+        int base = turno * 8;
+        for (int pieza = CodigoJugada.REY; pieza <= CodigoJugada.CABALLO; pieza++) {
+            for (long resto = piezas[base + pieza]; resto != 0; resto &= resto - 1) {
+                int origen = Long.numberOfTrailingZeros(resto);
+                // Los movimientos de las piezas son simétricos: llega a donde la atacarían
+                long destinos = atacantes(pieza, origen) & ~propias;
+                for (; destinos != 0; destinos &= destinos - 1) {
+                    int destino = Long.numberOfTrailingZeros(destinos);
+                    int capturada = (ocupadas & (1L << destino)) != 0 ? destino : -1;
+                    if (!dejaReyEnJaque(origen, destino, capturada, pieza)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        int avance = turno == BLANCAS ? 8 : -8;
+        for (long resto = piezas[base + CodigoJugada.PEON]; resto != 0; resto &= resto - 1) {
+            int origen = Long.numberOfTrailingZeros(resto);
+            int destino = origen + avance;
+            if ((ocupadas & (1L << destino)) == 0) {
+                if (!dejaReyEnJaque(origen, destino, -1, CodigoJugada.PEON)) {
+                    return true;
+                }
+                // Si el avance simple deja al rey en jaque, el doble aún puede tapar el jaque
+                int doble = destino + avance;
+                boolean filaInicial = (origen >>> 3) == (turno == BLANCAS ? 1 : 6);
+                if (filaInicial && (ocupadas & (1L << doble)) == 0 && !dejaReyEnJaque(origen, doble, -1, CodigoJugada.PEON)) {
+                    return true;
+                }
+            }
+            for (long capturas = Ataques.peon(turno, origen); capturas != 0; capturas &= capturas - 1) {
+                int captura = Long.numberOfTrailingZeros(capturas);
+                int capturada;
+                if ((colores[turno ^ 1] & (1L << captura)) != 0) {
+                    capturada = captura;
+                } else if (captura == alPaso) {
+                    capturada = captura - avance;
+                } else {
+                    continue;
+                }
+                if (!dejaReyEnJaque(origen, captura, capturada, CodigoJugada.PEON)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Busca el movimiento que lleva de una casilla a otra, como en la notación
+     * UCI (e2e4, e1g1, e7e8q). El enroque se indica con el movimiento del rey
+     * @param origen Casilla de 0 (a1) a 63 (h8)
+     * @param destino Casilla de 0 (a1) a 63 (h8)
+     * @param coronacion Pieza de CodigoJugada a la que corona, o 0
+     * @return Movimiento interno, o -1 si no es legal (ver getError())
+     */
+    public int buscar(int origen, int destino, int coronacion) {
+        error = SIN_ERROR;
+        int pieza = casillas[origen];
+        if (pieza == 0 || pieza >>> 3 != turno) {
+            return fallar(SIN_PIEZA);
+        }
+        pieza &= 7;
+        if (pieza == CodigoJugada.REY && (origen >>> 3) == (destino >>> 3) && Math.abs(destino - origen) == 2) {
+            return resolverEnroque(destino > origen);
+        }
+        // Se resuelve como una jugada SAN con el origen completo, que ya comprueba todo lo demás
+        int codigo;
+        if (pieza == CodigoJugada.PEON) {
+            boolean diagonal = (origen & 7) != (destino & 7);
+            codigo = CodigoJugada.crear(pieza, diagonal ? origen & 7 : -1, -1, diagonal, destino, coronacion);
+        } else {
+            boolean captura = (colores[turno ^ 1] & (1L << destino)) != 0;
+            codigo = CodigoJugada.crear(pieza, origen & 7, origen >>> 3, captura, destino, coronacion);
+        }
+        int movimiento = resolver(codigo);
+        if (movimiento >= 0 && origen(movimiento) != origen) {
+            // Un peón que avanza dos casillas con otro delante
+            return fallar(SIN_PIEZA);
+        }
+        return movimiento;
+    }
+
+    /**
+     * Escribe un movimiento legal de la posición actual como jugada SAN, con la
+     * desambiguación mínima: la columna de origen, si no basta la fila, y si
+     * tampoco, las dos. Solo se tienen en cuenta las piezas que pueden mover sin
+     * dejar a su rey en jaque
+     * @param movimiento Movimiento devuelto por resolver o buscar
+     * @return Código de CodigoJugada, sin jaque ni mate, que dependen de la posición siguiente
+     */
+    public int codificar(int movimiento) {
+        int origen = origen(movimiento);
+        int destino = destino(movimiento);
+        int especial = especial(movimiento);
+        if (especial == ENROQUE) {
+            return CodigoJugada.enroque(destino > origen);
+        }
+        int pieza = casillas[origen] & 7;
+        boolean captura = casillas[destino] != 0 || especial == AL_PASO;
+        if (pieza == CodigoJugada.PEON) {
+            return CodigoJugada.crear(pieza, captura ? origen & 7 : -1, -1, captura, destino, coronacion(movimiento));
+        }
+        long otras = atacantes(pieza, destino) & piezas[turno * 8 + pieza] & ~(1L << origen);
+        long rivales = 0;
+        for (; otras != 0; otras &= otras - 1) {
+            int otra = Long.numberOfTrailingZeros(otras);
+            if (!dejaReyEnJaque(otra, destino, captura ? destino : -1, pieza)) {
+                rivales |= 1L << otra;
+            }
+        }
+        int columna = -1;
+        int fila = -1;
+        if (rivales != 0) {
+            if ((rivales & (0x0101010101010101L << (origen & 7))) == 0) {
+                columna = origen & 7;
+            } else if ((rivales & (0xFFL << (origen & ~7))) == 0) {
+                fila = origen >>> 3;
+            } else {
+                columna = origen & 7;
+                fila = origen >>> 3;
+            }
+        }
+        return CodigoJugada.crear(pieza, columna, fila, captura, destino, 0);
+    }
+
+    /**
+     * Hace un movimiento interno ya resuelto
+     * @param movimiento Movimiento devuelto por resolver
+     */
+    public void mover(int movimiento) {
+        int origen = origen(movimiento);
+        int destino = destino(movimiento);
+        int coronacion = coronacion(movimiento);
+        int especial = especial(movimiento);
+        int pieza = casillas[origen];
+        boolean captura = casillas[destino] != 0;
+
+        if (especial == AL_PASO) {
+            quitar(destino + (turno == BLANCAS ? -8 : 8));
+            captura = true;
+        } else if (captura) {
+            quitar(destino);
+        }
+        quitar(origen);
+        poner(destino, coronacion != 0 ? turno * 8 + coronacion : pieza);
+        if (especial == ENROQUE) {
+            // La torre salta al otro lado del rey
+            boolean corto = destino > origen;
+            int torreOrigen = corto ? origen + 3 : origen - 4;
+            int torreDestino = corto ? origen + 1 : origen - 1;
+            quitar(torreOrigen);
+            poner(torreDestino, turno * 8 + CodigoJugada.TORRE);
+        }
+
+        alPaso = especial == DOBLE_AVANCE ? (origen + destino) >>> 1 : -1;
+        enroques &= MASCARA_ENROQUE[origen] & MASCARA_ENROQUE[destino];
+        relojMedio = captura || (pieza & 7) == CodigoJugada.PEON ? 0 : relojMedio + 1;
+        if (turno == NEGRAS) {
+            numeroJugada++;
+        }
+        turno ^= 1;
+    }
+
+    private void poner(int casilla, int pieza) {
+        long bit = 1L << casilla;
+        casillas[casilla] = (byte) pieza;
+        piezas[pieza] |= bit;
+        colores[pieza >>> 3] |= bit;
+        ocupadas |= bit;
+        clavePiezas ^= Zobrist.pieza(pieza, casilla);
+    }
+
+    private void quitar(int casilla) {
+        long bit = ~(1L << casilla);
+        int pieza = casillas[casilla];
+        casillas[casilla] = 0;
+        piezas[pieza] &= bit;
+        colores[pieza >>> 3] &= bit;
+        ocupadas &= bit;
+        clavePiezas ^= Zobrist.pieza(pieza, casilla);
+    }
+
+    private int fallar(int motivo) {
+        error = motivo;
+        return -1;
+    }
+
+    static int movimiento(int origen, int destino, int coronacion, int especial) {
+        return origen | destino << 6 | coronacion << 12 | especial << 15;
+    }
+
+    /**
+     * Obtiene la casilla de origen de un movimiento interno
+     * @param movimiento Movimiento devuelto por resolver
+     * @return Casilla de 0 (a1) a 63 (h8)
+     */
+    public static int origen(int movimiento) {
+        return movimiento & 0x3F;
+    }
+
+    /**
+     * Obtiene la casilla destino de un movimiento interno
+     * @param movimiento Movimiento devuelto por resolver
+     * @return Casilla de 0 (a1) a 63 (h8)
+     */
+    public static int destino(int movimiento) {
+        return (movimiento >>> 6) & 0x3F;
+    }
+
+    /**
+     * Obtiene la pieza a la que corona un movimiento interno
+     * @param movimiento Movimiento devuelto por resolver
+     * @return Pieza de CodigoJugada, o 0 si no corona
+     */
+    public static int coronacion(int movimiento) {
+        return (movimiento >>> 12) & 0x7;
+    }
+
+    static int especial(int movimiento) {
+        return (movimiento >>> 15) & 0x3;
+    }
+
+    /**
+     * Calcula el hash de Zobrist de la posición. La captura al paso solo cuenta
+     * si algún peón puede hacerla, para que la clave no dependa de cómo se
+     * escribió el FEN ni de si el avance doble se podía capturar
+     * @return Clave de 64 bits de la posición
+     */
+    public long getClave() {
+        long clave = clavePiezas ^ Zobrist.enroques(enroques);
+        if (turno == NEGRAS) {
+            clave ^= Zobrist.TURNO;
+        }
+        if (alPaso >= 0 && (Ataques.peon(turno ^ 1, alPaso) & piezas[turno * 8 + CodigoJugada.PEON]) != 0) {
+            clave ^= Zobrist.alPaso(alPaso & 7);
+        }
+        return clave;
+    }
+
+    /**
+     * Obtiene la pieza que ocupa una casilla
+     * @param casilla Casilla de 0 (a1) a 63 (h8)
+     * @return color * 8 + pieza de CodigoJugada, o 0 si está vacía
+     */
+    public int piezaEn(int casilla) {
+        return casillas[casilla];
+    }
+
+    /**
+     * Obtiene el bando al que le toca mover
+     * @return BLANCAS o NEGRAS
+     */
+    public int getTurno() {
+        return turno;
+    }
+
+    /**
+     * Obtiene los derechos de enroque que quedan
+     * @return Combinación de las constantes ENROQUE_*
+     */
+    public int getEnroques() {
+        return enroques;
+    }
+
+    /**
+     * Obtiene la casilla donde se puede capturar al paso
+     * @return Casilla, o -1 si no hay
+     */
+    public int getAlPaso() {
+        return alPaso;
+    }
+
+    /**
+     * Obtiene el motivo por el que falló la última jugada
+     * @return Una de las constantes de error, o SIN_ERROR
+     */
+    public int getError() {
+        return error;
+    }
+
+    /**
+     * Describe un motivo de error
+     * @param error Constante de error
+     * @return Descripción en español
+     */
+    public static String mensajeError(int error) {
+        return MENSAJES_ERROR[error];
+    }
+}
@@ -0,0 +1,363 @@
+package motor;
+
+import analizador.AnalizadorArchivo;
+import analizador.AnalizadorSintactico;
+import modelo.CodigoJugada;
+import modelo.Partida;
+import modelo.ReporteRendimiento;
+import util.VistaBytes;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Traduce partidas entre SAN y UCI, la notación algebraica larga que usan los
+ * motores (e2e4, g1f3, e1g1, e7e8q), reproduciéndolas en un Tablero.
+ *
+ * De SAN a UCI cada jugada se resuelve con Tablero.resolver, que da sus
+ * casillas de origen y destino. De UCI a SAN se busca el movimiento con
+ * Tablero.buscar y se escribe con la desambiguación mínima y las marcas de
+ * jaque y mate de la posición que resulta, salvo en los enroques, que la
+ * gramática SAN de ValidadorSAN no deja anotar.
+ *
+ * El texto se escribe en ASCII en un buffer de bytes propio que se reutiliza
+ * entre partidas, así que no se crea ninguna cadena por jugada. Al recorrer un
+ * corpus el buffer se vuelca a la salida cada vez que se llena. No es seguro
+ * entre hilos.
+ */
+public class TranscodificadorUCI {
+
+    private static final int CAPACIDAD_INICIAL = 1 << 16;
+    // Al recorrer un corpus, el buffer se vuelca cuando pasa de este tamaño
+    private static final int UMBRAL_VOLCADO = 1 << 16;
+    // Tamaño de cada ventana mapeada de un archivo UCI
+    private static final int VENTANA = 1 << 28;
+    // Letra de coronación UCI por pieza de CodigoJugada
+    private static final byte[] LETRAS_CORONACION = {0, 0, 'q', 'r', 'b', 'n', 0};
+
+    private final Tablero tablero = new Tablero();
+    private final char[] notacion = new char[CodigoJugada.LONGITUD_MAXIMA];
+    private byte[] buffer = new byte[CAPACIDAD_INICIAL];
+    private int longitud;
+
+    /**
+     * Escribe las jugadas de una partida en UCI, separadas por espacios, y un
+     * salto de línea
+     * @param partida Partida sintácticamente válida
+     * @return -1 si todas las jugadas son legales, o el índice de la primera
+     *         ilegal; en ese caso la línea se escribe vacía
+     */
+    public int agregarUCI(Partida partida) {
+        int inicioLinea = longitud;
+        tablero.posicionInicial();
+        for (int i = 0, n = partida.getNumeroJugadas(); i < n; i++) {
+            int movimiento = tablero.resolver(partida.getCodigoJugada(i));
+            if (movimiento < 0) {
+                longitud = inicioLinea;
+                agregar((byte) '\n');
+                return i;
+            }
+            asegurar(6);
+            if (i > 0) {
+                buffer[longitud++] = ' ';
+            }
+            longitud = escribirUCI(movimiento, buffer, longitud);
+            tablero.mover(movimiento);
+        }
+        agregar((byte) '\n');
+        return -1;
+    }
+
+    /**
+     * Escribe en SAN, con números de turno, una partida dada en UCI, y un salto
+     * de línea
+     * @param texto Texto con las jugadas UCI separadas por espacios
+     * @param inicio Posición de la primera jugada
+     * @param fin Posición siguiente a la última jugada
+     * @return -1 si todas las jugadas son legales, o el índice de la primera
+     *         mal escrita o ilegal; en ese caso no se escribe nada
+     */
+    public int agregarSAN(CharSequence texto, int inicio, int fin) {
+        int inicioLinea = longitud;
+        tablero.posicionInicial();
+        int indice = 0;
+        int i = inicio;
+        while (true) {
+            while (i < fin && esEspacio(texto.charAt(i))) {
+                i++;
+            }
+            if (i >= fin) {
+                break;
+            }
+            int j = i;
+            while (j < fin && !esEspacio(texto.charAt(j))) {
+                j++;
+            }
+            int movimiento = leerUCI(texto, i, j - i);
+            if (movimiento < 0) {
+                longitud = inicioLinea;
+                return indice;
+            }
+            int codigo = tablero.codificar(movimiento);
+            tablero.mover(movimiento);
+            // La gramática SAN del proyecto no admite "+" ni "#" tras un enroque
+            if (CodigoJugada.pieza(codigo) != 0 && tablero.enJaque()) {
+                codigo = CodigoJugada.conJaque(codigo, !tablero.tieneJugadasLegales());
+            }
+            asegurar(CodigoJugada.LONGITUD_MAXIMA + 16);
+            if ((indice & 1) == 0) {
+                if (indice > 0) {
+                    buffer[longitud++] = ' ';
+                }
+                longitud = escribirNumero(indice / 2 + 1, buffer, longitud);
+                buffer[longitud++] = '.';
+            }
+            buffer[longitud++] = ' ';
+            int caracteres = CodigoJugada.escribir(codigo, notacion, 0);
+            for (int k = 0; k < caracteres; k++) {
+                buffer[longitud++] = (byte) notacion[k];
+            }
+            indice++;
+            i = j;
+        }
+        if (indice > 0) {
+            agregar((byte) '\n');
+        }
+        return -1;
+    }
+
+    /**
+     * Traduce a UCI todas las partidas de un archivo SAN, una por línea. Las
+     * partidas inválidas o con jugadas ilegales dan una línea vacía, para que la
+     * línea N siga siendo la partida N
+     * @param archivo Archivo con partidas en SAN, separadas como las lee AnalizadorArchivo
+     * @param salida Destino del texto UCI; no se cierra
+     * @return Partidas y jugadas traducidas, y tiempo total con la lectura del archivo
+     * @throws IOException Si no se puede leer el archivo o escribir la salida
+     */
+    public ReporteRendimiento aUCI(Path archivo, OutputStream salida) throws IOException {
+        AnalizadorArchivo analizador = new AnalizadorArchivo(new AnalizadorSintactico(true), VENTANA);
+        long comienzo = System.nanoTime();
+        long[] cuenta = new long[2];
+        vaciar();
+        try {
+            analizador.analizar(archivo, (numero, resultado) -> {
+                if (!resultado.esValido()) {
+                    agregar((byte) '\n');
+                } else if (agregarUCI(resultado.getPartida()) < 0) {
+                    cuenta[0]++;
+                    cuenta[1] += resultado.getNumeroJugadas();
+                }
+                if (longitud >= UMBRAL_VOLCADO) {
+                    try {
+                        volcar(salida);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }, true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        volcar(salida);
+        return new ReporteRendimiento(1, cuenta[0], cuenta[1], System.nanoTime() - comienzo);
+    }
+
+    /**
+     * Traduce a SAN un archivo UCI con una partida por línea. Cada partida sale
+     * con números de turno y separada de la siguiente por una línea en blanco,
+     * como las lee AnalizadorArchivo; las líneas vacías y las partidas con
+     * jugadas mal escritas o ilegales no se escriben
+     * @param archivo Archivo UCI en ASCII
+     * @param salida Destino del texto SAN; no se cierra
+     * @return Partidas y jugadas traducidas, y tiempo total con la lectura del archivo
+     * @throws IOException Si no se puede leer el archivo o escribir la salida
+     */
+    public ReporteRendimiento aSAN(Path archivo, OutputStream salida) throws IOException {
+        long comienzo = System.nanoTime();
+        long partidas = 0;
+        long jugadas = 0;
+        VistaBytes vista = new VistaBytes();
+        vaciar();
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            long tamano = canal.size();
+            long posicion = 0;
+            int ventana = VENTANA;
+            while (posicion < tamano) {
+                int tramo = (int) Math.min(ventana, tamano - posicion);
+                boolean ultima = posicion + tramo == tamano;
+                MappedByteBuffer mapa = canal.map(FileChannel.MapMode.READ_ONLY, posicion, tramo);
+                // Solo se recorren líneas completas; la última puede seguir en la siguiente ventana
+                int limite = tramo;
+                if (!ultima) {
+                    while (limite > 0 && mapa.get(limite - 1) != '\n') {
+                        limite--;
+                    }
+                    if (limite == 0) {
+                        if (ventana > Integer.MAX_VALUE / 2) {
+                            throw new IOException("Línea demasiado larga en la posición " + posicion);
+                        }
+                        ventana *= 2;
+                        continue;
+                    }
+                }
+                vista.reiniciar(mapa, 0, limite);
+                int inicioLinea = 0;
+                while (inicioLinea < limite) {
+                    int finLinea = inicioLinea;
+                    while (finLinea < limite && mapa.get(finLinea) != '\n') {
+                        finLinea++;
+                    }
+                    int antes = longitud;
+                    if (agregarSAN(vista, inicioLinea, finLinea) < 0 && longitud > antes) {
+                        agregar((byte) '\n');
+                        partidas++;
+                        jugadas += contarJugadas(mapa, inicioLinea, finLinea);
+                    }
+                    if (longitud >= UMBRAL_VOLCADO) {
+                        volcar(salida);
+                    }
+                    inicioLinea = finLinea + 1;
+                }
+                posicion += limite;
+            }
+        }
+        volcar(salida);
+        return new ReporteRendimiento(1, partidas, jugadas, System.nanoTime() - comienzo);
+    }
+
+    // Las jugadas UCI no llevan espacios, así que basta contar los comienzos de palabra
+    private static int contarJugadas(MappedByteBuffer mapa, int inicio, int fin) {
+        int jugadas = 0;
+        boolean enPalabra = false;
+        for (int i = inicio; i < fin; i++) {
+            boolean espacio = esEspacio((char) mapa.get(i));
+            if (!espacio && !enPalabra) {
+                jugadas++;
+            }
+            enPalabra = !espacio;
+        }
+        return jugadas;
+    }
+
+    /**
+     * Lee una jugada UCI y la busca en la posición actual
+     * @return Movimiento interno, o -1 si no es UCI válido o no es legal
+     */
+    private int leerUCI(CharSequence texto, int inicio, int longitudJugada) {
+        if (longitudJugada != 4 && longitudJugada != 5) {
+            return -1;
+        }
+        int origen = casilla(texto.charAt(inicio), texto.charAt(inicio + 1));
+        int destino = casilla(texto.charAt(inicio + 2), texto.charAt(inicio + 3));
+        if (origen < 0 || destino < 0) {
+            return -1;
+        }
+        int coronacion = 0;
+        if (longitudJugada == 5) {
+            switch (texto.charAt(inicio + 4)) {
+                case 'q': coronacion = CodigoJugada.DAMA; break;
+                case 'r': coronacion = CodigoJugada.TORRE; break;
+                case 'b': coronacion = CodigoJugada.ALFIL; break;
+                case 'n': coronacion = CodigoJugada.CABALLO; break;
+                default: return -1;
+            }
+        }
+        return tablero.buscar(origen, destino, coronacion);
+    }
+
+    private static int casilla(char columna, char fila) {
+        if (columna < 'a' || columna > 'h' || fila < '1' || fila > '8') {
+            return -1;
+        }
+        return (fila - '1') * 8 + (columna - 'a');
+    }
+
+    /**
+     * Escribe un movimiento interno en UCI
+     * @param movimiento Movimiento devuelto por Tablero.resolver o Tablero.buscar
+     * @param destino Arreglo donde se escribe; necesita sitio para 5 bytes
+     * @param posicion Posición donde se empieza a escribir
+     * @return Posición siguiente al último byte escrito
+     */
+    public static int escribirUCI(int movimiento, byte[] destino, int posicion) {
+        int origen = Tablero.origen(movimiento);
+        int llegada = Tablero.destino(movimiento);
+        destino[posicion++] = (byte) ('a' + (origen & 7));
+        destino[posicion++] = (byte) ('1' + (origen >>> 3));
+        destino[posicion++] = (byte) ('a' + (llegada & 7));
+        destino[posicion++] = (byte) ('1' + (llegada >>> 3));
+        int coronacion = Tablero.coronacion(movimiento);
+        if (coronacion != 0) {
+            destino[posicion++] = LETRAS_CORONACION[coronacion];
+        }
+        return posicion;
+    }
+
+    private static int escribirNumero(int numero, byte[] destino, int posicion) {
+        int digitos = 1;
+        for (int n = numero; n >= 10; n /= 10) {
+            digitos++;
+        }
+        for (int i = posicion + digitos - 1; i >= posicion; i--) {
+            destino[i] = (byte) ('0' + numero % 10);
+            numero /= 10;
+        }
+        return posicion + digitos;
+    }
+
+    private static boolean esEspacio(char c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private void agregar(byte b) {
+        asegurar(1);
+        buffer[longitud++] = b;
+    }
+
+    private void asegurar(int espacio) {
+        if (longitud + espacio > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, longitud + espacio));
+        }
+    }
+
+    /**
+     * Obtiene el buffer con el texto escrito desde el último vaciado. Solo son
+     * válidos los primeros getLongitud() bytes, y puede cambiar al escribir más
+     * @return Buffer interno
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Obtiene el número de bytes escritos desde el último vaciado
+     * @return Número de bytes
+     */
+    public int getLongitud() {
+        return longitud;
+    }
+
+    /**
+     * Descarta el texto escrito, conservando el buffer
+     */
+    public void vaciar() {
+        longitud = 0;
+    }
+
+    /**
+     * Escribe en una salida el texto acumulado y vacía el buffer
+     * @param salida Destino del texto
+     * @throws IOException Si no se puede escribir
+     */
+    public void volcar(OutputStream salida) throws IOException {
+        salida.write(buffer, 0, longitud);
+        longitud = 0;
+    }
+}
@@ -0,0 +1,65 @@
+package motor;
+
+import modelo.Partida;
+import modelo.ResultadoAnalisis;
+
+/**
+ * Comprueba que las jugadas de una partida sean legales reproduciéndolas en
+ * un tablero. Complementa al AnalizadorSintactico, que solo comprueba la
+ * notación: "1. Nf6 Nf3" es SAN correcto pero ningún caballo blanco llega a f6.
+ *
+ * También comprueba lo que la notación no puede: que los turnos vayan numerados
+ * desde 1 sin saltos, que solo al último le falte la jugada negra y que las
+ * marcas de jaque y mate correspondan a la posición.
+ *
+ * Reutiliza el mismo tablero en cada partida, así que una instancia no debe
+ * usarse desde varios hilos a la vez.
+ */
+public class ValidadorLegalidad {
+
+    private final Tablero tablero = new Tablero();
+
+    /**
+     * Valida la legalidad de una partida ya analizada
+     * @param partida Partida sintácticamente válida
+     * @return Resultado con el número de turnos y jugadas, o con el primer error
+     */
+    public ResultadoAnalisis validar(Partida partida) {
+        tablero.posicionInicial();
+        // Se recorren los números y los códigos de las jugadas: no se crea ningún Turno
+        // salvo el del mensaje de error
+        int numeroTurnos = partida.getNumeroTurnos();
+        int jugada = 0;
+        for (int t = 0; t < numeroTurnos; t++) {
+            int numero = partida.getNumeroTurno(t);
+            if (numero != t + 1) {
+                return new ResultadoAnalisis(false, "Número de turno incorrecto: se esperaba el turno " + (t + 1)
+                        + " y la partida tiene el " + numero);
+            }
+            if (!tablero.jugar(partida.getCodigoJugada(jugada++))) {
+                return new ResultadoAnalisis(false, "Jugada blanca ilegal en turno " + numero + ": "
+                        + partida.getTurnos().get(t).getJugadaBlanca()
+                        + " (" + Tablero.mensajeError(tablero.getError()) + ")");
+            }
+            if (partida.tieneJugadaNegra(t)) {
+                if (!tablero.jugar(partida.getCodigoJugada(jugada++))) {
+                    return new ResultadoAnalisis(false, "Jugada negra ilegal en turno " + numero + ": "
+                            + partida.getTurnos().get(t).getJugadaNegra()
+                            + " (" + Tablero.mensajeError(tablero.getError()) + ")");
+                }
+            } else if (t < numeroTurnos - 1) {
+                // Sin la jugada negra, la blanca del turno siguiente la harían las negras
+                return new ResultadoAnalisis(false, "Falta la jugada negra del turno " + numero);
+            }
+        }
+        return new ResultadoAnalisis(true, numeroTurnos, partida.getNumeroJugadas(), partida);
+    }
+
+    /**
+     * Obtiene el tablero con la posición en la que terminó la última validación
+     * @return Tablero usado por el validador
+     */
+    public Tablero getTablero() {
+        return tablero;
+    }
+}
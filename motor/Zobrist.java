@@ -0,0 +1,82 @@
+package motor;
+
+/**
+ * Claves aleatorias de 64 bits para el hash de Zobrist de una posición.
+ *
+ * La clave de una posición es el XOR de la clave de cada pieza en su casilla,
+ * de los derechos de enroque, de la columna de captura al paso y del turno.
+ * Como el XOR se deshace a sí mismo, al mover una pieza basta con quitar su
+ * clave de la casilla de origen y sumar la de la casilla destino.
+ *
+ * Las claves salen de una semilla fija: los índices guardados en disco solo
+ * sirven mientras las claves sean las mismas, así que no deben cambiar.
+ */
+public final class Zobrist {
+
+    private static final long SEMILLA = 0x5A0B415A0B415AL;
+
+    // Una clave por pieza (color * 8 + pieza) y casilla
+    private static final long[] PIEZAS = new long[16 * 64];
+    // Una clave por cada combinación de derechos de enroque
+    private static final long[] ENROQUES = new long[16];
+    // Una clave por columna de captura al paso
+    private static final long[] AL_PASO = new long[8];
+    // Se suma cuando mueven las negras
+    static final long TURNO;
+
+    static {
+        long estado = SEMILLA;
+        for (int i = 0; i < PIEZAS.length; i++) {
+            estado += 0x9E3779B97F4A7C15L;
+            PIEZAS[i] = mezclar(estado);
+        }
+        for (int i = 1; i < ENROQUES.length; i++) {
+            estado += 0x9E3779B97F4A7C15L;
+            ENROQUES[i] = mezclar(estado);
+        }
+        for (int i = 0; i < AL_PASO.length; i++) {
+            estado += 0x9E3779B97F4A7C15L;
+            AL_PASO[i] = mezclar(estado);
+        }
+        estado += 0x9E3779B97F4A7C15L;
+        TURNO = mezclar(estado);
+    }
+
+    private Zobrist() {
+    }
+
+    // Función de mezcla de SplitMix64
+    private static long mezclar(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Clave de una pieza en una casilla
+     * @param pieza color * 8 + pieza de CodigoJugada
+     * @param casilla Casilla de 0 (a1) a 63 (h8)
+     * @return Clave de 64 bits
+     */
+    static long pieza(int pieza, int casilla) {
+        return PIEZAS[pieza << 6 | casilla];
+    }
+
+    /**
+     * Clave de unos derechos de enroque
+     * @param enroques Combinación de las constantes ENROQUE_* de Tablero
+     * @return Clave de 64 bits; 0 si no queda ningún derecho
+     */
+    static long enroques(int enroques) {
+        return ENROQUES[enroques];
+    }
+
+    /**
+     * Clave de la columna donde se puede capturar al paso
+     * @param columna Columna de 0 (a) a 7 (h)
+     * @return Clave de 64 bits
+     */
+    static long alPaso(int columna) {
+        return AL_PASO[columna];
+    }
+}
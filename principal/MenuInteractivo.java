@@ -0,0 +1,136 @@
+package principal;
+
+import analizador.AnalizadorArchivo;
+import analizador.AnalizadorGramatica;
+import modelo.ResultadoAnalisis;
+import motor.ValidadorLegalidad;
+import util.Metricas;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Scanner;
+
+/**
+ * Menú interactivo por consola. Es la única parte del programa que muestra la
+ * interfaz gráfica, así que Swing y AWT solo se cargan si se entra aquí y se
+ * pide ver un árbol
+ */
+final class MenuInteractivo {
+
+private MenuInteractivo() {
+}
+
+/**
+     * Muestra el menú hasta que el usuario elige salir
+     */
+static void ejecutar() {
+     Scanner scanner = new Scanner(System.in);
+     boolean continuar = true;
+     
+     System.out.println("=== ANALIZADOR SINTÁCTICO DE AJEDREZ ===");
+     
+     while (continuar) {
+          System.out.println("\nOpciones:");
+          System.out.println("1. Analizar una partida");
+          System.out.println("2. Analizar un archivo de partidas");
+          System.out.println("3. Salir");
+          System.out.print("\nSeleccione una opción (1-3): ");
+          
+          String opcion = scanner.nextLine().trim();
+          
+          switch (opcion) {
+               case "1":
+                    analizarPartida(scanner);
+                    break;
+               case "2":
+                    analizarArchivo(scanner);
+                    break;
+               case "3":
+                    continuar = false;
+                    System.out.println("\n¡Gracias por usar el Analizador Sintáctico de Ajedrez!");
+                    break;
+               default:
+                    System.out.println("\nOpción no válida. Por favor, seleccione 1, 2 o 3.");
+                    break;
+          }
+     }
+     
+     scanner.close();
+}
+
+/**
+     * Método para analizar una partida
+     * @param scanner Scanner para leer la entrada del usuario
+     */
+private static void analizarPartida(Scanner scanner) {
+     System.out.println("\nIngrese la partida completa en notación algebraica estándar (SAN):");
+     System.out.println("Ejemplo: 1. d4 d5 2. Bf4 Nf6 3. e3 e6...");
+     
+     String partidaTexto = scanner.nextLine().trim();
+     
+     if (partidaTexto.isEmpty()) {
+          System.out.println("No se ingresó ninguna partida.");
+          return;
+     }
+     
+        // Analizar la partida con la gramática BNF; si es válida se muestra su árbol sintáctico
+     ResultadoAnalisis resultado = new AnalizadorGramatica().analizar(partidaTexto);
+     
+        // Mostrar resultado
+     if (resultado.esValido()) {
+          System.out.println("\nLa partida es sintácticamente válida.");
+          System.out.println("Número de turnos analizados: " + resultado.getNumeroTurnos());
+          
+          // Reproducir la partida en un tablero para comprobar que las jugadas son legales
+          ResultadoAnalisis legalidad = new ValidadorLegalidad().validar(resultado.getPartida());
+          if (legalidad.esValido()) {
+               System.out.println("Todas las jugadas son legales.");
+          } else {
+               System.out.println(legalidad.getMensajeError());
+          }
+     } else {
+          System.out.println("\nLa partida contiene errores sintácticos:");
+          System.out.println(resultado.getMensajeError());
+     }
+     
+     System.out.println("\nPresione Enter para continuar...");
+     scanner.nextLine();
+     }
+
+/**
+     * Método para analizar en lote un archivo con muchas partidas
+     * @param scanner Scanner para leer la entrada del usuario
+     */
+private static void analizarArchivo(Scanner scanner) {
+     System.out.println("\nIngrese la ruta del archivo de partidas:");
+     String ruta = scanner.nextLine().trim();
+     Path archivo = Paths.get(ruta);
+
+     if (ruta.isEmpty() || !Files.isRegularFile(archivo)) {
+          System.out.println("No se encontró el archivo.");
+          return;
+     }
+
+        // Se muestran solo las partidas con errores y al final un resumen
+     long[] invalidas = new long[1];
+     try {
+          long total = new AnalizadorArchivo().analizar(archivo, (numero, resultado) -> {
+               if (!resultado.esValido()) {
+                    invalidas[0]++;
+                    System.out.println("Partida " + numero + ": " + resultado.getMensajeError());
+               }
+          });
+          System.out.println("\nPartidas analizadas: " + total);
+          System.out.println("Partidas válidas: " + (total - invalidas[0]));
+          System.out.println("Partidas con errores: " + invalidas[0]);
+          // Con -Dajedrez.metricas=true se muestra dónde se fue el tiempo
+          if (Metricas.ACTIVAS) {
+               System.out.println("\n" + Metricas.instantanea());
+          }
+     } catch (IOException e) {
+          System.out.println("No se pudo leer el archivo: " + e.getMessage());
+     }
+}
+}
@@ -1,80 +1,406 @@
 package principal;
 
+import analizador.AnalizadorArchivo;
+import analizador.AnalizadorPGN;
+import analizador.AnalizadorParalelo;
 import analizador.AnalizadorSintactico;
-import analizador.AnalizadorGramatica;
+import analizador.DetectorDuplicados;
+import analizador.EscanerPGN;
+import analizador.EscritorJSONL;
+import analizador.ReceptorResultados;
+import modelo.EstadisticasPartidas;
+import modelo.ReporteRendimiento;
 import modelo.ResultadoAnalisis;
+import motor.TranscodificadorUCI;
+import servidor.GeneradorCarga;
+import servidor.ServidorValidacion;
 
-import java.util.Scanner;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- * Clase principal que ejecuta el analizador sintáctico
+ * Clase principal que ejecuta el analizador sintáctico.
+ *
+ * Sin argumentos abre el menú interactivo. Con argumentos ejecuta una orden y
+ * termina con un código de salida; estas órdenes no cargan Swing ni AWT, así
+ * que arrancan rápido en trabajos por lotes:
+ * <pre>
+ * validar [archivo...]    valida las partidas de los archivos, o de la entrada estándar
+ *                         si no hay archivos o el archivo es "-"; sale con 0 si todas
+ *                         son válidas, 1 si alguna no lo es y 2 si no se pudo leer
+ * pgn archivo...          valida las partidas de archivos PGN completos, con cabeceras,
+ *                         comentarios y variantes; los códigos de salida son los de validar
+ * json archivo salida     escribe el resultado de cada partida en JSON Lines; si la
+ *                         salida acaba en ".gz" se comprime y si es "-" va a la
+ *                         salida estándar
+ * estadisticas archivo... estadísticas de las partidas válidas, en paralelo
+ * duplicados archivo [n]  cuenta las partidas repetidas
+ * uci entrada salida      traduce partidas SAN a UCI, una por línea
+ * san entrada salida      traduce partidas UCI, una por línea, a SAN
+ * servidor [puerto]       arranca el servidor de validación
+ * carga [puerto] ...      lanza carga contra el servidor
+ * </pre>
  */
 public class Principal {
 
+    // Códigos de salida de las órdenes
+    static final int SALIDA_VALIDA = 0;
+    static final int SALIDA_INVALIDA = 1;
+    static final int SALIDA_ERROR = 2;
+
 public static void main(String[] args) {
-     Scanner scanner = new Scanner(System.in);
-     boolean continuar = true;
-     
-     System.out.println("=== ANALIZADOR SINTÁCTICO DE AJEDREZ ===");
-     
-     while (continuar) {
-          System.out.println("\nOpciones:");
-          System.out.println("1. Analizar una partida");
-          System.out.println("2. Salir");
-          System.out.print("\nSeleccione una opción (1-2): ");
-          
-          String opcion = scanner.nextLine().trim();
-          
-          switch (opcion) {
-               case "1":
-                    analizarPartida(scanner);
-                    break;
-               case "2":
-                    continuar = false;
-                    System.out.println("\n¡Gracias por usar el Analizador Sintáctico de Ajedrez!");
-                    break;
-               default:
-                    System.out.println("\nOpción no válida. Por favor, seleccione 1 o 2.");
-                    break;
+     if (args.length == 0) {
+          MenuInteractivo.ejecutar();
+          return;
+     }
+     int codigo;
+     switch (args[0]) {
+          case "validar":
+               codigo = validar(args);
+               break;
+          case "pgn":
+               codigo = args.length > 1 ? validarPGN(args) : uso();
+               break;
+          case "json":
+               codigo = args.length > 2 ? exportarJSON(args) : uso();
+               break;
+          case "estadisticas":
+               codigo = args.length > 1 ? calcularEstadisticas(args) : uso();
+               break;
+          case "duplicados":
+               codigo = args.length > 1 ? buscarDuplicados(args) : uso();
+               break;
+          case "uci":
+          case "san":
+               codigo = args.length > 2 ? transcodificar(args) : uso();
+               break;
+          case "servidor":
+               codigo = iniciarServidor(args);
+               break;
+          case "carga":
+               codigo = generarCarga(args);
+               break;
+          default:
+               codigo = uso();
+               break;
+     }
+     if (codigo != SALIDA_VALIDA) {
+          System.exit(codigo);
+     }
+}
+
+/**
+     * Valida las partidas de los archivos indicados o de la entrada estándar:
+     * "validar [archivo...]". Solo se escriben los errores, uno por línea
+     * @param args Argumentos de la línea de comandos
+     * @return Código de salida
+     */
+private static int validar(String[] args) {
+     AnalizadorArchivo analizador = new AnalizadorArchivo();
+     boolean invalidas = false;
+     int codigo = SALIDA_VALIDA;
+     int archivos = Math.max(1, args.length - 1);
+     for (int i = 0; i < archivos; i++) {
+          String nombre = i + 1 < args.length ? args[i + 1] : "-";
+          String prefijo = nombre.equals("-") ? "" : nombre + ": ";
+          ReceptorErrores receptor = new ReceptorErrores(prefijo);
+          try {
+               // La entrada estándar se lee entera; los archivos se recorren mapeados
+               long total = nombre.equals("-")
+                         ? analizador.analizar(ByteBuffer.wrap(System.in.readAllBytes()), receptor)
+                         : analizador.analizar(Paths.get(nombre), receptor);
+               if (total == 0) {
+                    System.out.println(prefijo + "no contiene partidas");
+               }
+               invalidas |= total == 0 || receptor.invalidas > 0;
+          } catch (IOException e) {
+               System.err.println(prefijo + "no se pudo leer: " + e.getMessage());
+               codigo = SALIDA_ERROR;
           }
      }
-     
-     scanner.close();
+     if (codigo == SALIDA_VALIDA && invalidas) {
+          codigo = SALIDA_INVALIDA;
+     }
+     return codigo;
 }
 
 /**
-     * Método para analizar una partida
-     * @param scanner Scanner para leer la entrada del usuario
+     * Escribe los errores de las partidas inválidas de una entrada. Es una clase
+     * y no una lambda porque generar la clase de una lambda retrasa el arranque
      */
-private static void analizarPartida(Scanner scanner) {
-     System.out.println("\nIngrese la partida completa en notación algebraica estándar (SAN):");
-     System.out.println("Ejemplo: 1. d4 d5 2. Bf4 Nf6 3. e3 e6...");
-     
-     String partidaTexto = scanner.nextLine().trim();
-     
-     if (partidaTexto.isEmpty()) {
-          System.out.println("No se ingresó ninguna partida.");
-          return;
+private static final class ReceptorErrores implements ReceptorResultados {
+     private final String prefijo;
+     private long invalidas;
+
+     ReceptorErrores(String prefijo) {
+          this.prefijo = prefijo;
+     }
+
+     @Override
+     public void recibir(long numeroPartida, ResultadoAnalisis resultado) {
+          if (!resultado.esValido()) {
+               invalidas++;
+               System.out.println(prefijo + "partida " + numeroPartida + ": " + resultado.getMensajeError());
+          }
+     }
+}
+
+/**
+     * Valida las partidas de uno o más archivos PGN: "pgn archivo...". Los errores
+     * salen por la salida estándar con el evento y los jugadores de la partida, y
+     * el caudal de cada archivo por la de errores
+     * @param args Argumentos de la línea de comandos
+     * @return Código de salida
+     */
+private static int validarPGN(String[] args) {
+     AnalizadorPGN analizador = new AnalizadorPGN();
+     boolean invalidas = false;
+     for (int i = 1; i < args.length; i++) {
+          ReceptorErroresPGN receptor = new ReceptorErroresPGN(args[i] + ": ");
+          try {
+               ReporteRendimiento reporte = analizador.analizar(Paths.get(args[i]), receptor);
+               System.err.println(args[i] + ": " + reporte);
+               invalidas |= reporte.getPartidas() == 0 || receptor.invalidas > 0;
+          } catch (IOException e) {
+               System.err.println(args[i] + ": no se pudo leer: " + e.getMessage());
+               return SALIDA_ERROR;
+          }
+     }
+     return invalidas ? SALIDA_INVALIDA : SALIDA_VALIDA;
+}
+
+/**
+     * Escribe los errores de las partidas PGN inválidas. Las etiquetas se copian
+     * solo para esas partidas
+     */
+private static final class ReceptorErroresPGN implements AnalizadorPGN.ReceptorPGN {
+     private final String prefijo;
+     private long invalidas;
+
+     ReceptorErroresPGN(String prefijo) {
+          this.prefijo = prefijo;
      }
-     
-        // Analizar la partida
-     AnalizadorSintactico analizador = new AnalizadorSintactico();
-     ResultadoAnalisis resultado = analizador.analizar(partidaTexto);
-     
-        // Mostrar resultado
-     if (resultado.esValido()) {
-          System.out.println("\nLa partida es sintácticamente válida.");
-          System.out.println("Número de turnos analizados: " + resultado.getNumeroTurnos());
-          
-          // Mostrar el árbol de derivación
-          AnalizadorGramatica analizadorGramatica = new AnalizadorGramatica();
-          analizadorGramatica.analizar(partidaTexto);
-     } else {
-          System.out.println("\nLa partida contiene errores sintácticos:");
-          System.out.println(resultado.getMensajeError());
-     }
-     
-     System.out.println("\nPresione Enter para continuar...");
-     scanner.nextLine();
-     }
-}
\ No newline at end of file
+
+     @Override
+     public void recibir(long numeroPartida, ResultadoAnalisis resultado, EscanerPGN partida) {
+          if (!resultado.esValido()) {
+               invalidas++;
+               CharSequence evento = partida.getEtiqueta("Event");
+               CharSequence blancas = partida.getEtiqueta("White");
+               CharSequence negras = partida.getEtiqueta("Black");
+               String descripcion = evento == null ? "" : " (" + evento
+                         + (blancas != null && negras != null ? ", " + blancas + " - " + negras : "") + ")";
+               System.out.println(prefijo + "partida " + numeroPartida + descripcion + ": " + resultado.getMensajeError());
+          }
+     }
+}
+
+/**
+     * Escribe el resultado de cada partida de un archivo en JSON Lines, con sus
+     * jugadas si es válida: "json archivo salida". El caudal sale por la salida
+     * de errores
+     * @param args Argumentos de la línea de comandos
+     * @return Código de salida
+     */
+private static int exportarJSON(String[] args) {
+     Path archivo = Paths.get(args[1]);
+     try {
+          // Al cerrar el escritor se cierra también el canal, incluida la salida estándar
+          WritableByteChannel canal = args[2].equals("-")
+                    ? Channels.newChannel(System.out)
+                    : FileChannel.open(Paths.get(args[2]), StandardOpenOption.CREATE,
+                              StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+          long inicio = System.nanoTime();
+          long partidas;
+          try (EscritorJSONL escritor = new EscritorJSONL(canal, args[2].endsWith(".gz"))) {
+               partidas = new AnalizadorArchivo().analizar(archivo, escritor, true);
+          } catch (UncheckedIOException e) {
+               throw e.getCause();
+          }
+          long nanos = System.nanoTime() - inicio;
+          System.err.println(String.format("%d partidas en %d ms (%.1f MB/s de entrada)", partidas, nanos / 1_000_000,
+                    Files.size(archivo) * 1000.0 / nanos));
+          return SALIDA_VALIDA;
+     } catch (IOException e) {
+          System.err.println("No se pudo exportar: " + e.getMessage());
+          return SALIDA_ERROR;
+     }
+}
+
+/**
+     * Calcula las estadísticas de las partidas de uno o más archivos:
+     * "estadisticas archivo...". Cada archivo se mapea entero y se reparte entre
+     * los hilos del pool común
+     * @param args Argumentos de la línea de comandos
+     * @return Código de salida
+     */
+private static int calcularEstadisticas(String[] args) {
+     AnalizadorParalelo analizador = new AnalizadorParalelo(new AnalizadorSintactico(true), ForkJoinPool.commonPool());
+     EstadisticasPartidas estadisticas = new EstadisticasPartidas();
+     long inicio = System.nanoTime();
+     for (int i = 1; i < args.length; i++) {
+          try (FileChannel canal = FileChannel.open(Paths.get(args[i]), StandardOpenOption.READ)) {
+               if (canal.size() > Integer.MAX_VALUE) {
+                    System.err.println(args[i] + ": el archivo pasa de 2 GiB; divídalo en partes");
+                    return SALIDA_ERROR;
+               }
+               estadisticas.combinar(analizador.estadisticas(canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size())));
+          } catch (IOException e) {
+               System.err.println(args[i] + ": no se pudo leer: " + e.getMessage());
+               return SALIDA_ERROR;
+          }
+     }
+     System.out.print(estadisticas);
+     System.out.println("\nTiempo: " + (System.nanoTime() - inicio) / 1_000_000 + " ms con "
+               + ForkJoinPool.commonPool().getParallelism() + " hilos");
+     return SALIDA_VALIDA;
+}
+
+// Muestra las órdenes disponibles
+private static int uso() {
+     System.err.println("Uso: Principal [validar [archivo...] | pgn archivo... | json archivo salida | estadisticas archivo... | duplicados archivo [partidasEsperadas]"
+               + " | uci entrada salida | san entrada salida | servidor [puerto] | carga [puerto] [conexiones] [peticiones] [ventana]]");
+     return SALIDA_ERROR;
+}
+
+/**
+     * Traduce un archivo de partidas entre SAN y UCI: "uci entrada salida" o
+     * "san entrada salida". Informa de las jugadas traducidas por segundo
+     * @param args Argumentos de la línea de comandos
+     * @return Código de salida
+     */
+private static int transcodificar(String[] args) {
+     TranscodificadorUCI transcodificador = new TranscodificadorUCI();
+     try (OutputStream salida = new BufferedOutputStream(Files.newOutputStream(Paths.get(args[2])), 1 << 16)) {
+          ReporteRendimiento reporte = args[0].equals("uci")
+                    ? transcodificador.aUCI(Paths.get(args[1]), salida)
+                    : transcodificador.aSAN(Paths.get(args[1]), salida);
+          System.out.println(String.format("%d partidas, %d jugadas en %d ms (%.2f millones de jugadas/s)",
+                    reporte.getPartidas(), reporte.getJugadas(), reporte.getNanosegundos() / 1_000_000,
+                    reporte.jugadasPorSegundo() / 1_000_000));
+          return SALIDA_VALIDA;
+     } catch (IOException e) {
+          System.err.println("No se pudo traducir: " + e.getMessage());
+          return SALIDA_ERROR;
+     }
+}
+
+/**
+     * Arranca el servidor de validación: "servidor [puerto]"
+     * @param args Argumentos de la línea de comandos
+     * @return Código de salida; el servidor solo termina si no pudo arrancar o se interrumpe
+     */
+private static int iniciarServidor(String[] args) {
+     int puerto;
+     try {
+          puerto = entero(args, 1, ServidorValidacion.PUERTO_POR_DEFECTO, 0, 65535);
+     } catch (NumberFormatException e) {
+          return uso();
+     }
+     try {
+          ServidorValidacion servidor = new ServidorValidacion(puerto);
+          servidor.iniciar();
+          System.out.println("Servidor de validación escuchando en localhost:" + servidor.getPuerto()
+                    + (ServidorValidacion.usaHilosVirtuales() ? " (hilos virtuales)" : ""));
+          servidor.esperar();
+          return SALIDA_VALIDA;
+     } catch (IOException e) {
+          System.err.println("No se pudo iniciar el servidor: " + e.getMessage());
+          return SALIDA_ERROR;
+     } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return SALIDA_ERROR;
+     }
+}
+
+/**
+     * Lanza carga contra el servidor: "carga [puerto] [conexiones] [peticiones] [ventana]"
+     * @param args Argumentos de la línea de comandos
+     * @return Código de salida: 2 si alguna conexión falló
+     */
+private static int generarCarga(String[] args) {
+     int puerto;
+     int conexiones;
+     int peticiones;
+     int ventana;
+     try {
+          puerto = entero(args, 1, ServidorValidacion.PUERTO_POR_DEFECTO, 1, 65535);
+          conexiones = entero(args, 2, 1000, 1, Integer.MAX_VALUE);
+          peticiones = entero(args, 3, 100, 1, Integer.MAX_VALUE);
+          ventana = entero(args, 4, 8, 1, Integer.MAX_VALUE);
+     } catch (NumberFormatException e) {
+          return uso();
+     }
+     try {
+          GeneradorCarga generador = new GeneradorCarga(puerto, conexiones, peticiones, ventana);
+          System.out.println(generador.ejecutar());
+          return generador.getConexionesFallidas() == 0 ? SALIDA_VALIDA : SALIDA_ERROR;
+     } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return SALIDA_ERROR;
+     }
+}
+
+/**
+     * Lee un argumento entero opcional
+     * @param args Argumentos de la línea de comandos
+     * @param indice Posición del argumento
+     * @param porDefecto Valor si no se indicó
+     * @param minimo Menor valor admitido
+     * @param maximo Mayor valor admitido
+     * @return Valor del argumento
+     * @throws NumberFormatException Si no es un entero o está fuera del rango
+     */
+private static int entero(String[] args, int indice, int porDefecto, int minimo, int maximo) {
+     if (args.length <= indice) {
+          return porDefecto;
+     }
+     int valor = Integer.parseInt(args[indice]);
+     if (valor < minimo || valor > maximo) {
+          throw new NumberFormatException("Fuera de rango: " + valor);
+     }
+     return valor;
+}
+
+/**
+     * Cuenta las partidas repetidas de un archivo: "duplicados archivo [partidasEsperadas]"
+     * @param args Argumentos de la línea de comandos
+     * @return Código de salida
+     */
+private static int buscarDuplicados(String[] args) {
+     DetectorDuplicados detector;
+     try {
+          long esperadas = args.length > 2 ? Long.parseLong(args[2]) : 10_000_000L;
+          detector = new DetectorDuplicados(esperadas, 0.01);
+     } catch (NumberFormatException e) {
+          System.err.println("Número de partidas esperadas inválido: " + args[2]);
+          return uso();
+     } catch (IllegalArgumentException e) {
+          // El detector no se puede dimensionar con ese número de partidas
+          System.err.println(e.getMessage());
+          return uso();
+     }
+     try {
+          long inicio = System.nanoTime();
+          long total = detector.analizar(Paths.get(args[1]), (numero, resultado, duplicada) -> { });
+          long milisegundos = (System.nanoTime() - inicio) / 1_000_000;
+          System.out.println("Partidas en el archivo: " + total + " (" + milisegundos + " ms)");
+          System.out.println(detector);
+          return SALIDA_VALIDA;
+     } catch (IOException e) {
+          System.out.println("No se pudo leer el archivo: " + e.getMessage());
+          return SALIDA_ERROR;
+     }
+}
+}
@@ -0,0 +1,151 @@
+package servidor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generador de carga para el servidor de validación. Abre muchas conexiones a
+ * la vez, envía en cada una varias peticiones seguidas sin esperar respuesta
+ * (pipelining) y mide la latencia de cada petición, desde que se envía hasta
+ * que llega su respuesta. Al final informa de los percentiles y del caudal.
+ */
+public class GeneradorCarga {
+
+    // Mezcla de partidas válidas e inválidas para que el servidor recorra ambos caminos
+    private static final String[] PARTIDAS = {
+        "1. e4 e5 2. Nf3 d6 3. d4 Bg4 4. dxe5 Bxf3 5. Qxf3 dxe5 6. Bc4 Nf6 7. Qb3 Qe7 8. Nc3 c6 9. Bg5 b5 "
+                + "10. Nxb5 cxb5 11. Bxb5+ Nbd7 12. O-O-O Rd8 13. Rxd7 Rxd7 14. Rd1 Qe6 15. Bxd7+ Nxd7 16. Qb8+ Nxb8 17. Rd8#",
+        "1. d4 d5 2. Bf4 Nf6 3. e3 e6 4. Nf3 c5 5. c3 Nc6",
+        "1. e4 e5 2. Qh9 Nf6",
+        "1. e4 c5 2. Nf3 d6 3. d4 cxd4 4. Nxd4 Nf6 5. Nc3 a6 6. Be3 e5 7. Nb3 Be6 8. f3 Be7 9. Qd2 O-O 10. O-O-O Nbd7"
+    };
+
+    private final int puerto;
+    private final int conexiones;
+    private final int peticionesPorConexion;
+    private final int ventana;
+    private long conexionesFallidas;
+
+    /**
+     * Constructor
+     * @param puerto Puerto del servidor en localhost
+     * @param conexiones Conexiones simultáneas
+     * @param peticionesPorConexion Peticiones que envía cada conexión
+     * @param ventana Peticiones enviadas sin esperar respuesta en cada conexión
+     */
+    public GeneradorCarga(int puerto, int conexiones, int peticionesPorConexion, int ventana) {
+        this.puerto = puerto;
+        this.conexiones = conexiones;
+        this.peticionesPorConexion = peticionesPorConexion;
+        this.ventana = Math.max(1, Math.min(ventana, peticionesPorConexion));
+    }
+
+    /**
+     * Lanza la carga y espera a que terminen todas las conexiones
+     * @return Informe con el caudal y los percentiles de latencia
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    public String ejecutar() throws InterruptedException {
+        long[][] latencias = new long[conexiones][];
+        AtomicLong errores = new AtomicLong();
+        CountDownLatch fin = new CountDownLatch(conexiones);
+        ExecutorService ejecutor = ServidorValidacion.crearEjecutor();
+        long inicio = System.nanoTime();
+        for (int c = 0; c < conexiones; c++) {
+            int indice = c;
+            ejecutor.execute(() -> {
+                try {
+                    latencias[indice] = conexion(indice);
+                } catch (IOException e) {
+                    errores.incrementAndGet();
+                    latencias[indice] = new long[0];
+                } finally {
+                    fin.countDown();
+                }
+            });
+        }
+        fin.await();
+        long nanos = System.nanoTime() - inicio;
+        ejecutor.shutdown();
+        conexionesFallidas = errores.get();
+
+        // Se juntan las latencias de todas las conexiones para calcular los percentiles
+        int total = 0;
+        for (long[] l : latencias) {
+            total += l.length;
+        }
+        long[] todas = new long[total];
+        int n = 0;
+        for (long[] l : latencias) {
+            System.arraycopy(l, 0, todas, n, l.length);
+            n += l.length;
+        }
+        Arrays.sort(todas);
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%d conexiones, %d peticiones, ventana %d, hilos virtuales: %s%n",
+                conexiones, total, ventana, ServidorValidacion.usaHilosVirtuales()));
+        sb.append(String.format("Caudal: %.0f peticiones/s en %.2f s, conexiones fallidas: %d%n",
+                total * 1e9 / nanos, nanos / 1e9, errores.get()));
+        sb.append(String.format("Latencia (ms): p50 %.3f  p90 %.3f  p99 %.3f  p99.9 %.3f  máx %.3f",
+                percentil(todas, 0.50), percentil(todas, 0.90), percentil(todas, 0.99),
+                percentil(todas, 0.999), total == 0 ? 0.0 : todas[total - 1] / 1e6));
+        return sb.toString();
+    }
+
+    /**
+     * Obtiene las conexiones que fallaron en la última ejecución
+     * @return Conexiones que no se pudieron abrir o que el servidor cerró antes de tiempo
+     */
+    public long getConexionesFallidas() {
+        return conexionesFallidas;
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        int indice = (int) Math.min(ordenadas.length - 1, Math.ceil(p * ordenadas.length) - 1);
+        return ordenadas[Math.max(0, indice)] / 1e6;
+    }
+
+    // Envía las peticiones de una conexión por ventanas y mide cada una
+    private long[] conexion(int indice) throws IOException {
+        long[] latencias = new long[peticionesPorConexion];
+        long[] envio = new long[ventana];
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), puerto);
+             BufferedReader entrada = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            OutputStream salida = socket.getOutputStream();
+            int hechas = 0;
+            while (hechas < peticionesPorConexion) {
+                int n = Math.min(ventana, peticionesPorConexion - hechas);
+                StringBuilder lote = new StringBuilder(n * 120);
+                for (int i = 0; i < n; i++) {
+                    lote.append(PARTIDAS[(indice + hechas + i) % PARTIDAS.length]).append('\n');
+                }
+                long ahora = System.nanoTime();
+                Arrays.fill(envio, 0, n, ahora);
+                salida.write(lote.toString().getBytes(StandardCharsets.UTF_8));
+                salida.flush();
+                for (int i = 0; i < n; i++) {
+                    if (entrada.readLine() == null) {
+                        throw new IOException("El servidor cerró la conexión");
+                    }
+                    latencias[hechas + i] = System.nanoTime() - envio[i];
+                }
+                hechas += n;
+            }
+            salida.write("SALIR\n".getBytes(StandardCharsets.UTF_8));
+        }
+        return latencias;
+    }
+}
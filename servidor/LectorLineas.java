@@ -0,0 +1,115 @@
+package servidor;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Lee líneas de texto como BufferedReader.readLine(), pero sin guardar más de
+ * un número máximo de caracteres por línea: el resto de una línea demasiado
+ * larga se descarta a medida que llega, así que un cliente no puede hacer que
+ * el servidor acumule en memoria una línea sin fin. Las líneas terminan en
+ * "\n", "\r" o "\r\n".
+ */
+final class LectorLineas {
+
+    private final Reader entrada;
+    private final int longitudMaxima;
+    private final char[] buffer = new char[8192];
+    private int posicion;
+    private int limite;
+    // Tras un '\r', un '\n' inmediato es parte del mismo fin de línea
+    private boolean saltarSalto;
+    private final StringBuilder linea = new StringBuilder(256);
+    private boolean demasiadoLarga;
+
+    /**
+     * Constructor
+     * @param entrada Origen de los caracteres
+     * @param longitudMaxima Caracteres que se guardan de cada línea como máximo
+     */
+    LectorLineas(Reader entrada, int longitudMaxima) {
+        this.entrada = entrada;
+        this.longitudMaxima = longitudMaxima;
+    }
+
+    /**
+     * Lee la siguiente línea, sin el fin de línea
+     * @return Línea leída, cortada a la longitud máxima, o null al final de la entrada
+     * @throws IOException Si no se puede leer
+     */
+    String leerLinea() throws IOException {
+        linea.setLength(0);
+        demasiadoLarga = false;
+        boolean leidos = false;
+        while (true) {
+            if (posicion == limite && !llenar()) {
+                return leidos ? linea.toString() : null;
+            }
+            if (saltarSalto) {
+                saltarSalto = false;
+                if (buffer[posicion] == '\n') {
+                    posicion++;
+                    continue;
+                }
+            }
+            leidos = true;
+            int fin = posicion;
+            while (fin < limite && buffer[fin] != '\n' && buffer[fin] != '\r') {
+                fin++;
+            }
+            agregar(posicion, fin);
+            if (fin < limite) {
+                saltarSalto = buffer[fin] == '\r';
+                posicion = fin + 1;
+                return linea.toString();
+            }
+            posicion = fin;
+        }
+    }
+
+    /**
+     * Indica si la última línea leída pasaba de la longitud máxima
+     * @return true si se descartó parte de la línea
+     */
+    boolean esDemasiadoLarga() {
+        return demasiadoLarga;
+    }
+
+    /**
+     * Indica si hay caracteres que se pueden leer sin bloquear
+     * @return true si la siguiente lectura no espera a la red
+     * @throws IOException Si no se puede consultar la entrada
+     */
+    boolean ready() throws IOException {
+        if (saltarSalto) {
+            // Un '\n' pendiente del último fin de línea no es una petición nueva
+            if (posicion == limite && entrada.ready()) {
+                llenar();
+            }
+            if (posicion < limite && buffer[posicion] == '\n') {
+                posicion++;
+                saltarSalto = false;
+            }
+        }
+        return posicion < limite || entrada.ready();
+    }
+
+    // Guarda el tramo [desde, hasta) del buffer mientras quepa en la línea
+    private void agregar(int desde, int hasta) {
+        int cabe = Math.min(hasta - desde, longitudMaxima - linea.length());
+        linea.append(buffer, desde, cabe);
+        if (cabe < hasta - desde) {
+            demasiadoLarga = true;
+        }
+    }
+
+    private boolean llenar() throws IOException {
+        int leidos = entrada.read(buffer, 0, buffer.length);
+        if (leidos <= 0) {
+            return false;
+        }
+        posicion = 0;
+        limite = leidos;
+        return true;
+    }
+}
@@ -0,0 +1,144 @@
+package servidor;
+
+import analizador.CacheAnalisis;
+import modelo.Diagnostico;
+import modelo.Partida;
+import modelo.ResultadoAnalisis;
+import util.Metricas;
+
+/**
+ * Escribe un ResultadoAnalisis como un objeto JSON en una sola línea, por ejemplo
+ * <pre>
+ * {"valido":true,"turnos":17,"jugadas":33,"resultado":"1-0"}
+ * {"valido":false,"error":"Jugada blanca inválida en turno 2: Qh9","diagnosticos":[{"codigo":"JUGADA_BLANCA_INVALIDA","turno":2,"color":"blancas","desplazamiento":12,"longitud":3,"texto":"Qh9"}]}
+ * </pre>
+ */
+final class RespuestaJSON {
+
+    private static final String[] COLORES = {"blancas", "negras"};
+
+    private RespuestaJSON() {
+    }
+
+    /**
+     * Agrega el JSON de un resultado
+     * @param resultado Resultado del análisis
+     * @param sb Destino del texto
+     */
+    static void escribir(ResultadoAnalisis resultado, StringBuilder sb) {
+        sb.append("{\"valido\":").append(resultado.esValido());
+        if (resultado.esValido()) {
+            sb.append(",\"turnos\":").append(resultado.getNumeroTurnos());
+            sb.append(",\"jugadas\":").append(resultado.getNumeroJugadas());
+            Partida partida = resultado.getPartida();
+            if (partida != null && partida.getResultado() != Partida.RESULTADO_DESCONOCIDO) {
+                sb.append(",\"resultado\":\"").append(Partida.marcaResultado(partida.getResultado())).append('"');
+            }
+        } else {
+            sb.append(",\"error\":");
+            cadena(resultado.getMensajeError(), sb);
+            sb.append(",\"diagnosticos\":[");
+            boolean primero = true;
+            for (Diagnostico diagnostico : resultado.getDiagnosticos()) {
+                if (!primero) {
+                    sb.append(',');
+                }
+                primero = false;
+                escribir(diagnostico, sb);
+            }
+            sb.append(']');
+        }
+        sb.append('}');
+    }
+
+    /**
+     * Escribe las métricas del analizador: por cada fase medida, el número de
+     * ejecuciones y los percentiles en nanosegundos, y los rechazos por categoría
+     * @param metricas Instantánea de las métricas
+     * @param sb Destino del JSON
+     */
+    static void escribir(Metricas.Instantanea metricas, StringBuilder sb) {
+        sb.append("{\"activas\":").append(Metricas.ACTIVAS).append(",\"fases\":{");
+        boolean primera = true;
+        for (Metricas.Fase fase : Metricas.Fase.values()) {
+            if (metricas.getConteo(fase) == 0) {
+                continue;
+            }
+            if (!primera) {
+                sb.append(',');
+            }
+            primera = false;
+            sb.append('"').append(fase.name()).append("\":{\"conteo\":").append(metricas.getConteo(fase))
+                    .append(",\"totalNanos\":").append(metricas.getNanosTotales(fase))
+                    .append(",\"p50\":").append(metricas.getPercentil(fase, 0.50))
+                    .append(",\"p99\":").append(metricas.getPercentil(fase, 0.99))
+                    .append(",\"p999\":").append(metricas.getPercentil(fase, 0.999))
+                    .append(",\"maximo\":").append(metricas.getMaximo(fase)).append('}');
+        }
+        sb.append("},\"rechazos\":{");
+        Metricas.Rechazo[] rechazos = Metricas.Rechazo.values();
+        for (int i = 0; i < rechazos.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('"').append(rechazos[i].name()).append("\":").append(metricas.getRechazos(rechazos[i]));
+        }
+        sb.append("}}");
+    }
+
+    /**
+     * Escribe las estadísticas de la caché de resultados
+     * @param estadisticas Estadísticas de la caché, o null si no está activada
+     * @param sb Destino del JSON
+     */
+    static void escribir(CacheAnalisis.Estadisticas estadisticas, StringBuilder sb) {
+        sb.append("{\"activa\":").append(estadisticas != null);
+        if (estadisticas != null) {
+            sb.append(",\"aciertos\":").append(estadisticas.getAciertos())
+                    .append(",\"fallos\":").append(estadisticas.getFallos())
+                    .append(",\"tasaAciertos\":").append(estadisticas.getTasaAciertos())
+                    .append(",\"desalojos\":").append(estadisticas.getDesalojos())
+                    .append(",\"entradas\":").append(estadisticas.getEntradas())
+                    .append(",\"peso\":").append(estadisticas.getPeso())
+                    .append(",\"pesoMaximo\":").append(estadisticas.getPesoMaximo());
+        }
+        sb.append('}');
+    }
+
+    private static void escribir(Diagnostico diagnostico, StringBuilder sb) {
+        sb.append("{\"codigo\":\"").append(diagnostico.getCodigo().name()).append('"');
+        if (diagnostico.getTurno() >= 0) {
+            sb.append(",\"turno\":").append(diagnostico.getTurno());
+        }
+        if (diagnostico.getColor() != Diagnostico.SIN_COLOR) {
+            sb.append(",\"color\":\"").append(COLORES[diagnostico.getColor()]).append('"');
+        }
+        if (diagnostico.getDesplazamiento() >= 0) {
+            sb.append(",\"desplazamiento\":").append(diagnostico.getDesplazamiento());
+            sb.append(",\"longitud\":").append(diagnostico.getLongitud());
+            sb.append(",\"texto\":");
+            cadena(diagnostico.getTexto(), sb);
+        }
+        sb.append('}');
+    }
+
+    /**
+     * Agrega una cadena JSON con las comillas y los caracteres de control escapados
+     * @param texto Texto de la cadena
+     * @param sb Destino del texto
+     */
+    static void cadena(String texto, StringBuilder sb) {
+        sb.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,260 @@
+package servidor;
+
+import analizador.AnalizadorSintactico;
+import analizador.CacheAnalisis;
+import modelo.Diagnosticos;
+import modelo.ResultadoAnalisis;
+import util.Metricas;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Servidor de validación de partidas con un protocolo de líneas sobre TCP,
+ * escuchando solo en localhost.
+ *
+ * Cada línea que envía el cliente es una partida en SAN, y el servidor responde
+ * con una línea JSON con el resultado. Para enviar un lote, el cliente manda
+ * "LOTE n" seguido de n líneas de partidas y recibe un arreglo JSON con los n
+ * resultados. "METRICAS" devuelve las métricas del analizador (ver
+ * {@link util.Metricas}), "CACHE" las estadísticas de la caché de resultados y
+ * "SALIR" cierra la conexión. Un tamaño de lote inválido se responde con un
+ * error y cierra la conexión, porque no se sabe cuántas líneas lo siguen. Una
+ * línea de más de LONGITUD_MAXIMA_LINEA caracteres se responde con un error, y
+ * lo que pasa de ese límite se descarta según llega, sin guardarlo.
+ *
+ * Con -Dajedrez.cache=N (en MiB) los resultados pasan por una CacheAnalisis de
+ * ese tamaño, y las partidas repetidas se responden sin volver a analizarlas.
+ *
+ * El cliente puede enviar muchas peticiones sin esperar las respuestas
+ * (pipelining): cada conexión las atiende en orden y solo vacía la salida
+ * cuando no quedan peticiones pendientes en la entrada. Cada conexión corre en
+ * su propio hilo virtual si la JVM los tiene (Java 21 o posterior), y si no en
+ * un hilo normal. El número de conexiones atendidas a la vez está limitado: las
+ * que sobran esperan en la cola del sistema operativo, lo que frena a los
+ * clientes en lugar de agotar la memoria del servidor.
+ */
+public class ServidorValidacion {
+
+    public static final int PUERTO_POR_DEFECTO = 7070;
+    public static final int MAXIMO_CONEXIONES_POR_DEFECTO = 10_000;
+    // Una partida más larga que esto se rechaza sin analizarla, y sin guardar más que este prefijo
+    public static final int LONGITUD_MAXIMA_LINEA = 1 << 20;
+    // Partidas por lote como máximo
+    public static final int MAXIMO_LOTE = 10_000;
+
+    private static final String PARTIDA_DEMASIADO_LARGA = "{\"valido\":false,\"error\":\"Partida demasiado larga\"}";
+
+    private final int puertoSolicitado;
+    private final Semaphore conexionesLibres;
+    // El analizador no guarda estado, así que lo comparten todas las conexiones
+    private final AnalizadorSintactico analizador = new AnalizadorSintactico(true);
+    // null si la caché no está activada
+    private final CacheAnalisis cache = crearCache(analizador);
+    private final ExecutorService ejecutor = crearEjecutor();
+    private ServerSocket socket;
+    private Thread aceptador;
+
+    /**
+     * Constructor con el límite de conexiones por defecto
+     * @param puerto Puerto TCP, o 0 para elegir uno libre
+     */
+    public ServidorValidacion(int puerto) {
+        this(puerto, MAXIMO_CONEXIONES_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor
+     * @param puerto Puerto TCP, o 0 para elegir uno libre
+     * @param maximoConexiones Conexiones atendidas a la vez como máximo
+     */
+    public ServidorValidacion(int puerto, int maximoConexiones) {
+        this.puertoSolicitado = puerto;
+        this.conexionesLibres = new Semaphore(maximoConexiones);
+    }
+
+    // Caché del tamaño pedido con -Dajedrez.cache, o null si no se pidió
+    private static CacheAnalisis crearCache(AnalizadorSintactico analizador) {
+        long megas = Long.getLong("ajedrez.cache", 0);
+        return megas > 0 ? new CacheAnalisis(analizador, megas << 20, CacheAnalisis.SEGMENTOS_POR_DEFECTO) : null;
+    }
+
+    /**
+     * Crea un ejecutor con un hilo virtual por tarea si la JVM los tiene.
+     * Se busca por reflexión para que el proyecto siga compilando para Java 17
+     * @return Ejecutor de hilos virtuales, o de hilos normales en Java 17
+     */
+    static ExecutorService crearEjecutor() {
+        try {
+            Method virtuales = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtuales.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Indica si las tareas se ejecutan en hilos virtuales
+     * @return true en Java 21 o posterior
+     */
+    public static boolean usaHilosVirtuales() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Abre el puerto y empieza a aceptar conexiones en segundo plano
+     * @throws IOException Si no se puede abrir el puerto
+     */
+    public void iniciar() throws IOException {
+        socket = new ServerSocket(puertoSolicitado, 4096, InetAddress.getLoopbackAddress());
+        aceptador = new Thread(this::aceptar, "servidor-validacion");
+        aceptador.start();
+    }
+
+    /**
+     * Obtiene el puerto en el que escucha el servidor
+     * @return Puerto TCP
+     */
+    public int getPuerto() {
+        return socket.getLocalPort();
+    }
+
+    /**
+     * Deja de aceptar conexiones y cierra las que quedan
+     * @throws IOException Si no se puede cerrar el puerto
+     */
+    public void detener() throws IOException {
+        socket.close();
+        ejecutor.shutdownNow();
+    }
+
+    /**
+     * Espera a que el servidor se detenga
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    public void esperar() throws InterruptedException {
+        aceptador.join();
+    }
+
+    private void aceptar() {
+        while (!socket.isClosed()) {
+            try {
+                // Sin permisos libres no se acepta: las conexiones nuevas esperan en la cola del sistema
+                conexionesLibres.acquire();
+                Socket cliente;
+                try {
+                    cliente = socket.accept();
+                } catch (IOException e) {
+                    conexionesLibres.release();
+                    throw e;
+                }
+                ejecutor.execute(() -> atender(cliente));
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    System.err.println("Error al aceptar una conexión: " + e.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void atender(Socket cliente) {
+        Diagnosticos diagnosticos = new Diagnosticos();
+        StringBuilder respuesta = new StringBuilder(256);
+        try (Socket conexion = cliente;
+             Reader lector = new InputStreamReader(conexion.getInputStream(), StandardCharsets.UTF_8);
+             Writer salida = new BufferedWriter(new OutputStreamWriter(conexion.getOutputStream(), StandardCharsets.UTF_8))) {
+            conexion.setTcpNoDelay(true);
+            LectorLineas entrada = new LectorLineas(lector, LONGITUD_MAXIMA_LINEA);
+            String linea;
+            boolean continuar = true;
+            while (continuar && (linea = entrada.leerLinea()) != null && !linea.equals("SALIR")) {
+                respuesta.setLength(0);
+                if (entrada.esDemasiadoLarga()) {
+                    respuesta.append(PARTIDA_DEMASIADO_LARGA);
+                } else if (linea.startsWith("LOTE ")) {
+                    continuar = lote(linea, entrada, diagnosticos, respuesta);
+                } else if (linea.equals("METRICAS")) {
+                    RespuestaJSON.escribir(Metricas.instantanea(), respuesta);
+                } else if (linea.equals("CACHE")) {
+                    RespuestaJSON.escribir(cache != null ? cache.estadisticas() : null, respuesta);
+                } else {
+                    analizar(linea, diagnosticos, respuesta);
+                }
+                if (respuesta.length() > 0) {
+                    respuesta.append('\n');
+                    salida.append(respuesta);
+                }
+                // Con más peticiones ya recibidas, las respuestas se acumulan y salen juntas
+                if (!entrada.ready()) {
+                    salida.flush();
+                }
+            }
+            salida.flush();
+        } catch (IOException e) {
+            // El cliente cerró la conexión; no hay a quién responder
+        } finally {
+            conexionesLibres.release();
+        }
+    }
+
+    // Devuelve false si hay que cerrar la conexión; la respuesta que quede en el buffer se envía antes
+    private boolean lote(String cabecera, LectorLineas entrada, Diagnosticos diagnosticos, StringBuilder respuesta) throws IOException {
+        int n;
+        try {
+            n = Integer.parseInt(cabecera.substring(5).trim());
+        } catch (NumberFormatException e) {
+            n = -1;
+        }
+        if (n < 0 || n > MAXIMO_LOTE) {
+            // No se sabe cuántas líneas del lote vienen detrás, así que no se puede seguir el protocolo
+            respuesta.append("{\"error\":\"Tamaño de lote inválido\"}");
+            return false;
+        }
+        respuesta.append('[');
+        for (int i = 0; i < n; i++) {
+            String linea = entrada.leerLinea();
+            if (linea == null) {
+                // Lote incompleto: el cliente ya no leerá la respuesta
+                respuesta.setLength(0);
+                return false;
+            }
+            if (i > 0) {
+                respuesta.append(',');
+            }
+            if (entrada.esDemasiadoLarga()) {
+                respuesta.append(PARTIDA_DEMASIADO_LARGA);
+            } else {
+                analizar(linea, diagnosticos, respuesta);
+            }
+        }
+        respuesta.append(']');
+        return true;
+    }
+
+    private void analizar(String partida, Diagnosticos diagnosticos, StringBuilder respuesta) {
+        ResultadoAnalisis resultado = cache != null
+                ? cache.analizar(partida, diagnosticos)
+                : analizador.analizar(partida, diagnosticos);
+        RespuestaJSON.escribir(resultado, respuesta);
+    }
+}
@@ -0,0 +1,74 @@
+package analizador;
+
+import modelo.CodigoError;
+import modelo.Diagnostico;
+import modelo.ResultadoAnalisis;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba el análisis de partidas en PGN completo
+ */
+class AnalizadorPGNTest {
+
+    private static List<ResultadoAnalisis> analizar(String pgn) {
+        List<ResultadoAnalisis> resultados = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(pgn.getBytes(StandardCharsets.ISO_8859_1));
+        new AnalizadorPGN().analizar(buffer, (numero, resultado, partida) -> resultados.add(resultado));
+        return resultados;
+    }
+
+    @Test
+    void losComentariosYLasVariantesNoCuentan() {
+        List<ResultadoAnalisis> resultados = analizar("[Event \"Prueba\"]\n\n"
+                + "1. e4 {apertura} e5 (1... c5 2. Nf3) 2. Nf3 $1 2... Nc6 3. Bb5 1-0\n");
+        assertEquals(1, resultados.size());
+        assertTrue(resultados.get(0).esValido());
+        assertEquals(5, resultados.get(0).getNumeroJugadas());
+    }
+
+    @Test
+    void losNumerosDeTurnoPuedenIrSinPuntos() {
+        String[] partidas = {
+            "1 e4 e5 2 Nf3 Nc6 *\n",
+            "1. e4 e5 2. Nf3 Nc6 3. Bc4 {} 3 ... Bc5 *\n",
+            "1. e4 e5 2. Nf3 Nc6 3 Bc4 3... Bc5 4 . O-O *\n"
+        };
+        int[] jugadas = {4, 6, 7};
+        for (int i = 0; i < partidas.length; i++) {
+            List<ResultadoAnalisis> resultados = analizar(partidas[i]);
+            assertEquals(1, resultados.size(), partidas[i]);
+            assertTrue(resultados.get(0).esValido(), partidas[i] + ": " + resultados.get(0).getMensajeError());
+            assertEquals(jugadas[i], resultados.get(0).getNumeroJugadas(), partidas[i]);
+        }
+    }
+
+    @Test
+    void unNumeroSinPuntosConTresPuntosSeparadosSigueConLasNegras() {
+        List<ResultadoAnalisis> resultados = analizar("1. e4 e5 2. Nf3 Nc6 3 ... Bc5 *\n");
+        assertFalse(resultados.get(0).esValido());
+        assertEquals("Falta la jugada blanca del turno 3", resultados.get(0).getMensajeError());
+    }
+
+    @Test
+    void unTurnoSinJugadaBlancaTieneSuPropioDiagnostico() {
+        String pgn = "1. e4 e5 2. Nf3 Nc6 6... e5 *\n";
+        List<ResultadoAnalisis> resultados = analizar(pgn);
+        assertEquals(1, resultados.size());
+        ResultadoAnalisis resultado = resultados.get(0);
+        assertFalse(resultado.esValido());
+        assertEquals("Falta la jugada blanca del turno 6", resultado.getMensajeError());
+        Diagnostico diagnostico = resultado.getDiagnosticos().get(0);
+        assertEquals(CodigoError.FALTA_JUGADA_BLANCA, diagnostico.getCodigo());
+        assertEquals(pgn.indexOf("6..."), diagnostico.getDesplazamiento());
+        assertEquals("6", diagnostico.getTexto());
+    }
+}
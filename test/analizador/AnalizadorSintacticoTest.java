@@ -0,0 +1,167 @@
+package analizador;
+
+import modelo.CodigoError;
+import modelo.Diagnostico;
+import modelo.Diagnosticos;
+import modelo.Jugada;
+import modelo.Partida;
+import modelo.ResultadoAnalisis;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba el análisis de partidas y la posición exacta de sus errores
+ */
+class AnalizadorSintacticoTest {
+
+    private static void comprobar(Diagnostico diagnostico, CodigoError codigo, int turno, int color,
+                                  int desplazamiento, String texto) {
+        assertEquals(codigo, diagnostico.getCodigo());
+        assertEquals(turno, diagnostico.getTurno());
+        assertEquals(color, diagnostico.getColor());
+        assertEquals(desplazamiento, diagnostico.getDesplazamiento());
+        assertEquals(texto.length(), diagnostico.getLongitud());
+        assertEquals(texto, diagnostico.getTexto());
+    }
+
+    @Test
+    void unaPartidaValidaCuentaTurnosYJugadas() {
+        ResultadoAnalisis resultado = new AnalizadorSintactico().analizar("1. e4 e5 2. Nf3 Nc6 3. Bb5");
+        assertTrue(resultado.esValido());
+        assertEquals(3, resultado.getNumeroTurnos());
+        assertEquals(5, resultado.getNumeroJugadas());
+        assertEquals("1. e4 e5 2. Nf3 Nc6 3. Bb5", resultado.getPartida().toString());
+    }
+
+    @Test
+    void elPrimerErrorDetieneElAnalisis() {
+        ResultadoAnalisis resultado = new AnalizadorSintactico().analizar("1. e4 e5 2. Nf3 Qh9 3. Kz1 a6");
+        assertFalse(resultado.esValido());
+        assertEquals("Jugada negra inválida en turno 2: Qh9", resultado.getMensajeError());
+        assertEquals(1, resultado.getDiagnosticos().size());
+        comprobar(resultado.getDiagnosticos().get(0), CodigoError.JUGADA_NEGRA_INVALIDA, 2, Diagnostico.NEGRAS, 16, "Qh9");
+    }
+
+    @Test
+    void anotaTodosLosErroresConSuPosicion() {
+        String texto = "1. e4 e5 2. Nf3 Qh9 3. Kz1 a6";
+        List<Diagnostico> diagnosticos = new AnalizadorSintactico(false, true).analizar(texto).getDiagnosticos();
+        assertEquals(2, diagnosticos.size());
+        comprobar(diagnosticos.get(0), CodigoError.JUGADA_NEGRA_INVALIDA, 2, Diagnostico.NEGRAS, 16, "Qh9");
+        comprobar(diagnosticos.get(1), CodigoError.JUGADA_BLANCA_INVALIDA, 3, Diagnostico.BLANCAS, 23, "Kz1");
+    }
+
+    @Test
+    void conUnNumeroInvalidoLasJugadasSeSituanPorSuPosicion() {
+        String texto = "1. e4 e5 0. Kz1 Qh9 99999999999. Rz9";
+        List<Diagnostico> diagnosticos = new AnalizadorSintactico(false, true).analizar(texto).getDiagnosticos();
+        assertEquals(5, diagnosticos.size());
+        comprobar(diagnosticos.get(0), CodigoError.NUMERO_TURNO_INVALIDO, 0, Diagnostico.SIN_COLOR, 9, "0");
+        comprobar(diagnosticos.get(1), CodigoError.JUGADA_BLANCA_INVALIDA, -1, Diagnostico.BLANCAS, 12, "Kz1");
+        comprobar(diagnosticos.get(2), CodigoError.JUGADA_NEGRA_INVALIDA, -1, Diagnostico.NEGRAS, 16, "Qh9");
+        comprobar(diagnosticos.get(4), CodigoError.JUGADA_BLANCA_INVALIDA, -1, Diagnostico.BLANCAS, 33, "Rz9");
+        assertEquals("Número de turno inválido: 0", diagnosticos.get(0).getMensaje());
+        assertEquals("Jugada blanca inválida en la posición 12: Kz1", diagnosticos.get(1).getMensaje());
+        assertEquals("Jugada negra inválida en la posición 16: Qh9", diagnosticos.get(2).getMensaje());
+        assertEquals("Número de turno inválido: 99999999999", diagnosticos.get(3).getMensaje());
+        assertEquals("Jugada blanca inválida en la posición 33: Rz9", diagnosticos.get(4).getMensaje());
+    }
+
+    @Test
+    void lasPosicionesSeCuentanDesdeElInicioDeLaPartida() {
+        // La misma partida dentro de un texto más largo, como al leer un archivo
+        String texto = "1. d4 d5\n\n1. e4 e5 2. Nf3 Qh9";
+        EscanerTurnos escaner = new EscanerTurnos();
+        escaner.reiniciar(texto, 10, texto.length());
+        Diagnosticos diagnosticos = new Diagnosticos();
+        ResultadoAnalisis resultado = new AnalizadorSintactico().analizar(escaner, false, diagnosticos);
+        assertFalse(resultado.esValido());
+        comprobar(resultado.getDiagnosticos().get(0), CodigoError.JUGADA_NEGRA_INVALIDA, 2, Diagnostico.NEGRAS, 16, "Qh9");
+    }
+
+    @Test
+    void elResultadoTrasUnaJugadaBlancaNoEsLaJugadaNegra() {
+        String[] textos = {
+            "1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# 1-0",
+            "1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# 1/2-1/2",
+            "1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# 0-1\n"
+        };
+        int[] esperados = {Partida.VICTORIA_BLANCAS, Partida.TABLAS, Partida.VICTORIA_NEGRAS};
+        for (int i = 0; i < textos.length; i++) {
+            ResultadoAnalisis resultado = new AnalizadorSintactico().analizar(textos[i]);
+            assertTrue(resultado.esValido(), textos[i]);
+            assertEquals(4, resultado.getNumeroTurnos());
+            assertEquals(7, resultado.getNumeroJugadas());
+            assertEquals(esperados[i], resultado.getPartida().getResultado());
+        }
+    }
+
+    @Test
+    void elAnalizadorIncrementalReconoceElResultadoTrasLaBlanca() {
+        OyenteJugadas oyente = new OyenteJugadas() {
+            @Override
+            public void jugadaAceptada(int numeroTurno, boolean blancas, Jugada jugada) {
+            }
+
+            @Override
+            public void jugadaRechazada(int numeroTurno, boolean blancas, Jugada jugada, String mensaje) {
+            }
+        };
+        String[] textos = {"1. e4 e5 2. Qh5 1-0", "1. e4 e5 2. Qh5 1/2-1/2", "1. e4 e5 2. Qh5 0-1 "};
+        for (String texto : textos) {
+            AnalizadorIncremental incremental = new AnalizadorIncremental(oyente);
+            // Un carácter cada vez, para cortar la marca por cualquier punto
+            for (int i = 0; i < texto.length(); i++) {
+                incremental.alimentar(texto.subSequence(i, i + 1));
+            }
+            ResultadoAnalisis resultado = incremental.finalizar();
+            assertTrue(resultado.esValido(), texto);
+            assertEquals(3, resultado.getNumeroJugadas());
+        }
+        AnalizadorIncremental incremental = new AnalizadorIncremental(oyente);
+        incremental.alimentar("1. e4 e5 2. Qh5 1/3");
+        assertEquals(new AnalizadorSintactico().analizar("1. e4 e5 2. Qh5 1/3").getMensajeError(),
+                incremental.finalizar().getMensajeError());
+    }
+
+    @Test
+    void elAnalizadorIncrementalDaLosMismosDiagnosticosQueElCompleto() {
+        OyenteJugadas oyente = new OyenteJugadas() {
+            @Override
+            public void jugadaAceptada(int numeroTurno, boolean blancas, Jugada jugada) {
+            }
+
+            @Override
+            public void jugadaRechazada(int numeroTurno, boolean blancas, Jugada jugada, String mensaje) {
+            }
+        };
+        String[] textos = {"1. e4 e5 2. Nf3 Qh9", "1. e4 e5 2. Zz9 Nc6", "1. e4 e5 0. Nf3 Nc6",
+                "1. e4 e5 99999999999. Nf3", "1. e4 e5 2. Qh5 1/3", "e4 e5"};
+        for (String texto : textos) {
+            AnalizadorIncremental incremental = new AnalizadorIncremental(oyente);
+            // En trozos de tres caracteres, para que el error quede repartido entre varios
+            for (int i = 0; i < texto.length(); i += 3) {
+                incremental.alimentar(texto.subSequence(i, Math.min(i + 3, texto.length())));
+            }
+            List<Diagnostico> obtenidos = incremental.finalizar().getDiagnosticos();
+            Diagnostico esperado = new AnalizadorSintactico().analizar(texto).getDiagnosticos().get(0);
+            assertEquals(1, obtenidos.size(), texto);
+            comprobar(obtenidos.get(0), esperado.getCodigo(), esperado.getTurno(), esperado.getColor(),
+                    esperado.getDesplazamiento(), esperado.getTexto());
+            assertEquals(esperado.getMensaje(), obtenidos.get(0).getMensaje());
+        }
+    }
+
+    @Test
+    void unaPartidaSinTurnosNoTienePosicion() {
+        ResultadoAnalisis resultado = new AnalizadorSintactico().analizar("e4 e5");
+        assertFalse(resultado.esValido());
+        assertEquals(CodigoError.SIN_TURNOS, resultado.getDiagnosticos().get(0).getCodigo());
+        assertEquals(-1, resultado.getDiagnosticos().get(0).getDesplazamiento());
+    }
+}
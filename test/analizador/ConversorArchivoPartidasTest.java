@@ -0,0 +1,38 @@
+package analizador;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Comprueba que pasar un archivo de texto a binario y de vuelta conserva las partidas
+ */
+class ConversorArchivoPartidasTest {
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void elTextoSobreviveALaIdaYVueltaConSusResultados() throws IOException {
+        // La segunda partida termina con una jugada blanca y un resultado
+        String partidas = "1. e4 e5 2. Nf3 Nc6 1-0\n\n"
+                + "1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# 1-0\n\n"
+                + "1. d4 d5 2. c4 1/2-1/2\n\n"
+                + "1. e4 c5\n\n";
+        Path texto = directorio.resolve("partidas.txt");
+        Path binario = directorio.resolve("partidas.bin");
+        Path vuelta = directorio.resolve("vuelta.txt");
+        Files.write(texto, partidas.getBytes(StandardCharsets.UTF_8));
+
+        ConversorArchivoPartidas conversor = new ConversorArchivoPartidas();
+        assertEquals(4, conversor.aBinario(texto, binario, null));
+        assertEquals(4, conversor.aTexto(binario, vuelta));
+        assertEquals(partidas, new String(Files.readAllBytes(vuelta), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,87 @@
+package analizador;
+
+import modelo.Diagnosticos;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba la disposición del árbol sintáctico y la del árbol de una partida
+ */
+class DisposicionArbolTest {
+
+    private static NodoSintactico arbol(String texto) {
+        NodoSintactico raiz = new AnalizadorPredictivo().analizar(texto, new Diagnosticos());
+        assertNotNull(raiz, texto);
+        return raiz;
+    }
+
+    @Test
+    void elArbolSintacticoTieneUnNodoPorReglaYUnaHojaPorToken() {
+        NodoSintactico raiz = arbol("1. e4 e5 2. Nf3 1-0");
+        DisposicionArbol disposicion = DisposicionArbol.de(raiz);
+        assertEquals(raiz.contarNodos(), disposicion.getNumeroNodos());
+        assertEquals("partida", disposicion.getEtiqueta(0));
+        // partida > turno > blanca > MOVIMIENTO_PEON
+        assertEquals(4, disposicion.getProfundidad());
+        // Hojas: 1 . e4 e5 2 . Nf3 1-0
+        assertEquals(8 * DisposicionArbol.SEPARACION_HOJAS, disposicion.getAncho());
+
+        for (int nodo = 1; nodo < disposicion.getNumeroNodos(); nodo++) {
+            int padre = disposicion.padre(nodo);
+            assertEquals(disposicion.nivel(padre) + 1, disposicion.nivel(nodo));
+        }
+        for (int nivel = 0; nivel < disposicion.getProfundidad(); nivel++) {
+            for (int nodo = disposicion.primerNodo(nivel) + 1; nodo <= disposicion.ultimoNodo(nivel); nodo++) {
+                assertTrue(disposicion.x(nodo - 1) < disposicion.x(nodo));
+            }
+        }
+    }
+
+    @Test
+    void lasJugadasLlevanElTipoDeSuColor() {
+        DisposicionArbol disposicion = DisposicionArbol.de(arbol("1. e4 e5"));
+        int blancas = 0;
+        int negras = 0;
+        for (int nodo = 0; nodo < disposicion.getNumeroNodos(); nodo++) {
+            if (disposicion.getTipo(nodo) == DisposicionArbol.TIPO_BLANCAS) {
+                assertEquals("e4", disposicion.getEtiqueta(nodo));
+                blancas++;
+            } else if (disposicion.getTipo(nodo) == DisposicionArbol.TIPO_NEGRAS) {
+                assertEquals("e5", disposicion.getEtiqueta(nodo));
+                negras++;
+            }
+        }
+        assertEquals(1, blancas);
+        assertEquals(1, negras);
+    }
+
+    @Test
+    void losNodosVisiblesSeBuscanPorNivel() {
+        DisposicionArbol disposicion = DisposicionArbol.de(arbol("1. e4 e5 2. Nf3 Nc6 3. Bb5"));
+        int nivel = disposicion.nivel(disposicion.getNumeroNodos() - 1);
+        int primero = disposicion.primerNodo(nivel);
+        int ultimo = disposicion.ultimoNodo(nivel);
+        assertEquals(primero, disposicion.nodoDesde(nivel, Double.NEGATIVE_INFINITY));
+        assertEquals(ultimo, disposicion.nodoHasta(nivel, Double.POSITIVE_INFINITY));
+        assertEquals(primero + 1, disposicion.nodoDesde(nivel, disposicion.x(primero) + 1));
+        assertEquals(primero, disposicion.nodoHasta(nivel, disposicion.x(primero) + 1));
+        assertEquals(primero - 1, disposicion.nodoHasta(nivel, disposicion.x(primero) - 1));
+    }
+
+    @Test
+    void elArbolDeUnaPartidaSeGuardaComoMonticulo() {
+        DisposicionArbol disposicion = new DisposicionArbol(new String[] {"Inicio", "e4", "e5", "Nf3"});
+        assertEquals(3, disposicion.getProfundidad());
+        assertEquals(4 * DisposicionArbol.SEPARACION_HOJAS, disposicion.getAncho());
+        assertEquals(disposicion.getAncho() / 2.0, disposicion.x(0));
+        assertEquals(0, disposicion.padre(1));
+        assertEquals(1, disposicion.padre(3));
+        assertEquals(DisposicionArbol.TIPO_REGLA, disposicion.getTipo(0));
+        assertEquals(DisposicionArbol.TIPO_BLANCAS, disposicion.getTipo(1));
+        assertEquals(DisposicionArbol.TIPO_NEGRAS, disposicion.getTipo(2));
+        assertEquals(disposicion.getAncho() / 4.0, disposicion.separacion(2));
+    }
+}
@@ -0,0 +1,63 @@
+package modelo;
+
+import analizador.AnalizadorSintactico;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Comprueba que las partidas escritas en el archivo binario se leen igual
+ */
+class ArchivoPartidasTest {
+
+    private static final String[] PARTIDAS = {
+        "1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 4. Ba4 Nf6 5. O-O Be7 1-0",
+        "1. d4 d5 2. c4 dxc4 3. e4",
+        // Numeración que no es la habitual: se guarda explícitamente
+        "5. e4 e5 6. Nf3 ; 9. Bc4 Nc6 0-1",
+        "1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# 1/2-1/2",
+        "1. e4"
+    };
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void lasPartidasSeLeenComoSeEscribieron() throws IOException {
+        AnalizadorSintactico analizador = new AnalizadorSintactico(true);
+        Partida[] partidas = new Partida[PARTIDAS.length];
+        Path archivo = directorio.resolve("partidas.bin");
+        try (EscritorArchivoPartidas escritor = new EscritorArchivoPartidas(archivo)) {
+            for (int i = 0; i < PARTIDAS.length; i++) {
+                partidas[i] = analizador.analizar(PARTIDAS[i]).getPartida();
+                assertEquals(i, escritor.agregar(partidas[i]));
+            }
+        }
+
+        ArchivoPartidas leido = ArchivoPartidas.abrir(archivo);
+        assertEquals(PARTIDAS.length, leido.getNumeroPartidas());
+        for (int i = 0; i < PARTIDAS.length; i++) {
+            PartidaCompacta partida = leido.obtener(i);
+            assertEquals(partidas[i].toString(), partida.toString());
+            assertEquals(partidas[i].getResultado(), partida.getResultado());
+            assertEquals(partidas[i].getResultado(), leido.getResultado(i));
+            assertEquals(partidas[i].getNumeroJugadas(), leido.getNumeroJugadas(i));
+            for (int j = 0; j < partida.getNumeroJugadas(); j++) {
+                assertEquals(partidas[i].getCodigoJugada(j), leido.getCodigoJugada(i, j));
+            }
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> leido.obtener(PARTIDAS.length));
+    }
+
+    @Test
+    void unArchivoVacioNoTienePartidas() throws IOException {
+        Path archivo = directorio.resolve("vacio.bin");
+        new EscritorArchivoPartidas(archivo).close();
+        assertEquals(0, ArchivoPartidas.abrir(archivo).getNumeroPartidas());
+    }
+}
@@ -0,0 +1,91 @@
+package modelo;
+
+import org.junit.jupiter.api.Test;
+import util.ValidadorSAN;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba que codificar y decodificar una jugada devuelve la misma notación
+ */
+class CodigoJugadaTest {
+
+    private static final String[] DESAMBIGUACIONES = {"", "a", "d", "h", "1", "5", "8"};
+    private static final String[] CORONACIONES = {"", "=Q", "=R", "=B", "=N"};
+    private static final String[] MARCAS = {"", "+", "#"};
+
+    // Todas las jugadas de pieza y de peón que acepta la gramática, con algunas casillas de destino
+    private static Set<String> jugadasValidas() {
+        // Sin repetidas: "Kaa1" sale con la desambiguación en el primer o en el segundo carácter
+        Set<String> jugadas = new LinkedHashSet<>();
+        jugadas.add("O-O");
+        jugadas.add("O-O-O");
+        String[] destinos = {"a1", "e4", "h8", "c7"};
+        for (char pieza : "KQRBN".toCharArray()) {
+            for (String d1 : DESAMBIGUACIONES) {
+                for (String d2 : DESAMBIGUACIONES) {
+                    for (String captura : new String[]{"", "x"}) {
+                        for (String destino : destinos) {
+                            for (String coronacion : CORONACIONES) {
+                                for (String marca : MARCAS) {
+                                    jugadas.add(pieza + d1 + d2 + captura + destino + coronacion + marca);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        for (char columna = 'a'; columna <= 'h'; columna++) {
+            for (char fila = '1'; fila <= '8'; fila++) {
+                for (String coronacion : CORONACIONES) {
+                    for (String marca : MARCAS) {
+                        String destino = "" + columna + fila + coronacion + marca;
+                        jugadas.add(destino);
+                        jugadas.add("bx" + destino);
+                    }
+                }
+            }
+        }
+        return jugadas;
+    }
+
+    @Test
+    void decodificarDevuelveLaMismaNotacion() {
+        Set<Integer> codigos = new HashSet<>();
+        for (String jugada : jugadasValidas()) {
+            assertTrue(ValidadorSAN.esJugadaValida(jugada), jugada);
+            int codigo = CodigoJugada.codificar(jugada);
+            assertNotEquals(CodigoJugada.NINGUNA, codigo, jugada);
+            assertEquals(jugada, CodigoJugada.aNotacion(codigo));
+            assertTrue(codigos.add(codigo), "Código repetido: " + jugada);
+            String texto = "  " + jugada + " ";
+            assertEquals(codigo, CodigoJugada.codificar(texto, 2, jugada.length()), jugada);
+        }
+    }
+
+    @Test
+    void lasJugadasInvalidasNoTienenCodigo() {
+        for (String jugada : new String[]{"", "e9", "Ke", "O-O-O-O", "O-O+", "Pe4", "exd", "e8=K", "Nbd7++", "i4"}) {
+            assertEquals(CodigoJugada.NINGUNA, CodigoJugada.codificar(jugada), jugada);
+        }
+    }
+
+    @Test
+    void crearDaElMismoCodigoQueLaNotacion() {
+        assertEquals(CodigoJugada.codificar("Nbd7"), CodigoJugada.crear(CodigoJugada.CABALLO, 1, -1, false, 51, 0));
+        assertEquals(CodigoJugada.codificar("R1a3"), CodigoJugada.crear(CodigoJugada.TORRE, -1, 0, false, 16, 0));
+        assertEquals(CodigoJugada.codificar("Qh4xe1"), CodigoJugada.crear(CodigoJugada.DAMA, 7, 3, true, 4, 0));
+        assertEquals(CodigoJugada.codificar("exd8=Q"),
+                CodigoJugada.crear(CodigoJugada.PEON, 4, -1, true, 59, CodigoJugada.DAMA));
+        assertEquals(CodigoJugada.codificar("O-O-O"), CodigoJugada.enroque(false));
+        assertEquals(CodigoJugada.codificar("Bb5#"),
+                CodigoJugada.conJaque(CodigoJugada.crear(CodigoJugada.ALFIL, -1, -1, false, 33, 0), true));
+    }
+}
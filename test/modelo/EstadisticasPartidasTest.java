@@ -0,0 +1,42 @@
+package modelo;
+
+import analizador.AnalizadorSintactico;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Comprueba que las estadísticas atribuyen cada jugada al color de su turno
+ */
+class EstadisticasPartidasTest {
+
+    // El turno 6 no tiene jugada negra, así que Bc4 es de las blancas
+    private static final String PARTIDA = "5. e4 e5 6. Nf3 ; 9. Bc4 Nc6 0-1";
+
+    private static void comprobar(EstadisticasPartidas estadisticas) {
+        assertEquals(1, estadisticas.getPartidas());
+        assertEquals(1, estadisticas.getPartidasConTurnos(3));
+        assertEquals(3, estadisticas.getJugadas(EstadisticasPartidas.BLANCAS));
+        assertEquals(2, estadisticas.getJugadas(EstadisticasPartidas.NEGRAS));
+        assertEquals(1, estadisticas.getJugadasPieza(EstadisticasPartidas.BLANCAS, CodigoJugada.ALFIL));
+        assertEquals(0, estadisticas.getJugadasPieza(EstadisticasPartidas.NEGRAS, CodigoJugada.ALFIL));
+        assertEquals(1, estadisticas.getJugadasPieza(EstadisticasPartidas.NEGRAS, CodigoJugada.CABALLO));
+        assertEquals(1, estadisticas.getResultados(Partida.VICTORIA_NEGRAS));
+    }
+
+    @Test
+    void unTurnoSinJugadaNegraNoCambiaElColorDeLasSiguientes() {
+        Partida partida = new AnalizadorSintactico().analizar(PARTIDA).getPartida();
+        EstadisticasPartidas estadisticas = new EstadisticasPartidas();
+        estadisticas.agregar(partida);
+        comprobar(estadisticas);
+    }
+
+    @Test
+    void laPartidaCompactaDaLasMismasEstadisticas() {
+        Partida partida = new AnalizadorSintactico(true).analizar(PARTIDA).getPartida();
+        comprobar(EstadisticasPartidas.calcular(Arrays.asList(PartidaCompacta.desde(partida))));
+    }
+}
@@ -0,0 +1,129 @@
+package motor;
+
+import analizador.AnalizadorSintactico;
+import modelo.CodigoJugada;
+import modelo.Partida;
+import modelo.PartidaCompacta;
+import modelo.ResultadoAnalisis;
+import modelo.Turno;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba la generación de jugadas del tablero con perft, el recuento de
+ * las posiciones alcanzables a una profundidad, en las cinco posiciones de
+ * referencia habituales, y la validación de partidas completas
+ */
+class TableroTest {
+
+    private static final int[] CORONACIONES = {CodigoJugada.DAMA, CodigoJugada.TORRE, CodigoJugada.ALFIL, CodigoJugada.CABALLO};
+    private static final int[] SIN_CORONACION = {0};
+
+    // Prueba todos los pares de casillas: buscar solo acepta los movimientos legales
+    private static long perft(Tablero tablero, int profundidad) {
+        long nodos = 0;
+        Tablero siguiente = new Tablero();
+        int turno = tablero.getTurno();
+        for (int origen = 0; origen < 64; origen++) {
+            int pieza = tablero.piezaEn(origen);
+            if (pieza == 0 || pieza >>> 3 != turno) {
+                continue;
+            }
+            boolean peon = (pieza & 7) == CodigoJugada.PEON;
+            for (int destino = 0; destino < 64; destino++) {
+                boolean corona = peon && (destino >>> 3 == 0 || destino >>> 3 == 7);
+                for (int coronacion : corona ? CORONACIONES : SIN_CORONACION) {
+                    int movimiento = tablero.buscar(origen, destino, coronacion);
+                    if (movimiento < 0) {
+                        continue;
+                    }
+                    if (profundidad == 1) {
+                        nodos++;
+                    } else {
+                        siguiente.copiar(tablero);
+                        siguiente.mover(movimiento);
+                        nodos += perft(siguiente, profundidad - 1);
+                    }
+                }
+            }
+        }
+        return nodos;
+    }
+
+    private static void comprobarPerft(String fen, int profundidad, long esperados) {
+        Tablero tablero = new Tablero();
+        tablero.cargarFEN(fen);
+        assertEquals(esperados, perft(tablero, profundidad), fen);
+    }
+
+    @Test
+    void perftPosicionInicial() {
+        comprobarPerft("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", 3, 8_902);
+    }
+
+    @Test
+    void perftKiwipete() {
+        // Enroques, capturas al paso, clavadas y coronaciones
+        comprobarPerft("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 3, 97_862);
+    }
+
+    @Test
+    void perftFinalDeTorres() {
+        comprobarPerft("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 4, 43_238);
+    }
+
+    @Test
+    void perftCoronacionesYJaques() {
+        comprobarPerft("r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 3, 9_467);
+    }
+
+    @Test
+    void perftCoronacionConCaptura() {
+        comprobarPerft("rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 3, 62_379);
+    }
+
+    private static ResultadoAnalisis validar(String texto) {
+        ResultadoAnalisis sintaxis = new AnalizadorSintactico().analizar(texto);
+        assertTrue(sintaxis.esValido(), texto);
+        return new ValidadorLegalidad().validar(sintaxis.getPartida());
+    }
+
+    @Test
+    void lasMarcasDeJaqueSeComprueban() {
+        assertTrue(validar("1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7#").esValido());
+        assertEquals("Jugada blanca ilegal en turno 4: Qxf7+ (la marca de jaque o mate no corresponde a la posición)",
+                validar("1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7+").getMensajeError());
+        assertFalse(validar("1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7").esValido());
+        assertFalse(validar("1. e4 e5 2. Bc4+").esValido());
+        assertTrue(validar("1. e4 f5 2. Qh5+").esValido());
+    }
+
+    @Test
+    void losTurnosDebenIrNumeradosYCompletos() {
+        assertEquals("Número de turno incorrecto: se esperaba el turno 2 y la partida tiene el 3",
+                validar("1. e4 e5 3. Nf3").getMensajeError());
+        // Sin la jugada negra del turno 1, Nf3 sería una jugada de las negras
+        assertEquals("Falta la jugada negra del turno 1", validar("1. e4 ; 2. Nf3").getMensajeError());
+        assertTrue(validar("1. e4 e5 2. Nf3").esValido());
+    }
+
+    @Test
+    void laPartidaCompactaSeValidaIgualQueLaDeTurnos() {
+        String[] textos = {"1. e4 e5 2. Nf3", "1. e4 e5 3. Nf3", "1. e4 ; 2. Nf3", "1. e4 e5 2. Ke3 Nc6",
+                "1. e4 e5 2. Nf3 Ke7 3. Nxe6"};
+        for (String texto : textos) {
+            Partida partida = new AnalizadorSintactico().analizar(texto).getPartida();
+            Partida deTurnos = new Partida();
+            for (Turno turno : partida.getTurnos()) {
+                deTurnos.agregarTurno(turno);
+            }
+            ResultadoAnalisis compacta = new ValidadorLegalidad().validar(PartidaCompacta.desde(partida));
+            ResultadoAnalisis lista = new ValidadorLegalidad().validar(deTurnos);
+            assertEquals(lista.esValido(), compacta.esValido(), texto);
+            assertEquals(lista.getMensajeError(), compacta.getMensajeError(), texto);
+        }
+    }
+}
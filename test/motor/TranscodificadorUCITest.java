@@ -0,0 +1,67 @@
+package motor;
+
+import analizador.AnalizadorSintactico;
+import modelo.Partida;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Comprueba la traducción entre SAN y UCI en los dos sentidos
+ */
+class TranscodificadorUCITest {
+
+    private static final String[] PARTIDAS = {
+        "1. e4 e5 2. Nf3 d6 3. d4 Bg4 4. dxe5 Bxf3 5. Qxf3 dxe5 6. Bc4 Nf6 7. Qb3 Qe7 8. Nc3 c6 9. Bg5 b5 "
+                + "10. Nxb5 cxb5 11. Bxb5+ Nbd7 12. O-O-O Rd8 13. Rxd7 Rxd7 14. Rd1 Qe6 15. Bxd7+ Nxd7 16. Qb8+ Nxb8 17. Rd8#",
+        "1. e4 e5 2. f4 exf4 3. Bc4 Qh4+ 4. Kf1 b5 5. Bxb5 Nf6 6. Nf3 Qh6 7. d3 Nh5 8. Nh4 Qg5 9. Nf5 c6 "
+                + "10. g4 Nf6 11. Rg1 cxb5 12. h4 Qg6 13. h5 Qg5 14. Qf3 Ng8 15. Bxf4 Qf6 16. Nc3 Bc5 17. Nd5 Qxb2 "
+                + "18. Bd6 Bxg1 19. e5 Qxa1+ 20. Ke2 Na6 21. Nxg7+ Kd8 22. Qf6+ Nxf6 23. Be7#",
+        "1. e4 Nf6 2. e5 d5 3. exd6 e6 4. Nf3 Be7 5. dxc7 O-O 6. Bc4 Nc6 7. O-O b6 8. cxd8=Q Rxd8 9. d3 Bb7 10. Bg5 h6",
+        // Captura al paso y desambiguación por columna
+        "1. e4 Nf6 2. e5 d5 3. exd6 Nc6 4. Nc3 Nb4 5. Nf3 Nbd5"
+    };
+
+    private final TranscodificadorUCI transcodificador = new TranscodificadorUCI();
+
+    private Partida partida(String texto) {
+        return new AnalizadorSintactico(true).analizar(texto).getPartida();
+    }
+
+    private String contenido() {
+        String texto = new String(transcodificador.getBuffer(), 0, transcodificador.getLongitud(), StandardCharsets.US_ASCII);
+        transcodificador.vaciar();
+        return texto;
+    }
+
+    @Test
+    void escribeLasJugadasEnUCI() {
+        assertEquals(-1, transcodificador.agregarUCI(partida(PARTIDAS[2])));
+        assertEquals("e2e4 g8f6 e4e5 d7d5 e5d6 e7e6 g1f3 f8e7 d6c7 e8g8 f1c4 b8c6 e1g1 b7b6 c7d8q f8d8 "
+                + "d2d3 c8b7 c1g5 h7h6\n", contenido());
+        assertEquals(-1, transcodificador.agregarUCI(partida(PARTIDAS[3])));
+        assertEquals("e2e4 g8f6 e4e5 d7d5 e5d6 b8c6 b1c3 c6b4 g1f3 b4d5\n", contenido());
+    }
+
+    @Test
+    void laIdaYVueltaDevuelveLaMismaPartida() {
+        for (String texto : PARTIDAS) {
+            assertEquals(-1, transcodificador.agregarUCI(partida(texto)));
+            String uci = contenido();
+            assertEquals(-1, transcodificador.agregarSAN(uci, 0, uci.length()));
+            assertEquals(texto + "\n", contenido());
+        }
+    }
+
+    @Test
+    void lasJugadasIlegalesSeSenalan() {
+        // Nf6 no es legal para las blancas en la primera jugada
+        assertEquals(2, transcodificador.agregarUCI(partida("1. e4 e5 2. Nf6 Nc6")));
+        assertEquals("\n", contenido());
+        assertEquals(1, transcodificador.agregarSAN("e2e4 e2e4", 0, 9));
+        assertEquals(0, transcodificador.agregarSAN("e2e9", 0, 4));
+        assertEquals("", contenido());
+    }
+}
@@ -0,0 +1,92 @@
+package servidor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba el protocolo de líneas del servidor con conexiones reales a localhost
+ */
+class ServidorValidacionTest {
+
+    private ServidorValidacion servidor;
+    private Socket socket;
+    private BufferedReader respuestas;
+    private OutputStream peticiones;
+
+    @BeforeEach
+    void iniciar() throws IOException {
+        servidor = new ServidorValidacion(0, 4);
+        servidor.iniciar();
+        socket = new Socket(InetAddress.getLoopbackAddress(), servidor.getPuerto());
+        socket.setSoTimeout(10_000);
+        respuestas = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        peticiones = socket.getOutputStream();
+    }
+
+    @AfterEach
+    void detener() throws IOException {
+        socket.close();
+        servidor.detener();
+    }
+
+    private void enviar(String texto) throws IOException {
+        peticiones.write(texto.getBytes(StandardCharsets.UTF_8));
+        peticiones.flush();
+    }
+
+    @Test
+    void unaLineaDemasiadoLargaSeRechazaYLaConexionSigue() throws IOException {
+        char[] larga = new char[ServidorValidacion.LONGITUD_MAXIMA_LINEA + 100];
+        Arrays.fill(larga, 'a');
+        enviar(new String(larga) + "\n1. e4 e5\n");
+        assertEquals("{\"valido\":false,\"error\":\"Partida demasiado larga\"}", respuestas.readLine());
+        assertTrue(respuestas.readLine().startsWith("{\"valido\":true"));
+    }
+
+    @Test
+    void unLoteConTamanoInvalidoCierraLaConexion() throws IOException {
+        enviar("LOTE abc\n1. e4 e5\n");
+        assertEquals("{\"error\":\"Tamaño de lote inválido\"}", respuestas.readLine());
+        assertNull(respuestas.readLine());
+    }
+
+    @Test
+    void unLoteDevuelveUnArreglo() throws IOException {
+        enviar("LOTE 2\r\n1. e4 e5\r\n1. Qh9\r\n1. d4\r\n");
+        String lote = respuestas.readLine();
+        assertTrue(lote.startsWith("[{\"valido\":true"), lote);
+        assertTrue(lote.contains("},{\"valido\":false"), lote);
+        assertTrue(respuestas.readLine().startsWith("{\"valido\":true"));
+    }
+
+    @Test
+    void elLectorSeparaLineasYCortaLasLargas() throws IOException {
+        LectorLineas lector = new LectorLineas(new StringReader("uno\r\ndos\rtres\ncuatrocientos\n\nfin"), 6);
+        assertEquals("uno", lector.leerLinea());
+        assertEquals("dos", lector.leerLinea());
+        assertEquals("tres", lector.leerLinea());
+        assertFalse(lector.esDemasiadoLarga());
+        assertEquals("cuatro", lector.leerLinea());
+        assertTrue(lector.esDemasiadoLarga());
+        assertEquals("", lector.leerLinea());
+        assertFalse(lector.esDemasiadoLarga());
+        assertEquals("fin", lector.leerLinea());
+        assertNull(lector.leerLinea());
+    }
+}
@@ -0,0 +1,96 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba que el autómata de ValidadorSAN acepta exactamente las mismas
+ * jugadas que las expresiones regulares a las que sustituyó
+ */
+class ValidadorSANTest {
+
+    private static final Pattern PATRON_ENROQUE = Pattern.compile("^O-O(-O)?$");
+    private static final Pattern PATRON_MOVIMIENTO_PIEZA = Pattern.compile("^[KQRBN][a-h1-8]?[a-h1-8]?x?[a-h][1-8](=[QRBN])?[+#]?$");
+    private static final Pattern PATRON_MOVIMIENTO_PEON = Pattern.compile("^([a-h]x)?[a-h][1-8](=[QRBN])?[+#]?$");
+
+    // Caracteres de las jugadas y algunos vecinos que no lo son
+    private static final String ALFABETO = "KQRBNPOo-ax=+#h18i90 ";
+
+    private static boolean esperado(String jugada) {
+        return PATRON_ENROQUE.matcher(jugada).matches()
+                || PATRON_MOVIMIENTO_PIEZA.matcher(jugada).matches()
+                || PATRON_MOVIMIENTO_PEON.matcher(jugada).matches();
+    }
+
+    private static void comprobar(String jugada) {
+        assertEquals(esperado(jugada), ValidadorSAN.esJugadaValida(jugada), jugada);
+        char[] caracteres = jugada.toCharArray();
+        boolean valida = ValidadorSAN.clasificar(caracteres, 0, caracteres.length) != ValidadorSAN.INVALIDA;
+        assertEquals(esperado(jugada), valida, jugada);
+        byte[] bytes = jugada.getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(esperado(jugada), ValidadorSAN.clasificar(bytes, 0, bytes.length) != ValidadorSAN.INVALIDA, jugada);
+    }
+
+    @Test
+    void coincideConLasExpresionesEnTodasLasCadenasCortas() {
+        int n = ALFABETO.length();
+        char[] caracteres = new char[4];
+        for (int longitud = 0; longitud <= 4; longitud++) {
+            int total = (int) Math.pow(n, longitud);
+            for (int k = 0; k < total; k++) {
+                int resto = k;
+                for (int i = 0; i < longitud; i++) {
+                    caracteres[i] = ALFABETO.charAt(resto % n);
+                    resto /= n;
+                }
+                comprobar(new String(caracteres, 0, longitud));
+            }
+        }
+    }
+
+    @Test
+    void coincideConLasExpresionesEnJugadasAlteradas() {
+        String[] jugadas = {"e4", "exd5", "e8=Q+", "dxe8=N#", "Nf3", "Nbd7", "R1a3", "Qh4xe1#", "Bxf7+", "O-O", "O-O-O+"};
+        Random aleatorio = new Random(1);
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder sb = new StringBuilder(jugadas[aleatorio.nextInt(jugadas.length)]);
+            for (int cambios = aleatorio.nextInt(3); cambios > 0; cambios--) {
+                int posicion = aleatorio.nextInt(sb.length() + 1);
+                char c = ALFABETO.charAt(aleatorio.nextInt(ALFABETO.length()));
+                switch (aleatorio.nextInt(3)) {
+                    case 0:
+                        sb.insert(posicion, c);
+                        break;
+                    case 1:
+                        if (posicion < sb.length()) {
+                            sb.deleteCharAt(posicion);
+                        }
+                        break;
+                    default:
+                        if (posicion < sb.length()) {
+                            sb.setCharAt(posicion, c);
+                        }
+                        break;
+                }
+            }
+            comprobar(sb.toString());
+        }
+    }
+
+    @Test
+    void clasificaElTipoYLasMarcas() {
+        int clasificacion = ValidadorSAN.clasificar("exd8=Q#");
+        assertEquals(ValidadorSAN.MOVIMIENTO_PEON, ValidadorSAN.tipo(clasificacion));
+        assertTrue((clasificacion & ValidadorSAN.CAPTURA) != 0);
+        assertTrue((clasificacion & ValidadorSAN.CORONACION) != 0);
+        assertTrue((clasificacion & ValidadorSAN.JAQUE_MATE) != 0);
+        assertEquals(ValidadorSAN.ENROQUE_LARGO, ValidadorSAN.tipo(ValidadorSAN.clasificar("O-O-O")));
+        assertEquals(ValidadorSAN.MOVIMIENTO_PIEZA, ValidadorSAN.tipo(ValidadorSAN.clasificar("Nbd7+")));
+    }
+}
@@ -0,0 +1,46 @@
+package util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento de Flight Recorder que se emite por cada partida analizada, con el
+ * tiempo que se fue en cada fase del análisis. Por defecto solo se guardan las
+ * partidas que tardan más de 100 µs; el umbral se cambia en la configuración
+ * de la grabación (ajedrez.Analisis#threshold)
+ */
+@Name("ajedrez.Analisis")
+@Label("Análisis de partida")
+@Category("Ajedrez")
+@Description("Análisis sintáctico de una partida SAN")
+@StackTrace(false)
+@Threshold("100 us")
+final class EventoAnalisis extends Event {
+
+    @Label("Válida")
+    boolean valida;
+
+    @Label("Turnos")
+    int turnos;
+
+    @Label("Jugadas")
+    int jugadas;
+
+    @Label("Escaneo")
+    @Timespan(Timespan.NANOSECONDS)
+    long escaneo;
+
+    @Label("Validación")
+    @Timespan(Timespan.NANOSECONDS)
+    long validacion;
+
+    @Label("Construcción")
+    @Timespan(Timespan.NANOSECONDS)
+    long construccion;
+}
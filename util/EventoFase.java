@@ -0,0 +1,27 @@
+package util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento de Flight Recorder para las fases que no son el análisis, como la
+ * disposición o el dibujo del árbol de derivación
+ */
+@Name("ajedrez.Fase")
+@Label("Fase")
+@Category("Ajedrez")
+@Description("Fase medida fuera del análisis sintáctico")
+@StackTrace(false)
+final class EventoFase extends Event {
+
+    @Label("Fase")
+    String fase;
+
+    @Label("Elementos")
+    @Description("Nodos, jugadas o bytes procesados en la fase")
+    long elementos;
+}
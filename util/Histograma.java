@@ -0,0 +1,141 @@
+package util;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias con cubetas logarítmicas, al estilo de HdrHistogram.
+ *
+ * Cada potencia de dos se divide en 8 cubetas iguales, así que el error
+ * relativo de cualquier percentil es como mucho de un 12,5 %, desde
+ * nanosegundos hasta horas, con un número fijo de cubetas. Cada cubeta es un
+ * LongAdder: muchos hilos pueden registrar a la vez sin pelear por la misma
+ * variable.
+ */
+public class Histograma {
+
+    // Bits de la mantisa que distinguen las cubetas de una misma potencia de dos
+    private static final int BITS_SUBCUBETA = 3;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    // Las potencias 2^3 .. 2^62 más las 8 cubetas exactas de 0 a 7
+    public static final int NUMERO_CUBETAS = (63 - BITS_SUBCUBETA + 1) * SUBCUBETAS;
+
+    private final LongAdder[] cubetas = new LongAdder[NUMERO_CUBETAS];
+    private final LongAdder suma = new LongAdder();
+    private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Constructor
+     */
+    public Histograma() {
+        for (int i = 0; i < NUMERO_CUBETAS; i++) {
+            cubetas[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Registra un valor
+     * @param valor Valor a registrar; los negativos cuentan como 0
+     */
+    public void registrar(long valor) {
+        if (valor < 0) {
+            valor = 0;
+        }
+        cubetas[cubeta(valor)].increment();
+        suma.add(valor);
+        maximo.accumulate(valor);
+    }
+
+    /**
+     * Copia los contadores de las cubetas. La copia no es atómica respecto a los
+     * registros concurrentes, pero cada contador es exacto
+     * @return Número de valores de cada cubeta
+     */
+    public long[] copiarCubetas() {
+        long[] copia = new long[NUMERO_CUBETAS];
+        for (int i = 0; i < NUMERO_CUBETAS; i++) {
+            copia[i] = cubetas[i].sum();
+        }
+        return copia;
+    }
+
+    /**
+     * Obtiene la suma de todos los valores registrados
+     * @return Suma de los valores
+     */
+    public long getSuma() {
+        return suma.sum();
+    }
+
+    /**
+     * Obtiene el mayor valor registrado
+     * @return Valor máximo, o 0 si no hay ninguno
+     */
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    /**
+     * Pone a cero todos los contadores
+     */
+    public void reiniciar() {
+        for (LongAdder cubeta : cubetas) {
+            cubeta.reset();
+        }
+        suma.reset();
+        maximo.reset();
+    }
+
+    /**
+     * Obtiene la cubeta de un valor
+     * @param valor Valor no negativo
+     * @return Índice de la cubeta
+     */
+    public static int cubeta(long valor) {
+        if (valor < SUBCUBETAS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int mantisa = (int) (valor >>> (exponente - BITS_SUBCUBETA)) & (SUBCUBETAS - 1);
+        return (exponente - BITS_SUBCUBETA + 1) * SUBCUBETAS + mantisa;
+    }
+
+    /**
+     * Obtiene el menor valor que cae en una cubeta
+     * @param cubeta Índice de la cubeta
+     * @return Límite inferior de la cubeta
+     */
+    public static long limiteInferior(int cubeta) {
+        if (cubeta < SUBCUBETAS) {
+            return cubeta;
+        }
+        int exponente = cubeta / SUBCUBETAS + BITS_SUBCUBETA - 1;
+        long mantisa = SUBCUBETAS + cubeta % SUBCUBETAS;
+        return mantisa << (exponente - BITS_SUBCUBETA);
+    }
+
+    /**
+     * Calcula un percentil a partir de los contadores de las cubetas
+     * @param cubetas Contadores copiados con copiarCubetas
+     * @param percentil Fracción entre 0 y 1, por ejemplo 0.99
+     * @return Mayor valor de la cubeta donde cae el percentil, o 0 si no hay valores
+     */
+    public static long percentil(long[] cubetas, double percentil) {
+        long total = 0;
+        for (long n : cubetas) {
+            total += n;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = Math.max(1, (long) Math.ceil(percentil * total));
+        long acumulado = 0;
+        for (int i = 0; i < cubetas.length; i++) {
+            acumulado += cubetas[i];
+            if (acumulado >= objetivo) {
+                return i + 1 < NUMERO_CUBETAS ? limiteInferior(i + 1) - 1 : Long.MAX_VALUE;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,349 @@
+package util;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas internas del analizador: cuántas veces se ejecuta cada fase, cuánto
+ * tarda (con un histograma de latencias por fase) y cuántas jugadas se rechazan
+ * por cada categoría. Cada partida analizada emite además un evento de JDK
+ * Flight Recorder.
+ *
+ * Se activan con la propiedad del sistema {@code -Dajedrez.metricas=true}. La
+ * bandera es una constante final, así que con las métricas apagadas el JIT
+ * elimina las comprobaciones y el coste es prácticamente nulo; los contadores
+ * ni siquiera se crean.
+ */
+public final class Metricas {
+
+    /** Si las métricas están activas; se fija al arrancar y no cambia */
+    public static final boolean ACTIVAS = Boolean.getBoolean("ajedrez.metricas");
+
+    /**
+     * Fases que se miden
+     */
+    public enum Fase {
+        /** Búsqueda de turnos en el texto (EscanerTurnos) */
+        ESCANEO,
+        /** Validación de las jugadas y de los números de turno */
+        VALIDACION,
+        /** Creación de los turnos y jugadas de la partida */
+        CONSTRUCCION,
+        /** Análisis completo de una partida */
+        ANALISIS,
+        /** Cálculo de la disposición del árbol de derivación */
+        DISPOSICION,
+        /** Dibujo del árbol en la interfaz gráfica */
+        RENDERIZADO
+    }
+
+    /**
+     * Categorías de los rechazos del análisis
+     */
+    public enum Rechazo {
+        /** Número de turno ausente, cero o demasiado grande */
+        NUMERO_TURNO,
+        /** Jugada que empieza como un enroque */
+        ENROQUE,
+        /** Jugada que empieza con la letra de una pieza */
+        PIEZA,
+        /** Jugada que empieza con una columna, como las de peón */
+        PEON,
+        /** Cualquier otra jugada */
+        OTRA,
+        /** Partida sin ningún turno */
+        SIN_TURNOS;
+
+        /**
+         * Clasifica una jugada rechazada por su primer carácter
+         * @param jugada Texto de la jugada
+         * @return Categoría de la jugada
+         */
+        public static Rechazo deJugada(CharSequence jugada) {
+            if (jugada == null || jugada.length() == 0) {
+                return OTRA;
+            }
+            char c = jugada.charAt(0);
+            if (c == 'O' || c == '0') {
+                return ENROQUE;
+            }
+            if (c == 'K' || c == 'Q' || c == 'R' || c == 'B' || c == 'N') {
+                return PIEZA;
+            }
+            return c >= 'a' && c <= 'h' ? PEON : OTRA;
+        }
+    }
+
+    private static final Fase[] FASES = Fase.values();
+    private static final Rechazo[] RECHAZOS = Rechazo.values();
+
+    private Metricas() {
+    }
+
+    // Los contadores están aparte para que no se creen si las métricas están apagadas
+    private static final class Estado {
+        static final LongAdder[] CONTEOS = new LongAdder[FASES.length];
+        static final Histograma[] LATENCIAS = new Histograma[FASES.length];
+        static final LongAdder[] RECHAZOS_POR_CATEGORIA = new LongAdder[RECHAZOS.length];
+
+        static {
+            for (int i = 0; i < FASES.length; i++) {
+                CONTEOS[i] = new LongAdder();
+                LATENCIAS[i] = new Histograma();
+            }
+            for (int i = 0; i < RECHAZOS.length; i++) {
+                RECHAZOS_POR_CATEGORIA[i] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * Empieza a medir el análisis de una partida
+     * @return Medición en curso, o null si las métricas están apagadas
+     */
+    public static Medicion iniciarAnalisis() {
+        return ACTIVAS ? new Medicion(Fase.ANALISIS) : null;
+    }
+
+    /**
+     * Empieza a medir una fase que no es el análisis
+     * @param fase Fase que se mide
+     * @return Medición en curso, o null si las métricas están apagadas
+     */
+    public static Medicion iniciar(Fase fase) {
+        return ACTIVAS ? new Medicion(fase) : null;
+    }
+
+    /**
+     * Registra la duración de una ejecución de una fase
+     * @param fase Fase ejecutada
+     * @param nanos Duración en nanosegundos
+     */
+    public static void registrar(Fase fase, long nanos) {
+        if (ACTIVAS) {
+            Estado.CONTEOS[fase.ordinal()].increment();
+            Estado.LATENCIAS[fase.ordinal()].registrar(nanos);
+        }
+    }
+
+    /**
+     * Cuenta un rechazo
+     * @param rechazo Categoría del rechazo
+     */
+    public static void rechazo(Rechazo rechazo) {
+        if (ACTIVAS) {
+            Estado.RECHAZOS_POR_CATEGORIA[rechazo.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Copia el estado actual de todas las métricas
+     * @return Instantánea, vacía si las métricas están apagadas
+     */
+    public static Instantanea instantanea() {
+        long[] conteos = new long[FASES.length];
+        long[] sumas = new long[FASES.length];
+        long[] maximos = new long[FASES.length];
+        long[][] cubetas = new long[FASES.length][];
+        long[] rechazos = new long[RECHAZOS.length];
+        for (int i = 0; i < FASES.length; i++) {
+            if (ACTIVAS) {
+                conteos[i] = Estado.CONTEOS[i].sum();
+                sumas[i] = Estado.LATENCIAS[i].getSuma();
+                maximos[i] = Estado.LATENCIAS[i].getMaximo();
+                cubetas[i] = Estado.LATENCIAS[i].copiarCubetas();
+            } else {
+                cubetas[i] = new long[Histograma.NUMERO_CUBETAS];
+            }
+        }
+        if (ACTIVAS) {
+            for (int i = 0; i < RECHAZOS.length; i++) {
+                rechazos[i] = Estado.RECHAZOS_POR_CATEGORIA[i].sum();
+            }
+        }
+        return new Instantanea(conteos, sumas, maximos, cubetas, rechazos);
+    }
+
+    /**
+     * Pone a cero todas las métricas
+     */
+    public static void reiniciar() {
+        if (ACTIVAS) {
+            for (int i = 0; i < FASES.length; i++) {
+                Estado.CONTEOS[i].reset();
+                Estado.LATENCIAS[i].reiniciar();
+            }
+            for (LongAdder rechazo : Estado.RECHAZOS_POR_CATEGORIA) {
+                rechazo.reset();
+            }
+        }
+    }
+
+    /**
+     * Medición en curso de una ejecución. El análisis reparte su tiempo entre
+     * escaneo, validación y construcción con {@link #marcar}; al terminar se
+     * registra cada fase por separado y el total. No es segura entre hilos:
+     * cada ejecución usa la suya
+     */
+    public static final class Medicion {
+        private final Fase fase;
+        private final long inicio;
+        private final long[] acumulado = new long[FASES.length];
+        private long marca;
+        private final EventoAnalisis eventoAnalisis;
+        private final EventoFase eventoFase;
+
+        private Medicion(Fase fase) {
+            this.fase = fase;
+            if (fase == Fase.ANALISIS) {
+                eventoAnalisis = new EventoAnalisis();
+                eventoAnalisis.begin();
+                eventoFase = null;
+            } else {
+                eventoFase = new EventoFase();
+                eventoFase.begin();
+                eventoAnalisis = null;
+            }
+            inicio = System.nanoTime();
+            marca = inicio;
+        }
+
+        /**
+         * Atribuye a una fase el tiempo transcurrido desde la marca anterior
+         * @param parcial Fase a la que se suma el tiempo
+         */
+        public void marcar(Fase parcial) {
+            long ahora = System.nanoTime();
+            acumulado[parcial.ordinal()] += ahora - marca;
+            marca = ahora;
+        }
+
+        /**
+         * Termina la medición de un análisis
+         * @param valida Si la partida es válida
+         * @param turnos Turnos analizados
+         * @param jugadas Jugadas analizadas
+         */
+        public void terminarAnalisis(boolean valida, int turnos, int jugadas) {
+            long total = System.nanoTime() - inicio;
+            long escaneo = acumulado[Fase.ESCANEO.ordinal()];
+            long validacion = acumulado[Fase.VALIDACION.ordinal()];
+            long construccion = acumulado[Fase.CONSTRUCCION.ordinal()];
+            registrar(Fase.ESCANEO, escaneo);
+            registrar(Fase.VALIDACION, validacion);
+            if (construccion > 0) {
+                registrar(Fase.CONSTRUCCION, construccion);
+            }
+            registrar(Fase.ANALISIS, total);
+            eventoAnalisis.end();
+            if (eventoAnalisis.shouldCommit()) {
+                eventoAnalisis.valida = valida;
+                eventoAnalisis.turnos = turnos;
+                eventoAnalisis.jugadas = jugadas;
+                eventoAnalisis.escaneo = escaneo;
+                eventoAnalisis.validacion = validacion;
+                eventoAnalisis.construccion = construccion;
+                eventoAnalisis.commit();
+            }
+        }
+
+        /**
+         * Termina la medición de una fase que no es el análisis
+         * @param elementos Nodos, jugadas o bytes procesados
+         */
+        public void terminar(long elementos) {
+            registrar(fase, System.nanoTime() - inicio);
+            eventoFase.end();
+            if (eventoFase.shouldCommit()) {
+                eventoFase.fase = fase.name();
+                eventoFase.elementos = elementos;
+                eventoFase.commit();
+            }
+        }
+    }
+
+    /**
+     * Copia inmutable de las métricas en un momento dado
+     */
+    public static final class Instantanea {
+        private final long[] conteos;
+        private final long[] sumas;
+        private final long[] maximos;
+        private final long[][] cubetas;
+        private final long[] rechazos;
+
+        private Instantanea(long[] conteos, long[] sumas, long[] maximos, long[][] cubetas, long[] rechazos) {
+            this.conteos = conteos;
+            this.sumas = sumas;
+            this.maximos = maximos;
+            this.cubetas = cubetas;
+            this.rechazos = rechazos;
+        }
+
+        /**
+         * Obtiene cuántas veces se ejecutó una fase
+         * @param fase Fase
+         * @return Número de ejecuciones
+         */
+        public long getConteo(Fase fase) {
+            return conteos[fase.ordinal()];
+        }
+
+        /**
+         * Obtiene el tiempo total de una fase
+         * @param fase Fase
+         * @return Suma de las duraciones en nanosegundos
+         */
+        public long getNanosTotales(Fase fase) {
+            return sumas[fase.ordinal()];
+        }
+
+        /**
+         * Obtiene la duración más larga de una fase
+         * @param fase Fase
+         * @return Duración máxima en nanosegundos
+         */
+        public long getMaximo(Fase fase) {
+            return maximos[fase.ordinal()];
+        }
+
+        /**
+         * Obtiene un percentil de la duración de una fase
+         * @param fase Fase
+         * @param percentil Fracción entre 0 y 1, por ejemplo 0.99
+         * @return Duración en nanosegundos, con un error relativo de como mucho un 12,5 %
+         */
+        public long getPercentil(Fase fase, double percentil) {
+            return Math.min(Histograma.percentil(cubetas[fase.ordinal()], percentil), maximos[fase.ordinal()]);
+        }
+
+        /**
+         * Obtiene cuántos rechazos hubo de una categoría
+         * @param rechazo Categoría
+         * @return Número de rechazos
+         */
+        public long getRechazos(Rechazo rechazo) {
+            return rechazos[rechazo.ordinal()];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%-13s %10s %12s %10s %10s %10s %10s%n",
+                    "Fase", "Conteo", "Total ms", "p50 µs", "p99 µs", "p99.9 µs", "Máx µs"));
+            for (Fase fase : FASES) {
+                if (getConteo(fase) == 0) {
+                    continue;
+                }
+                sb.append(String.format("%-13s %10d %12.1f %10.2f %10.2f %10.2f %10.2f%n",
+                        fase, getConteo(fase), getNanosTotales(fase) / 1e6,
+                        getPercentil(fase, 0.50) / 1e3, getPercentil(fase, 0.99) / 1e3,
+                        getPercentil(fase, 0.999) / 1e3, getMaximo(fase) / 1e3));
+            }
+            sb.append("Rechazos:");
+            for (Rechazo rechazo : RECHAZOS) {
+                sb.append(' ').append(rechazo).append('=').append(getRechazos(rechazo));
+            }
+            return sb.toString();
+        }
+    }
+}
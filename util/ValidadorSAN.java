@@ -1,19 +1,180 @@
 package util;
 
-import java.util.regex.Pattern;
-
 /**
  * Clase de utilidad para validar notación SAN
+ *
+ * La validación se hace con un autómata finito determinista escrito a mano y
+ * guiado por tablas: cada carácter se traduce a una clase y la tabla de
+ * transiciones da el siguiente estado. Se recorre la jugada una sola vez y no
+ * se crea ningún objeto. El lenguaje aceptado es exactamente el de las
+ * expresiones regulares originales:
+ * <pre>
+ *   enroque: O-O(-O)?
+ *   pieza:   [KQRBN][a-h1-8]?[a-h1-8]?x?[a-h][1-8](=[QRBN])?[+#]?
+ *   peón:    ([a-h]x)?[a-h][1-8](=[QRBN])?[+#]?
+ * </pre>
  */
 public class ValidadorSAN {
-    
-    // Se definien los patrones para validar diferentes tipos de jugadas
-    private static final Pattern PATRON_ENROQUE = Pattern.compile("^O-O(-O)?$"); //Se usa para validar enroques 
-    // Se usa para validar movimientos de piezas (y las jugada que puede tener como capturas, jaque mate, etc...)
-    private static final Pattern PATRON_MOVIMIENTO_PIEZA = Pattern.compile("^[KQRBN][a-h1-8]?[a-h1-8]?x?[a-h][1-8](=[QRBN])?[+#]?$");
-    // Se usa para validar movimientos de peones
-    private static final Pattern PATRON_MOVIMIENTO_PEON = Pattern.compile("^([a-h]x)?[a-h][1-8](=[QRBN])?[+#]?$");
-    
+
+    // Resultado de clasificar una jugada que no pertenece a la gramática
+    public static final int INVALIDA = 0;
+
+    // Tipos de jugada, ocupan los tres bits bajos del resultado de clasificar
+    public static final int ENROQUE_CORTO = 1;
+    public static final int ENROQUE_LARGO = 2;
+    public static final int MOVIMIENTO_PIEZA = 3;
+    public static final int MOVIMIENTO_PEON = 4;
+    public static final int MASCARA_TIPO = 0x7;
+
+    // Banderas que acompañan al tipo
+    public static final int CAPTURA = 0x8;
+    public static final int CORONACION = 0x10;
+    public static final int JAQUE = 0x20;
+    public static final int JAQUE_MATE = 0x40;
+
+    // Clases de caracteres que entiende el autómata
+    private static final int C_OTRO = 0;
+    private static final int C_COLUMNA = 1;    // a-h
+    private static final int C_FILA = 2;       // 1-8
+    private static final int C_REY = 3;        // K
+    private static final int C_PIEZA = 4;      // Q R B N (también sirven para coronar)
+    private static final int C_CAPTURA = 5;    // x
+    private static final int C_IGUAL = 6;      // =
+    private static final int C_JAQUE = 7;      // +
+    private static final int C_MATE = 8;       // #
+    private static final int C_O = 9;          // O
+    private static final int C_GUION = 10;     // -
+    private static final int NUM_CLASES = 11;
+
+    // Estados del autómata. El estado 0 es el de error (sumidero)
+    private static final int E_ERROR = 0;
+    private static final int E_INICIO = 1;
+    // Enroque: "O", "O-", "O-O", "O-O-", "O-O-O"
+    private static final int E_O = 2;
+    private static final int E_O_ = 3;
+    private static final int E_OO = 4;
+    private static final int E_OO_ = 5;
+    private static final int E_OOO = 6;
+    // Pieza: se lleva la cuenta de los caracteres [a-h1-8] leídos tras la letra
+    // y la clase de los dos últimos (C = columna, F = fila)
+    private static final int E_PIEZA = 7;
+    private static final int E_P1C = 8;
+    private static final int E_P1F = 9;
+    private static final int E_P2CF = 10;     // acepta: casilla destino
+    private static final int E_P2CC = 11;
+    private static final int E_P2FC = 12;
+    private static final int E_P2FF = 13;
+    private static final int E_P3CF = 14;     // acepta
+    private static final int E_P3C = 15;
+    private static final int E_P4CF = 16;     // acepta
+    // Peón: columna inicial, captura y casilla destino (compartidos con la pieza)
+    private static final int E_PEON = 17;
+    private static final int E_X = 18;
+    private static final int E_XC = 19;
+    private static final int E_DESTINO = 20;  // acepta
+    // Sufijos comunes
+    private static final int E_IGUAL = 21;
+    private static final int E_CORONADO = 22; // acepta
+    private static final int E_FINAL = 23;    // acepta, tras + o #
+    private static final int NUM_ESTADOS = 24;
+
+    private static final byte[] CLASES = new byte[128];
+    private static final byte[] TRANSICIONES = new byte[NUM_ESTADOS * NUM_CLASES];
+    private static final boolean[] ACEPTACION = new boolean[NUM_ESTADOS];
+    // Banderas que aporta cada clase de carácter; solo cuentan si la jugada se acepta
+    private static final int[] BANDERAS_CLASE = new int[NUM_CLASES];
+
+    static {
+        for (char c = 'a'; c <= 'h'; c++) CLASES[c] = C_COLUMNA;
+        for (char c = '1'; c <= '8'; c++) CLASES[c] = C_FILA;
+        CLASES['K'] = C_REY;
+        CLASES['Q'] = C_PIEZA;
+        CLASES['R'] = C_PIEZA;
+        CLASES['B'] = C_PIEZA;
+        CLASES['N'] = C_PIEZA;
+        CLASES['x'] = C_CAPTURA;
+        CLASES['='] = C_IGUAL;
+        CLASES['+'] = C_JAQUE;
+        CLASES['#'] = C_MATE;
+        CLASES['O'] = C_O;
+        CLASES['-'] = C_GUION;
+
+        BANDERAS_CLASE[C_CAPTURA] = CAPTURA;
+        BANDERAS_CLASE[C_IGUAL] = CORONACION;
+        BANDERAS_CLASE[C_JAQUE] = JAQUE;
+        BANDERAS_CLASE[C_MATE] = JAQUE_MATE;
+
+        // Primer carácter: decide el tipo de jugada
+        transicion(E_INICIO, C_O, E_O);
+        transicion(E_INICIO, C_REY, E_PIEZA);
+        transicion(E_INICIO, C_PIEZA, E_PIEZA);
+        transicion(E_INICIO, C_COLUMNA, E_PEON);
+
+        // Enroques
+        transicion(E_O, C_GUION, E_O_);
+        transicion(E_O_, C_O, E_OO);
+        transicion(E_OO, C_GUION, E_OO_);
+        transicion(E_OO_, C_O, E_OOO);
+
+        // Pieza: hasta dos caracteres de desambiguación, captura opcional y destino.
+        // La captura solo se admite si se han leído como mucho dos caracteres
+        transicion(E_PIEZA, C_COLUMNA, E_P1C);
+        transicion(E_PIEZA, C_FILA, E_P1F);
+        transicion(E_PIEZA, C_CAPTURA, E_X);
+        transicion(E_P1C, C_FILA, E_P2CF);
+        transicion(E_P1C, C_COLUMNA, E_P2CC);
+        transicion(E_P1C, C_CAPTURA, E_X);
+        transicion(E_P1F, C_COLUMNA, E_P2FC);
+        transicion(E_P1F, C_FILA, E_P2FF);
+        transicion(E_P1F, C_CAPTURA, E_X);
+        transicion(E_P2CF, C_COLUMNA, E_P3C);
+        transicion(E_P2CF, C_CAPTURA, E_X);
+        sufijos(E_P2CF);
+        transicion(E_P2CC, C_FILA, E_P3CF);
+        transicion(E_P2CC, C_COLUMNA, E_P3C);
+        transicion(E_P2CC, C_CAPTURA, E_X);
+        transicion(E_P2FC, C_FILA, E_P3CF);
+        transicion(E_P2FC, C_COLUMNA, E_P3C);
+        transicion(E_P2FC, C_CAPTURA, E_X);
+        transicion(E_P2FF, C_COLUMNA, E_P3C);
+        transicion(E_P2FF, C_CAPTURA, E_X);
+        sufijos(E_P3CF);
+        transicion(E_P3C, C_FILA, E_P4CF);
+        sufijos(E_P4CF);
+
+        // Peón y destino tras una captura
+        transicion(E_PEON, C_FILA, E_DESTINO);
+        transicion(E_PEON, C_CAPTURA, E_X);
+        transicion(E_X, C_COLUMNA, E_XC);
+        transicion(E_XC, C_FILA, E_DESTINO);
+        sufijos(E_DESTINO);
+
+        // Coronación y jaque
+        transicion(E_IGUAL, C_PIEZA, E_CORONADO);
+        transicion(E_CORONADO, C_JAQUE, E_FINAL);
+        transicion(E_CORONADO, C_MATE, E_FINAL);
+
+        ACEPTACION[E_OO] = true;
+        ACEPTACION[E_OOO] = true;
+        ACEPTACION[E_P2CF] = true;
+        ACEPTACION[E_P3CF] = true;
+        ACEPTACION[E_P4CF] = true;
+        ACEPTACION[E_DESTINO] = true;
+        ACEPTACION[E_CORONADO] = true;
+        ACEPTACION[E_FINAL] = true;
+    }
+
+    private static void transicion(int estado, int clase, int destino) {
+        TRANSICIONES[estado * NUM_CLASES + clase] = (byte) destino;
+    }
+
+    // Un estado que ya tiene casilla destino puede seguir con coronación o jaque
+    private static void sufijos(int estado) {
+        transicion(estado, C_IGUAL, E_IGUAL);
+        transicion(estado, C_JAQUE, E_FINAL);
+        transicion(estado, C_MATE, E_FINAL);
+    }
+
     /**
      * Verifica si una jugada es válida según la gramática BNF
      * @param jugada Notación de la jugada
@@ -21,24 +182,111 @@ public class ValidadorSAN {
      */
     // Recibe de parametro la jugada, para decir si es valida o no
     public static boolean esJugadaValida(String jugada) {
-        // Verificar si es un enroque
-        if (PATRON_ENROQUE.matcher(jugada).matches()) {
-            return true;
+        return clasificar(jugada) != INVALIDA;
+    }
+
+    /**
+     * Clasifica una jugada completa
+     * @param jugada Notación de la jugada
+     * @return Tipo de jugada combinado con sus banderas, o INVALIDA
+     */
+    public static int clasificar(CharSequence jugada) {
+        return clasificar(jugada, 0, jugada.length());
+    }
+
+    /**
+     * Clasifica la jugada contenida en un tramo de una secuencia de caracteres
+     * @param texto Texto que contiene la jugada
+     * @param inicio Posición del primer carácter
+     * @param longitud Número de caracteres de la jugada
+     * @return Tipo de jugada combinado con sus banderas, o INVALIDA
+     */
+    public static int clasificar(CharSequence texto, int inicio, int longitud) {
+        int estado = E_INICIO;
+        int banderas = 0;
+        for (int i = inicio, fin = inicio + longitud; i < fin && estado != E_ERROR; i++) {
+            int clase = clase(texto.charAt(i));
+            banderas |= BANDERAS_CLASE[clase];
+            estado = TRANSICIONES[estado * NUM_CLASES + clase];
         }
-        
-        // Verificar si es un movimiento de pieza
-        if (PATRON_MOVIMIENTO_PIEZA.matcher(jugada).matches()) {
-            return true;
+        return resultado(estado, banderas, longitud > 0 ? texto.charAt(inicio) : 0);
+    }
+
+    /**
+     * Clasifica la jugada contenida en un tramo de un arreglo de caracteres
+     * @param texto Arreglo que contiene la jugada
+     * @param inicio Posición del primer carácter
+     * @param longitud Número de caracteres de la jugada
+     * @return Tipo de jugada combinado con sus banderas, o INVALIDA
+     */
+    public static int clasificar(char[] texto, int inicio, int longitud) {
+        int estado = E_INICIO;
+        int banderas = 0;
+        for (int i = inicio, fin = inicio + longitud; i < fin && estado != E_ERROR; i++) {
+            int clase = clase(texto[i]);
+            banderas |= BANDERAS_CLASE[clase];
+            estado = TRANSICIONES[estado * NUM_CLASES + clase];
         }
-        
-        // Verificar si es un movimiento de peón
-        if (PATRON_MOVIMIENTO_PEON.matcher(jugada).matches()) {
-            return true;
+        return resultado(estado, banderas, longitud > 0 ? texto[inicio] : 0);
+    }
+
+    /**
+     * Clasifica la jugada contenida en un tramo de bytes en ASCII
+     * @param texto Arreglo que contiene la jugada
+     * @param inicio Posición del primer byte
+     * @param longitud Número de bytes de la jugada
+     * @return Tipo de jugada combinado con sus banderas, o INVALIDA
+     */
+    public static int clasificar(byte[] texto, int inicio, int longitud) {
+        int estado = E_INICIO;
+        int banderas = 0;
+        for (int i = inicio, fin = inicio + longitud; i < fin && estado != E_ERROR; i++) {
+            int clase = clase(texto[i] & 0xFF);
+            banderas |= BANDERAS_CLASE[clase];
+            estado = TRANSICIONES[estado * NUM_CLASES + clase];
         }
-        
-        return false;
+        return resultado(estado, banderas, longitud > 0 ? texto[inicio] & 0xFF : 0);
     }
-    
+
+    /**
+     * Obtiene el tipo de una jugada clasificada
+     * @param clasificacion Resultado de clasificar
+     * @return ENROQUE_CORTO, ENROQUE_LARGO, MOVIMIENTO_PIEZA, MOVIMIENTO_PEON o INVALIDA
+     */
+    public static int tipo(int clasificacion) {
+        return clasificacion & MASCARA_TIPO;
+    }
+
+    /**
+     * Verifica si la jugada clasificada es un enroque
+     * @param clasificacion Resultado de clasificar
+     * @return true si es un enroque corto o largo
+     */
+    public static boolean esEnroque(int clasificacion) {
+        int tipo = tipo(clasificacion);
+        return tipo == ENROQUE_CORTO || tipo == ENROQUE_LARGO;
+    }
+
+    private static int clase(int c) {
+        return c < 128 ? CLASES[c] : C_OTRO;
+    }
+
+    // Combina el tipo, deducido del primer carácter, con las banderas acumuladas
+    private static int resultado(int estado, int banderas, int primero) {
+        if (!ACEPTACION[estado]) {
+            return INVALIDA;
+        }
+        switch (estado) {
+            case E_OO:
+                return ENROQUE_CORTO;
+            case E_OOO:
+                return ENROQUE_LARGO;
+            default:
+                int tipo = CLASES[primero] == C_COLUMNA ? MOVIMIENTO_PEON : MOVIMIENTO_PIEZA;
+                return tipo | banderas;
+        }
+    }
+
     /**
      * Verifica si una casilla es válida
      * @param casilla Notación de la casilla
@@ -49,13 +297,13 @@ public class ValidadorSAN {
         if (casilla.length() != 2) {
             return false;
         }
-        
+
         char columna = casilla.charAt(0);
         char fila = casilla.charAt(1);
         // Valida si la columna está entre 'a' y 'h' y la fila entre '1' y '8'
         return columna >= 'a' && columna <= 'h' && fila >= '1' && fila <= '8';
     }
-    
+
     /**
      * Verifica si una pieza es válida
      * @param pieza Notación de la pieza
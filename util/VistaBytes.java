@@ -0,0 +1,70 @@
+package util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Vista de solo lectura de un tramo de bytes en ASCII como secuencia de caracteres.
+ * No copia los bytes: cada carácter se lee directamente del buffer, que puede ser
+ * un archivo mapeado en memoria. La misma vista se puede reutilizar con reiniciar.
+ */
+public class VistaBytes implements CharSequence {
+
+    private ByteBuffer buffer;
+    private int inicio;
+    private int longitud;
+
+    /**
+     * Constructor de una vista vacía, pensada para reutilizarse
+     */
+    public VistaBytes() {
+    }
+
+    /**
+     * Constructor
+     * @param buffer Buffer que contiene los bytes
+     * @param inicio Posición absoluta del primer byte
+     * @param fin Posición absoluta siguiente al último byte
+     */
+    public VistaBytes(ByteBuffer buffer, int inicio, int fin) {
+        reiniciar(buffer, inicio, fin);
+    }
+
+    /**
+     * Hace que la vista apunte a otro tramo
+     * @param buffer Buffer que contiene los bytes
+     * @param inicio Posición absoluta del primer byte
+     * @param fin Posición absoluta siguiente al último byte
+     */
+    public void reiniciar(ByteBuffer buffer, int inicio, int fin) {
+        this.buffer = buffer;
+        this.inicio = inicio;
+        this.longitud = fin - inicio;
+    }
+
+    @Override
+    public int length() {
+        return longitud;
+    }
+
+    @Override
+    public char charAt(int indice) {
+        // Lectura absoluta: no mueve la posición del buffer
+        return (char) (buffer.get(inicio + indice) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int desde, int hasta) {
+        return new VistaBytes(buffer, inicio + desde, inicio + hasta);
+    }
+
+    @Override
+    public String toString() {
+        // Solo aquí se copian los bytes, por ejemplo para un mensaje de error
+        byte[] bytes = new byte[longitud];
+        for (int i = 0; i < longitud; i++) {
+            bytes[i] = buffer.get(inicio + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}